@@ -0,0 +1,183 @@
+package partsapp.benchmarks;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import partsapp.inventory.Inventory;
+import partsapp.part.InHouse;
+import partsapp.part.Outsourced;
+import partsapp.part.Part;
+import partsapp.product.Product;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Synthetic catalog loaded into the inventory before each trial.
+ *
+ * <p>
+ * The inventory is static, so every trial must run in a fresh fork for the catalog to start out the same.  The
+ * catalog holds the given number of parts, half in-house and half outsourced, and a tenth as many products.  Three
+ * in four products use between one and four parts, and the rest use none, so that they can be deleted.
+ * </p>
+ */
+@State(Scope.Benchmark)
+public class CatalogState {
+    /**
+     * Number of search terms generated up front, so that generating them is not measured.
+     */
+    private static final int SEARCH_TERM_COUNT = 1024;
+
+    /**
+     * Number of parts in the catalog.
+     */
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int catalogSize;
+
+    /**
+     * Distribution of words in the names of parts and products.
+     */
+    @Param({"SEQUENTIAL", "UNIFORM_WORDS", "ZIPF_WORDS"})
+    public NameGenerator.Distribution nameDistribution;
+
+    /**
+     * Every part in the catalog, in inventory order.
+     */
+    Part[] parts;
+
+    /**
+     * Every product in the catalog which uses no parts.
+     */
+    List<Product> productsWithoutParts;
+
+    /**
+     * Every product in the catalog which uses parts.
+     */
+    List<Product> productsWithParts;
+
+    /**
+     * Terms to search names for, drawn from the same distribution as the names.
+     */
+    String[] searchTerms;
+
+    /**
+     * Names for parts added or replaced during the benchmark, generated up front.
+     */
+    String[] spareNames;
+
+    /**
+     * Generator of names for the catalog.
+     */
+    NameGenerator names;
+
+    /**
+     * Source of randomness for choosing items during the benchmark.
+     */
+    SplittableRandom random;
+
+    /**
+     * Load the catalog into the inventory.
+     */
+    @Setup(Level.Trial)
+    public void loadCatalog() {
+        names = new NameGenerator(nameDistribution, 42);
+        random = new SplittableRandom(7);
+
+        parts = new Part[catalogSize];
+        List<Part> batch = new ArrayList<>();
+        for (int i = 0; i < catalogSize; i++) {
+            parts[i] = createPart(Inventory.getNextPartId(), i);
+            batch.add(parts[i]);
+            if (batch.size() == 10_000 || i == catalogSize - 1) {
+                Inventory.addParts(batch);
+                batch.clear();
+            }
+        }
+
+        productsWithoutParts = new ArrayList<>();
+        productsWithParts = new ArrayList<>();
+        for (int i = 0; i < Math.max(catalogSize / 10, 1); i++) {
+            Product product = new Product(Inventory.getNextProductId(), names.nextName(i), 1000.0, 5, 1, 10);
+            if (i % 4 == 0) {
+                productsWithoutParts.add(product);
+            } else {
+                int partCount = 1 + random.nextInt(4);
+                for (int j = 0; j < partCount; j++) {
+                    product.addAssociatedPart(randomPart());
+                }
+                productsWithParts.add(product);
+            }
+            Inventory.addProduct(product);
+        }
+
+        searchTerms = new String[SEARCH_TERM_COUNT];
+        spareNames = new String[SEARCH_TERM_COUNT];
+        for (int i = 0; i < SEARCH_TERM_COUNT; i++) {
+            searchTerms[i] = names.nextSearchTerm(catalogSize);
+            spareNames[i] = names.nextName(catalogSize + i);
+        }
+    }
+
+    /**
+     * Create a part for the catalog, alternating between in-house and outsourced.
+     *
+     * @param id of the part
+     * @param serial number of the part, unique within the catalog
+     * @return new part
+     */
+    private Part createPart(int id, int serial) {
+        return createPart(id, serial, names.nextName(serial));
+    }
+
+    /**
+     * Create a part to add or replace one with during the benchmark, with a name generated up front.
+     *
+     * @param id of the part
+     * @return new part
+     */
+    Part createSparePart(int id) {
+        int serial = random.nextInt(spareNames.length);
+        return createPart(id, serial, spareNames[serial]);
+    }
+
+    /**
+     * Create a part, alternating between in-house and outsourced.
+     *
+     * @param id of the part
+     * @param serial number of the part
+     * @param name of the part
+     * @return new part
+     */
+    private Part createPart(int id, int serial, String name) {
+        double price = 1 + random.nextInt(10_000) / 100.0;
+        if (serial % 2 == 0) {
+            InHouse part = new InHouse(id, name, price, 5, 1, 10);
+            part.setMachineId(serial % 1000);
+            return part;
+        }
+        Outsourced part = new Outsourced(id, name, price, 5, 1, 10);
+        part.setCompanyName("Supplier " + serial % 100);
+        return part;
+    }
+
+    /**
+     * Choose a random part from the catalog.
+     *
+     * @return part
+     */
+    Part randomPart() {
+        return parts[random.nextInt(parts.length)];
+    }
+
+    /**
+     * Choose a random search term.
+     *
+     * @return search term
+     */
+    String randomSearchTerm() {
+        return searchTerms[random.nextInt(searchTerms.length)];
+    }
+}
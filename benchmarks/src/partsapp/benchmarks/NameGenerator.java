@@ -0,0 +1,139 @@
+package partsapp.benchmarks;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Generator of synthetic part and product names, and of search terms matching them.
+ *
+ * <p>
+ * Names are built from a fixed vocabulary of made up words, so that name searches have realistic selectivity.  The
+ * distribution decides how evenly the words are used, which in turn decides how long the posting lists of the name
+ * index grow.  Generation is seeded, so every run builds the same catalog.
+ * </p>
+ */
+final class NameGenerator {
+    /**
+     * How words are chosen for names.
+     */
+    enum Distribution {
+        /**
+         * Unique serial names, such as "Part 0012345", sharing nothing but the prefix.
+         */
+        SEQUENTIAL,
+
+        /**
+         * Two or three words chosen uniformly from the vocabulary.
+         */
+        UNIFORM_WORDS,
+
+        /**
+         * Two or three words chosen with a Zipf distribution, so a few words appear in a large share of names.
+         */
+        ZIPF_WORDS,
+    }
+
+    /**
+     * Number of words in the vocabulary.
+     */
+    private static final int VOCABULARY_SIZE = 4096;
+
+    /**
+     * Syllables the words are made from.
+     */
+    private static final String[] SYLLABLES = {
+            "ba", "co", "di", "fe", "ga", "hu", "ki", "lo", "ma", "ne", "po", "ra", "si", "tu", "ve", "zo",
+    };
+
+    /**
+     * Words names are made from.
+     */
+    private final String[] vocabulary = new String[VOCABULARY_SIZE];
+
+    /**
+     * Cumulative probability of choosing each word, for the Zipf distribution.
+     */
+    private final double[] cumulativeZipf = new double[VOCABULARY_SIZE];
+
+    /**
+     * Distribution of words in names.
+     */
+    private final Distribution distribution;
+
+    /**
+     * Source of randomness.
+     */
+    private final SplittableRandom random;
+
+    /**
+     * Constructor for a generator.
+     *
+     * @param distribution of words in names
+     * @param seed for the random choices
+     */
+    NameGenerator(Distribution distribution, long seed) {
+        this.distribution = distribution;
+        this.random = new SplittableRandom(seed);
+
+        // Spell each word from the digits of its index, three syllables per word.
+        for (int i = 0; i < VOCABULARY_SIZE; i++) {
+            vocabulary[i] = SYLLABLES[i & 0xf] + SYLLABLES[i >> 4 & 0xf] + SYLLABLES[i >> 8 & 0xf];
+        }
+
+        double total = 0;
+        for (int i = 0; i < VOCABULARY_SIZE; i++) {
+            total += 1.0 / (i + 1);
+            cumulativeZipf[i] = total;
+        }
+        for (int i = 0; i < VOCABULARY_SIZE; i++) {
+            cumulativeZipf[i] /= total;
+        }
+    }
+
+    /**
+     * Generate the name of an item.
+     *
+     * @param serial number of the item, unique within the catalog
+     * @return name of the item
+     */
+    String nextName(int serial) {
+        if (distribution == Distribution.SEQUENTIAL) {
+            return String.format("Part %07d", serial);
+        }
+
+        StringBuilder name = new StringBuilder(nextWord());
+        int wordCount = 2 + random.nextInt(2);
+        for (int i = 1; i < wordCount; i++) {
+            name.append(' ').append(nextWord());
+        }
+        return name.toString();
+    }
+
+    /**
+     * Generate a term to search names for, drawn from the same distribution as the names.
+     *
+     * @param catalogSize number of items named
+     * @return search term
+     */
+    String nextSearchTerm(int catalogSize) {
+        if (distribution == Distribution.SEQUENTIAL) {
+            // Four digits of a serial number, matching roughly one name in ten thousand.
+            String serial = String.format("%07d", random.nextInt(catalogSize));
+            return serial.substring(3);
+        }
+        return nextWord();
+    }
+
+    /**
+     * Choose a word from the vocabulary.
+     *
+     * @return word
+     */
+    private String nextWord() {
+        if (distribution == Distribution.ZIPF_WORDS) {
+            int index = Arrays.binarySearch(cumulativeZipf, random.nextDouble());
+            return vocabulary[Math.min(index < 0 ? -index - 1 : index, VOCABULARY_SIZE - 1)];
+        }
+        return vocabulary[random.nextInt(VOCABULARY_SIZE)];
+    }
+}
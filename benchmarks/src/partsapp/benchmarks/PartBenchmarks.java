@@ -0,0 +1,210 @@
+package partsapp.benchmarks;
+
+import javafx.collections.ObservableList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import partsapp.inventory.Inventory;
+import partsapp.inventory.Query;
+import partsapp.inventory.RangeField;
+import partsapp.part.Part;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the inventory's part operations.
+ *
+ * <p>
+ * Lookups and updates leave the catalog the same size, so are measured as an average time per call.  Adding and
+ * deleting change its size, so are measured as the time for a batch of calls, with the catalog put back to its
+ * original size between batches.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class PartBenchmarks {
+    /**
+     * Number of parts added or deleted per measured batch.
+     */
+    static final int BATCH_SIZE = 100;
+
+    /**
+     * Parts added during a batch, removed again afterwards.
+     */
+    @State(Scope.Thread)
+    public static class AddedParts {
+        /**
+         * Parts added so far in this batch.
+         */
+        final List<Part> parts = new ArrayList<>();
+
+        /**
+         * Remove the parts added by the batch.
+         */
+        @TearDown(Level.Iteration)
+        public void removeAddedParts() {
+            for (Part part : parts) {
+                Inventory.deletePart(part);
+            }
+            parts.clear();
+        }
+    }
+
+    /**
+     * Parts chosen for deletion during a batch, restored again afterwards.
+     */
+    @State(Scope.Thread)
+    public static class DeletedParts {
+        /**
+         * Parts to delete, in order.
+         */
+        final List<Part> parts = new ArrayList<>();
+
+        /**
+         * Index of the next part to delete.
+         */
+        int next;
+
+        /**
+         * Choose the parts the batch will delete.
+         *
+         * @param catalog to choose from
+         */
+        @Setup(Level.Iteration)
+        public void chooseParts(CatalogState catalog) {
+            parts.clear();
+            next = 0;
+            while (parts.size() < BATCH_SIZE) {
+                Part part = catalog.randomPart();
+                if (!parts.contains(part)) {
+                    parts.add(part);
+                }
+            }
+        }
+
+        /**
+         * Restore the parts deleted by the batch.
+         */
+        @TearDown(Level.Iteration)
+        public void restoreParts() {
+            Inventory.addParts(parts);
+        }
+    }
+
+    /**
+     * Look up a part by ID.
+     *
+     * @param catalog loaded into the inventory
+     * @return part found
+     */
+    @Benchmark
+    public Part lookupPartById(CatalogState catalog) {
+        return Inventory.lookupPart(catalog.randomPart().getId());
+    }
+
+    /**
+     * Search for parts by name.
+     *
+     * @param catalog loaded into the inventory
+     * @return parts found
+     */
+    @Benchmark
+    public ObservableList<Part> lookupPartByName(CatalogState catalog) {
+        return Inventory.lookupPart(catalog.randomSearchTerm());
+    }
+
+    /**
+     * Run a query on the name and price, through the cache of compiled queries.
+     *
+     * @param catalog loaded into the inventory
+     * @return parts found
+     * @throws ParseException if the query is not valid
+     */
+    @Benchmark
+    public ObservableList<Part> lookupPartsByQuery(CatalogState catalog) throws ParseException {
+        return Inventory.lookupParts(Query.forParts("name~\"" + catalog.randomSearchTerm() + "\" AND price<25"));
+    }
+
+    /**
+     * Find the parts most in need of reordering, as for a purchasing dashboard.
+     *
+     * @param catalog loaded into the inventory
+     * @return parts found
+     */
+    @Benchmark
+    public ObservableList<Part> lookupMostUrgentParts(CatalogState catalog) {
+        return Inventory.lookupMostUrgentParts(50);
+    }
+
+    /**
+     * Find a page of the parts in a price range, starting part way through the range.
+     *
+     * @param catalog loaded into the inventory
+     * @return parts found
+     */
+    @Benchmark
+    public ObservableList<Part> lookupPartsInPriceRange(CatalogState catalog) {
+        long lowCents = 100 + catalog.random.nextInt(9_000);
+        return Inventory.lookupPartsInRange(RangeField.PRICE, lowCents, lowCents + 1_000, 50, 50);
+    }
+
+    /**
+     * Replace a part with a new version under a different name.
+     *
+     * @param catalog loaded into the inventory
+     */
+    @Benchmark
+    public void updatePart(CatalogState catalog) {
+        int index = catalog.random.nextInt(catalog.parts.length);
+        Part part = catalog.createSparePart(catalog.parts[index].getId());
+        Inventory.updatePart(part.getId(), part);
+        catalog.parts[index] = part;
+    }
+
+    /**
+     * Add a new part.
+     *
+     * @param catalog loaded into the inventory
+     * @param added parts to remove after the batch
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 5, batchSize = BATCH_SIZE)
+    @Measurement(iterations = 20, batchSize = BATCH_SIZE)
+    public void addPart(CatalogState catalog, AddedParts added) {
+        Part part = catalog.createSparePart(Inventory.getNextPartId());
+        Inventory.addPart(part);
+        added.parts.add(part);
+    }
+
+    /**
+     * Delete a part.
+     *
+     * @param deleted parts to delete, restored after the batch
+     * @return true if the part was deleted
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 5, batchSize = BATCH_SIZE)
+    @Measurement(iterations = 20, batchSize = BATCH_SIZE)
+    public boolean deletePart(DeletedParts deleted) {
+        return Inventory.deletePart(deleted.parts.get(deleted.next++));
+    }
+}
@@ -0,0 +1,223 @@
+package partsapp.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import partsapp.inventory.Inventory;
+import partsapp.part.Part;
+import partsapp.product.Product;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the inventory's product operations.
+ *
+ * <p>
+ * Every operation changes the catalog, so each is measured as the time for a batch of calls, with the catalog put
+ * back as it was between batches.  Association changes are made to products held in inventory, so the time includes
+ * keeping the where-used index and cost rollup up to date.
+ * </p>
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+@Warmup(iterations = 5, batchSize = PartBenchmarks.BATCH_SIZE)
+@Measurement(iterations = 20, batchSize = PartBenchmarks.BATCH_SIZE)
+public class ProductBenchmarks {
+    /**
+     * Products chosen for deletion during a batch, restored again afterwards.
+     */
+    @State(Scope.Thread)
+    public static class DeletedProducts {
+        /**
+         * Products to delete, in order.
+         */
+        final List<Product> products = new ArrayList<>();
+
+        /**
+         * Index of the next product to delete.
+         */
+        int next;
+
+        /**
+         * Choose the products the batch will delete, from those using no parts.
+         *
+         * @param catalog to choose from
+         */
+        @Setup(Level.Iteration)
+        public void chooseProducts(CatalogState catalog) {
+            products.clear();
+            next = 0;
+            int wanted = Math.min(PartBenchmarks.BATCH_SIZE, catalog.productsWithoutParts.size());
+            while (products.size() < wanted) {
+                Product product = catalog.productsWithoutParts.get(
+                        catalog.random.nextInt(catalog.productsWithoutParts.size()));
+                if (!products.contains(product)) {
+                    products.add(product);
+                }
+            }
+        }
+
+        /**
+         * Restore the products deleted by the batch.
+         */
+        @TearDown(Level.Iteration)
+        public void restoreProducts() {
+            Inventory.addProducts(products);
+        }
+
+        /**
+         * Retrieve the next product to delete, cycling round if the catalog has too few.
+         *
+         * @return product to delete
+         */
+        Product nextProduct() {
+            return products.get(next++ % products.size());
+        }
+    }
+
+    /**
+     * Parts associated with products during a batch.
+     */
+    public static class Associations {
+        /**
+         * Products associated with a part, in order.
+         */
+        final List<Product> products = new ArrayList<>();
+
+        /**
+         * Part associated with each product.
+         */
+        final List<Part> parts = new ArrayList<>();
+
+        /**
+         * Index of the next association.
+         */
+        int next;
+
+        /**
+         * Choose a product using parts and a part to associate with it.
+         *
+         * @param catalog to choose from
+         */
+        void choose(CatalogState catalog) {
+            products.add(catalog.productsWithParts.get(catalog.random.nextInt(catalog.productsWithParts.size())));
+            parts.add(catalog.randomPart());
+        }
+
+        /**
+         * Undo every association made, and forget them.
+         */
+        void undo() {
+            for (int i = 0; i < products.size(); i++) {
+                products.get(i).deleteAssociatedPart(parts.get(i));
+            }
+            products.clear();
+            parts.clear();
+            next = 0;
+        }
+    }
+
+    /**
+     * Associations made during a batch, undone afterwards.
+     */
+    @State(Scope.Thread)
+    public static class AddedAssociations extends Associations {
+        /**
+         * Choose the associations the batch will make.
+         *
+         * @param catalog to choose from
+         */
+        @Setup(Level.Iteration)
+        public void chooseAssociations(CatalogState catalog) {
+            for (int i = 0; i < PartBenchmarks.BATCH_SIZE; i++) {
+                choose(catalog);
+            }
+        }
+
+        /**
+         * Undo the associations made by the batch.
+         */
+        @TearDown(Level.Iteration)
+        public void undoAssociations() {
+            undo();
+        }
+    }
+
+    /**
+     * Associations made before a batch for it to remove.
+     */
+    @State(Scope.Thread)
+    public static class ExistingAssociations extends Associations {
+        /**
+         * Make the associations the batch will remove.
+         *
+         * @param catalog to choose from
+         */
+        @Setup(Level.Iteration)
+        public void addAssociations(CatalogState catalog) {
+            for (int i = 0; i < PartBenchmarks.BATCH_SIZE; i++) {
+                choose(catalog);
+                products.get(i).addAssociatedPart(parts.get(i));
+            }
+        }
+
+        /**
+         * Forget the associations, which the batch has removed.
+         */
+        @TearDown(Level.Iteration)
+        public void forgetAssociations() {
+            products.clear();
+            parts.clear();
+            next = 0;
+        }
+    }
+
+    /**
+     * Delete a product which uses no parts.
+     *
+     * @param catalog loaded into the inventory
+     * @param deleted products to delete, restored after the batch
+     * @return true if the product was deleted
+     */
+    @Benchmark
+    public boolean deleteProduct(CatalogState catalog, DeletedProducts deleted) {
+        return Inventory.deleteProduct(deleted.nextProduct());
+    }
+
+    /**
+     * Associate one more unit of a part with a product in inventory.
+     *
+     * @param catalog loaded into the inventory
+     * @param added associations to make, undone after the batch
+     */
+    @Benchmark
+    public void addAssociatedPart(CatalogState catalog, AddedAssociations added) {
+        int i = added.next++;
+        added.products.get(i).addAssociatedPart(added.parts.get(i));
+    }
+
+    /**
+     * Remove one unit of a part from a product in inventory.
+     *
+     * @param catalog loaded into the inventory
+     * @param existing associations to remove
+     * @return true if the part was removed
+     */
+    @Benchmark
+    public boolean deleteAssociatedPart(CatalogState catalog, ExistingAssociations existing) {
+        int i = existing.next++;
+        return existing.products.get(i).deleteAssociatedPart(existing.parts.get(i));
+    }
+}
@@ -5,14 +5,109 @@ import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
+import partsapp.bulk.CsvImporter;
+import partsapp.bulk.InventoryExporter;
 import partsapp.inventory.Inventory;
+import partsapp.metrics.Metrics;
+import partsapp.metrics.MetricsReporter;
 import partsapp.part.InHouse;
 import partsapp.part.Outsourced;
+import partsapp.persistence.InventoryJournal;
 import partsapp.product.Product;
 
+import javax.management.JMException;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
 public class Main extends Application {
+    /**
+     * Default time between exports of the inventory, once a day.
+     */
+    private static final long DEFAULT_EXPORT_INTERVAL_MINUTES = 24 * 60;
+
+    /**
+     * Default time between summaries of the operation metrics in the log, five minutes.
+     */
+    private static final long DEFAULT_METRICS_LOG_INTERVAL_SECONDS = 5 * 60;
+
+    /**
+     * Logger for import summaries and for export and JMX failures.
+     */
+    private static final Logger logger = Logger.getLogger(Main.class.getName());
+
+    /**
+     * Journal keeping the inventory on disk between runs.
+     */
+    private InventoryJournal journal;
+
+    /**
+     * Scheduler of periodic exports, or null if exports are not enabled.
+     */
+    private ScheduledExecutorService exportScheduler;
+
+    /**
+     * Scheduler of periodic metrics summaries, or null if they are not enabled.
+     */
+    private ScheduledExecutorService metricsScheduler;
+
     @Override
     public void start(Stage primaryStage) throws Exception{
+        // Publish the operation metrics, and summarize them in the log unless the interval is 0.
+        publishMetrics(Long.getLong("partsapp.metricsLogIntervalSeconds", DEFAULT_METRICS_LOG_INTERVAL_SECONDS));
+
+        // Restore the inventory saved by previous runs.
+        Path dataDirectory = Paths.get(System.getProperty("partsapp.dataDirectory", "data"));
+        journal = InventoryJournal.open(
+                dataDirectory,
+                Long.getLong("partsapp.syncIntervalMillis", InventoryJournal.DEFAULT_SYNC_INTERVAL_MILLIS),
+                Integer.getInteger("partsapp.syncBatchSize", InventoryJournal.DEFAULT_SYNC_BATCH_SIZE));
+
+        // Add example data on the first run only.
+        if (journal.isEmpty()) {
+            addExampleData();
+        }
+
+        // Import any parts and products files given, parts first so that products can use them.
+        importFiles(System.getProperty("partsapp.importParts"), System.getProperty("partsapp.importProducts"));
+
+        // Export the inventory periodically if a directory is given for it.
+        String exportDirectory = System.getProperty("partsapp.exportDirectory");
+        if (exportDirectory != null) {
+            scheduleExports(Paths.get(exportDirectory),
+                    Long.getLong("partsapp.exportIntervalMinutes", DEFAULT_EXPORT_INTERVAL_MINUTES));
+        }
+
+        // Instantiate main window
+        FXMLLoader loader = new FXMLLoader(getClass().getResource("windows/main/main_window.fxml"));
+        Parent root = loader.load();
+        primaryStage.setTitle("Inventory Management System");
+        primaryStage.setScene(new Scene(root));
+        primaryStage.show();
+    }
+
+    @Override
+    public void stop() throws Exception {
+        if (exportScheduler != null) {
+            exportScheduler.shutdownNow();
+        }
+        if (metricsScheduler != null) {
+            metricsScheduler.shutdownNow();
+        }
+
+        // Make sure every change has reached the disk before exiting.
+        journal.close();
+    }
+
+    /**
+     * Populate the inventory with example parts and products.
+     */
+    private void addExampleData() {
         // Add example parts
         InHouse brakes = new InHouse(Inventory.getNextPartId(), "Brakes", 15.00, 10, 1, 20);
         brakes.setMachineId(1234);
@@ -28,26 +123,97 @@ public class Main extends Application {
 
         // Add example products
         Product giantBike = new Product(Inventory.getNextProductId(), "Giant Bike", 99.99, 5, 1, 10);
-        giantBike.addAssociatedPart(wheel);
-        giantBike.addAssociatedPart(wheel);
+        giantBike.setAssociatedPartQuantity(wheel.getId(), 2);
         giantBike.addAssociatedPart(seat);
         giantBike.addAssociatedPart(brakes);
         Inventory.addProduct(giantBike);
 
         Product tricycle = new Product(Inventory.getNextProductId(), "Tricycle", 199.99, 3, 1, 5);
-        tricycle.addAssociatedPart(wheel);
-        tricycle.addAssociatedPart(wheel);
-        tricycle.addAssociatedPart(wheel);
+        tricycle.setAssociatedPartQuantity(wheel.getId(), 3);
         tricycle.addAssociatedPart(seat);
         tricycle.addAssociatedPart(brakes);
         Inventory.addProduct(tricycle);
+    }
 
-        // Instantiate main window
-        FXMLLoader loader = new FXMLLoader(getClass().getResource("windows/main/main_window.fxml"));
-        Parent root = loader.load();
-        primaryStage.setTitle("Inventory Management System");
-        primaryStage.setScene(new Scene(root));
-        primaryStage.show();
+    /**
+     * Bulk import parts and products from CSV files, logging a summary of each import.
+     *
+     * @param partsFile path of the parts file, or null to import no parts
+     * @param productsFile path of the products file, or null to import no products
+     * @throws IOException if a file cannot be read
+     */
+    private void importFiles(String partsFile, String productsFile) throws IOException {
+        CsvImporter importer = new CsvImporter();
+        if (partsFile != null) {
+            logImport("parts", partsFile, importer.importParts(Paths.get(partsFile)));
+        }
+        if (productsFile != null) {
+            logImport("products", productsFile, importer.importProducts(Paths.get(productsFile)));
+        }
+    }
+
+    /**
+     * Log the summary of an import, with the errors for the first rows rejected.
+     *
+     * @param kind of item imported
+     * @param file imported from
+     * @param result of the import
+     */
+    private void logImport(String kind, String file, CsvImporter.Result result) {
+        logger.info(String.format("Imported %d %s from %s, rejecting %d rows.",
+                result.getImportedCount(), kind, file, result.getRejectedCount()));
+        for (String error : result.getErrors()) {
+            logger.warning(error);
+        }
+    }
+
+    /**
+     * Export the inventory to CSV and JSON files in a directory on a background thread, replacing the previous export
+     * each time.
+     *
+     * @param directory to export to
+     * @param intervalMinutes time between exports
+     */
+    private void scheduleExports(Path directory, long intervalMinutes) {
+        InventoryExporter exporter = new InventoryExporter();
+        exportScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Inventory exporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        exportScheduler.scheduleWithFixedDelay(() -> {
+            try {
+                exporter.exportPartsCsv(directory.resolve("parts.csv"));
+                exporter.exportProductsCsv(directory.resolve("products.csv"));
+                exporter.exportJson(directory.resolve("inventory.json"));
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Unable to export the inventory to " + directory + ".", e);
+            }
+        }, intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Register the operation metrics with JMX and log a summary of them periodically on a background thread.
+     *
+     * @param logIntervalSeconds time between summaries, or 0 to log none
+     */
+    private void publishMetrics(long logIntervalSeconds) {
+        try {
+            Metrics.registerMBeans();
+        } catch (JMException e) {
+            logger.log(Level.WARNING, "Unable to publish the operation metrics through JMX.", e);
+        }
+
+        if (logIntervalSeconds > 0) {
+            MetricsReporter reporter = new MetricsReporter();
+            metricsScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "Metrics reporter");
+                thread.setDaemon(true);
+                return thread;
+            });
+            metricsScheduler.scheduleAtFixedRate(
+                    reporter, logIntervalSeconds, logIntervalSeconds, TimeUnit.SECONDS);
+        }
     }
 
     public static void main(String[] args) {
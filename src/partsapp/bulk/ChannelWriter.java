@@ -0,0 +1,181 @@
+package partsapp.bulk;
+
+import partsapp.formatters.CurrencyFormat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Text writer encoding straight into a byte buffer which is written to a file channel whenever it fills up.
+ *
+ * <p>
+ * Characters are encoded to UTF-8 and numbers formatted digit by digit directly into the buffer, so text of any
+ * length is written without building Strings or byte arrays along the way.  The buffer is supplied by the caller so
+ * that one direct buffer can be reused for every file written.
+ * </p>
+ */
+final class ChannelWriter {
+    /**
+     * Most bytes a single character or number takes.
+     */
+    private static final int MAX_VALUE_BYTES = 20;
+
+    /**
+     * Channel written to.
+     */
+    private final FileChannel channel;
+
+    /**
+     * Buffer holding bytes not yet written to the channel.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * Scratch space for the digits of a number, which are produced in reverse.
+     */
+    private final byte[] digits = new byte[MAX_VALUE_BYTES];
+
+    /**
+     * Constructor for a writer at the current position of a channel.
+     *
+     * @param channel to write to
+     * @param buffer to encode into, cleared first
+     */
+    ChannelWriter(FileChannel channel, ByteBuffer buffer) {
+        this.channel = channel;
+        this.buffer = buffer;
+        buffer.clear();
+    }
+
+    /**
+     * Write an ASCII character.
+     *
+     * @param c to write
+     * @throws IOException if the channel cannot be written
+     */
+    void writeAscii(char c) throws IOException {
+        ensureRemaining(1);
+        buffer.put((byte) c);
+    }
+
+    /**
+     * Write ASCII text, such as a column name.
+     *
+     * @param text to write
+     * @throws IOException if the channel cannot be written
+     */
+    void writeAscii(String text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            writeAscii(text.charAt(i));
+        }
+    }
+
+    /**
+     * Write a character as UTF-8.
+     *
+     * @param codePoint of the character
+     * @throws IOException if the channel cannot be written
+     */
+    void writeCodePoint(int codePoint) throws IOException {
+        ensureRemaining(4);
+        if (codePoint < 0x80) {
+            buffer.put((byte) codePoint);
+        } else if (codePoint < 0x800) {
+            buffer.put((byte) (0xc0 | codePoint >> 6));
+            buffer.put((byte) (0x80 | codePoint & 0x3f));
+        } else if (codePoint < 0x10000) {
+            buffer.put((byte) (0xe0 | codePoint >> 12));
+            buffer.put((byte) (0x80 | codePoint >> 6 & 0x3f));
+            buffer.put((byte) (0x80 | codePoint & 0x3f));
+        } else {
+            buffer.put((byte) (0xf0 | codePoint >> 18));
+            buffer.put((byte) (0x80 | codePoint >> 12 & 0x3f));
+            buffer.put((byte) (0x80 | codePoint >> 6 & 0x3f));
+            buffer.put((byte) (0x80 | codePoint & 0x3f));
+        }
+    }
+
+    /**
+     * Write a whole number in decimal.
+     *
+     * @param value to write
+     * @throws IOException if the channel cannot be written
+     */
+    void writeLong(long value) throws IOException {
+        ensureRemaining(MAX_VALUE_BYTES);
+        if (value < 0) {
+            buffer.put((byte) '-');
+        }
+
+        // Produce the digits negatively, since the negative range is the larger.
+        long remaining = value < 0 ? value : -value;
+        int count = 0;
+        do {
+            digits[count++] = (byte) ('0' - remaining % 10);
+            remaining /= 10;
+        } while (remaining != 0);
+        while (count > 0) {
+            buffer.put(digits[--count]);
+        }
+    }
+
+    /**
+     * Write a price with two decimal places, or in full if it has more.
+     *
+     * @param price to write
+     * @throws IOException if the channel cannot be written
+     */
+    void writePrice(double price) throws IOException {
+        long cents = CurrencyFormat.toCents(price);
+        if (cents / 100.0 != price || Math.abs(cents) >= 1e15) {
+            // Prices which are not whole cents are rare, so are left to the standard formatting.
+            writeAscii(Double.toString(price));
+            return;
+        }
+
+        if (cents < 0) {
+            writeAscii('-');
+            cents = -cents;
+        }
+        writeLong(cents / 100);
+        writeAscii('.');
+        writeAscii((char) ('0' + cents % 100 / 10));
+        writeAscii((char) ('0' + cents % 10));
+    }
+
+    /**
+     * Write out everything buffered and sync it to disk.
+     *
+     * @throws IOException if the channel cannot be written
+     */
+    void finish() throws IOException {
+        flush();
+        channel.force(false);
+    }
+
+    /**
+     * Make room in the buffer, writing out its contents if it is nearly full.
+     *
+     * @param bytes needed
+     * @throws IOException if the channel cannot be written
+     */
+    private void ensureRemaining(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    /**
+     * Write the contents of the buffer to the channel.
+     *
+     * @throws IOException if the channel cannot be written
+     */
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,270 @@
+package partsapp.bulk;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Block of complete CSV rows read from a file, with the position of every field within the raw bytes.
+ *
+ * <p>
+ * Fields are left as bytes and only converted when asked for, so numbers are parsed straight from the bytes and
+ * only text fields which are kept, such as names, become Strings.  Quoted fields are unescaped in place when the
+ * block is read.  A field past the end of a row reads as empty.
+ * </p>
+ */
+final class CsvBlock {
+    /**
+     * Powers of ten which are exactly representable as doubles.
+     */
+    private static final double[] EXACT_POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22,
+    };
+
+    /**
+     * Most significant digits a decimal may have to be converted exactly from its digits.
+     */
+    private static final int MAX_EXACT_DIGITS = 15;
+
+    /**
+     * Raw bytes of the rows, followed by the start of any incomplete row.
+     */
+    byte[] bytes;
+
+    /**
+     * Number of bytes read into the block.
+     */
+    int length;
+
+    /**
+     * Number of complete rows in the block.
+     */
+    int rowCount;
+
+    /**
+     * Index of the first row holding data, past any header.
+     */
+    int firstRow;
+
+    /**
+     * Line number each row starts on, counting from 1.
+     */
+    long[] rowLines = new long[256];
+
+    /**
+     * Index of the first field of each row, with one extra entry marking the end of the last row.
+     */
+    int[] rowFields = new int[257];
+
+    /**
+     * Offset of the first byte of each field.
+     */
+    int[] fieldStarts = new int[1024];
+
+    /**
+     * Offset after the last byte of each field.
+     */
+    int[] fieldEnds = new int[1024];
+
+    /**
+     * Constructor for an empty block.
+     *
+     * @param capacity in bytes
+     */
+    CsvBlock(int capacity) {
+        bytes = new byte[capacity];
+    }
+
+    /**
+     * Retrieve the line number a row starts on.
+     *
+     * @param row index within the block
+     * @return line number, counting from 1
+     */
+    long getLine(int row) {
+        return rowLines[row];
+    }
+
+    /**
+     * Count the fields in a row.
+     *
+     * @param row index within the block
+     * @return number of fields
+     */
+    int getFieldCount(int row) {
+        return rowFields[row + 1] - rowFields[row];
+    }
+
+    /**
+     * Find the offset of the first byte of a field.
+     *
+     * @param row index within the block
+     * @param field index within the row, or -1 for a missing column
+     * @return offset within the bytes
+     */
+    int getStart(int row, int field) {
+        return field < 0 || field >= getFieldCount(row) ? 0 : fieldStarts[rowFields[row] + field];
+    }
+
+    /**
+     * Find the offset after the last byte of a field.
+     *
+     * @param row index within the block
+     * @param field index within the row, or -1 for a missing column
+     * @return offset within the bytes
+     */
+    int getEnd(int row, int field) {
+        return field < 0 || field >= getFieldCount(row) ? 0 : fieldEnds[rowFields[row] + field];
+    }
+
+    /**
+     * Determine whether a field is empty.
+     *
+     * @param row index within the block
+     * @param field index within the row, or -1 for a missing column
+     * @return true if the field is empty or missing, false otherwise
+     */
+    boolean isEmpty(int row, int field) {
+        return getStart(row, field) == getEnd(row, field);
+    }
+
+    /**
+     * Decode a field as text.
+     *
+     * @param row index within the block
+     * @param field index within the row, or -1 for a missing column
+     * @return UTF-8 text of the field
+     */
+    String getString(int row, int field) {
+        int start = getStart(row, field);
+        return new String(bytes, start, getEnd(row, field) - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Compare a field with ASCII text, ignoring case.
+     *
+     * @param row index within the block
+     * @param field index within the row, or -1 for a missing column
+     * @param text to compare with, in ASCII
+     * @return true if the field matches, false otherwise
+     */
+    boolean equalsIgnoreCase(int row, int field, String text) {
+        int start = getStart(row, field);
+        if (getEnd(row, field) - start != text.length()) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (Character.toLowerCase(bytes[start + i]) != Character.toLowerCase(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parse a field as a whole number, with the same rules as Integer.parseInt.
+     *
+     * @param row index within the block
+     * @param field index within the row, or -1 for a missing column
+     * @return value of the field
+     * @throws NumberFormatException if the field is not a whole number
+     */
+    int parseInt(int row, int field) {
+        return parseIntRange(getStart(row, field), getEnd(row, field));
+    }
+
+    /**
+     * Parse a range of bytes as a whole number, with the same rules as Integer.parseInt.
+     *
+     * @param start offset of the first byte
+     * @param end offset after the last byte
+     * @return value of the bytes
+     * @throws NumberFormatException if the bytes are not a whole number
+     */
+    int parseIntRange(int start, int end) {
+        int position = start;
+        boolean negative = false;
+        if (position < end && (bytes[position] == '-' || bytes[position] == '+')) {
+            negative = bytes[position] == '-';
+            position++;
+        }
+        if (position == end) {
+            throw new NumberFormatException("Not a whole number.");
+        }
+
+        // Accumulate negatively, since the negative range is the larger.
+        long value = 0;
+        for (; position < end; position++) {
+            int digit = bytes[position] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Not a whole number.");
+            }
+            value = value * 10 - digit;
+            if (value < Integer.MIN_VALUE) {
+                throw new NumberFormatException("Whole number out of range.");
+            }
+        }
+        if (!negative && value == Integer.MIN_VALUE) {
+            throw new NumberFormatException("Whole number out of range.");
+        }
+        return (int) (negative ? value : -value);
+    }
+
+    /**
+     * Parse a field as a decimal number, with the same result as Double.parseDouble.
+     * <p>
+     * Plain decimals of up to 15 significant digits, which covers any price, are converted straight from the bytes.
+     * Anything else is handed to Double.parseDouble.
+     * </p>
+     *
+     * @param row index within the block
+     * @param field index within the row, or -1 for a missing column
+     * @return value of the field
+     * @throws NumberFormatException if the field is not a number
+     */
+    double parseDouble(int row, int field) {
+        int start = getStart(row, field);
+        int end = getEnd(row, field);
+
+        int position = start;
+        boolean negative = false;
+        if (position < end && (bytes[position] == '-' || bytes[position] == '+')) {
+            negative = bytes[position] == '-';
+            position++;
+        }
+
+        long digits = 0;
+        int significantDigits = 0;
+        int decimalPlaces = 0;
+        boolean sawDigit = false;
+        boolean sawPoint = false;
+        for (; position < end; position++) {
+            byte b = bytes[position];
+            if (b >= '0' && b <= '9') {
+                sawDigit = true;
+                digits = digits * 10 + (b - '0');
+                if (digits != 0) {
+                    significantDigits++;
+                }
+                if (sawPoint) {
+                    decimalPlaces++;
+                }
+                if (significantDigits > MAX_EXACT_DIGITS || decimalPlaces >= EXACT_POWERS_OF_TEN.length) {
+                    break;
+                }
+            } else if (b == '.' && !sawPoint) {
+                sawPoint = true;
+            } else {
+                break;
+            }
+        }
+
+        if (position < end || !sawDigit) {
+            // Exponents, special values and malformed numbers are left to the standard parser.
+            return Double.parseDouble(getString(row, field));
+        }
+
+        // Both operands are exact, so the division is correctly rounded, as Double.parseDouble is.
+        double value = digits / EXACT_POWERS_OF_TEN[decimalPlaces];
+        return negative ? -value : value;
+    }
+}
@@ -0,0 +1,658 @@
+package partsapp.bulk;
+
+import partsapp.inventory.Inventory;
+import partsapp.part.InHouse;
+import partsapp.part.Outsourced;
+import partsapp.part.Part;
+import partsapp.product.Product;
+import partsapp.validation.ItemRules;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Bulk importer of parts and products from CSV files.
+ *
+ * <p>
+ * Files are streamed a block at a time.  The calling thread reads and splits each block into rows, a pool of worker
+ * threads parses and validates the blocks in parallel, and the calling thread then adds the valid rows of each block
+ * to the inventory, in file order, as a single batch with one change notification.  Only a few blocks are in flight
+ * at once, so memory use does not grow with the size of the file.  Rows are checked with the same rules as the part
+ * and product forms, and rows which fail are skipped and reported rather than stopping the import.
+ * </p>
+ *
+ * <p>
+ * The first row of each file names the columns, in any order and ignoring case.  Part files need type, name, price,
+ * stock, min and max columns, where type is InHouse or Outsourced, and a machineId or companyName column for each
+ * type of part present.  Product files need name, price, stock, min and max columns, and may list the parts used in
+ * a parts column as partId:quantity pairs separated by semicolons, such as "3:2;5:1", referring to parts already in
+ * the inventory.  New IDs are given to everything imported.
+ * </p>
+ */
+public class CsvImporter {
+    /**
+     * Summary of an import.
+     */
+    public static final class Result {
+        /**
+         * Number of rows added to the inventory.
+         */
+        private long importedCount;
+
+        /**
+         * Number of rows rejected.
+         */
+        private long rejectedCount;
+
+        /**
+         * Errors for the first rows rejected, each prefixed with its line number.
+         */
+        private final List<String> errors = new ArrayList<>();
+
+        /**
+         * Count the rows of a committed batch, keeping its errors up to the limit.
+         *
+         * @param batch committed to the inventory
+         */
+        private void add(Batch<?> batch) {
+            importedCount += batch.items.size();
+            rejectedCount += batch.rejectedCount;
+            for (String error : batch.errors) {
+                if (errors.size() == MAX_ERRORS) {
+                    break;
+                }
+                errors.add(error);
+            }
+        }
+
+        /**
+         * @return the number of rows added to the inventory
+         */
+        public long getImportedCount() {
+            return importedCount;
+        }
+
+        /**
+         * @return the number of rows rejected
+         */
+        public long getRejectedCount() {
+            return rejectedCount;
+        }
+
+        /**
+         * @return the errors for the first rows rejected, each prefixed with its line number
+         */
+        public List<String> getErrors() {
+            return Collections.unmodifiableList(errors);
+        }
+    }
+
+    /**
+     * Parser and validator for the rows of one kind of file.
+     *
+     * @param <T> type of item each row becomes
+     */
+    @FunctionalInterface
+    private interface RowParser<T> {
+        /**
+         * Parse and validate one row.
+         *
+         * @param block holding the row
+         * @param row index within the block
+         * @param errors to add validation errors to
+         * @return item parsed, or null if the row is invalid
+         */
+        T parse(CsvBlock block, int row, List<String> errors);
+    }
+
+    /**
+     * Factory creating a row parser from the header of a file.
+     *
+     * @param <T> type of item each row becomes
+     */
+    @FunctionalInterface
+    private interface ParserFactory<T> {
+        /**
+         * Create a parser for the columns named in a header.
+         *
+         * @param path of the file, for error messages
+         * @param header lower case column names, in order
+         * @return row parser
+         * @throws IOException if a required column is missing
+         */
+        RowParser<T> create(Path path, List<String> header) throws IOException;
+    }
+
+    /**
+     * Valid items and errors parsed from one block.
+     *
+     * @param <T> type of item parsed
+     */
+    private static final class Batch<T> {
+        /**
+         * Block the rows were read from, which may be reused once the batch is committed.
+         */
+        private final CsvBlock block;
+
+        /**
+         * Valid items, in file order.
+         */
+        private final List<T> items = new ArrayList<>();
+
+        /**
+         * Errors for the first rows rejected.
+         */
+        private final List<String> errors = new ArrayList<>();
+
+        /**
+         * Number of rows rejected.
+         */
+        private int rejectedCount;
+
+        /**
+         * Constructor for an empty batch.
+         *
+         * @param block the rows are read from
+         */
+        private Batch(CsvBlock block) {
+            this.block = block;
+        }
+    }
+
+    /**
+     * Default number of bytes read at a time, which bounds the size of each batch.
+     */
+    public static final int DEFAULT_BLOCK_BYTES = 1024 * 1024;
+
+    /**
+     * Most row errors kept for the summary.
+     */
+    private static final int MAX_ERRORS = 100;
+
+    /**
+     * Error for an unknown part type.
+     */
+    private static final String TYPE_INVALID = "Part type must be InHouse or Outsourced.";
+
+    /**
+     * Error for a badly formed list of parts.
+     */
+    private static final String PARTS_INVALID =
+            "Parts must be listed as partId:quantity pairs separated by semicolons.";
+
+    /**
+     * Error for a part quantity which is not a positive whole number.
+     */
+    private static final String QUANTITY_INVALID = "Part quantity must be a positive whole number.";
+
+    /**
+     * Number of worker threads parsing and validating blocks.
+     */
+    private final int threadCount;
+
+    /**
+     * Number of bytes read at a time.
+     */
+    private final int blockBytes;
+
+    /**
+     * Constructor for an importer using every processor and the default block size.
+     */
+    public CsvImporter() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_BLOCK_BYTES);
+    }
+
+    /**
+     * Constructor for an importer.
+     *
+     * @param threadCount number of worker threads parsing and validating blocks
+     * @param blockBytes number of bytes read at a time
+     */
+    public CsvImporter(int threadCount, int blockBytes) {
+        if (threadCount < 1 || blockBytes < 1) {
+            throw new IllegalArgumentException("Thread count and block size must be at least 1.");
+        }
+        this.threadCount = threadCount;
+        this.blockBytes = blockBytes;
+    }
+
+    /**
+     * Import parts from a CSV file.
+     *
+     * @param path of the file
+     * @return summary of the import
+     * @throws IOException if the file cannot be read or lacks a required column
+     */
+    public Result importParts(Path path) throws IOException {
+        return importRows(path, this::createPartParser, parts -> {
+            for (Part part : parts) {
+                part.setId(Inventory.getNextPartId());
+            }
+            Inventory.addParts(parts);
+        });
+    }
+
+    /**
+     * Import products from a CSV file.
+     *
+     * @param path of the file
+     * @return summary of the import
+     * @throws IOException if the file cannot be read or lacks a required column
+     */
+    public Result importProducts(Path path) throws IOException {
+        return importRows(path, this::createProductParser, products -> {
+            for (Product product : products) {
+                product.setId(Inventory.getNextProductId());
+            }
+            Inventory.addProducts(products);
+        });
+    }
+
+    /**
+     * Stream the rows of a file through parsing and validation into the inventory.
+     *
+     * @param path of the file
+     * @param parserFactory creating the row parser from the header
+     * @param committer adding each batch of valid items to the inventory
+     * @param <T> type of item each row becomes
+     * @return summary of the import
+     * @throws IOException if the file cannot be read or lacks a required column
+     */
+    private <T> Result importRows(Path path, ParserFactory<T> parserFactory, Consumer<List<T>> committer)
+            throws IOException {
+        Result result = new Result();
+        int maxInFlight = threadCount * 2;
+        ArrayDeque<CsvBlock> freeBlocks = new ArrayDeque<>();
+        ArrayDeque<Future<Batch<T>>> inFlight = new ArrayDeque<>();
+        ExecutorService workers = Executors.newFixedThreadPool(threadCount, runnable -> {
+            Thread thread = new Thread(runnable, "CSV import worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (CsvReader reader = new CsvReader(path)) {
+            // Read the column names from the first row.
+            CsvBlock block = new CsvBlock(blockBytes);
+            if (!reader.read(block)) {
+                return result;
+            }
+            List<String> header = new ArrayList<>();
+            for (int field = 0; field < block.getFieldCount(0); field++) {
+                header.add(block.getString(0, field).strip().toLowerCase(Locale.ROOT));
+            }
+            RowParser<T> parser = parserFactory.create(path, header);
+            block.firstRow = 1;
+
+            while (block != null) {
+                CsvBlock submitted = block;
+                inFlight.add(workers.submit(() -> parseBlock(submitted, parser)));
+
+                // Commit the oldest batch once enough are in flight, freeing its block for reuse.
+                while (inFlight.size() >= maxInFlight || (!inFlight.isEmpty() && inFlight.peek().isDone())) {
+                    Batch<T> batch = await(inFlight.poll());
+                    committer.accept(batch.items);
+                    result.add(batch);
+                    freeBlocks.add(batch.block);
+                }
+
+                block = freeBlocks.isEmpty() ? new CsvBlock(blockBytes) : freeBlocks.poll();
+                if (!reader.read(block)) {
+                    block = null;
+                }
+            }
+
+            while (!inFlight.isEmpty()) {
+                Batch<T> batch = await(inFlight.poll());
+                committer.accept(batch.items);
+                result.add(batch);
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+        return result;
+    }
+
+    /**
+     * Parse and validate every row of a block.
+     *
+     * @param block to parse
+     * @param parser for the rows
+     * @param <T> type of item each row becomes
+     * @return valid items and errors
+     */
+    private static <T> Batch<T> parseBlock(CsvBlock block, RowParser<T> parser) {
+        Batch<T> batch = new Batch<>(block);
+        List<String> rowErrors = new ArrayList<>();
+        for (int row = block.firstRow; row < block.rowCount; row++) {
+            rowErrors.clear();
+            T item = parser.parse(block, row, rowErrors);
+            if (item != null && rowErrors.isEmpty()) {
+                batch.items.add(item);
+            } else {
+                batch.rejectedCount++;
+                if (batch.errors.size() < MAX_ERRORS) {
+                    batch.errors.add("Line " + block.getLine(row) + ": " + rowErrors.get(0));
+                }
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Wait for a batch to be parsed.
+     *
+     * @param future of the batch
+     * @param <T> type of item parsed
+     * @return parsed batch
+     * @throws IOException if the import is interrupted
+     */
+    private static <T> Batch<T> await(Future<Batch<T>> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Import interrupted.");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Find a column by name.
+     *
+     * @param path of the file, for error messages
+     * @param header lower case column names, in order
+     * @param name of the column
+     * @param required whether the column must be present
+     * @return index of the column, or -1 if it is optional and missing
+     * @throws IOException if a required column is missing
+     */
+    private static int findColumn(Path path, List<String> header, String name, boolean required) throws IOException {
+        int column = header.indexOf(name.toLowerCase(Locale.ROOT));
+        if (column < 0 && required) {
+            throw new IOException("Missing column " + name + " in " + path + ".");
+        }
+        return column;
+    }
+
+    /**
+     * Create a parser for the rows of a part file.
+     *
+     * @param path of the file, for error messages
+     * @param header lower case column names, in order
+     * @return row parser
+     * @throws IOException if a required column is missing
+     */
+    private RowParser<Part> createPartParser(Path path, List<String> header) throws IOException {
+        int typeColumn = findColumn(path, header, "type", true);
+        int nameColumn = findColumn(path, header, "name", true);
+        int priceColumn = findColumn(path, header, "price", true);
+        int stockColumn = findColumn(path, header, "stock", true);
+        int minColumn = findColumn(path, header, "min", true);
+        int maxColumn = findColumn(path, header, "max", true);
+        int machineIdColumn = findColumn(path, header, "machineId", false);
+        int companyNameColumn = findColumn(path, header, "companyName", false);
+
+        return (block, row, errors) -> {
+            if (block.isEmpty(row, nameColumn)) {
+                errors.add(ItemRules.PART_NAME_REQUIRED);
+            }
+            int min = parseMin(block, row, minColumn, errors);
+            int max = parseMax(block, row, maxColumn, min, errors);
+            int stock = parseStock(block, row, stockColumn, min, max, errors);
+            double price = parsePrice(block, row, priceColumn, errors);
+
+            // Perform validation based on part type.
+            boolean inHouse = block.equalsIgnoreCase(row, typeColumn, "InHouse");
+            int machineId = 0;
+            if (inHouse) {
+                try {
+                    machineId = block.parseInt(row, machineIdColumn);
+                    ItemRules.checkMachineId(machineId, errors);
+                } catch (NumberFormatException e) {
+                    errors.add(ItemRules.MACHINE_ID_INVALID);
+                }
+            } else if (!block.equalsIgnoreCase(row, typeColumn, "Outsourced")) {
+                errors.add(TYPE_INVALID);
+            } else if (block.isEmpty(row, companyNameColumn)) {
+                errors.add(ItemRules.COMPANY_NAME_REQUIRED);
+            }
+            if (!errors.isEmpty()) {
+                return null;
+            }
+
+            // IDs are given when the batch is added, so that they follow the order of the file.
+            String name = block.getString(row, nameColumn);
+            if (inHouse) {
+                InHouse part = new InHouse(0, name, price, stock, min, max);
+                part.setMachineId(machineId);
+                return part;
+            }
+            Outsourced part = new Outsourced(0, name, price, stock, min, max);
+            part.setCompanyName(block.getString(row, companyNameColumn));
+            return part;
+        };
+    }
+
+    /**
+     * Create a parser for the rows of a product file.
+     *
+     * @param path of the file, for error messages
+     * @param header lower case column names, in order
+     * @return row parser
+     * @throws IOException if a required column is missing
+     */
+    private RowParser<Product> createProductParser(Path path, List<String> header) throws IOException {
+        int nameColumn = findColumn(path, header, "name", true);
+        int priceColumn = findColumn(path, header, "price", true);
+        int stockColumn = findColumn(path, header, "stock", true);
+        int minColumn = findColumn(path, header, "min", true);
+        int maxColumn = findColumn(path, header, "max", true);
+        int partsColumn = findColumn(path, header, "parts", false);
+
+        return (block, row, errors) -> {
+            if (block.isEmpty(row, nameColumn)) {
+                errors.add(ItemRules.PRODUCT_NAME_REQUIRED);
+            }
+            int min = parseMin(block, row, minColumn, errors);
+            int max = parseMax(block, row, maxColumn, min, errors);
+            int stock = parseStock(block, row, stockColumn, min, max, errors);
+            double price = parsePrice(block, row, priceColumn, errors);
+            if (!errors.isEmpty()) {
+                return null;
+            }
+
+            // IDs are given when the batch is added, so that they follow the order of the file.
+            Product product = new Product(0, block.getString(row, nameColumn), price, stock, min, max);
+            if (!addAssociatedParts(block, row, partsColumn, product, errors)) {
+                return null;
+            }
+
+            // Validate the price covers the parts used.
+            ItemRules.checkPriceCoversParts(price, Inventory.getPartsCostCents(product), errors);
+            return errors.isEmpty() ? product : null;
+        };
+    }
+
+    /**
+     * Parse and check the minimum stock value of a row.
+     *
+     * @param block holding the row
+     * @param row index within the block
+     * @param column of the minimum
+     * @param errors to add validation errors to
+     * @return minimum, or 0 if it is not a whole number
+     */
+    private static int parseMin(CsvBlock block, int row, int column, List<String> errors) {
+        try {
+            int min = block.parseInt(row, column);
+            ItemRules.checkMin(min, errors);
+            return min;
+        } catch (NumberFormatException e) {
+            errors.add(ItemRules.MIN_INVALID);
+            return 0;
+        }
+    }
+
+    /**
+     * Parse and check the maximum stock value of a row.
+     *
+     * @param block holding the row
+     * @param row index within the block
+     * @param column of the maximum
+     * @param min stock value of the row
+     * @param errors to add validation errors to
+     * @return maximum, or 0 if it is not a whole number
+     */
+    private static int parseMax(CsvBlock block, int row, int column, int min, List<String> errors) {
+        try {
+            int max = block.parseInt(row, column);
+            ItemRules.checkMax(min, max, errors);
+            return max;
+        } catch (NumberFormatException e) {
+            errors.add(ItemRules.MAX_INVALID);
+            return 0;
+        }
+    }
+
+    /**
+     * Parse and check the stock level of a row.
+     *
+     * @param block holding the row
+     * @param row index within the block
+     * @param column of the stock level
+     * @param min stock value of the row
+     * @param max stock value of the row
+     * @param errors to add validation errors to
+     * @return stock level, or 0 if it is not a whole number
+     */
+    private static int parseStock(CsvBlock block, int row, int column, int min, int max, List<String> errors) {
+        int stock = 0;
+        try {
+            stock = block.parseInt(row, column);
+        } catch (NumberFormatException e) {
+            errors.add(ItemRules.STOCK_INVALID);
+        }
+        ItemRules.checkStock(stock, min, max, errors);
+        return stock;
+    }
+
+    /**
+     * Parse and check the price of a row.
+     *
+     * @param block holding the row
+     * @param row index within the block
+     * @param column of the price
+     * @param errors to add validation errors to
+     * @return price, or 0 if it is not a number
+     */
+    private static double parsePrice(CsvBlock block, int row, int column, List<String> errors) {
+        try {
+            double price = block.parseDouble(row, column);
+            ItemRules.checkPrice(price, errors);
+            return price;
+        } catch (NumberFormatException e) {
+            errors.add(ItemRules.PRICE_INVALID);
+            return 0;
+        }
+    }
+
+    /**
+     * Parse the parts column of a row and associate the parts with a product.
+     *
+     * @param block holding the row
+     * @param row index within the block
+     * @param column of the parts, or -1 if there is none
+     * @param product to associate the parts with
+     * @param errors to add validation errors to
+     * @return true if every part was associated, false otherwise
+     */
+    private static boolean addAssociatedParts(CsvBlock block, int row, int column, Product product,
+                                              List<String> errors) {
+        int end = block.getEnd(row, column);
+        int position = block.getStart(row, column);
+        while (position < end) {
+            // Split out the next pair, trimming spaces.
+            int pairEnd = position;
+            int separator = -1;
+            while (pairEnd < end && block.bytes[pairEnd] != ';') {
+                if (block.bytes[pairEnd] == ':') {
+                    separator = pairEnd;
+                }
+                pairEnd++;
+            }
+            int idStart = skipSpaces(block.bytes, position, pairEnd);
+            int idEnd = trimSpaces(block.bytes, idStart, separator < 0 ? pairEnd : separator);
+            position = pairEnd + 1;
+            if (idStart == idEnd) {
+                continue;
+            }
+
+            int partId;
+            int quantity = 1;
+            try {
+                partId = block.parseIntRange(idStart, idEnd);
+                if (separator >= 0) {
+                    int quantityStart = skipSpaces(block.bytes, separator + 1, pairEnd);
+                    quantity = block.parseIntRange(quantityStart, trimSpaces(block.bytes, quantityStart, pairEnd));
+                }
+            } catch (NumberFormatException e) {
+                errors.add(PARTS_INVALID);
+                return false;
+            }
+            if (quantity < 1) {
+                errors.add(QUANTITY_INVALID);
+                return false;
+            }
+            if (Inventory.lookupPart(partId) == null) {
+                errors.add(String.format("Part %d is not in the inventory.", partId));
+                return false;
+            }
+            product.setAssociatedPartQuantity(partId, product.getAssociatedPartQuantity(partId) + quantity);
+        }
+        return true;
+    }
+
+    /**
+     * Skip leading spaces.
+     *
+     * @param bytes to scan
+     * @param start offset of the first byte
+     * @param end offset after the last byte
+     * @return offset of the first byte which is not a space
+     */
+    private static int skipSpaces(byte[] bytes, int start, int end) {
+        while (start < end && bytes[start] == ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    /**
+     * Drop trailing spaces.
+     *
+     * @param bytes to scan
+     * @param start offset of the first byte
+     * @param end offset after the last byte
+     * @return offset after the last byte which is not a space
+     */
+    private static int trimSpaces(byte[] bytes, int start, int end) {
+        while (end > start && bytes[end - 1] == ' ') {
+            end--;
+        }
+        return end;
+    }
+}
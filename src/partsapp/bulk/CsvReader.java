@@ -0,0 +1,252 @@
+package partsapp.bulk;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reader splitting a CSV file into blocks of complete rows.
+ *
+ * <p>
+ * The file is read through a channel straight into each block's byte array, a block at a time, and the rows in it
+ * split into fields in place.  A row cut off at the end of a block is carried over to the start of the next, so
+ * memory use is bounded by the block size however large the file is.  Fields are separated by commas and may be
+ * quoted to hold commas, quotes or line breaks, with a quote within a quoted field written twice.  Spaces around
+ * unquoted fields are ignored, as are blank lines.
+ * </p>
+ */
+final class CsvReader implements Closeable {
+    /**
+     * Longest row accepted, in bytes, beyond which the file is assumed not to be CSV.
+     */
+    private static final int MAX_ROW_BYTES = 16 * 1024 * 1024;
+
+    /**
+     * Path of the file, for error messages.
+     */
+    private final Path path;
+
+    /**
+     * Channel the file is read through.
+     */
+    private final FileChannel channel;
+
+    /**
+     * Bytes of an incomplete row carried over from the previous block.
+     */
+    private byte[] carried = new byte[0];
+
+    /**
+     * Number of bytes carried over.
+     */
+    private int carriedLength;
+
+    /**
+     * Line number of the next row to be read.
+     */
+    private long nextLine = 1;
+
+    /**
+     * Whether the whole file has been read.
+     */
+    private boolean endOfFile;
+
+    /**
+     * Constructor for a reader from the start of a file.
+     *
+     * @param path of the file
+     * @throws IOException if the file cannot be opened
+     */
+    CsvReader(Path path) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+    }
+
+    /**
+     * Read the next block of rows.
+     *
+     * @param block to fill, replacing its contents
+     * @return true if any rows were read, false at the end of the file
+     * @throws IOException if the file cannot be read or holds an overlong row
+     */
+    boolean read(CsvBlock block) throws IOException {
+        block.rowCount = 0;
+        block.firstRow = 0;
+        block.rowFields[0] = 0;
+        while (block.rowCount == 0) {
+            if (endOfFile && carriedLength == 0) {
+                return false;
+            }
+            fill(block);
+            split(block);
+        }
+        return true;
+    }
+
+    /**
+     * Close the file.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Fill a block with the carried over bytes followed by as much of the file as fits.
+     *
+     * @param block to fill
+     * @throws IOException if the file cannot be read or holds an overlong row
+     */
+    private void fill(CsvBlock block) throws IOException {
+        // Make room for a row too long for the block to hold.
+        if (carriedLength >= block.bytes.length) {
+            if (carriedLength >= MAX_ROW_BYTES) {
+                throw new IOException("Row at line " + nextLine + " of " + path + " is too long.");
+            }
+            block.bytes = new byte[Math.min(carriedLength * 2, MAX_ROW_BYTES)];
+        }
+
+        System.arraycopy(carried, 0, block.bytes, 0, carriedLength);
+        ByteBuffer buffer = ByteBuffer.wrap(block.bytes, carriedLength, block.bytes.length - carriedLength);
+        carriedLength = 0;
+        while (buffer.hasRemaining() && !endOfFile) {
+            endOfFile = channel.read(buffer) < 0;
+        }
+        block.length = buffer.position();
+    }
+
+    /**
+     * Split the complete rows of a block into fields, carrying over any incomplete row at the end.
+     *
+     * @param block to split
+     */
+    private void split(CsvBlock block) {
+        byte[] bytes = block.bytes;
+        int rowStart = 0;
+        while (rowStart < block.length) {
+            // Find the end of the row, skipping line breaks within quotes.
+            int lineBreaks = 0;
+            boolean quoted = false;
+            int rowEnd = rowStart;
+            while (rowEnd < block.length && (quoted || bytes[rowEnd] != '\n')) {
+                if (bytes[rowEnd] == '"') {
+                    quoted = !quoted;
+                } else if (bytes[rowEnd] == '\n') {
+                    lineBreaks++;
+                }
+                rowEnd++;
+            }
+            if (rowEnd == block.length && !endOfFile) {
+                break;
+            }
+
+            int contentEnd = rowEnd > rowStart && bytes[rowEnd - 1] == '\r' ? rowEnd - 1 : rowEnd;
+            addRow(block, rowStart, contentEnd);
+            nextLine += lineBreaks + 1;
+            rowStart = rowEnd + 1;
+        }
+
+        // Carry the incomplete row over to the next block.
+        carriedLength = Math.max(block.length - rowStart, 0);
+        if (carried.length < carriedLength) {
+            carried = new byte[block.bytes.length];
+        }
+        System.arraycopy(bytes, rowStart, carried, 0, carriedLength);
+    }
+
+    /**
+     * Split one row into fields and add it to a block, unless it is blank.
+     *
+     * @param block to add to
+     * @param start offset of the first byte of the row
+     * @param end offset after the last byte of the row, excluding the line break
+     */
+    private void addRow(CsvBlock block, int start, int end) {
+        byte[] bytes = block.bytes;
+        int firstField = block.rowFields[block.rowCount];
+        int fieldCount = firstField;
+        int position = start;
+        while (true) {
+            position = skipSpaces(bytes, position, end);
+            int fieldStart;
+            int fieldEnd;
+            if (position < end && bytes[position] == '"') {
+                // Unescape the quoted field in place, then skip to the next separator.
+                position++;
+                fieldStart = position;
+                fieldEnd = position;
+                while (position < end) {
+                    if (bytes[position] == '"') {
+                        if (position + 1 < end && bytes[position + 1] == '"') {
+                            position++;
+                        } else {
+                            position++;
+                            break;
+                        }
+                    }
+                    bytes[fieldEnd++] = bytes[position++];
+                }
+                while (position < end && bytes[position] != ',') {
+                    position++;
+                }
+            } else {
+                fieldStart = position;
+                while (position < end && bytes[position] != ',') {
+                    position++;
+                }
+                fieldEnd = position;
+                while (fieldEnd > fieldStart && (bytes[fieldEnd - 1] == ' ' || bytes[fieldEnd - 1] == '\t')) {
+                    fieldEnd--;
+                }
+            }
+
+            if (fieldCount == block.fieldStarts.length) {
+                block.fieldStarts = Arrays.copyOf(block.fieldStarts, fieldCount * 2);
+                block.fieldEnds = Arrays.copyOf(block.fieldEnds, fieldCount * 2);
+            }
+            block.fieldStarts[fieldCount] = fieldStart;
+            block.fieldEnds[fieldCount] = fieldEnd;
+            fieldCount++;
+
+            if (position >= end) {
+                break;
+            }
+            position++;
+        }
+
+        // Skip blank lines.
+        if (fieldCount == firstField + 1 && block.fieldStarts[firstField] == block.fieldEnds[firstField]) {
+            return;
+        }
+
+        int row = block.rowCount;
+        if (row + 1 == block.rowLines.length) {
+            block.rowLines = Arrays.copyOf(block.rowLines, block.rowLines.length * 2);
+            block.rowFields = Arrays.copyOf(block.rowFields, block.rowFields.length * 2);
+        }
+        block.rowLines[row] = nextLine;
+        block.rowFields[row + 1] = fieldCount;
+        block.rowCount++;
+    }
+
+    /**
+     * Skip spaces and tabs.
+     *
+     * @param bytes to scan
+     * @param position to start from
+     * @param end offset to stop at
+     * @return offset of the first byte which is not a space or tab
+     */
+    private static int skipSpaces(byte[] bytes, int position, int end) {
+        while (position < end && (bytes[position] == ' ' || bytes[position] == '\t')) {
+            position++;
+        }
+        return position;
+    }
+}
@@ -0,0 +1,400 @@
+package partsapp.bulk;
+
+import partsapp.collections.IntArrayList;
+import partsapp.inventory.Inventory;
+import partsapp.part.InHouse;
+import partsapp.part.Outsourced;
+import partsapp.part.Part;
+import partsapp.product.Product;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Exporter of the whole inventory to CSV or JSON files.
+ *
+ * <p>
+ * The parts and products in inventory are taken together, copying only the references to them, and then streamed
+ * to disk outside the inventory lock, so the inventory can still be changed while a large export is written.  Text
+ * is encoded straight into one direct buffer, reused for every export, and written through a file channel whenever
+ * it fills, so no document or row is ever built in memory and exporting creates almost no garbage.  Each file is
+ * written alongside the target and moved into place once complete, so readers never see a partial export.
+ * </p>
+ *
+ * <p>
+ * The CSV files use the columns the CsvImporter reads, along with each item's ID.
+ * </p>
+ */
+public class InventoryExporter {
+    /**
+     * Callback writing the contents of a file.
+     */
+    @FunctionalInterface
+    private interface Contents {
+        /**
+         * Write the contents.
+         *
+         * @param writer to write through
+         * @throws IOException if the file cannot be written
+         */
+        void write(ChannelWriter writer) throws IOException;
+    }
+
+    /**
+     * Parts and products taken from the inventory together.
+     */
+    private static final class Items {
+        /**
+         * Copy of the list of all parts.
+         */
+        private final List<Part> parts;
+
+        /**
+         * Copy of the list of all products.
+         */
+        private final List<Product> products;
+
+        /**
+         * Constructor copying the inventory lists.
+         *
+         * @param parts list of all parts
+         * @param products list of all products
+         */
+        private Items(List<Part> parts, List<Product> products) {
+            this.parts = new ArrayList<>(parts);
+            this.products = new ArrayList<>(products);
+        }
+    }
+
+    /**
+     * Default size of the output buffer, in bytes.
+     */
+    public static final int DEFAULT_BUFFER_BYTES = 256 * 1024;
+
+    /**
+     * Columns of a parts CSV file.
+     */
+    private static final String PART_COLUMNS = "Type,ID,Name,Price,Stock,Min,Max,MachineId,CompanyName\n";
+
+    /**
+     * Columns of a products CSV file.
+     */
+    private static final String PRODUCT_COLUMNS = "ID,Name,Price,Stock,Min,Max,Parts\n";
+
+    /**
+     * Output buffer reused by every export.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * Part IDs and quantities of the product being written, reused for every product.
+     */
+    private final IntArrayList associations = new IntArrayList();
+
+    /**
+     * Constructor for an exporter with the default buffer size.
+     */
+    public InventoryExporter() {
+        this(DEFAULT_BUFFER_BYTES);
+    }
+
+    /**
+     * Constructor for an exporter.
+     *
+     * @param bufferBytes size of the output buffer, in bytes
+     */
+    public InventoryExporter(int bufferBytes) {
+        buffer = ByteBuffer.allocateDirect(bufferBytes);
+    }
+
+    /**
+     * Export every part to a CSV file.
+     *
+     * @param path of the file, replaced if it exists
+     * @throws IOException if the file cannot be written
+     */
+    public synchronized void exportPartsCsv(Path path) throws IOException {
+        List<Part> parts = Inventory.readConsistently((allParts, allProducts) -> new ArrayList<>(allParts));
+
+        writeFile(path, writer -> {
+            writer.writeAscii(PART_COLUMNS);
+            for (Part part : parts) {
+                writer.writeAscii(part instanceof InHouse ? "InHouse," : "Outsourced,");
+                writer.writeLong(part.getId());
+                writer.writeAscii(',');
+                writeCsvText(writer, part.getName());
+                writer.writeAscii(',');
+                writeCsvStockFields(writer, part.getPrice(), part.getStock(), part.getMin(), part.getMax());
+                writer.writeAscii(',');
+                if (part instanceof InHouse) {
+                    writer.writeLong(((InHouse) part).getMachineId());
+                    writer.writeAscii(',');
+                } else {
+                    writer.writeAscii(',');
+                    writeCsvText(writer, ((Outsourced) part).getCompanyName());
+                }
+                writer.writeAscii('\n');
+            }
+        });
+    }
+
+    /**
+     * Export every product to a CSV file, listing its parts as partId:quantity pairs separated by semicolons.
+     *
+     * @param path of the file, replaced if it exists
+     * @throws IOException if the file cannot be written
+     */
+    public synchronized void exportProductsCsv(Path path) throws IOException {
+        List<Product> products = Inventory.readConsistently((allParts, allProducts) -> new ArrayList<>(allProducts));
+
+        writeFile(path, writer -> {
+            writer.writeAscii(PRODUCT_COLUMNS);
+            for (Product product : products) {
+                writer.writeLong(product.getId());
+                writer.writeAscii(',');
+                writeCsvText(writer, product.getName());
+                writer.writeAscii(',');
+                writeCsvStockFields(writer, product.getPrice(), product.getStock(), product.getMin(),
+                        product.getMax());
+                writer.writeAscii(',');
+                readAssociations(product);
+                for (int i = 0; i < associations.size(); i += 2) {
+                    if (i > 0) {
+                        writer.writeAscii(';');
+                    }
+                    writer.writeLong(associations.get(i));
+                    writer.writeAscii(':');
+                    writer.writeLong(associations.get(i + 1));
+                }
+                writer.writeAscii('\n');
+            }
+        });
+    }
+
+    /**
+     * Export every part and product to a single JSON file.
+     * <p>
+     * The document is an object with a parts array and a products array, with one item per line.
+     * </p>
+     *
+     * @param path of the file, replaced if it exists
+     * @throws IOException if the file cannot be written
+     */
+    public synchronized void exportJson(Path path) throws IOException {
+        Items items = Inventory.readConsistently(Items::new);
+        List<Part> parts = items.parts;
+        List<Product> products = items.products;
+
+        writeFile(path, writer -> {
+            writer.writeAscii("{\"parts\":[");
+            for (int i = 0; i < parts.size(); i++) {
+                Part part = parts.get(i);
+                writer.writeAscii(i == 0 ? "\n" : ",\n");
+                writeJsonItemFields(writer, part.getId(), part.getName(), part.getPrice(), part.getStock(),
+                        part.getMin(), part.getMax());
+                if (part instanceof InHouse) {
+                    writer.writeAscii(",\"type\":\"InHouse\",\"machineId\":");
+                    writer.writeLong(((InHouse) part).getMachineId());
+                } else {
+                    writer.writeAscii(",\"type\":\"Outsourced\",\"companyName\":");
+                    writeJsonText(writer, ((Outsourced) part).getCompanyName());
+                }
+                writer.writeAscii('}');
+            }
+
+            writer.writeAscii("\n],\"products\":[");
+            for (int i = 0; i < products.size(); i++) {
+                Product product = products.get(i);
+                writer.writeAscii(i == 0 ? "\n" : ",\n");
+                writeJsonItemFields(writer, product.getId(), product.getName(), product.getPrice(),
+                        product.getStock(), product.getMin(), product.getMax());
+                writer.writeAscii(",\"parts\":[");
+                readAssociations(product);
+                for (int j = 0; j < associations.size(); j += 2) {
+                    writer.writeAscii(j == 0 ? "{\"id\":" : ",{\"id\":");
+                    writer.writeLong(associations.get(j));
+                    writer.writeAscii(",\"quantity\":");
+                    writer.writeLong(associations.get(j + 1));
+                    writer.writeAscii('}');
+                }
+                writer.writeAscii("]}");
+            }
+            writer.writeAscii("\n]}\n");
+        });
+    }
+
+    /**
+     * Write a file alongside its target, then move it into place.
+     *
+     * @param path of the file
+     * @param contents writing the file
+     * @throws IOException if the file cannot be written
+     */
+    private void writeFile(Path path, Contents contents) throws IOException {
+        Path temporaryPath = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel output = FileChannel.open(temporaryPath,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ChannelWriter writer = new ChannelWriter(output, buffer);
+            contents.write(writer);
+            writer.finish();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporaryPath);
+            throw e;
+        }
+        Files.move(temporaryPath, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Copy the part IDs and quantities of a product into the reused list of associations.
+     *
+     * @param product whose parts to read
+     */
+    private void readAssociations(Product product) {
+        associations.clear();
+        product.forEachAssociatedPart((partId, quantity) -> {
+            associations.add(partId);
+            associations.add(quantity);
+        });
+    }
+
+    /**
+     * Write the price and stock fields shared by parts and products as CSV.
+     *
+     * @param writer to write through
+     * @param price of the item
+     * @param stock of the item
+     * @param min stock of the item
+     * @param max stock of the item
+     * @throws IOException if the file cannot be written
+     */
+    private static void writeCsvStockFields(ChannelWriter writer, double price, int stock, int min, int max)
+            throws IOException {
+        writer.writePrice(price);
+        writer.writeAscii(',');
+        writer.writeLong(stock);
+        writer.writeAscii(',');
+        writer.writeLong(min);
+        writer.writeAscii(',');
+        writer.writeLong(max);
+    }
+
+    /**
+     * Write text as a CSV field, quoting it if it holds a separator, quote, line break or surrounding space.
+     *
+     * @param writer to write through
+     * @param text to write, or null to leave the field empty
+     * @throws IOException if the file cannot be written
+     */
+    private static void writeCsvText(ChannelWriter writer, String text) throws IOException {
+        if (text == null) {
+            return;
+        }
+
+        boolean quoted = !text.isEmpty() && (isSpace(text.charAt(0)) || isSpace(text.charAt(text.length() - 1)));
+        for (int i = 0; i < text.length() && !quoted; i++) {
+            char c = text.charAt(i);
+            quoted = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+
+        if (quoted) {
+            writer.writeAscii('"');
+        }
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            if (codePoint == '"') {
+                writer.writeAscii('"');
+            }
+            writer.writeCodePoint(codePoint);
+            i += Character.charCount(codePoint);
+        }
+        if (quoted) {
+            writer.writeAscii('"');
+        }
+    }
+
+    /**
+     * Write the fields shared by parts and products as the start of a JSON object.
+     *
+     * @param writer to write through
+     * @param id of the item
+     * @param name of the item
+     * @param price of the item
+     * @param stock of the item
+     * @param min stock of the item
+     * @param max stock of the item
+     * @throws IOException if the file cannot be written
+     */
+    private static void writeJsonItemFields(ChannelWriter writer, int id, String name, double price, int stock,
+                                            int min, int max) throws IOException {
+        writer.writeAscii("{\"id\":");
+        writer.writeLong(id);
+        writer.writeAscii(",\"name\":");
+        writeJsonText(writer, name);
+        writer.writeAscii(",\"price\":");
+        if (Double.isFinite(price)) {
+            writer.writePrice(price);
+        } else {
+            writer.writeAscii("null");
+        }
+        writer.writeAscii(",\"stock\":");
+        writer.writeLong(stock);
+        writer.writeAscii(",\"min\":");
+        writer.writeLong(min);
+        writer.writeAscii(",\"max\":");
+        writer.writeLong(max);
+    }
+
+    /**
+     * Write text as a JSON string.
+     *
+     * @param writer to write through
+     * @param text to write, or null
+     * @throws IOException if the file cannot be written
+     */
+    private static void writeJsonText(ChannelWriter writer, String text) throws IOException {
+        if (text == null) {
+            writer.writeAscii("null");
+            return;
+        }
+
+        writer.writeAscii('"');
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            if (codePoint == '"' || codePoint == '\\') {
+                writer.writeAscii('\\');
+                writer.writeAscii((char) codePoint);
+            } else if (codePoint == '\n') {
+                writer.writeAscii("\\n");
+            } else if (codePoint == '\r') {
+                writer.writeAscii("\\r");
+            } else if (codePoint == '\t') {
+                writer.writeAscii("\\t");
+            } else if (codePoint < 0x20) {
+                writer.writeAscii("\\u00");
+                writer.writeAscii(Character.forDigit(codePoint >> 4, 16));
+                writer.writeAscii(Character.forDigit(codePoint & 0xf, 16));
+            } else {
+                writer.writeCodePoint(codePoint);
+            }
+            i += Character.charCount(codePoint);
+        }
+        writer.writeAscii('"');
+    }
+
+    /**
+     * Determine whether a character is a space or tab, which the importer trims from unquoted fields.
+     *
+     * @param c to check
+     * @return true if the character is a space or tab, false otherwise
+     */
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t';
+    }
+}
@@ -0,0 +1,196 @@
+package partsapp.collections;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of primitive int values, avoiding the boxing of values required by java.util.ArrayList.
+ *
+ * <p>
+ * The list can also be used as a sorted set of values through the addSorted and removeSorted methods, as long
+ * as those are the only methods used to change it.
+ * </p>
+ */
+public class IntArrayList {
+    /**
+     * Default number of values allocated for a new list.
+     */
+    private static final int DEFAULT_CAPACITY = 4;
+
+    /**
+     * Stored values, of which the first size entries are in use.
+     */
+    private int[] values;
+
+    /**
+     * Number of values currently stored.
+     */
+    private int size;
+
+    /**
+     * Constructor for an empty list with the default capacity.
+     */
+    public IntArrayList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor for an empty list sized to hold the expected number of values without growing.
+     *
+     * @param expectedSize number of values expected
+     */
+    public IntArrayList(int expectedSize) {
+        values = new int[Math.max(1, expectedSize)];
+    }
+
+    /**
+     * Append a value to the end of the list.
+     *
+     * @param value to append
+     */
+    public void add(int value) {
+        ensureCapacity(size + 1);
+        values[size++] = value;
+    }
+
+    /**
+     * Retrieve the value at a position in the list.
+     *
+     * @param index of the value
+     * @return value at the position
+     */
+    public int get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+        return values[index];
+    }
+
+    /**
+     * Replace the value at a position in the list.
+     *
+     * @param index of the value
+     * @param value to store
+     */
+    public void set(int index, int value) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+        values[index] = value;
+    }
+
+    /**
+     * Remove the value at a position in the list, shifting later values down.
+     *
+     * @param index of the value
+     * @return removed value
+     */
+    public int removeAt(int index) {
+        int removed = get(index);
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        size--;
+        return removed;
+    }
+
+    /**
+     * Insert a value into a sorted list, keeping it sorted and free of duplicates.
+     *
+     * @param value to insert
+     * @return true if inserted, false if the value was already present
+     */
+    public boolean addSorted(int value) {
+        // Values usually arrive in increasing order, so check the end before searching.
+        if (size == 0 || values[size - 1] < value) {
+            add(value);
+            return true;
+        }
+
+        int index = Arrays.binarySearch(values, 0, size, value);
+        if (index >= 0) {
+            return false;
+        }
+
+        int insertAt = -index - 1;
+        ensureCapacity(size + 1);
+        System.arraycopy(values, insertAt, values, insertAt + 1, size - insertAt);
+        values[insertAt] = value;
+        size++;
+        return true;
+    }
+
+    /**
+     * Remove a value from a sorted list.
+     *
+     * @param value to remove
+     * @return true if removed, false if the value was not present
+     */
+    public boolean removeSorted(int value) {
+        int index = Arrays.binarySearch(values, 0, size, value);
+        if (index < 0) {
+            return false;
+        }
+        removeAt(index);
+        return true;
+    }
+
+    /**
+     * Determine whether a sorted list contains a value.
+     *
+     * @param value to search
+     * @return true if present, false otherwise
+     */
+    public boolean containsSorted(int value) {
+        return Arrays.binarySearch(values, 0, size, value) >= 0;
+    }
+
+    /**
+     * Retrieve the number of values stored.
+     *
+     * @return value count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Determine whether the list has no values.
+     *
+     * @return true if empty, false otherwise
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Remove all values from the list, keeping the allocated storage.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Sort the values into ascending order.
+     */
+    public void sort() {
+        Arrays.sort(values, 0, size);
+    }
+
+    /**
+     * Copy the stored values into a new array.
+     *
+     * @return array of values in list order
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+
+    /**
+     * Grow the storage if it cannot hold the requested number of values.
+     *
+     * @param capacity number of values required
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity > values.length) {
+            values = Arrays.copyOf(values, Math.max(capacity, values.length + (values.length >> 1) + 1));
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package partsapp.collections;
+
+import java.util.Arrays;
+
+/**
+ * Hash map from primitive int keys to primitive long values, avoiding the boxing of both.
+ *
+ * <p>
+ * Entries are stored with open addressing and linear probing in parallel arrays, with a separate array marking
+ * which buckets are in use so that every int value may be used as a key.
+ * </p>
+ */
+public class IntLongHashMap {
+    /**
+     * Callback for visiting the entries of the map.
+     */
+    @FunctionalInterface
+    public interface EntryConsumer {
+        /**
+         * Visit a single entry.
+         *
+         * @param key of the entry
+         * @param value of the entry
+         */
+        void accept(int key, long value);
+    }
+
+    /**
+     * Default number of buckets allocated for a new map.
+     */
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * Keys of the stored entries, indexed by bucket.
+     */
+    private int[] keys;
+
+    /**
+     * Values of the stored entries, indexed by bucket.
+     */
+    private long[] values;
+
+    /**
+     * Whether each bucket holds an entry.
+     */
+    private boolean[] used;
+
+    /**
+     * Number of entries currently stored.
+     */
+    private int size;
+
+    /**
+     * Number of entries allowed before the buckets are grown.
+     */
+    private int resizeThreshold;
+
+    /**
+     * Constructor for an empty map with the default capacity.
+     */
+    public IntLongHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor for an empty map sized to hold the expected number of entries without growing.
+     *
+     * @param expectedSize number of entries expected
+     */
+    public IntLongHashMap(int expectedSize) {
+        allocate(bucketCountFor(expectedSize));
+    }
+
+    /**
+     * Retrieve the value stored for a key.
+     *
+     * @param key to search
+     * @param defaultValue to return if the key is not present
+     * @return value matching key or the default value
+     */
+    public long get(int key, long defaultValue) {
+        int bucket = find(key);
+        return bucket < 0 ? defaultValue : values[bucket];
+    }
+
+    /**
+     * Determine whether a value is stored for a key.
+     *
+     * @param key to search
+     * @return true if the key is present, false otherwise
+     */
+    public boolean containsKey(int key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * Store a value for a key, replacing any existing value.
+     *
+     * @param key to store under
+     * @param value to store
+     */
+    public void put(int key, long value) {
+        int mask = keys.length - 1;
+        int bucket = hash(key) & mask;
+        while (used[bucket]) {
+            if (keys[bucket] == key) {
+                values[bucket] = value;
+                return;
+            }
+            bucket = (bucket + 1) & mask;
+        }
+
+        keys[bucket] = key;
+        values[bucket] = value;
+        used[bucket] = true;
+        size++;
+        if (size > resizeThreshold) {
+            rehash(keys.length * 2);
+        }
+    }
+
+    /**
+     * Add an amount to the value stored for a key, treating a missing key as zero.
+     *
+     * @param key to change
+     * @param amount to add
+     * @return new value for the key
+     */
+    public long addTo(int key, long amount) {
+        int bucket = find(key);
+        if (bucket >= 0) {
+            values[bucket] += amount;
+            return values[bucket];
+        }
+        put(key, amount);
+        return amount;
+    }
+
+    /**
+     * Remove the value stored for a key.
+     *
+     * @param key to remove
+     * @return true if the key was present, false otherwise
+     */
+    public boolean remove(int key) {
+        int bucket = find(key);
+        if (bucket < 0) {
+            return false;
+        }
+        shiftBackFrom(bucket);
+        size--;
+        return true;
+    }
+
+    /**
+     * Visit every entry in the map, in no particular order.
+     *
+     * @param consumer to call for each entry
+     */
+    public void forEach(EntryConsumer consumer) {
+        for (int bucket = 0; bucket < keys.length; bucket++) {
+            if (used[bucket]) {
+                consumer.accept(keys[bucket], values[bucket]);
+            }
+        }
+    }
+
+    /**
+     * Retrieve the number of entries stored.
+     *
+     * @return entry count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Determine whether the map has no entries.
+     *
+     * @return true if empty, false otherwise
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Remove all entries from the map, keeping the allocated buckets.
+     */
+    public void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    /**
+     * Find the bucket holding a key.
+     *
+     * @param key to search
+     * @return bucket of the key, or -1 if not present
+     */
+    private int find(int key) {
+        int mask = keys.length - 1;
+        for (int bucket = hash(key) & mask; used[bucket]; bucket = (bucket + 1) & mask) {
+            if (keys[bucket] == key) {
+                return bucket;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Close the gap left by a removed entry so that later entries in the same probe run stay reachable.
+     *
+     * @param emptied bucket which was just vacated
+     */
+    private void shiftBackFrom(int emptied) {
+        int mask = keys.length - 1;
+        int gap = emptied;
+        int bucket = (gap + 1) & mask;
+        while (used[bucket]) {
+            int home = hash(keys[bucket]) & mask;
+            // Move the entry into the gap when the gap lies between its home bucket and its current bucket.
+            if (((bucket - home) & mask) >= ((bucket - gap) & mask)) {
+                keys[gap] = keys[bucket];
+                values[gap] = values[bucket];
+                gap = bucket;
+            }
+            bucket = (bucket + 1) & mask;
+        }
+        used[gap] = false;
+    }
+
+    /**
+     * Grow the buckets and re-insert all existing entries.
+     *
+     * @param bucketCount new number of buckets, a power of two
+     */
+    private void rehash(int bucketCount) {
+        int[] oldKeys = keys;
+        long[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(bucketCount);
+
+        int mask = bucketCount - 1;
+        for (int i = 0; i < oldUsed.length; i++) {
+            if (oldUsed[i]) {
+                int bucket = hash(oldKeys[i]) & mask;
+                while (used[bucket]) {
+                    bucket = (bucket + 1) & mask;
+                }
+                keys[bucket] = oldKeys[i];
+                values[bucket] = oldValues[i];
+                used[bucket] = true;
+            }
+        }
+    }
+
+    /**
+     * Allocate empty bucket arrays.
+     *
+     * @param bucketCount number of buckets, a power of two
+     */
+    private void allocate(int bucketCount) {
+        keys = new int[bucketCount];
+        values = new long[bucketCount];
+        used = new boolean[bucketCount];
+        resizeThreshold = bucketCount / 4 * 3;
+    }
+
+    /**
+     * Determine the power of two bucket count needed to hold entries under the load factor.
+     *
+     * @param expectedSize number of entries expected
+     * @return bucket count
+     */
+    private static int bucketCountFor(int expectedSize) {
+        int needed = Math.max(DEFAULT_CAPACITY, (int) Math.min(1 << 30, (long) expectedSize * 4 / 3 + 1));
+        return Integer.highestOneBit(needed - 1) << 1;
+    }
+
+    /**
+     * Spread the bits of a key so sequential IDs do not cluster into neighbouring buckets.
+     *
+     * @param key to hash
+     * @return mixed hash value
+     */
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,272 @@
+package partsapp.collections;
+
+import java.util.Arrays;
+
+/**
+ * Hash map keyed by primitive int values, avoiding the boxing of keys required by java.util.HashMap.
+ *
+ * <p>
+ * Entries are stored with open addressing and linear probing in parallel arrays.  Null values are not permitted,
+ * as a null value slot is used to mark an empty bucket.
+ * </p>
+ *
+ * @param <V> type of values stored in the map
+ */
+public class IntObjectHashMap<V> {
+    /**
+     * Callback for visiting the entries of the map.
+     *
+     * @param <V> type of values visited
+     */
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+        /**
+         * Visit a single entry.
+         *
+         * @param key of the entry
+         * @param value of the entry
+         */
+        void accept(int key, V value);
+    }
+
+    /**
+     * Default number of buckets allocated for a new map.
+     */
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * Keys of the stored entries, indexed by bucket.
+     */
+    private int[] keys;
+
+    /**
+     * Values of the stored entries, indexed by bucket, with null marking an empty bucket.
+     */
+    private Object[] values;
+
+    /**
+     * Number of entries currently stored.
+     */
+    private int size;
+
+    /**
+     * Number of entries allowed before the buckets are grown.
+     */
+    private int resizeThreshold;
+
+    /**
+     * Constructor for an empty map with the default capacity.
+     */
+    public IntObjectHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor for an empty map sized to hold the expected number of entries without growing.
+     *
+     * @param expectedSize number of entries expected
+     */
+    public IntObjectHashMap(int expectedSize) {
+        allocate(bucketCountFor(expectedSize));
+    }
+
+    /**
+     * Retrieve the value stored for a key.
+     *
+     * @param key to search
+     * @return value matching key or null
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int mask = keys.length - 1;
+        for (int bucket = hash(key) & mask; values[bucket] != null; bucket = (bucket + 1) & mask) {
+            if (keys[bucket] == key) {
+                return (V) values[bucket];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Determine whether a value is stored for a key.
+     *
+     * @param key to search
+     * @return true if the key is present, false otherwise
+     */
+    public boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Store a value for a key, replacing any existing value.
+     *
+     * @param key to store under
+     * @param value to store, must not be null
+     * @return previous value for the key or null
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Null values are not supported.");
+        }
+
+        int mask = keys.length - 1;
+        int bucket = hash(key) & mask;
+        while (values[bucket] != null) {
+            if (keys[bucket] == key) {
+                V previous = (V) values[bucket];
+                values[bucket] = value;
+                return previous;
+            }
+            bucket = (bucket + 1) & mask;
+        }
+
+        keys[bucket] = key;
+        values[bucket] = value;
+        size++;
+        if (size > resizeThreshold) {
+            rehash(keys.length * 2);
+        }
+        return null;
+    }
+
+    /**
+     * Remove the value stored for a key.
+     *
+     * @param key to remove
+     * @return removed value or null if the key was not present
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int mask = keys.length - 1;
+        int bucket = hash(key) & mask;
+        while (values[bucket] != null) {
+            if (keys[bucket] == key) {
+                V previous = (V) values[bucket];
+                shiftBackFrom(bucket);
+                size--;
+                return previous;
+            }
+            bucket = (bucket + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Visit every entry in the map, in no particular order.
+     *
+     * @param consumer to call for each entry
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(EntryConsumer<? super V> consumer) {
+        for (int bucket = 0; bucket < keys.length; bucket++) {
+            if (values[bucket] != null) {
+                consumer.accept(keys[bucket], (V) values[bucket]);
+            }
+        }
+    }
+
+    /**
+     * Retrieve the number of entries stored.
+     *
+     * @return entry count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Determine whether the map has no entries.
+     *
+     * @return true if empty, false otherwise
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Remove all entries from the map, keeping the allocated buckets.
+     */
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * Close the gap left by a removed entry so that later entries in the same probe run stay reachable.
+     *
+     * @param emptied bucket which was just vacated
+     */
+    private void shiftBackFrom(int emptied) {
+        int mask = keys.length - 1;
+        int gap = emptied;
+        int bucket = (gap + 1) & mask;
+        while (values[bucket] != null) {
+            int home = hash(keys[bucket]) & mask;
+            // Move the entry into the gap when the gap lies between its home bucket and its current bucket.
+            if (((bucket - home) & mask) >= ((bucket - gap) & mask)) {
+                keys[gap] = keys[bucket];
+                values[gap] = values[bucket];
+                gap = bucket;
+            }
+            bucket = (bucket + 1) & mask;
+        }
+        values[gap] = null;
+    }
+
+    /**
+     * Grow the buckets and re-insert all existing entries.
+     *
+     * @param bucketCount new number of buckets, a power of two
+     */
+    private void rehash(int bucketCount) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(bucketCount);
+
+        int mask = bucketCount - 1;
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int bucket = hash(oldKeys[i]) & mask;
+                while (values[bucket] != null) {
+                    bucket = (bucket + 1) & mask;
+                }
+                keys[bucket] = oldKeys[i];
+                values[bucket] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Allocate empty bucket arrays.
+     *
+     * @param bucketCount number of buckets, a power of two
+     */
+    private void allocate(int bucketCount) {
+        keys = new int[bucketCount];
+        values = new Object[bucketCount];
+        resizeThreshold = bucketCount / 4 * 3;
+    }
+
+    /**
+     * Determine the power of two bucket count needed to hold entries under the load factor.
+     *
+     * @param expectedSize number of entries expected
+     * @return bucket count
+     */
+    private static int bucketCountFor(int expectedSize) {
+        int needed = Math.max(DEFAULT_CAPACITY, (int) Math.min(1 << 30, (long) expectedSize * 4 / 3 + 1));
+        return Integer.highestOneBit(needed - 1) << 1;
+    }
+
+    /**
+     * Spread the bits of a key so sequential IDs do not cluster into neighbouring buckets.
+     *
+     * @param key to hash
+     * @return mixed hash value
+     */
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,274 @@
+package partsapp.formatters;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+import java.util.Locale;
+
+/**
+ * Formatter of amounts in whole cents as currency, for a locale.
+ *
+ * <p>
+ * The currency symbol, separators, digit grouping and number of decimal places are taken once from the locale's
+ * standard currency format, so the output matches NumberFormat.getCurrencyInstance.  Unlike NumberFormat, the
+ * formatter is immutable and may be shared between threads, such as the JavaFX thread and export threads.  Amounts
+ * are written straight into a char array, so formatting allocates nothing beyond the String returned, if any.
+ * </p>
+ *
+ * <p>
+ * Currencies with fewer than two decimal places are rounded half-even, as NumberFormat does, and those with more are
+ * padded with zeros.  Prices held as doubles are turned into cents by toCents, which rounds the same way.
+ * </p>
+ */
+public final class CurrencyFormat {
+    /**
+     * Shared formatter for the default locale.
+     */
+    private static final CurrencyFormat defaultInstance =
+            new CurrencyFormat(Locale.getDefault(Locale.Category.FORMAT));
+
+    /**
+     * Buffer for each thread formatting into a String, grown if a formatter writes longer amounts.
+     */
+    private static final ThreadLocal<char[]> buffers = ThreadLocal.withInitial(() -> new char[64]);
+
+    /**
+     * Text written before positive amounts, such as the currency symbol.
+     */
+    private final String positivePrefix;
+
+    /**
+     * Text written after positive amounts.
+     */
+    private final String positiveSuffix;
+
+    /**
+     * Text written before negative amounts, such as a minus sign and the currency symbol.
+     */
+    private final String negativePrefix;
+
+    /**
+     * Text written after negative amounts.
+     */
+    private final String negativeSuffix;
+
+    /**
+     * Character for the digit 0, with the other digits following it.
+     */
+    private final char zeroDigit;
+
+    /**
+     * Separator between groups of whole digits.
+     */
+    private final char groupingSeparator;
+
+    /**
+     * Number of whole digits per group, or 0 for no grouping.
+     */
+    private final int groupingSize;
+
+    /**
+     * Separator between whole units and decimal places.
+     */
+    private final char decimalSeparator;
+
+    /**
+     * Number of decimal places shown, with any beyond the second always 0.
+     */
+    private final int fractionDigits;
+
+    /**
+     * Longest amount the formatter can write, in chars.
+     */
+    private final int maxLength;
+
+    /**
+     * Constructor for a formatter following the currency format of a locale.
+     *
+     * @param locale whose currency format to follow
+     */
+    public CurrencyFormat(Locale locale) {
+        NumberFormat format = NumberFormat.getCurrencyInstance(locale);
+        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
+        if (format instanceof DecimalFormat) {
+            DecimalFormat decimalFormat = (DecimalFormat) format;
+            positivePrefix = decimalFormat.getPositivePrefix();
+            positiveSuffix = decimalFormat.getPositiveSuffix();
+            negativePrefix = decimalFormat.getNegativePrefix();
+            negativeSuffix = decimalFormat.getNegativeSuffix();
+            groupingSize = decimalFormat.isGroupingUsed() ? decimalFormat.getGroupingSize() : 0;
+            symbols = decimalFormat.getDecimalFormatSymbols();
+        } else {
+            // Fall back to the currency symbol ahead of the amount.
+            positivePrefix = symbols.getCurrencySymbol();
+            positiveSuffix = "";
+            negativePrefix = symbols.getMinusSign() + symbols.getCurrencySymbol();
+            negativeSuffix = "";
+            groupingSize = format.isGroupingUsed() ? 3 : 0;
+        }
+        zeroDigit = symbols.getZeroDigit();
+        groupingSeparator = symbols.getMonetaryGroupingSeparator();
+        decimalSeparator = symbols.getMonetaryDecimalSeparator();
+        fractionDigits = Math.max(format.getMaximumFractionDigits(), 0);
+
+        // A long has at most 19 whole digits, each of which may be followed by a grouping separator.
+        int affixLength = Math.max(positivePrefix.length() + positiveSuffix.length(),
+                negativePrefix.length() + negativeSuffix.length());
+        maxLength = affixLength + 19 * 2 + 1 + fractionDigits;
+    }
+
+    /**
+     * Retrieve the shared formatter for the default locale.
+     *
+     * @return currency formatter
+     */
+    public static CurrencyFormat getInstance() {
+        return defaultInstance;
+    }
+
+    /**
+     * Convert an amount to whole cents, rounding half-even on its exact binary value as NumberFormat does.
+     * <p>
+     * So 0.125 becomes 12 cents and 2.675, which is held as slightly less than that, becomes 267 cents.  Amounts whose
+     * product with 100 is not close to half a cent are rounded directly, and only the rest go through BigDecimal.
+     * </p>
+     *
+     * @param amount to convert
+     * @return amount in cents
+     */
+    public static long toCents(double amount) {
+        double cents = amount * 100;
+        double nearest = Math.rint(cents);
+        if (Math.abs(cents - nearest) < 0.49 && Math.abs(cents) < 1e13) {
+            return (long) nearest;
+        }
+        if (!(Math.abs(cents) < 1e18)) {
+            // Leave NaN and amounts too large to hold in cents to Math.round, which saturates.
+            return Math.round(cents);
+        }
+        return new BigDecimal(amount).setScale(2, RoundingMode.HALF_EVEN).unscaledValue().longValue();
+    }
+
+    /**
+     * Retrieve the longest amount the formatter can write, for sizing buffers.
+     *
+     * @return maximum length in chars
+     */
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    /**
+     * Format an amount as a String.
+     *
+     * @param cents amount to format
+     * @return formatted amount
+     */
+    public String format(long cents) {
+        char[] buffer = getBuffer();
+        return new String(buffer, 0, format(cents, buffer, 0));
+    }
+
+    /**
+     * Format an amount onto the end of a StringBuilder, without creating a String.
+     *
+     * @param cents amount to format
+     * @param builder to append to
+     */
+    public void formatTo(long cents, StringBuilder builder) {
+        char[] buffer = getBuffer();
+        builder.append(buffer, 0, format(cents, buffer, 0));
+    }
+
+    /**
+     * Retrieve the calling thread's buffer, growing it if it cannot hold the longest amount.
+     *
+     * @return buffer of at least getMaxLength chars
+     */
+    private char[] getBuffer() {
+        char[] buffer = buffers.get();
+        if (buffer.length < maxLength) {
+            buffer = new char[maxLength];
+            buffers.set(buffer);
+        }
+        return buffer;
+    }
+
+    /**
+     * Format an amount into a char array.
+     *
+     * @param cents amount to format
+     * @param buffer to write into, with at least getMaxLength chars free from the offset
+     * @param offset to start writing at
+     * @return number of chars written
+     */
+    public int format(long cents, char[] buffer, int offset) {
+        boolean negative = cents < 0;
+        String prefix = negative ? negativePrefix : positivePrefix;
+        String suffix = negative ? negativeSuffix : positiveSuffix;
+
+        // Work with the magnitude in units of the last decimal place shown.
+        long magnitude = negative ? -Math.max(cents, -Long.MAX_VALUE) : cents;
+        long units = roundToPlaces(magnitude);
+        long scale = fractionDigits >= 2 ? 100 : fractionDigits == 1 ? 10 : 1;
+        long whole = units / scale;
+        long fraction = units % scale;
+
+        int wholeDigits = 1;
+        for (long rest = whole / 10; rest > 0; rest /= 10) {
+            wholeDigits++;
+        }
+        int separators = groupingSize > 0 ? (wholeDigits - 1) / groupingSize : 0;
+        int numberLength = wholeDigits + separators + (fractionDigits > 0 ? 1 + fractionDigits : 0);
+
+        int position = offset;
+        prefix.getChars(0, prefix.length(), buffer, position);
+        position += prefix.length();
+
+        // Write the number from its last digit backwards.
+        int end = position + numberLength;
+        int index = end;
+        if (fractionDigits > 0) {
+            for (int i = fractionDigits; i > 2; i--) {
+                buffer[--index] = zeroDigit;
+            }
+            for (int i = Math.min(fractionDigits, 2); i > 0; i--) {
+                buffer[--index] = (char) (zeroDigit + fraction % 10);
+                fraction /= 10;
+            }
+            buffer[--index] = decimalSeparator;
+        }
+        for (int digit = 0; digit < wholeDigits; digit++) {
+            if (digit > 0 && groupingSize > 0 && digit % groupingSize == 0) {
+                buffer[--index] = groupingSeparator;
+            }
+            buffer[--index] = (char) (zeroDigit + whole % 10);
+            whole /= 10;
+        }
+
+        suffix.getChars(0, suffix.length(), buffer, end);
+        return end + suffix.length() - offset;
+    }
+
+    /**
+     * Round an amount in cents to the number of decimal places shown, half-even.
+     *
+     * @param cents amount to round, not negative
+     * @return amount in units of the last decimal place shown
+     */
+    private long roundToPlaces(long cents) {
+        if (fractionDigits >= 2) {
+            return cents;
+        }
+        long divisor = fractionDigits == 1 ? 10 : 100;
+        long quotient = cents / divisor;
+        long remainder = cents % divisor;
+        long half = divisor / 2;
+        if (remainder > half || remainder == half && (quotient & 1) == 1) {
+            quotient++;
+        }
+        return quotient;
+    }
+}
@@ -0,0 +1,431 @@
+package partsapp.formatters;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import partsapp.metrics.TableRefreshEvent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * List of formatter wrappers for a TableView, kept in sync with a source list of inventory items.
+ *
+ * <p>
+ * Each item is wrapped once and the wrapper is reused for as long as the item stays in the source list.  Changes
+ * to the source list are applied to the rows one item at a time, and a new set of search results only touches
+ * the rows that differ from those already shown, so the table does not need to be rebuilt after every edit.
+ * </p>
+ *
+ * <p>
+ * The rows may instead be kept sorted.  Results are then sorted once as they are shown, and items added or changed
+ * later are moved straight to their place, so the rows are only sorted in full when the order itself changes.
+ * </p>
+ *
+ * <p>
+ * Rows are found by position rather than searched for: unordered rows keep a map of their positions, and the last
+ * row takes the place of one removed, as in the inventory, while ordered rows are found by binary search.
+ * </p>
+ *
+ * <p>
+ * Every refresh of the rows is recorded as a TableRefreshEvent for the flight recorder.
+ * </p>
+ *
+ * @param <T> type of inventory item, such as Part
+ * @param <F> type of formatter wrapping the item, such as PartFormatter
+ */
+public class FormattedRows<T, F> {
+    /**
+     * Name of the table the rows are shown in, for flight recorder events.
+     */
+    private final String tableName;
+
+    /**
+     * Rows currently shown in the table.
+     */
+    private final ObservableList<F> rows = FXCollections.observableArrayList();
+
+    /**
+     * Formatter created for each item, by item identity.
+     */
+    private final IdentityHashMap<T, F> formatters = new IdentityHashMap<>();
+
+    /**
+     * Position of each row while the rows are unordered, by formatter identity.
+     */
+    private final IdentityHashMap<F, Integer> rowPositions = new IdentityHashMap<>();
+
+    /**
+     * Factory to wrap an item in a new formatter.
+     */
+    private final Function<T, F> wrapper;
+
+    /**
+     * Callback to point an existing formatter at a replacement item.
+     */
+    private final BiConsumer<F, T> rewrapper;
+
+    /**
+     * Filter deciding whether items added to the source list belong in the rows.
+     */
+    private Predicate<? super T> filter = item -> true;
+
+    /**
+     * Order the rows are kept in, or null to keep them in the order of the results shown.
+     */
+    private Comparator<? super F> comparator;
+
+    /**
+     * Number of rows added, replaced or removed during the current refresh.
+     */
+    private int rowsChanged;
+
+    /**
+     * Number of formatters created during the current refresh.
+     */
+    private int formattersCreated;
+
+    /**
+     * Constructor to follow changes to a source list.
+     *
+     * @param tableName of the table the rows are shown in
+     * @param source list of items to follow
+     * @param wrapper factory to wrap an item in a new formatter
+     * @param rewrapper callback to point an existing formatter at a replacement item
+     */
+    public FormattedRows(
+            String tableName, ObservableList<T> source, Function<T, F> wrapper, BiConsumer<F, T> rewrapper) {
+        this.tableName = tableName;
+        this.wrapper = wrapper;
+        this.rewrapper = rewrapper;
+
+        source.addListener(this::handleSourceChanged);
+    }
+
+    /**
+     * Retrieve the rows to be displayed in the table.
+     *
+     * @return list of formatters
+     */
+    public ObservableList<F> getRows() {
+        return rows;
+    }
+
+    /**
+     * Show a new set of results, changing only the rows which differ from those already shown.
+     *
+     * @param results items to show, in display order
+     * @param filter deciding whether items later added to the source belong in the results
+     */
+    public void showResults(List<? extends T> results, Predicate<? super T> filter) {
+        TableRefreshEvent event = TableRefreshEvent.start();
+        startRefresh();
+        this.filter = filter;
+
+        List<F> desired = new ArrayList<>(results.size());
+        for (T item : results) {
+            desired.add(formatterFor(item));
+        }
+        if (comparator != null) {
+            desired.sort(comparator);
+        }
+        changeRows(desired);
+
+        event.finish(tableName, "search results", rows.size(), rowsChanged, formattersCreated);
+    }
+
+    /**
+     * Keep the rows in an order, sorting them into it now.
+     * <p>
+     * Clearing the order leaves the rows as they are until the next results are shown.
+     * </p>
+     *
+     * @param comparator deciding the order of the rows, or null to keep them in the order of the results
+     */
+    public void setComparator(Comparator<? super F> comparator) {
+        this.comparator = comparator;
+        rowPositions.clear();
+        if (comparator == null) {
+            indexRows(0);
+            return;
+        }
+
+        TableRefreshEvent event = TableRefreshEvent.start();
+        startRefresh();
+
+        List<F> sorted = new ArrayList<>(rows);
+        sorted.sort(comparator);
+        changeRows(sorted);
+
+        event.finish(tableName, "sort", rows.size(), rowsChanged, formattersCreated);
+    }
+
+    /**
+     * Determine whether the rows are kept in an order.
+     *
+     * @return true if a comparator is set
+     */
+    public boolean isSorted() {
+        return comparator != null;
+    }
+
+    /**
+     * Change the rows to a new list, changing only the rows which differ from those already shown.
+     *
+     * @param desired rows, in display order
+     */
+    private void changeRows(List<F> desired) {
+        // Skip over the rows which are already in place at either end.
+        int start = 0;
+        int oldEnd = rows.size();
+        int newEnd = desired.size();
+        while (start < oldEnd && start < newEnd && rows.get(start) == desired.get(start)) {
+            start++;
+        }
+        while (oldEnd > start && newEnd > start && rows.get(oldEnd - 1) == desired.get(newEnd - 1)) {
+            oldEnd--;
+            newEnd--;
+        }
+
+        if (oldEnd > start) {
+            if (comparator == null) {
+                rows.subList(start, oldEnd).forEach(rowPositions::remove);
+            }
+            rows.remove(start, oldEnd);
+        }
+        if (newEnd > start) {
+            rows.addAll(start, desired.subList(start, newEnd));
+        }
+        if (oldEnd > start || newEnd > start) {
+            indexRows(start);
+        }
+        rowsChanged += oldEnd - start + newEnd - start;
+    }
+
+    /**
+     * Record the positions of the rows from an index onwards, if the rows are unordered.
+     *
+     * @param from index of the first row to record
+     */
+    private void indexRows(int from) {
+        if (comparator == null) {
+            for (int row = from; row < rows.size(); row++) {
+                rowPositions.put(rows.get(row), row);
+            }
+        }
+    }
+
+    /**
+     * Apply a change in the source list to the rows.
+     *
+     * @param change made to the source list
+     */
+    private void handleSourceChanged(ListChangeListener.Change<? extends T> change) {
+        TableRefreshEvent event = TableRefreshEvent.start();
+        startRefresh();
+
+        while (change.next()) {
+            if (change.wasPermutated() || change.wasUpdated()) {
+                continue;
+            }
+
+            List<? extends T> removed = change.getRemoved();
+            List<? extends T> added = change.getAddedSubList();
+
+            // Items replaced in place keep their formatter and row position.
+            int replaced = change.wasReplaced() ? Math.min(removed.size(), added.size()) : 0;
+            for (int i = 0; i < replaced; i++) {
+                replaceItem(removed.get(i), added.get(i));
+            }
+            for (int i = replaced; i < removed.size(); i++) {
+                removeItem(removed.get(i));
+            }
+            for (int i = replaced; i < added.size(); i++) {
+                addItem(added.get(i));
+            }
+        }
+
+        event.finish(tableName, "inventory change", rows.size(), rowsChanged, formattersCreated);
+    }
+
+    /**
+     * Reset the counts of work done, at the start of a refresh.
+     */
+    private void startRefresh() {
+        rowsChanged = 0;
+        formattersCreated = 0;
+    }
+
+    /**
+     * Show an item added to the source list, if it passes the current filter.
+     *
+     * @param item that was added
+     */
+    private void addItem(T item) {
+        if (filter.test(item)) {
+            insertRow(formatterFor(item));
+            rowsChanged++;
+        }
+    }
+
+    /**
+     * Remove an item that left the source list, along with its formatter.
+     *
+     * @param item that was removed
+     */
+    private void removeItem(T item) {
+        F formatter = formatters.remove(item);
+        int row = formatter == null ? -1 : findRow(formatter);
+        if (row >= 0) {
+            removeRow(row);
+            rowsChanged++;
+        }
+    }
+
+    /**
+     * Point the formatter of a replaced item at its replacement, refreshing only that row.
+     *
+     * @param oldItem that was replaced
+     * @param newItem replacing it
+     */
+    private void replaceItem(T oldItem, T newItem) {
+        F formatter = formatters.remove(oldItem);
+        if (formatter == null) {
+            addItem(newItem);
+            return;
+        }
+
+        // Find the row while the formatter still sorts by the old item.
+        int row = findRow(formatter);
+        rewrapper.accept(formatter, newItem);
+        formatters.put(newItem, formatter);
+
+        if (row < 0) {
+            addItem(newItem);
+        } else if (filter.test(newItem)) {
+            if (isInOrder(row, formatter)) {
+                // Setting the same formatter signals the table to redraw that single row.
+                rows.set(row, formatter);
+            } else {
+                removeRow(row);
+                insertRow(formatter);
+            }
+            rowsChanged++;
+        } else {
+            removeRow(row);
+            rowsChanged++;
+        }
+    }
+
+    /**
+     * Find the row showing a formatter.
+     *
+     * @param formatter to find
+     * @return index of the row, or -1 if the formatter is not shown
+     */
+    private int findRow(F formatter) {
+        if (comparator == null) {
+            Integer row = rowPositions.get(formatter);
+            return row == null ? -1 : row;
+        }
+
+        // Rows which sort equally may be in any order, so look either side of the match for this formatter.
+        int match = Collections.binarySearch(rows, formatter, comparator);
+        if (match >= 0) {
+            for (int row = match; row >= 0 && comparator.compare(rows.get(row), formatter) == 0; row--) {
+                if (rows.get(row) == formatter) {
+                    return row;
+                }
+            }
+            for (int row = match + 1; row < rows.size() && comparator.compare(rows.get(row), formatter) == 0; row++) {
+                if (rows.get(row) == formatter) {
+                    return row;
+                }
+            }
+        }
+
+        // An item changed in place may have left its row out of order, so fall back to searching every row.
+        for (int row = 0; row < rows.size(); row++) {
+            if (rows.get(row) == formatter) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Remove the row at an index.
+     * <p>
+     * Unordered rows move the last row into the place of the one removed, so nothing is shifted along.
+     * </p>
+     *
+     * @param row index of the row to remove
+     */
+    private void removeRow(int row) {
+        if (comparator != null) {
+            rows.remove(row);
+            return;
+        }
+
+        rowPositions.remove(rows.get(row));
+        int last = rows.size() - 1;
+        F moved = rows.remove(last);
+        if (row != last) {
+            rows.set(row, moved);
+            rowPositions.put(moved, row);
+        }
+    }
+
+    /**
+     * Add a row in its place in the order, or at the end if the rows are unordered.
+     *
+     * @param formatter to add
+     */
+    private void insertRow(F formatter) {
+        if (comparator == null) {
+            rowPositions.put(formatter, rows.size());
+            rows.add(formatter);
+            return;
+        }
+
+        int index = Collections.binarySearch(rows, formatter, comparator);
+        rows.add(index < 0 ? -index - 1 : index, formatter);
+    }
+
+    /**
+     * Determine whether a row is still in its place in the order, such as after its item was replaced.
+     *
+     * @param row index of the row
+     * @param formatter in the row
+     * @return true if the rows are unordered or the row sorts between its neighbours
+     */
+    private boolean isInOrder(int row, F formatter) {
+        if (comparator == null) {
+            return true;
+        }
+        return (row == 0 || comparator.compare(rows.get(row - 1), formatter) <= 0)
+                && (row == rows.size() - 1 || comparator.compare(formatter, rows.get(row + 1)) <= 0);
+    }
+
+    /**
+     * Retrieve the formatter for an item, wrapping it if it has not been seen before.
+     *
+     * @param item to wrap
+     * @return formatter for the item
+     */
+    private F formatterFor(T item) {
+        F formatter = formatters.get(item);
+        if (formatter == null) {
+            formatter = wrapper.apply(item);
+            formatters.put(item, formatter);
+            formattersCreated++;
+        }
+        return formatter;
+    }
+}
@@ -2,19 +2,47 @@ package partsapp.formatters;
 
 import partsapp.part.Part;
 
-import java.text.NumberFormat;
+import java.util.Comparator;
 
 public class PartFormatter {
     /**
-     * Number formatter used for the currency values, such as price.
+     * Sort order of the ID column.
      */
-    private static final NumberFormat currencyFormatter = NumberFormat.getCurrencyInstance();
+    public static final Comparator<PartFormatter> BY_ID = Comparator.comparingInt(PartFormatter::getId);
+
+    /**
+     * Sort order of the name column, ignoring case.
+     */
+    public static final Comparator<PartFormatter> BY_NAME =
+            Comparator.comparing(PartFormatter::getName, String.CASE_INSENSITIVE_ORDER);
+
+    /**
+     * Sort order of the stock column.
+     */
+    public static final Comparator<PartFormatter> BY_STOCK = Comparator.comparingInt(PartFormatter::getStock);
+
+    /**
+     * Sort order of the price column, by amount rather than by the formatted text.
+     */
+    public static final Comparator<PartFormatter> BY_PRICE =
+            Comparator.comparingDouble(formatter -> formatter.part.getPrice());
 
     /**
      * Internal Part object which is wrapped by this class for formatting in TableViews.
      */
     private Part part;
 
+    /**
+     * Price the formatted price was last made from.
+     */
+    private double formattedPrice;
+
+    /**
+     * Price formatted as currency, kept until the price changes so that redrawing a row creates no new String.
+     * Rows are only drawn on the JavaFX thread, so the cache needs no locking.
+     */
+    private String priceText;
+
     /**
      * Constructor to wrap Part in TableView formatter model.
      * @param part to wrap
@@ -68,6 +96,11 @@ public class PartFormatter {
      * @return part price, formatted as currency
      */
     public String getPrice() {
-        return currencyFormatter.format(part.getPrice());
+        double price = part.getPrice();
+        if (priceText == null || price != formattedPrice) {
+            priceText = CurrencyFormat.getInstance().format(CurrencyFormat.toCents(price));
+            formattedPrice = price;
+        }
+        return priceText;
     }
 }
@@ -2,16 +2,47 @@ package partsapp.formatters;
 
 import partsapp.product.Product;
 
-import java.text.NumberFormat;
+import java.util.Comparator;
 
 public class ProductFormatter {
-    private static final NumberFormat currencyFormatter = NumberFormat.getCurrencyInstance();
+    /**
+     * Sort order of the ID column.
+     */
+    public static final Comparator<ProductFormatter> BY_ID = Comparator.comparingInt(ProductFormatter::getId);
+
+    /**
+     * Sort order of the name column, ignoring case.
+     */
+    public static final Comparator<ProductFormatter> BY_NAME =
+            Comparator.comparing(ProductFormatter::getName, String.CASE_INSENSITIVE_ORDER);
+
+    /**
+     * Sort order of the stock column.
+     */
+    public static final Comparator<ProductFormatter> BY_STOCK = Comparator.comparingInt(ProductFormatter::getStock);
+
+    /**
+     * Sort order of the price column, by amount rather than by the formatted text.
+     */
+    public static final Comparator<ProductFormatter> BY_PRICE =
+            Comparator.comparingDouble(formatter -> formatter.product.getPrice());
 
     /**
      * Internal Product object which is wrapped by this class for formatting in TableViews.
      */
     private Product product;
 
+    /**
+     * Price the formatted price was last made from.
+     */
+    private double formattedPrice;
+
+    /**
+     * Price formatted as currency, kept until the price changes so that redrawing a row creates no new String.
+     * Rows are only drawn on the JavaFX thread, so the cache needs no locking.
+     */
+    private String priceText;
+
     /**
      * Constructor to wrap Product in TableView formatter model.
      * @param product to wrap
@@ -65,6 +96,11 @@ public class ProductFormatter {
      * @return part price, formatted as currency
      */
     public String getPrice() {
-        return currencyFormatter.format(product.getPrice());
+        double price = product.getPrice();
+        if (priceText == null || price != formattedPrice) {
+            priceText = CurrencyFormat.getInstance().format(CurrencyFormat.toCents(price));
+            formattedPrice = price;
+        }
+        return priceText;
     }
 }
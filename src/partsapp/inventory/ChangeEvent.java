@@ -0,0 +1,267 @@
+package partsapp.inventory;
+
+import partsapp.part.Part;
+import partsapp.product.Product;
+
+/**
+ * One change to the inventory, as published by the change feed.
+ *
+ * <p>
+ * Every change is numbered in the order it was made, starting from 1, so subscribers can tell which changes they
+ * have seen.  Numbers only ever increase, but a subscriber may not see every number: changes made before it
+ * subscribed are not delivered, and a RESYNC event stands in for any dropped because it fell behind.
+ * </p>
+ */
+public final class ChangeEvent {
+    /**
+     * Kinds of change.
+     */
+    public enum Type {
+        /**
+         * A part was added.
+         */
+        PART_ADDED,
+
+        /**
+         * A part was replaced with a new version.
+         */
+        PART_UPDATED,
+
+        /**
+         * A part was removed.
+         */
+        PART_REMOVED,
+
+        /**
+         * A product was added.
+         */
+        PRODUCT_ADDED,
+
+        /**
+         * A product was replaced with a new version.
+         */
+        PRODUCT_UPDATED,
+
+        /**
+         * A product was removed.
+         */
+        PRODUCT_REMOVED,
+
+        /**
+         * The quantity of a part associated with a product changed.
+         */
+        ASSOCIATION_CHANGED,
+
+        /**
+         * Changes were dropped because the subscriber fell behind, so it must reread the inventory, along with
+         * Inventory.getChangeSequence to tell which of the changes that follow the reread already includes.
+         */
+        RESYNC
+    }
+
+    /**
+     * Number of the change, increasing with every change made.
+     */
+    private final long sequence;
+
+    /**
+     * Kind of change.
+     */
+    private final Type type;
+
+    /**
+     * Part before the change, or null.
+     */
+    private final Part oldPart;
+
+    /**
+     * Part after the change, or null.
+     */
+    private final Part newPart;
+
+    /**
+     * Product before the change, or null.
+     */
+    private final Product oldProduct;
+
+    /**
+     * Product after the change, or the product whose associated parts changed, or null.
+     */
+    private final Product newProduct;
+
+    /**
+     * ID of the associated part whose quantity changed, or 0.
+     */
+    private final int associatedPartId;
+
+    /**
+     * Quantity of the associated part before the change.
+     */
+    private final int oldQuantity;
+
+    /**
+     * Quantity of the associated part after the change.
+     */
+    private final int newQuantity;
+
+    /**
+     * Constructor for a change.
+     *
+     * @param sequence number of the change
+     * @param type of change
+     * @param oldPart before the change, or null
+     * @param newPart after the change, or null
+     * @param oldProduct before the change, or null
+     * @param newProduct after the change, or null
+     * @param associatedPartId of the associated part whose quantity changed, or 0
+     * @param oldQuantity of the associated part before the change
+     * @param newQuantity of the associated part after the change
+     */
+    private ChangeEvent(long sequence, Type type, Part oldPart, Part newPart, Product oldProduct, Product newProduct,
+                        int associatedPartId, int oldQuantity, int newQuantity) {
+        this.sequence = sequence;
+        this.type = type;
+        this.oldPart = oldPart;
+        this.newPart = newPart;
+        this.oldProduct = oldProduct;
+        this.newProduct = newProduct;
+        this.associatedPartId = associatedPartId;
+        this.oldQuantity = oldQuantity;
+        this.newQuantity = newQuantity;
+    }
+
+    /**
+     * Create a change to a part.
+     *
+     * @param sequence number of the change
+     * @param type of change, PART_ADDED, PART_UPDATED or PART_REMOVED
+     * @param oldPart before the change, or null if added
+     * @param newPart after the change, or null if removed
+     * @return change event
+     */
+    static ChangeEvent forPart(long sequence, Type type, Part oldPart, Part newPart) {
+        return new ChangeEvent(sequence, type, oldPart, newPart, null, null, 0, 0, 0);
+    }
+
+    /**
+     * Create a change to a product.
+     *
+     * @param sequence number of the change
+     * @param type of change, PRODUCT_ADDED, PRODUCT_UPDATED or PRODUCT_REMOVED
+     * @param oldProduct before the change, or null if added
+     * @param newProduct after the change, or null if removed
+     * @return change event
+     */
+    static ChangeEvent forProduct(long sequence, Type type, Product oldProduct, Product newProduct) {
+        return new ChangeEvent(sequence, type, null, null, oldProduct, newProduct, 0, 0, 0);
+    }
+
+    /**
+     * Create a change to the quantity of a part associated with a product.
+     *
+     * @param sequence number of the change
+     * @param product whose parts changed
+     * @param partId of the part whose quantity changed
+     * @param oldQuantity of the part before the change
+     * @param newQuantity of the part after the change
+     * @return change event
+     */
+    static ChangeEvent forAssociation(long sequence, Product product, int partId, int oldQuantity, int newQuantity) {
+        return new ChangeEvent(sequence, Type.ASSOCIATION_CHANGED, null, null, null, product, partId, oldQuantity,
+                newQuantity);
+    }
+
+    /**
+     * Create a marker for changes dropped because a subscriber fell behind.
+     *
+     * @param sequence number of the last change dropped
+     * @return change event
+     */
+    static ChangeEvent forResync(long sequence) {
+        return new ChangeEvent(sequence, Type.RESYNC, null, null, null, null, 0, 0, 0);
+    }
+
+    /**
+     * Retrieve the number of the change.
+     * <p>
+     * For a RESYNC event, this is the number of the last change dropped, which a reread of the inventory includes.
+     * </p>
+     *
+     * @return sequence number
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Retrieve the kind of change.
+     *
+     * @return type of change
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Retrieve the part before the change.
+     *
+     * @return part replaced or removed, or null
+     */
+    public Part getOldPart() {
+        return oldPart;
+    }
+
+    /**
+     * Retrieve the part after the change.
+     *
+     * @return part added or replacing the old one, or null
+     */
+    public Part getNewPart() {
+        return newPart;
+    }
+
+    /**
+     * Retrieve the product before the change.
+     *
+     * @return product replaced or removed, or null
+     */
+    public Product getOldProduct() {
+        return oldProduct;
+    }
+
+    /**
+     * Retrieve the product after the change.
+     *
+     * @return product added, replacing the old one or whose associated parts changed, or null
+     */
+    public Product getNewProduct() {
+        return newProduct;
+    }
+
+    /**
+     * Retrieve the ID of the associated part whose quantity changed.
+     *
+     * @return part ID, or 0 if the change is not to an association
+     */
+    public int getAssociatedPartId() {
+        return associatedPartId;
+    }
+
+    /**
+     * Retrieve the quantity of the associated part before the change.
+     *
+     * @return quantity, 0 if the part was not associated
+     */
+    public int getOldQuantity() {
+        return oldQuantity;
+    }
+
+    /**
+     * Retrieve the quantity of the associated part after the change.
+     *
+     * @return quantity, 0 if the part is no longer associated
+     */
+    public int getNewQuantity() {
+        return newQuantity;
+    }
+}
@@ -0,0 +1,139 @@
+package partsapp.inventory;
+
+import partsapp.part.Part;
+import partsapp.product.Product;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Feed numbering every change to the inventory and queueing it for each subscription.
+ *
+ * <p>
+ * Registered as an inventory listener, so it is told of each change under the write lock, in the order the changes
+ * were made, and numbers them in that order.  Events are only created while there are subscriptions.
+ * </p>
+ */
+class ChangeFeed implements InventoryListener {
+    /**
+     * Subscriptions receiving the changes.
+     */
+    private final List<ChangeSubscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    /**
+     * Sequence number of the last change made, changed only under the inventory's write lock.
+     */
+    private volatile long sequence;
+
+    /**
+     * Retrieve the sequence number of the last change made.
+     *
+     * @return sequence number, 0 if no changes have been made
+     */
+    long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Start queueing changes for a subscription.
+     * <p>
+     * Must be called under the inventory lock, so that no change is made between reading the start sequence of the
+     * subscription and registering it.
+     * </p>
+     *
+     * @param subscription to register
+     */
+    void subscribe(ChangeSubscription subscription) {
+        subscriptions.add(subscription);
+    }
+
+    /**
+     * Stop queueing changes for a subscription.
+     *
+     * @param subscription to remove
+     */
+    void unsubscribe(ChangeSubscription subscription) {
+        subscriptions.remove(subscription);
+    }
+
+    /**
+     * Wait until every subscription which blocks when full has room for the events of a change.
+     * <p>
+     * Called before taking the inventory's write lock to make a change.
+     * </p>
+     *
+     * @param changes number of events the change will make
+     */
+    void awaitCapacity(int changes) {
+        for (ChangeSubscription subscription : subscriptions) {
+            subscription.awaitCapacity(changes);
+        }
+    }
+
+    /**
+     * Queue a change for every subscription.
+     *
+     * @param change to queue
+     */
+    private void publish(ChangeEvent change) {
+        for (ChangeSubscription subscription : subscriptions) {
+            subscription.offer(change);
+        }
+    }
+
+    @Override
+    public void partAdded(Part part) {
+        long next = ++sequence;
+        if (!subscriptions.isEmpty()) {
+            publish(ChangeEvent.forPart(next, ChangeEvent.Type.PART_ADDED, null, part));
+        }
+    }
+
+    @Override
+    public void partUpdated(Part oldPart, Part newPart) {
+        long next = ++sequence;
+        if (!subscriptions.isEmpty()) {
+            publish(ChangeEvent.forPart(next, ChangeEvent.Type.PART_UPDATED, oldPart, newPart));
+        }
+    }
+
+    @Override
+    public void partRemoved(Part part) {
+        long next = ++sequence;
+        if (!subscriptions.isEmpty()) {
+            publish(ChangeEvent.forPart(next, ChangeEvent.Type.PART_REMOVED, part, null));
+        }
+    }
+
+    @Override
+    public void productAdded(Product product) {
+        long next = ++sequence;
+        if (!subscriptions.isEmpty()) {
+            publish(ChangeEvent.forProduct(next, ChangeEvent.Type.PRODUCT_ADDED, null, product));
+        }
+    }
+
+    @Override
+    public void productUpdated(Product oldProduct, Product newProduct) {
+        long next = ++sequence;
+        if (!subscriptions.isEmpty()) {
+            publish(ChangeEvent.forProduct(next, ChangeEvent.Type.PRODUCT_UPDATED, oldProduct, newProduct));
+        }
+    }
+
+    @Override
+    public void productRemoved(Product product) {
+        long next = ++sequence;
+        if (!subscriptions.isEmpty()) {
+            publish(ChangeEvent.forProduct(next, ChangeEvent.Type.PRODUCT_REMOVED, product, null));
+        }
+    }
+
+    @Override
+    public void associatedPartQuantityChanged(Product product, int partId, int oldQuantity, int newQuantity) {
+        long next = ++sequence;
+        if (!subscriptions.isEmpty()) {
+            publish(ChangeEvent.forAssociation(next, product, partId, oldQuantity, newQuantity));
+        }
+    }
+}
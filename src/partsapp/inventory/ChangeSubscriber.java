@@ -0,0 +1,20 @@
+package partsapp.inventory;
+
+import java.util.List;
+
+/**
+ * Subscriber to the inventory's change feed, handed the changes in batches.
+ */
+@FunctionalInterface
+public interface ChangeSubscriber {
+    /**
+     * Handle a batch of changes.
+     * <p>
+     * Called on the subscription's executor, one batch at a time, with the changes in the order they were made.
+     * Unlike InventoryListeners, subscribers are called without the inventory locked and may use the inventory.
+     * </p>
+     *
+     * @param changes read-only list of changes, oldest first
+     */
+    void onChanges(List<ChangeEvent> changes);
+}
@@ -0,0 +1,283 @@
+package partsapp.inventory;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Subscription to the inventory's change feed, queueing changes for one subscriber and handing them over in batches.
+ *
+ * <p>
+ * Changes are queued while the inventory is locked and delivered later on the subscription's executor, one batch at
+ * a time, so a slow subscriber never holds up the inventory lock.  Whatever has queued up while a batch is delivered
+ * goes out as the next batch, so a busy inventory costs one call per batch rather than one per change.  The queue is
+ * bounded, and the overflow policy decides what happens when it fills: BLOCK makes changes wait for the subscriber
+ * to catch up, while RESYNC drops the queued changes and tells the subscriber to reread the inventory.
+ * </p>
+ *
+ * <p>
+ * For BLOCK the capacity is a soft limit.  Each change waits until the queue has room for all the events it makes,
+ * such as a whole batch of added parts, but writers which find room at the same moment all go ahead.  So the queue
+ * may hold up to capacity plus the events of the other writers waiting, and a change making more events than the
+ * capacity waits for the queue to empty rather than forever.
+ * </p>
+ *
+ * <p>
+ * The executor must not run tasks on the thread submitting them, since changes are queued under the inventory lock.
+ * A BLOCK subscription must not be delivered on a thread which also changes the inventory, such as the JavaFX thread,
+ * since a change made there would wait for a delivery that can only run once it returns; use RESYNC there instead.
+ * </p>
+ */
+public final class ChangeSubscription implements Closeable {
+    /**
+     * What happens to a change made while the subscription's queue is full.
+     */
+    public enum Overflow {
+        /**
+         * The change waits, before taking the inventory lock, until the subscriber has made room for its events.
+         */
+        BLOCK,
+
+        /**
+         * The queued changes are dropped, and replaced by a single RESYNC event.
+         */
+        RESYNC
+    }
+
+    /**
+     * Logger for subscribers which throw.
+     */
+    private static final Logger logger = Logger.getLogger(ChangeSubscription.class.getName());
+
+    /**
+     * Feed the subscription is registered with.
+     */
+    private final ChangeFeed feed;
+
+    /**
+     * Subscriber the changes are handed to.
+     */
+    private final ChangeSubscriber subscriber;
+
+    /**
+     * Executor the batches are delivered on.
+     */
+    private final Executor executor;
+
+    /**
+     * Number of changes the queue holds before overflowing.
+     */
+    private final int capacity;
+
+    /**
+     * Most changes handed over in a single batch.
+     */
+    private final int maxBatchSize;
+
+    /**
+     * What happens to a change made while the queue is full.
+     */
+    private final Overflow overflow;
+
+    /**
+     * Sequence number of the last change made before subscribing, which is not delivered.
+     */
+    private final long startSequence;
+
+    /**
+     * Changes queued but not yet delivered, oldest first, guarded by its own monitor.
+     */
+    private final ArrayDeque<ChangeEvent> queue = new ArrayDeque<>();
+
+    /**
+     * Whether a delivery task has been handed to the executor and not yet finished, guarded by the queue.
+     */
+    private boolean deliveryScheduled;
+
+    /**
+     * Whether the subscription has been closed, guarded by the queue.
+     */
+    private boolean closed;
+
+    /**
+     * Thread delivering a batch, or null while none is.
+     */
+    private volatile Thread deliveringThread;
+
+    /**
+     * Constructor for a subscription.
+     *
+     * @param feed the subscription is registered with
+     * @param subscriber to hand the changes to
+     * @param executor to deliver the batches on
+     * @param capacity number of changes the queue holds before overflowing
+     * @param maxBatchSize most changes handed over in a single batch
+     * @param overflow what happens to a change made while the queue is full
+     * @param startSequence of the last change made before subscribing
+     */
+    ChangeSubscription(ChangeFeed feed, ChangeSubscriber subscriber, Executor executor, int capacity,
+                       int maxBatchSize, Overflow overflow, long startSequence) {
+        this.feed = feed;
+        this.subscriber = subscriber;
+        this.executor = executor;
+        this.capacity = capacity;
+        this.maxBatchSize = maxBatchSize;
+        this.overflow = overflow;
+        this.startSequence = startSequence;
+    }
+
+    /**
+     * Retrieve the sequence number of the last change made before subscribing.
+     * <p>
+     * Every later change is delivered, or covered by a RESYNC event.
+     * </p>
+     *
+     * @return sequence number, 0 if no changes had been made
+     */
+    public long getStartSequence() {
+        return startSequence;
+    }
+
+    /**
+     * Retrieve the number of changes queued but not yet delivered.
+     *
+     * @return pending change count
+     */
+    public int getPendingCount() {
+        synchronized (queue) {
+            return queue.size();
+        }
+    }
+
+    /**
+     * Stop delivering changes to the subscriber.
+     * <p>
+     * Queued changes are dropped, though a batch already being delivered runs to completion.  Changes waiting for
+     * room in the queue go ahead.
+     * </p>
+     */
+    @Override
+    public void close() {
+        feed.unsubscribe(this);
+        synchronized (queue) {
+            closed = true;
+            queue.clear();
+            queue.notifyAll();
+        }
+    }
+
+    /**
+     * Queue a change for the subscriber, without waiting.
+     * <p>
+     * Called under the inventory's write lock, in the order the changes were made.
+     * </p>
+     *
+     * @param change to queue
+     */
+    void offer(ChangeEvent change) {
+        boolean schedule;
+        synchronized (queue) {
+            if (closed) {
+                return;
+            }
+            if (overflow == Overflow.RESYNC && queue.size() >= capacity) {
+                // Replace everything queued by one marker, which the change itself is covered by.
+                queue.clear();
+                queue.add(ChangeEvent.forResync(change.getSequence()));
+            } else {
+                queue.add(change);
+            }
+            schedule = !deliveryScheduled;
+            deliveryScheduled = true;
+        }
+        if (schedule) {
+            scheduleDelivery();
+        }
+    }
+
+    /**
+     * Wait until the queue has room for the events of a change, if the subscription blocks when full.
+     * <p>
+     * Called before taking the inventory lock, so the subscriber can use the inventory while changes wait.  Several
+     * threads may find room at once, so the queue can hold more changes than its capacity, by at most the events of
+     * those threads.  A change with more events than the capacity only waits for the queue to empty.  Changes made by
+     * the subscriber itself while it handles a batch do not wait, nor do changes made by an interrupted thread, whose
+     * interrupt status is kept.
+     * </p>
+     *
+     * @param changes number of events the change will queue
+     */
+    void awaitCapacity(int changes) {
+        if (overflow != Overflow.BLOCK || Thread.currentThread() == deliveringThread) {
+            return;
+        }
+        synchronized (queue) {
+            while (!closed && !queue.isEmpty() && queue.size() + changes > capacity) {
+                try {
+                    queue.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Hand a delivery task to the executor, closing the subscription if the executor refuses it.
+     */
+    private void scheduleDelivery() {
+        try {
+            executor.execute(this::deliverBatch);
+        } catch (RejectedExecutionException e) {
+            logger.log(Level.WARNING, "Closing a change subscription whose executor refused a delivery.", e);
+            close();
+        }
+    }
+
+    /**
+     * Deliver the oldest queued changes to the subscriber as one batch, and schedule another delivery if changes
+     * remain.
+     * <p>
+     * Each batch is a separate executor task, so a subscriber sharing its executor cannot starve the others.
+     * </p>
+     */
+    private void deliverBatch() {
+        List<ChangeEvent> batch;
+        synchronized (queue) {
+            int size = Math.min(queue.size(), maxBatchSize);
+            batch = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                batch.add(queue.poll());
+            }
+            queue.notifyAll();
+        }
+
+        if (!batch.isEmpty()) {
+            deliveringThread = Thread.currentThread();
+            try {
+                subscriber.onChanges(Collections.unmodifiableList(batch));
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "Change subscriber failed to handle a batch of " + batch.size()
+                        + " changes.", e);
+            } finally {
+                deliveringThread = null;
+            }
+        }
+
+        boolean schedule;
+        synchronized (queue) {
+            schedule = !closed && !queue.isEmpty();
+            deliveryScheduled = schedule;
+        }
+        if (schedule) {
+            scheduleDelivery();
+        }
+    }
+}
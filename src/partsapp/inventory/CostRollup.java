@@ -0,0 +1,192 @@
+package partsapp.inventory;
+
+import partsapp.collections.IntArrayList;
+import partsapp.collections.IntLongHashMap;
+import partsapp.formatters.CurrencyFormat;
+import partsapp.part.Part;
+import partsapp.product.Product;
+
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * Cached total cost of the parts making up each product, kept up to date as prices and associations change.
+ *
+ * <p>
+ * Each product's cost is the sum of the latest price of every associated part, multiplied by its quantity.  A
+ * price change adjusts only the costs of the products the where-used index lists for the part, by the difference,
+ * and an association change adjusts only the one product.  Parts removed from the inventory still count at their
+ * last price for as long as products use them, while parts never held in inventory count as free.  Prices and
+ * costs are kept as whole cents to keep sums exact.
+ * </p>
+ *
+ * <p>
+ * The where-used index must be updated before each change is passed on to the rollup.
+ * </p>
+ */
+class CostRollup {
+    /**
+     * Whether a part ID is currently in the inventory.
+     */
+    private final IntPredicate partInInventory;
+
+    /**
+     * Products using each part.
+     */
+    private final WhereUsedIndex whereUsed;
+
+    /**
+     * Latest price of every part in inventory or used by a product, in cents, by part ID.
+     */
+    private final IntLongHashMap partPriceCents = new IntLongHashMap();
+
+    /**
+     * Price of each product, in cents, by product ID.
+     */
+    private final IntLongHashMap productPriceCents = new IntLongHashMap();
+
+    /**
+     * Total cost of the parts of each product, in cents, by product ID.
+     */
+    private final IntLongHashMap productCostCents = new IntLongHashMap();
+
+    /**
+     * Constructor for an empty rollup.
+     *
+     * @param partInInventory test of whether a part ID is currently in the inventory
+     * @param whereUsed index of the products using each part
+     */
+    CostRollup(IntPredicate partInInventory, WhereUsedIndex whereUsed) {
+        this.partInInventory = partInInventory;
+        this.whereUsed = whereUsed;
+    }
+
+    /**
+     * Record the price of a part, adjusting the cost of every product using it.
+     *
+     * @param part added to or updated in the inventory
+     */
+    void putPart(Part part) {
+        int partId = part.getId();
+        long newPrice = CurrencyFormat.toCents(part.getPrice());
+        long oldPrice = partPriceCents.get(partId, newPrice);
+        partPriceCents.put(partId, newPrice);
+
+        if (newPrice != oldPrice) {
+            long difference = newPrice - oldPrice;
+            whereUsed.forEachProductUsing(
+                    partId, (productId, quantity) -> productCostCents.addTo(productId, difference * quantity));
+        }
+    }
+
+    /**
+     * Forget the price of a part removed from the inventory, unless products still use it.
+     *
+     * @param partId of part removed
+     */
+    void removePart(int partId) {
+        forgetPriceIfUnused(partId);
+    }
+
+    /**
+     * Record a product and the cost of its associated parts.
+     *
+     * @param product added to the inventory
+     */
+    void putProduct(Product product) {
+        productPriceCents.put(product.getId(), CurrencyFormat.toCents(product.getPrice()));
+        productCostCents.put(product.getId(), calculateCostCents(product));
+    }
+
+    /**
+     * Forget a product removed from the inventory.
+     *
+     * @param productId of product removed
+     * @param partIds of the parts the product used
+     */
+    void removeProduct(int productId, IntArrayList partIds) {
+        productPriceCents.remove(productId);
+        productCostCents.remove(productId);
+        for (int i = 0; i < partIds.size(); i++) {
+            forgetPriceIfUnused(partIds.get(i));
+        }
+    }
+
+    /**
+     * Adjust the cost of a product for a change in the quantity of one of its parts.
+     *
+     * @param productId of product whose parts changed
+     * @param partId of part whose quantity changed
+     * @param change in quantity, negative if parts were removed
+     */
+    void changeQuantity(int productId, int partId, int change) {
+        if (productCostCents.containsKey(productId)) {
+            productCostCents.addTo(productId, partPriceCents.get(partId, 0) * change);
+        }
+        if (change < 0) {
+            forgetPriceIfUnused(partId);
+        }
+    }
+
+    /**
+     * Retrieve the cached cost of the parts of a product.
+     *
+     * @param productId to search
+     * @return total cost of the parts, in cents, or 0 if the product is not in the inventory
+     */
+    long getCostCents(int productId) {
+        return productCostCents.get(productId, 0);
+    }
+
+    /**
+     * Calculate the cost of a list of parts, such as those chosen for a product not yet saved.
+     *
+     * @param parts to total, counting each entry once
+     * @return total cost of the parts, in cents
+     */
+    long calculateCostCents(List<Part> parts) {
+        long total = 0;
+        for (Part part : parts) {
+            total += partPriceCents.get(part.getId(), CurrencyFormat.toCents(part.getPrice()));
+        }
+        return total;
+    }
+
+    /**
+     * Calculate the cost of the parts of a product not yet in the inventory.
+     *
+     * @param product whose parts to total
+     * @return total cost of the parts, in cents
+     */
+    long calculateCostCents(Product product) {
+        long[] cost = new long[1];
+        product.forEachAssociatedPart((partId, quantity) -> cost[0] += partPriceCents.get(partId, 0) * quantity);
+        return cost[0];
+    }
+
+    /**
+     * Find the products priced below the cost of their parts.
+     *
+     * @return IDs of the products selling at a loss, in no particular order
+     */
+    IntArrayList findPricedBelowCost() {
+        IntArrayList productIds = new IntArrayList();
+        productCostCents.forEach((productId, cost) -> {
+            if (productPriceCents.get(productId, 0) < cost) {
+                productIds.add(productId);
+            }
+        });
+        return productIds;
+    }
+
+    /**
+     * Forget the price of a part once it is neither in the inventory nor used by any product.
+     *
+     * @param partId of part to check
+     */
+    private void forgetPriceIfUnused(int partId) {
+        if (!whereUsed.isUsed(partId) && !partInInventory.test(partId)) {
+            partPriceCents.remove(partId);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package partsapp.inventory;
+
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Copy of one inventory list for the JavaFX thread, brought up to date with the changes published to it.
+ *
+ * <p>
+ * The inventory may be changed from any thread, but an ObservableList shown in a table must only be changed on the
+ * JavaFX thread.  Changes are queued under the inventory write lock in the order they are made, and only applied
+ * once the inventory calls {@link #applyPublished()} after releasing the lock, so a list listener is free to call
+ * back into the inventory.  The copy passes through exactly the states of the inventory list.  Changes made on the
+ * JavaFX thread are applied before the inventory method returns; others are applied by a task on the JavaFX thread.
+ * When the JavaFX toolkit is not running, such as for a command line import, changes are applied on the publishing
+ * thread instead.
+ * </p>
+ *
+ * @param <T> type of item in the list
+ */
+class FxListPublisher<T> {
+    /**
+     * Copy of the inventory list, changed only on the JavaFX thread.
+     */
+    private final ObservableList<T> list = FXCollections.observableArrayList();
+
+    /**
+     * Read-only view of the copy handed out to callers.
+     */
+    private final ObservableList<T> readOnlyList = FXCollections.unmodifiableObservableList(list);
+
+    /**
+     * Changes published but not yet applied to the copy, oldest first.
+     */
+    private final Queue<Consumer<List<T>>> pendingChanges = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Whether a task to apply the pending changes is already waiting on the JavaFX thread.
+     */
+    private final AtomicBoolean applyScheduled = new AtomicBoolean();
+
+    /**
+     * Retrieve the read-only copy of the list.
+     * <p>
+     * On the JavaFX thread any pending changes are applied first, so the copy matches the inventory.
+     * </p>
+     *
+     * @return list of items
+     */
+    ObservableList<T> getList() {
+        if (Platform.isFxApplicationThread()) {
+            applyPendingChanges();
+        }
+        return readOnlyList;
+    }
+
+    /**
+     * Publish the addition of an item to the end of the list.
+     *
+     * @param item to add
+     */
+    void publishAdd(T item) {
+        publish(items -> items.add(item));
+    }
+
+    /**
+     * Publish the addition of several items to the end of the list, as a single change to the copy.
+     *
+     * @param items to add, in order
+     */
+    void publishAddAll(List<T> items) {
+        List<T> added = new ArrayList<>(items);
+        publish(list -> list.addAll(added));
+    }
+
+    /**
+     * Publish the replacement of the item at a position in the list.
+     *
+     * @param index of item to replace
+     * @param item to replace it with
+     */
+    void publishSet(int index, T item) {
+        publish(items -> items.set(index, item));
+    }
+
+    /**
+     * Publish the removal of the item at a position in the list by moving the last item into its place.
+     *
+     * @param index of item to remove
+     */
+    void publishSwapRemove(int index) {
+        publish(items -> {
+            int last = items.size() - 1;
+            T moved = items.remove(last);
+            if (index != last) {
+                items.set(index, moved);
+            }
+        });
+    }
+
+    /**
+     * Apply the published changes, or arrange for them to be applied on the JavaFX thread.
+     * <p>
+     * Must be called after the inventory write lock is released, never while it is held.
+     * </p>
+     */
+    void applyPublished() {
+        if (pendingChanges.isEmpty()) {
+            return;
+        }
+
+        if (Platform.isFxApplicationThread()) {
+            applyPendingChanges();
+        } else if (applyScheduled.compareAndSet(false, true)) {
+            try {
+                Platform.runLater(() -> {
+                    applyScheduled.set(false);
+                    applyPendingChanges();
+                });
+            } catch (IllegalStateException e) {
+                // The JavaFX toolkit is not running, so there is no other thread the copy could be used from.
+                applyScheduled.set(false);
+                applyPendingChanges();
+            }
+        }
+    }
+
+    /**
+     * Queue a change to be applied by the next call to {@link #applyPublished()}.
+     * <p>
+     * Changes must be published one at a time, in the order they were made to the inventory.
+     * </p>
+     *
+     * @param change to apply to the copy
+     */
+    private void publish(Consumer<List<T>> change) {
+        pendingChanges.add(change);
+    }
+
+    /**
+     * Apply every queued change to the copy, oldest first.
+     * <p>
+     * Synchronized because without the JavaFX toolkit several publishing threads may apply changes at once.
+     * </p>
+     */
+    private synchronized void applyPendingChanges() {
+        Consumer<List<T>> change;
+        while ((change = pendingChanges.poll()) != null) {
+            change.accept(list);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package partsapp.inventory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands out IDs from contiguous blocks leased from a shared source.
+ *
+ * <p>
+ * A block of IDs is leased from the source in one step, and IDs within it are then handed out with a single atomic
+ * increment, so generating an ID needs no locking or I/O until the block runs out.  Since the source never leases
+ * the same ID twice, allocators in different threads, processes or machines sharing a source never collide.  IDs
+ * left unused in a block when the allocator is discarded are skipped rather than reused.
+ * </p>
+ */
+public class IdAllocator {
+    /**
+     * Source of ID blocks, such as a high-water mark kept on disk.
+     */
+    @FunctionalInterface
+    public interface BlockSource {
+        /**
+         * Lease a block of IDs which has never been leased before.
+         *
+         * @param floor ID which every ID in the block must be above
+         * @param size number of IDs in the block
+         * @return first ID of the block
+         * @throws IOException if the lease cannot be recorded
+         */
+        int leaseBlock(int floor, int size) throws IOException;
+    }
+
+    /**
+     * Block of IDs currently being handed out.
+     */
+    private static final class Lease {
+        /**
+         * Next ID to hand out, which may run past the end once the block is used up.
+         */
+        private final AtomicInteger next;
+
+        /**
+         * ID after the last one in the block.
+         */
+        private final int end;
+
+        /**
+         * Constructor for a lease of the IDs from first up to, but not including, end.
+         *
+         * @param first ID of the block
+         * @param end ID after the last one in the block
+         */
+        private Lease(int first, int end) {
+            this.next = new AtomicInteger(first);
+            this.end = end;
+        }
+    }
+
+    /**
+     * Source the blocks are leased from.
+     */
+    private final BlockSource source;
+
+    /**
+     * Number of IDs leased at a time.
+     */
+    private final int blockSize;
+
+    /**
+     * Highest ID reserved as already in use.
+     */
+    private final AtomicInteger floor;
+
+    /**
+     * Block IDs are currently handed out from.
+     */
+    private volatile Lease lease;
+
+    /**
+     * Constructor for an allocator which leases its first block when the first ID is requested.
+     *
+     * @param source to lease blocks from
+     * @param blockSize number of IDs leased at a time
+     * @param floor ID which every ID handed out must be above
+     */
+    public IdAllocator(BlockSource source, int blockSize, int floor) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Block size must be at least 1.");
+        }
+        this.source = source;
+        this.blockSize = blockSize;
+        this.floor = new AtomicInteger(floor);
+        this.lease = new Lease(floor + 1, floor + 1);
+    }
+
+    /**
+     * Create a source counting up in memory, for use when IDs do not need to outlive the process.
+     *
+     * @param highWaterMark last ID already leased
+     * @return in-memory block source
+     */
+    public static BlockSource inMemory(int highWaterMark) {
+        int[] leased = {highWaterMark};
+        return (floor, size) -> {
+            synchronized (leased) {
+                int first = Math.max(leased[0], floor) + 1;
+                leased[0] = first + size - 1;
+                return first;
+            }
+        };
+    }
+
+    /**
+     * Hand out the next ID.
+     *
+     * @return ID never handed out before by any allocator sharing the source
+     * @throws UncheckedIOException if a new block is needed and cannot be leased
+     */
+    public int nextId() {
+        while (true) {
+            Lease current = lease;
+            int id = current.next.getAndIncrement();
+            if (id < current.end) {
+                return id;
+            }
+            renew(current);
+        }
+    }
+
+    /**
+     * Ensure an ID already in use, such as one restored from disk, is never handed out.
+     *
+     * @param id already in use
+     */
+    public void reserve(int id) {
+        floor.accumulateAndGet(id, Math::max);
+
+        // Skip past the ID if it falls within the current block.
+        Lease current = lease;
+        if (id < current.end) {
+            current.next.accumulateAndGet(id + 1, Math::max);
+        }
+    }
+
+    /**
+     * Retrieve the last ID handed out or reserved.
+     *
+     * @return highest ID known to be in use
+     */
+    public int getLastId() {
+        Lease current = lease;
+        int lastHandedOut = Math.min(current.next.get(), current.end) - 1;
+        return Math.max(floor.get(), lastHandedOut);
+    }
+
+    /**
+     * Replace a used up lease with a new block, unless another thread already has.
+     *
+     * @param exhausted lease which ran out
+     */
+    private synchronized void renew(Lease exhausted) {
+        if (lease != exhausted) {
+            return;
+        }
+
+        try {
+            int first = source.leaseBlock(floor.get(), blockSize);
+            lease = new Lease(first, first + blockSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to lease a block of IDs.", e);
+        }
+    }
+}
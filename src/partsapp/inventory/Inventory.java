@@ -2,36 +2,237 @@ package partsapp.inventory;
 
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import partsapp.collections.IntArrayList;
+import partsapp.collections.IntIntHashMap;
+import partsapp.collections.IntObjectHashMap;
+import partsapp.formatters.CurrencyFormat;
+import partsapp.metrics.InventoryEvent;
+import partsapp.metrics.Metrics;
+import partsapp.metrics.Operation;
 import partsapp.part.Part;
 import partsapp.product.Product;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
 /**
  * Shared inventory class for tracking parts and products.
  *
  * <p>
- * TODO: In a future version of this project, create a database backing mechanism to persist data.
+ * The inventory may be read and changed from any thread.  Changes are made one at a time under the write lock of a
+ * StampedLock.  ID lookups and totals first read optimistically without locking, and only take the read lock if a
+ * change was made while they ran, so lookups from many threads do not contend with each other.  Name searches take
+ * the read lock.  IDs are handed out from leased blocks by IdAllocators, without locking at all.
+ * </p>
+ *
+ * <p>
+ * The lists returned by getAllParts and getAllProducts are copies for the JavaFX thread, and must only be used from
+ * it.  Changes made on other threads reach them shortly after, in the order they were made.
+ * </p>
+ *
+ * <p>
+ * Parts and products are also kept in reorder order, by how far their stock level lies above their minimum, so the
+ * most urgent items and those low on stock are found without scanning the inventory.  Their prices and stock
+ * levels are indexed in sorted order too, so range queries take time proportional to the page of results returned.
+ * </p>
+ *
+ * <p>
+ * Every change is reported to the registered InventoryListeners, which is how the journal in partsapp.persistence
+ * keeps the inventory on disk between runs.
+ * Changes are also numbered in order and queued for subscribers, which are handed them in batches on their own
+ * executors, so views, caches and exporters can follow the inventory without polling it.
+ * </p>
+ *
+ * <p>
+ * The latency of every lookup, search and change, including any wait for the lock, is recorded in partsapp.metrics
+ * and reported to the flight recorder as an InventoryEvent.
  * </p>
  */
 public class Inventory {
+    /**
+     * Callback for reading the whole inventory while no changes can be made to it.
+     *
+     * @param <T> type of result read
+     */
+    @FunctionalInterface
+    public interface StateReader<T> {
+        /**
+         * Read the inventory.
+         * <p>
+         * The lists must not be kept after returning, and the inventory must not be changed from within the callback.
+         * </p>
+         *
+         * @param parts read-only list of all parts
+         * @param products read-only list of all products
+         * @return result of reading
+         * @throws IOException if the result cannot be produced
+         */
+        T read(List<Part> parts, List<Product> products) throws IOException;
+    }
+
+    /**
+     * Lock guarding every field below other than the ID counters and listeners.
+     */
+    private static final StampedLock lock = new StampedLock();
+
     /**
      * List of all parts available within the inventory.
      */
-    private static final ObservableList<Part> allParts = FXCollections.observableArrayList();
+    private static final List<Part> allParts = new ArrayList<>();
 
     /**
      * List of all the products available within the inventory.
      */
-    private static final ObservableList<Product> allProducts = FXCollections.observableArrayList();
+    private static final List<Product> allProducts = new ArrayList<>();
+
+    /**
+     * Copy of the list of all parts for the JavaFX thread.
+     */
+    private static final FxListPublisher<Part> fxParts = new FxListPublisher<>();
+
+    /**
+     * Copy of the list of all products for the JavaFX thread.
+     */
+    private static final FxListPublisher<Product> fxProducts = new FxListPublisher<>();
+
+    /**
+     * Index of parts by part ID, kept in sync with the list of all parts for constant time ID lookups.
+     */
+    private static final IntObjectHashMap<Part> partsById = new IntObjectHashMap<>();
+
+    /**
+     * Index of products by product ID, kept in sync with the list of all products for constant time ID lookups.
+     */
+    private static final IntObjectHashMap<Product> productsById = new IntObjectHashMap<>();
 
     /**
-     * Current part ID, set to one value before the expected first value.
+     * Position in the list of all parts of each part in the ID index, for constant time updates and removals.
      */
-    private static int currentPartId = 0;
+    private static final IntIntHashMap partSlots = new IntIntHashMap();
 
     /**
-     * Current product ID, set to one value before the expected first value.
+     * Position in the list of all products of each product in the ID index, for constant time updates and removals.
      */
-    private static int currentProductId = 999;
+    private static final IntIntHashMap productSlots = new IntIntHashMap();
+
+    /**
+     * Trigram index of part names, keyed by part ID, for substring searches.
+     */
+    private static final NameIndex partNames = new NameIndex();
+
+    /**
+     * Trigram index of product names, keyed by product ID, for substring searches.
+     */
+    private static final NameIndex productNames = new NameIndex();
+
+    /**
+     * Column-oriented copy of the numeric part fields, for whole-inventory totals and counts.
+     */
+    private static final PartStore partStore = new PartStore();
+
+    /**
+     * Sorted indexes of the numeric part fields, by RangeField ordinal, for range queries.
+     */
+    private static final RangeIndex[] partRanges = createRangeIndexes();
+
+    /**
+     * Sorted indexes of the numeric product fields, by RangeField ordinal, for range queries.
+     */
+    private static final RangeIndex[] productRanges = createRangeIndexes();
+
+    /**
+     * Parts in reorder order, most urgent first.
+     */
+    private static final ReorderQueue partReorders = new ReorderQueue();
+
+    /**
+     * Products in reorder order, most urgent first.
+     */
+    private static final ReorderQueue productReorders = new ReorderQueue();
+
+    /**
+     * Index of the products using each part.
+     */
+    private static final WhereUsedIndex whereUsed = new WhereUsedIndex();
+
+    /**
+     * Cached cost of the parts making up each product.
+     */
+    private static final CostRollup costRollup = new CostRollup(partsById::containsKey, whereUsed);
+
+    /**
+     * Number of IDs leased at a time by the default in-memory allocators.
+     */
+    private static final int DEFAULT_ID_BLOCK_SIZE = 64;
+
+    /**
+     * Allocator of part IDs, starting from one value before the expected first value.
+     */
+    private static volatile IdAllocator partIds =
+            new IdAllocator(IdAllocator.inMemory(0), DEFAULT_ID_BLOCK_SIZE, 0);
+
+    /**
+     * Allocator of product IDs, starting from one value before the expected first value.
+     */
+    private static volatile IdAllocator productIds =
+            new IdAllocator(IdAllocator.inMemory(999), DEFAULT_ID_BLOCK_SIZE, 999);
+
+    /**
+     * Number of changes made to the parts in inventory, changed only under the write lock.
+     */
+    private static volatile long partsVersion;
+
+    /**
+     * Feed numbering every change to the inventory and queueing it for the change subscriptions.
+     */
+    private static final ChangeFeed changeFeed = new ChangeFeed();
+
+    /**
+     * Listeners notified of every change to the inventory, starting with the change feed.
+     */
+    private static final List<InventoryListener> listeners = new CopyOnWriteArrayList<>(List.of(changeFeed));
+
+    /**
+     * Applies changes to the associated parts of products held in inventory under the write lock, forwarding them to
+     * the where-used index, the cost rollup and the inventory listeners in the order they were made.
+     */
+    private static final Product.AssociationListener associationForwarder =
+            (product, partId, change) -> {
+                long start = Metrics.startTimer();
+                InventoryEvent event = InventoryEvent.start();
+                changeFeed.awaitCapacity(1);
+                long stamp = lock.writeLock();
+                try {
+                    int oldQuantity = product.applyAssociatedPartChange(partId, change);
+                    int newQuantity = product.getAssociatedPartQuantity(partId);
+
+                    // Only record the change for a product still indexed, not one removed or replaced meanwhile.
+                    if (newQuantity == oldQuantity || productsById.get(product.getId()) != product) {
+                        return oldQuantity;
+                    }
+
+                    int difference = newQuantity - oldQuantity;
+                    whereUsed.change(product.getId(), partId, difference);
+                    costRollup.changeQuantity(product.getId(), partId, difference);
+
+                    for (InventoryListener listener : listeners) {
+                        listener.associatedPartQuantityChanged(product, partId, oldQuantity, newQuantity);
+                    }
+                    return oldQuantity;
+                } finally {
+                    unlockWrite(stamp);
+                    Metrics.record(Operation.CHANGE_ASSOCIATED_PART_QUANTITY, start);
+                    event.finish(Operation.CHANGE_ASSOCIATED_PART_QUANTITY, product.getId(), 0, 1);
+                }
+            };
 
     /**
      * Add a part to the store of parts.
@@ -39,7 +240,25 @@ public class Inventory {
      * @param part to add
      */
     public static void addPart(Part part) {
-        allParts.add(part);
+        long start = Metrics.startTimer();
+        InventoryEvent event = InventoryEvent.start();
+        changeFeed.awaitCapacity(1);
+        long stamp = lock.writeLock();
+        try {
+            partSlots.put(part.getId(), allParts.size());
+            allParts.add(part);
+            indexPart(part);
+            fxParts.publishAdd(part);
+
+            for (InventoryListener listener : listeners) {
+                listener.partAdded(part);
+            }
+            notifyStockLevelCrossed(null, part);
+        } finally {
+            unlockWrite(stamp);
+            Metrics.record(Operation.ADD_PART, start);
+            event.finish(Operation.ADD_PART, part.getId(), 0, 1);
+        }
     }
 
     /**
@@ -48,7 +267,101 @@ public class Inventory {
      * @param product to add
      */
     public static void addProduct(Product product) {
-        allProducts.add(product);
+        long start = Metrics.startTimer();
+        InventoryEvent event = InventoryEvent.start();
+        changeFeed.awaitCapacity(1);
+        long stamp = lock.writeLock();
+        try {
+            productSlots.put(product.getId(), allProducts.size());
+            allProducts.add(product);
+            indexProduct(product);
+            fxProducts.publishAdd(product);
+
+            for (InventoryListener listener : listeners) {
+                listener.productAdded(product);
+            }
+            notifyStockLevelCrossed(null, product);
+        } finally {
+            unlockWrite(stamp);
+            Metrics.record(Operation.ADD_PRODUCT, start);
+            event.finish(Operation.ADD_PRODUCT, product.getId(), 0, 1);
+        }
+    }
+
+    /**
+     * Add a batch of parts to the store of parts as a single change.
+     * <p>
+     * The JavaFX copy of the list and the listeners are each told of the whole batch at once.
+     * </p>
+     *
+     * @param parts to add, in order
+     */
+    public static void addParts(List<Part> parts) {
+        if (parts.isEmpty()) {
+            return;
+        }
+
+        long start = Metrics.startTimer();
+        InventoryEvent event = InventoryEvent.start();
+        changeFeed.awaitCapacity(parts.size());
+        long stamp = lock.writeLock();
+        try {
+            for (Part part : parts) {
+                partSlots.put(part.getId(), allParts.size());
+                allParts.add(part);
+                indexPart(part);
+            }
+            fxParts.publishAddAll(parts);
+
+            for (InventoryListener listener : listeners) {
+                listener.partsAdded(parts);
+            }
+            for (Part part : parts) {
+                notifyStockLevelCrossed(null, part);
+            }
+        } finally {
+            unlockWrite(stamp);
+            Metrics.record(Operation.ADD_PARTS, start);
+            event.finish(Operation.ADD_PARTS, 0, 0, parts.size());
+        }
+    }
+
+    /**
+     * Add a batch of products to the store of products as a single change.
+     * <p>
+     * The JavaFX copy of the list and the listeners are each told of the whole batch at once.
+     * </p>
+     *
+     * @param products to add, in order
+     */
+    public static void addProducts(List<Product> products) {
+        if (products.isEmpty()) {
+            return;
+        }
+
+        long start = Metrics.startTimer();
+        InventoryEvent event = InventoryEvent.start();
+        changeFeed.awaitCapacity(products.size());
+        long stamp = lock.writeLock();
+        try {
+            for (Product product : products) {
+                productSlots.put(product.getId(), allProducts.size());
+                allProducts.add(product);
+                indexProduct(product);
+            }
+            fxProducts.publishAddAll(products);
+
+            for (InventoryListener listener : listeners) {
+                listener.productsAdded(products);
+            }
+            for (Product product : products) {
+                notifyStockLevelCrossed(null, product);
+            }
+        } finally {
+            unlockWrite(stamp);
+            Metrics.record(Operation.ADD_PRODUCTS, start);
+            event.finish(Operation.ADD_PRODUCTS, 0, 0, products.size());
+        }
     }
 
     /**
@@ -58,12 +371,12 @@ public class Inventory {
      * @return part matching ID or null
      */
     public static Part lookupPart(int id) {
-        for (Part part: allParts) {
-            if (part.getId() == id) {
-                return part;
-            }
-        }
-        return null;
+        long start = Metrics.startTimer();
+        InventoryEvent event = InventoryEvent.start();
+        Part part = readOptimistically(() -> partsById.get(id));
+        Metrics.record(Operation.LOOKUP_PART_BY_ID, start);
+        event.finish(Operation.LOOKUP_PART_BY_ID, id, 0, part == null ? 0 : 1);
+        return part;
     }
 
     /**
@@ -73,67 +386,202 @@ public class Inventory {
      * @return product matching ID or null
      */
     public static Product lookupProduct(int id) {
-        for (Product product: allProducts) {
-            if (product.getId() == id) {
-                return product;
-            }
-        }
-        return null;
+        long start = Metrics.startTimer();
+        InventoryEvent event = InventoryEvent.start();
+        Product product = readOptimistically(() -> productsById.get(id));
+        Metrics.record(Operation.LOOKUP_PRODUCT_BY_ID, start);
+        event.finish(Operation.LOOKUP_PRODUCT_BY_ID, id, 0, product == null ? 0 : 1);
+        return product;
     }
 
     /**
      * Retrieve parts by a string matching the name, case-insensitive.
      *
      * @param partName to search
-     * @return list of parts partially matching the name
+     * @return list of parts partially matching the name, ordered by part ID
      */
     public static ObservableList<Part> lookupPart(String partName) {
-        return allParts.filtered(p -> p.getName().toLowerCase().contains(partName.toLowerCase()));
+        ObservableList<Part> parts = FXCollections.observableArrayList();
+        long start = Metrics.startTimer();
+        InventoryEvent event = InventoryEvent.start();
+        long stamp = lock.readLock();
+        try {
+            IntArrayList ids = partNames.search(partName);
+            for (int i = 0; i < ids.size(); i++) {
+                parts.add(partsById.get(ids.get(i)));
+            }
+        } finally {
+            lock.unlockRead(stamp);
+            Metrics.record(Operation.LOOKUP_PART_BY_NAME, start);
+            event.finish(Operation.LOOKUP_PART_BY_NAME, 0, partName.length(), parts.size());
+        }
+        return parts;
     }
 
     /**
      * Retrieve products by a string matching the name, case-insensitive.
      *
      * @param productName to search
-     * @return list of products partially matching the name
+     * @return list of products partially matching the name, ordered by product ID
      */
     public static ObservableList<Product> lookupProduct(String productName) {
-        return allProducts.filtered(p -> p.getName().toLowerCase().contains(productName.toLowerCase()));
+        ObservableList<Product> products = FXCollections.observableArrayList();
+        long start = Metrics.startTimer();
+        InventoryEvent event = InventoryEvent.start();
+        long stamp = lock.readLock();
+        try {
+            IntArrayList ids = productNames.search(productName);
+            for (int i = 0; i < ids.size(); i++) {
+                products.add(productsById.get(ids.get(i)));
+            }
+        } finally {
+            lock.unlockRead(stamp);
+            Metrics.record(Operation.LOOKUP_PRODUCT_BY_NAME, start);
+            event.finish(Operation.LOOKUP_PRODUCT_BY_NAME, 0, productName.length(), products.size());
+        }
+        return products;
     }
 
     /**
-     * Update a part within the inventory with a new version.
+     * Replace the part with an ID by a new version.
      *
-     * @param index of existing part
+     * @param id of existing part
      * @param selectedPart to replace existing
+     * @return true if successfully updated, false if no part has the ID
      */
-    public static void updatePart(int index, Part selectedPart) {
-        allParts.set(index, selectedPart);
+    public static boolean updatePart(int id, Part selectedPart) {
+        long start = Metrics.startTimer();
+        InventoryEvent event = InventoryEvent.start();
+        boolean updated = false;
+        changeFeed.awaitCapacity(1);
+        long stamp = lock.writeLock();
+        try {
+            int slot = partSlots.get(id, -1);
+            if (slot >= 0) {
+                Part replacedPart = allParts.set(slot, selectedPart);
+                partSlots.remove(id);
+                unindexPart(replacedPart);
+                partSlots.put(selectedPart.getId(), slot);
+                indexPart(selectedPart);
+                fxParts.publishSet(slot, selectedPart);
+                updated = true;
+
+                for (InventoryListener listener : listeners) {
+                    listener.partUpdated(replacedPart, selectedPart);
+                }
+                notifyStockLevelCrossed(replacedPart, selectedPart);
+            }
+        } finally {
+            unlockWrite(stamp);
+            Metrics.record(Operation.UPDATE_PART, start, updated);
+            event.finish(Operation.UPDATE_PART, id, 0, updated ? 1 : 0);
+        }
+        return updated;
     }
 
     /**
-     * Update a product within the inventory with a new version.
+     * Replace the product with an ID by a new version.
      *
-     * @param index of existing part
+     * @param id of existing product
      * @param selectedProduct to replace existing
+     * @return true if successfully updated, false if no product has the ID
      */
-    public static void updateProduct(int index, Product selectedProduct) {
-        allProducts.set(index, selectedProduct);
+    public static boolean updateProduct(int id, Product selectedProduct) {
+        long start = Metrics.startTimer();
+        InventoryEvent event = InventoryEvent.start();
+        boolean updated = false;
+        changeFeed.awaitCapacity(1);
+        long stamp = lock.writeLock();
+        try {
+            int slot = productSlots.get(id, -1);
+            if (slot >= 0) {
+                Product replacedProduct = allProducts.set(slot, selectedProduct);
+                productSlots.remove(id);
+                unindexProduct(replacedProduct);
+                productSlots.put(selectedProduct.getId(), slot);
+                indexProduct(selectedProduct);
+                fxProducts.publishSet(slot, selectedProduct);
+                updated = true;
+
+                for (InventoryListener listener : listeners) {
+                    listener.productUpdated(replacedProduct, selectedProduct);
+                }
+                notifyStockLevelCrossed(replacedProduct, selectedProduct);
+            }
+        } finally {
+            unlockWrite(stamp);
+            Metrics.record(Operation.UPDATE_PRODUCT, start, updated);
+            event.finish(Operation.UPDATE_PRODUCT, id, 0, updated ? 1 : 0);
+        }
+        return updated;
     }
 
     /**
      * Remove a part from the inventory.
      *
      * @param selectedPart to remove
-     * @return true if successfully deleted, false otherwise
+     * @return true if successfully deleted, false otherwise, including when a product uses the part
      */
     public static boolean deletePart(Part selectedPart) {
-        // Remove the part if it is in the inventory.
-        boolean partInList = allParts.contains(selectedPart);
-        if (partInList) {
-            allParts.remove(selectedPart);
+        long start = Metrics.startTimer();
+        InventoryEvent event = InventoryEvent.start();
+        boolean deleted = removePart(selectedPart.getId(), selectedPart);
+        Metrics.record(Operation.DELETE_PART, start, deleted);
+        event.finish(Operation.DELETE_PART, selectedPart.getId(), 0, deleted ? 1 : 0);
+        return deleted;
+    }
+
+    /**
+     * Remove the part with an ID from the inventory.
+     *
+     * @param id of part to remove
+     * @return true if successfully deleted, false if no part has the ID or a product uses it
+     */
+    public static boolean deletePart(int id) {
+        long start = Metrics.startTimer();
+        InventoryEvent event = InventoryEvent.start();
+        boolean deleted = removePart(id, null);
+        Metrics.record(Operation.DELETE_PART, start, deleted);
+        event.finish(Operation.DELETE_PART, id, 0, deleted ? 1 : 0);
+        return deleted;
+    }
+
+    /**
+     * Remove the part with an ID from the inventory, if it is in it and no product uses it.
+     * <p>
+     * The last part in the list takes the place of the one removed, so nothing is shifted along.
+     * </p>
+     *
+     * @param id of part to remove
+     * @param expectedPart to remove only if it is the part with the ID, or null to remove any part with the ID
+     * @return true if successfully deleted, false otherwise
+     */
+    private static boolean removePart(int id, Part expectedPart) {
+        changeFeed.awaitCapacity(1);
+        long stamp = lock.writeLock();
+        try {
+            // Remove the part if it is in the inventory.
+            int slot = partSlots.get(id, -1);
+            if (slot < 0 || expectedPart != null && allParts.get(slot) != expectedPart) {
+                return false;
+            }
+
+            // Disallow removal of the part while products use it, as they would keep counting a part they can't show.
+            if (whereUsed.isUsed(id)) {
+                return false;
+            }
+
+            Part removedPart = swapRemove(allParts, partSlots, Part::getId, slot);
+            unindexPart(removedPart);
+            fxParts.publishSwapRemove(slot);
+
+            for (InventoryListener listener : listeners) {
+                listener.partRemoved(removedPart);
+            }
+            return true;
+        } finally {
+            unlockWrite(stamp);
         }
-        return partInList;
     }
 
     /**
@@ -143,36 +591,818 @@ public class Inventory {
      * @return true if successfully deleted, false otherwise
      */
     public static boolean deleteProduct(Product selectedProduct) {
-        // Disallow removal of the product if there are associated parts, based on rubric requirements.
-        if (selectedProduct.getAllAssociatedParts().size() > 0) {
-            return false;
+        long start = Metrics.startTimer();
+        InventoryEvent event = InventoryEvent.start();
+        boolean deleted = removeProduct(selectedProduct.getId(), selectedProduct);
+        Metrics.record(Operation.DELETE_PRODUCT, start, deleted);
+        event.finish(Operation.DELETE_PRODUCT, selectedProduct.getId(), 0, deleted ? 1 : 0);
+        return deleted;
+    }
+
+    /**
+     * Remove the product with an ID from the inventory.
+     *
+     * @param id of product to remove
+     * @return true if successfully deleted, false if no product has the ID or it has associated parts
+     */
+    public static boolean deleteProduct(int id) {
+        long start = Metrics.startTimer();
+        InventoryEvent event = InventoryEvent.start();
+        boolean deleted = removeProduct(id, null);
+        Metrics.record(Operation.DELETE_PRODUCT, start, deleted);
+        event.finish(Operation.DELETE_PRODUCT, id, 0, deleted ? 1 : 0);
+        return deleted;
+    }
+
+    /**
+     * Remove the product with an ID from the inventory, if it is in it and has no associated parts.
+     * <p>
+     * The last product in the list takes the place of the one removed, so nothing is shifted along.
+     * </p>
+     *
+     * @param id of product to remove
+     * @param expectedProduct to remove only if it is the product with the ID, or null to remove any product with the ID
+     * @return true if successfully deleted, false otherwise
+     */
+    private static boolean removeProduct(int id, Product expectedProduct) {
+        changeFeed.awaitCapacity(1);
+        long stamp = lock.writeLock();
+        try {
+            // Find the product if it is in the inventory.
+            int slot = productSlots.get(id, -1);
+            if (slot < 0 || expectedProduct != null && allProducts.get(slot) != expectedProduct) {
+                return false;
+            }
+
+            // Disallow removal of the product if there are associated parts, based on rubric requirements.
+            if (allProducts.get(slot).hasAssociatedParts()) {
+                return false;
+            }
+
+            Product removedProduct = swapRemove(allProducts, productSlots, Product::getId, slot);
+            unindexProduct(removedProduct);
+            fxProducts.publishSwapRemove(slot);
+
+            for (InventoryListener listener : listeners) {
+                listener.productRemoved(removedProduct);
+            }
+            return true;
+        } finally {
+            unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Remove the item at a position in a list by moving the last item into its place, keeping the positions of items
+     * by ID in sync.
+     *
+     * @param items to remove from
+     * @param slots position of each item by ID
+     * @param idOf to read the ID of an item
+     * @param slot of item to remove, which must be the position of its ID
+     * @param <T> type of item
+     * @return item removed
+     */
+    private static <T> T swapRemove(List<T> items, IntIntHashMap slots, ToIntFunction<T> idOf, int slot) {
+        int last = items.size() - 1;
+        T removed = items.get(slot);
+        T moved = items.remove(last);
+        slots.remove(idOf.applyAsInt(removed));
+        if (slot != last) {
+            items.set(slot, moved);
+
+            // An item replaced in the ID index by another with the same ID has no position to update.
+            int movedId = idOf.applyAsInt(moved);
+            if (slots.get(movedId, -1) == last) {
+                slots.put(movedId, slot);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Count the parts in inventory.
+     *
+     * @return number of parts
+     */
+    public static int getPartCount() {
+        return readOptimistically(partsById::size);
+    }
+
+    /**
+     * Count the products in inventory.
+     *
+     * @return number of products
+     */
+    public static int getProductCount() {
+        return readOptimistically(productsById::size);
+    }
+
+    /**
+     * Sum the value of the stock held for every part.
+     *
+     * @return total stock value of all parts, in cents
+     */
+    public static long getTotalPartValueCents() {
+        return readOptimistically(partStore::getTotalValueCents);
+    }
+
+    /**
+     * Sum the stock level of every part.
+     *
+     * @return total units of all parts in stock
+     */
+    public static long getTotalPartStock() {
+        return readOptimistically(partStore::getTotalStock);
+    }
+
+    /**
+     * Count the parts whose stock level has fallen to or below their minimum.
+     *
+     * @return number of low stock parts
+     */
+    public static int countLowStockParts() {
+        return readOptimistically(partReorders::countLow);
+    }
+
+    /**
+     * Count the products whose stock level has fallen to or below their minimum.
+     *
+     * @return number of low stock products
+     */
+    public static int countLowStockProducts() {
+        return readOptimistically(productReorders::countLow);
+    }
+
+    /**
+     * Find the parts matching a query.
+     *
+     * @param query to run
+     * @return list of matching parts, ordered by part ID
+     */
+    public static ObservableList<Part> lookupParts(Query<Part> query) {
+        ObservableList<Part> parts = FXCollections.observableArrayList();
+        long start = Metrics.startTimer();
+        InventoryEvent event = InventoryEvent.start();
+        long stamp = lock.readLock();
+        try {
+            for (int id : runQuery(query, allParts, partsById, Part::getId, partNames, partRanges)) {
+                parts.add(partsById.get(id));
+            }
+        } finally {
+            lock.unlockRead(stamp);
+            Metrics.record(Operation.LOOKUP_PARTS_BY_QUERY, start);
+            event.finish(Operation.LOOKUP_PARTS_BY_QUERY, 0, query.toString().length(), parts.size());
+        }
+        return parts;
+    }
+
+    /**
+     * Find the products matching a query.
+     *
+     * @param query to run
+     * @return list of matching products, ordered by product ID
+     */
+    public static ObservableList<Product> lookupProducts(Query<Product> query) {
+        ObservableList<Product> products = FXCollections.observableArrayList();
+        long start = Metrics.startTimer();
+        InventoryEvent event = InventoryEvent.start();
+        long stamp = lock.readLock();
+        try {
+            for (int id : runQuery(query, allProducts, productsById, Product::getId, productNames, productRanges)) {
+                products.add(productsById.get(id));
+            }
+        } finally {
+            lock.unlockRead(stamp);
+            Metrics.record(Operation.LOOKUP_PRODUCTS_BY_QUERY, start);
+            event.finish(Operation.LOOKUP_PRODUCTS_BY_QUERY, 0, query.toString().length(), products.size());
+        }
+        return products;
+    }
+
+    /**
+     * Find a page of the parts with a field in a range.
+     *
+     * @param field to search
+     * @param low lowest value to find, inclusive, with prices in cents
+     * @param high highest value to find, inclusive, with prices in cents
+     * @param offset number of matching parts to skip
+     * @param limit maximum number of parts to find
+     * @return list of parts found, ordered by the field and then by part ID
+     */
+    public static ObservableList<Part> lookupPartsInRange(RangeField field, long low, long high, int offset,
+                                                          int limit) {
+        ObservableList<Part> parts = FXCollections.observableArrayList();
+        long start = Metrics.startTimer();
+        InventoryEvent event = InventoryEvent.start();
+        long stamp = lock.readLock();
+        try {
+            IntArrayList ids = partRanges[field.ordinal()].find(low, high, offset, limit);
+            for (int i = 0; i < ids.size(); i++) {
+                parts.add(partsById.get(ids.get(i)));
+            }
+        } finally {
+            lock.unlockRead(stamp);
+            Metrics.record(Operation.LOOKUP_PARTS_IN_RANGE, start);
+            event.finish(Operation.LOOKUP_PARTS_IN_RANGE, 0, 0, parts.size());
+        }
+        return parts;
+    }
+
+    /**
+     * Find a page of the products with a field in a range.
+     *
+     * @param field to search
+     * @param low lowest value to find, inclusive, with prices in cents
+     * @param high highest value to find, inclusive, with prices in cents
+     * @param offset number of matching products to skip
+     * @param limit maximum number of products to find
+     * @return list of products found, ordered by the field and then by product ID
+     */
+    public static ObservableList<Product> lookupProductsInRange(RangeField field, long low, long high, int offset,
+                                                                int limit) {
+        ObservableList<Product> products = FXCollections.observableArrayList();
+        long start = Metrics.startTimer();
+        InventoryEvent event = InventoryEvent.start();
+        long stamp = lock.readLock();
+        try {
+            IntArrayList ids = productRanges[field.ordinal()].find(low, high, offset, limit);
+            for (int i = 0; i < ids.size(); i++) {
+                products.add(productsById.get(ids.get(i)));
+            }
+        } finally {
+            lock.unlockRead(stamp);
+            Metrics.record(Operation.LOOKUP_PRODUCTS_IN_RANGE, start);
+            event.finish(Operation.LOOKUP_PRODUCTS_IN_RANGE, 0, 0, products.size());
         }
+        return products;
+    }
+
+    /**
+     * Count the parts with a field in a range, for paging through them.
+     *
+     * @param field to search
+     * @param low lowest value to count, inclusive, with prices in cents
+     * @param high highest value to count, inclusive, with prices in cents
+     * @return number of matching parts
+     */
+    public static int countPartsInRange(RangeField field, long low, long high) {
+        long start = Metrics.startTimer();
+        InventoryEvent event = InventoryEvent.start();
+        int count = readOptimistically(() -> partRanges[field.ordinal()].count(low, high));
+        Metrics.record(Operation.COUNT_PARTS_IN_RANGE, start);
+        event.finish(Operation.COUNT_PARTS_IN_RANGE, 0, 0, count);
+        return count;
+    }
+
+    /**
+     * Count the products with a field in a range, for paging through them.
+     *
+     * @param field to search
+     * @param low lowest value to count, inclusive, with prices in cents
+     * @param high highest value to count, inclusive, with prices in cents
+     * @return number of matching products
+     */
+    public static int countProductsInRange(RangeField field, long low, long high) {
+        long start = Metrics.startTimer();
+        InventoryEvent event = InventoryEvent.start();
+        int count = readOptimistically(() -> productRanges[field.ordinal()].count(low, high));
+        Metrics.record(Operation.COUNT_PRODUCTS_IN_RANGE, start);
+        event.finish(Operation.COUNT_PRODUCTS_IN_RANGE, 0, 0, count);
+        return count;
+    }
+
+    /**
+     * Find the parts most in need of reordering, those with the least stock above their minimum.
+     *
+     * @param count maximum number of parts to find
+     * @return list of the most urgent parts, most urgent first
+     */
+    public static ObservableList<Part> lookupMostUrgentParts(int count) {
+        ObservableList<Part> parts = FXCollections.observableArrayList();
+        long start = Metrics.startTimer();
+        InventoryEvent event = InventoryEvent.start();
+        long stamp = lock.readLock();
+        try {
+            IntArrayList ids = partReorders.findMostUrgent(count);
+            for (int i = 0; i < ids.size(); i++) {
+                parts.add(partsById.get(ids.get(i)));
+            }
+        } finally {
+            lock.unlockRead(stamp);
+            Metrics.record(Operation.LOOKUP_MOST_URGENT_PARTS, start);
+            event.finish(Operation.LOOKUP_MOST_URGENT_PARTS, 0, 0, parts.size());
+        }
+        return parts;
+    }
+
+    /**
+     * Find the products most in need of reordering, those with the least stock above their minimum.
+     *
+     * @param count maximum number of products to find
+     * @return list of the most urgent products, most urgent first
+     */
+    public static ObservableList<Product> lookupMostUrgentProducts(int count) {
+        ObservableList<Product> products = FXCollections.observableArrayList();
+        long start = Metrics.startTimer();
+        InventoryEvent event = InventoryEvent.start();
+        long stamp = lock.readLock();
+        try {
+            IntArrayList ids = productReorders.findMostUrgent(count);
+            for (int i = 0; i < ids.size(); i++) {
+                products.add(productsById.get(ids.get(i)));
+            }
+        } finally {
+            lock.unlockRead(stamp);
+            Metrics.record(Operation.LOOKUP_MOST_URGENT_PRODUCTS, start);
+            event.finish(Operation.LOOKUP_MOST_URGENT_PRODUCTS, 0, 0, products.size());
+        }
+        return products;
+    }
+
+    /**
+     * Find the parts whose stock level has fallen to or below their minimum.
+     *
+     * @return list of low stock parts, ordered by part ID
+     */
+    public static ObservableList<Part> lookupLowStockParts() {
+        ObservableList<Part> parts = FXCollections.observableArrayList();
+        long start = Metrics.startTimer();
+        InventoryEvent event = InventoryEvent.start();
+        long stamp = lock.readLock();
+        try {
+            for (int id : partReorders.findLow()) {
+                parts.add(partsById.get(id));
+            }
+        } finally {
+            lock.unlockRead(stamp);
+            Metrics.record(Operation.LOOKUP_LOW_STOCK_PARTS, start);
+            event.finish(Operation.LOOKUP_LOW_STOCK_PARTS, 0, 0, parts.size());
+        }
+        return parts;
+    }
 
-        // Remove the product if it is in the inventory.
-        boolean productInList = allProducts.contains(selectedProduct);
-        if (productInList) {
-            allProducts.remove(selectedProduct);
+    /**
+     * Find the products whose stock level has fallen to or below their minimum.
+     *
+     * @return list of low stock products, ordered by product ID
+     */
+    public static ObservableList<Product> lookupLowStockProducts() {
+        ObservableList<Product> products = FXCollections.observableArrayList();
+        long start = Metrics.startTimer();
+        InventoryEvent event = InventoryEvent.start();
+        long stamp = lock.readLock();
+        try {
+            for (int id : productReorders.findLow()) {
+                products.add(productsById.get(id));
+            }
+        } finally {
+            lock.unlockRead(stamp);
+            Metrics.record(Operation.LOOKUP_LOW_STOCK_PRODUCTS, start);
+            event.finish(Operation.LOOKUP_LOW_STOCK_PRODUCTS, 0, 0, products.size());
         }
+        return products;
+    }
 
-        return productInList;
+    /**
+     * Count the parts whose stock level lies outside their minimum and maximum.
+     *
+     * @return number of parts violating their stock limits
+     */
+    public static int countPartStockLimitViolations() {
+        return readOptimistically(partStore::countStockLimitViolations);
+    }
+
+    /**
+     * Retrieve the number of changes made to the parts in inventory so far.
+     * <p>
+     * Lets caches of parts looked up by ID, such as the associated parts of a product, detect when they are stale.
+     * </p>
+     *
+     * @return parts version, which changes whenever a part is added, updated or removed
+     */
+    public static long getPartsVersion() {
+        return partsVersion;
+    }
+
+    /**
+     * Find the products using a part.
+     *
+     * @param partId to search
+     * @return list of products with the part associated, ordered by product ID
+     */
+    public static ObservableList<Product> lookupProductsUsingPart(int partId) {
+        ObservableList<Product> products = FXCollections.observableArrayList();
+        long start = Metrics.startTimer();
+        InventoryEvent event = InventoryEvent.start();
+        long stamp = lock.readLock();
+        try {
+            for (int productId : whereUsed.findProductsUsing(partId)) {
+                products.add(productsById.get(productId));
+            }
+        } finally {
+            lock.unlockRead(stamp);
+            Metrics.record(Operation.LOOKUP_PRODUCTS_USING_PART, start);
+            event.finish(Operation.LOOKUP_PRODUCTS_USING_PART, partId, 0, products.size());
+        }
+        return products;
+    }
+
+    /**
+     * Determine whether any product in inventory uses a part.
+     *
+     * @param partId to search
+     * @return true if the part is associated with a product, false otherwise
+     */
+    public static boolean isPartUsed(int partId) {
+        return readOptimistically(() -> whereUsed.isUsed(partId));
+    }
+
+    /**
+     * Retrieve the cached total price of the parts making up a product.
+     *
+     * @param productId to search
+     * @return cost of the product's parts, in cents, or 0 if the product is not in the inventory
+     */
+    public static long getProductPartsCostCents(int productId) {
+        return readOptimistically(() -> costRollup.getCostCents(productId));
+    }
+
+    /**
+     * Total the prices of a list of parts, using the latest price of any part held in inventory.
+     * <p>
+     * Suited to products being edited, whose parts are not yet saved to the inventory.
+     * </p>
+     *
+     * @param parts to total, counting each entry once
+     * @return cost of the parts, in cents
+     */
+    public static long getPartsCostCents(List<Part> parts) {
+        long stamp = lock.readLock();
+        try {
+            return costRollup.calculateCostCents(parts);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Total the prices of the parts associated with a product, using the latest price of each part in inventory.
+     * <p>
+     * Suited to products not yet added to the inventory, such as those being imported.  Parts not in the inventory
+     * count as free.
+     * </p>
+     *
+     * @param product whose parts to total
+     * @return cost of the parts, in cents
+     */
+    public static long getPartsCostCents(Product product) {
+        long stamp = lock.readLock();
+        try {
+            return costRollup.calculateCostCents(product);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Find the products priced below the total price of their parts.
+     *
+     * @return list of products selling at a loss, ordered by product ID
+     */
+    public static ObservableList<Product> lookupProductsPricedBelowCost() {
+        ObservableList<Product> products = FXCollections.observableArrayList();
+        long start = Metrics.startTimer();
+        InventoryEvent event = InventoryEvent.start();
+        long stamp = lock.readLock();
+        try {
+            IntArrayList ids = costRollup.findPricedBelowCost();
+            int[] sortedIds = ids.toArray();
+            Arrays.sort(sortedIds);
+            for (int id : sortedIds) {
+                products.add(productsById.get(id));
+            }
+        } finally {
+            lock.unlockRead(stamp);
+            Metrics.record(Operation.LOOKUP_PRODUCTS_PRICED_BELOW_COST, start);
+            event.finish(Operation.LOOKUP_PRODUCTS_PRICED_BELOW_COST, 0, 0, products.size());
+        }
+        return products;
+    }
+
+    /**
+     * Read the whole inventory while it cannot be changed, for a copy which is consistent across parts and products.
+     *
+     * @param reader to call with the lists of parts and products
+     * @param <T> type of result read
+     * @return result of the reader
+     * @throws IOException if the reader fails
+     */
+    public static <T> T readConsistently(StateReader<T> reader) throws IOException {
+        long stamp = lock.readLock();
+        try {
+            return reader.read(Collections.unmodifiableList(allParts), Collections.unmodifiableList(allProducts));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Read from the indexes without locking, falling back to the read lock if a change was made at the same time.
+     * <p>
+     * An optimistic read may see the indexes part way through a change, so it is only trusted if the lock confirms
+     * nothing changed while it ran.  Any exception caused by such a half-made change is discarded with the result.
+     * </p>
+     *
+     * @param reader of the indexes, free of side effects
+     * @param <T> type of result read
+     * @return result of the reader
+     */
+    private static <T> T readOptimistically(Supplier<T> reader) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                T result = reader.get();
+                if (lock.validate(stamp)) {
+                    return result;
+                }
+            } catch (RuntimeException e) {
+                // Only possible if a change was made during the read, which the read lock below excludes.
+            }
+        }
+
+        stamp = lock.readLock();
+        try {
+            return reader.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Release the write lock, then apply the changes published to the JavaFX copies of the lists.
+     * <p>
+     * The copies are only changed once the lock is released, so a listener on them may call back into the inventory.
+     * </p>
+     *
+     * @param stamp of the write lock
+     */
+    private static void unlockWrite(long stamp) {
+        lock.unlockWrite(stamp);
+        fxParts.applyPublished();
+        fxProducts.applyPublished();
+    }
+
+    /**
+     * Add a part to the ID and name indexes, the part store and the cost rollup.
+     *
+     * @param part to index
+     */
+    private static void indexPart(Part part) {
+        partsById.put(part.getId(), part);
+        partNames.add(part.getId(), part.getName());
+        partStore.put(part);
+        partReorders.put(part.getId(), part.getStock(), part.getMin());
+        addToRanges(partRanges, part.getId(), part.getPrice(), part.getStock(), part.getMin(), part.getMax());
+        costRollup.putPart(part);
+        partsVersion++;
+    }
+
+    /**
+     * Add a product to the ID and name indexes, the where-used index and the cost rollup.
+     *
+     * @param product to index
+     */
+    private static void indexProduct(Product product) {
+        // Route changes through the write lock before reading the associated parts, so none are missed.
+        product.setAssociationListener(associationForwarder);
+        productsById.put(product.getId(), product);
+        productNames.add(product.getId(), product.getName());
+        whereUsed.addProduct(product);
+        productReorders.put(product.getId(), product.getStock(), product.getMin());
+        addToRanges(productRanges, product.getId(), product.getPrice(), product.getStock(), product.getMin(),
+                product.getMax());
+        costRollup.putProduct(product);
+    }
+
+    /**
+     * Remove a part from the ID and name indexes, the part store and the cost rollup, if they still refer to that
+     * exact part.
+     *
+     * @param part to remove from the indexes
+     */
+    private static void unindexPart(Part part) {
+        if (partsById.get(part.getId()) == part) {
+            partsById.remove(part.getId());
+            partNames.remove(part.getId());
+            partStore.remove(part.getId());
+            partReorders.remove(part.getId());
+            removeFromRanges(partRanges, part.getId(), part.getPrice(), part.getStock(), part.getMin(), part.getMax());
+            costRollup.removePart(part.getId());
+            partsVersion++;
+        }
+    }
+
+    /**
+     * Remove a product from the ID and name indexes, the where-used index and the cost rollup, if the indexes still
+     * refer to that exact product.
+     *
+     * @param product to remove from the indexes
+     */
+    private static void unindexProduct(Product product) {
+        if (productsById.get(product.getId()) == product) {
+            productsById.remove(product.getId());
+            productNames.remove(product.getId());
+            productReorders.remove(product.getId());
+            removeFromRanges(productRanges, product.getId(), product.getPrice(), product.getStock(), product.getMin(),
+                    product.getMax());
+            costRollup.removeProduct(product.getId(), whereUsed.removeProduct(product.getId()));
+        }
+        product.setAssociationListener(null);
+    }
+
+    /**
+     * Run a query through the most selective index available, testing only the candidates it gives.
+     * <p>
+     * An ID fixed by the query is looked up directly.  Otherwise the name index and the range index of every bounded
+     * field estimate how many candidates they would give, a range by counting it exactly and the name by its rarest
+     * trigram, and the smallest is used.  If none gives fewer candidates than there are items, every item is tested.
+     * </p>
+     *
+     * @param query to run
+     * @param items every item of the type
+     * @param itemsById items by ID
+     * @param idOf to read the ID of an item
+     * @param names name index of the type
+     * @param ranges range indexes of the type, by RangeField ordinal
+     * @param <T> type of item
+     * @return IDs of the matching items, in ascending order
+     */
+    private static <T> int[] runQuery(Query<T> query, List<T> items, IntObjectHashMap<T> itemsById,
+                                      ToIntFunction<T> idOf, NameIndex names, RangeIndex[] ranges) {
+        if (query.matchesNothing()) {
+            return new int[0];
+        }
+
+        IntArrayList matches = new IntArrayList();
+        long lowId = query.getLow(QueryField.ID);
+        if (lowId == query.getHigh(QueryField.ID)) {
+            T item = lowId == (int) lowId ? itemsById.get((int) lowId) : null;
+            if (item != null && query.test(item)) {
+                matches.add((int) lowId);
+            }
+            return matches.toArray();
+        }
+
+        // Pick the index with the fewest candidates, against a scan of every item.
+        int bestCost = items.size();
+        String nameSearch = query.getNameSearch();
+        boolean useNames = false;
+        if (nameSearch != null) {
+            int cost = names.estimate(nameSearch);
+            if (cost < bestCost) {
+                bestCost = cost;
+                useNames = true;
+            }
+        }
+        QueryField bestRange = null;
+        for (QueryField field : QueryField.values()) {
+            if (field.getRangeField() != null && query.isBounded(field)) {
+                int cost = ranges[field.getRangeField().ordinal()].count(query.getLow(field), query.getHigh(field));
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    bestRange = field;
+                }
+            }
+        }
+
+        if (bestRange != null || useNames) {
+            IntArrayList candidates = bestRange != null
+                    ? ranges[bestRange.getRangeField().ordinal()].find(query.getLow(bestRange),
+                            query.getHigh(bestRange), 0, Integer.MAX_VALUE)
+                    : names.search(nameSearch);
+            for (int i = 0; i < candidates.size(); i++) {
+                int id = candidates.get(i);
+                if (query.test(itemsById.get(id))) {
+                    matches.add(id);
+                }
+            }
+        } else {
+            for (T item : items) {
+                if (query.test(item)) {
+                    matches.add(idOf.applyAsInt(item));
+                }
+            }
+        }
+
+        int[] sortedIds = matches.toArray();
+        Arrays.sort(sortedIds);
+        return sortedIds;
+    }
+
+    /**
+     * Create an empty range index for each range field.
+     *
+     * @return range indexes, by RangeField ordinal
+     */
+    private static RangeIndex[] createRangeIndexes() {
+        RangeIndex[] indexes = new RangeIndex[RangeField.values().length];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = new RangeIndex();
+        }
+        return indexes;
+    }
+
+    /**
+     * Add the fields of an item to the range indexes.
+     *
+     * @param indexes range indexes of the item's type
+     * @param id of item
+     * @param price of item
+     * @param stock level of item
+     * @param min stock level of item
+     * @param max stock level of item
+     */
+    private static void addToRanges(RangeIndex[] indexes, int id, double price, int stock, int min, int max) {
+        indexes[RangeField.PRICE.ordinal()].add(id, CurrencyFormat.toCents(price));
+        indexes[RangeField.STOCK.ordinal()].add(id, stock);
+        indexes[RangeField.MIN.ordinal()].add(id, min);
+        indexes[RangeField.MAX.ordinal()].add(id, max);
+    }
+
+    /**
+     * Remove the fields of an item from the range indexes.
+     *
+     * @param indexes range indexes of the item's type
+     * @param id of item
+     * @param price of item when it was added
+     * @param stock level of item when it was added
+     * @param min stock level of item when it was added
+     * @param max stock level of item when it was added
+     */
+    private static void removeFromRanges(RangeIndex[] indexes, int id, double price, int stock, int min, int max) {
+        indexes[RangeField.PRICE.ordinal()].remove(id, CurrencyFormat.toCents(price));
+        indexes[RangeField.STOCK.ordinal()].remove(id, stock);
+        indexes[RangeField.MIN.ordinal()].remove(id, min);
+        indexes[RangeField.MAX.ordinal()].remove(id, max);
+    }
+
+    /**
+     * Tell the listeners if a change to a part took its stock level to or back above its minimum.
+     *
+     * @param oldPart replaced by the change, or null if the part was added
+     * @param newPart added by the change
+     */
+    private static void notifyStockLevelCrossed(Part oldPart, Part newPart) {
+        boolean wasLow = oldPart != null && ReorderQueue.isLow(oldPart.getStock(), oldPart.getMin());
+        boolean isLow = ReorderQueue.isLow(newPart.getStock(), newPart.getMin());
+        if (wasLow != isLow) {
+            for (InventoryListener listener : listeners) {
+                listener.partStockLevelCrossed(newPart, isLow);
+            }
+        }
+    }
+
+    /**
+     * Tell the listeners if a change to a product took its stock level to or back above its minimum.
+     *
+     * @param oldProduct replaced by the change, or null if the product was added
+     * @param newProduct added by the change
+     */
+    private static void notifyStockLevelCrossed(Product oldProduct, Product newProduct) {
+        boolean wasLow = oldProduct != null && ReorderQueue.isLow(oldProduct.getStock(), oldProduct.getMin());
+        boolean isLow = ReorderQueue.isLow(newProduct.getStock(), newProduct.getMin());
+        if (wasLow != isLow) {
+            for (InventoryListener listener : listeners) {
+                listener.productStockLevelCrossed(newProduct, isLow);
+            }
+        }
     }
 
     /**
      * Retrieve all of the parts in inventory.
+     * <p>
+     * The list is a read-only copy for the JavaFX thread, so that changes go through the inventory and keep the ID
+     * index in sync.
+     * </p>
      *
      * @return list of parts
      */
     public static ObservableList<Part> getAllParts() {
-        return allParts;
+        return fxParts.getList();
     }
 
     /**
      * Retrieve all of the products in inventory.
+     * <p>
+     * The list is a read-only copy for the JavaFX thread, so that changes go through the inventory and keep the ID
+     * index in sync.
+     * </p>
      *
      * @return list of products
      */
     public static ObservableList<Product> getAllProducts() {
-        return allProducts;
+        return fxProducts.getList();
     }
 
     /**
@@ -181,8 +1411,12 @@ public class Inventory {
      * @return part ID for use with new part
      */
     public static int getNextPartId() {
-        currentPartId++;
-        return currentPartId;
+        int id = partIds.nextId();
+
+        for (InventoryListener listener : listeners) {
+            listener.partIdGenerated(id);
+        }
+        return id;
     }
 
     /**
@@ -191,7 +1425,134 @@ public class Inventory {
      * @return product ID for use with new product
      */
     public static int getNextProductId() {
-        currentProductId++;
-        return currentProductId;
+        int id = productIds.nextId();
+
+        for (InventoryListener listener : listeners) {
+            listener.productIdGenerated(id);
+        }
+        return id;
+    }
+
+    /**
+     * Ensure a part ID, such as one restored from disk, is never generated again.
+     *
+     * @param id already in use
+     */
+    public static void reservePartId(int id) {
+        partIds.reserve(id);
+    }
+
+    /**
+     * Ensure a product ID, such as one restored from disk, is never generated again.
+     *
+     * @param id already in use
+     */
+    public static void reserveProductId(int id) {
+        productIds.reserve(id);
+    }
+
+    /**
+     * Lease part IDs from a new source, such as one shared with other processes.
+     * <p>
+     * IDs already generated or reserved are never handed out by the new source.  Must be called before other threads
+     * start generating part IDs.
+     * </p>
+     *
+     * @param source to lease blocks of part IDs from
+     * @param blockSize number of part IDs leased at a time
+     */
+    public static void usePartIdSource(IdAllocator.BlockSource source, int blockSize) {
+        partIds = new IdAllocator(source, blockSize, partIds.getLastId());
+    }
+
+    /**
+     * Lease product IDs from a new source, such as one shared with other processes.
+     * <p>
+     * IDs already generated or reserved are never handed out by the new source.  Must be called before other threads
+     * start generating product IDs.
+     * </p>
+     *
+     * @param source to lease blocks of product IDs from
+     * @param blockSize number of product IDs leased at a time
+     */
+    public static void useProductIdSource(IdAllocator.BlockSource source, int blockSize) {
+        productIds = new IdAllocator(source, blockSize, productIds.getLastId());
+    }
+
+    /**
+     * Retrieve the last part ID generated or reserved.
+     *
+     * @return current part ID
+     */
+    public static int getCurrentPartId() {
+        return partIds.getLastId();
+    }
+
+    /**
+     * Retrieve the last product ID generated or reserved.
+     *
+     * @return current product ID
+     */
+    public static int getCurrentProductId() {
+        return productIds.getLastId();
+    }
+
+    /**
+     * Register a listener to be notified of every change to the inventory.
+     *
+     * @param listener to register
+     */
+    public static void addListener(InventoryListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Stop notifying a listener of changes to the inventory.
+     *
+     * @param listener to remove
+     */
+    public static void removeListener(InventoryListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Subscribe to every later change to the inventory, delivered in batches on an executor.
+     * <p>
+     * Unlike listeners, subscribers are called outside the inventory lock and may read and change the inventory.  To
+     * start from a known state, read the inventory and getChangeSequence together with readConsistently, then ignore
+     * any delivered change numbered at or below the sequence read.
+     * </p>
+     *
+     * @param subscriber to hand the changes to
+     * @param executor to deliver the batches on, which must not run tasks on the submitting thread
+     * @param capacity number of changes queued for the subscriber before overflowing
+     * @param maxBatchSize most changes handed to the subscriber in a single batch
+     * @param overflow what happens to a change made while the queue is full
+     * @return subscription, to be closed when the subscriber is done
+     */
+    public static ChangeSubscription subscribe(ChangeSubscriber subscriber, Executor executor, int capacity,
+                                               int maxBatchSize, ChangeSubscription.Overflow overflow) {
+        if (capacity < 1 || maxBatchSize < 1) {
+            throw new IllegalArgumentException("Subscription capacity and batch size must be at least 1.");
+        }
+
+        long stamp = lock.readLock();
+        try {
+            ChangeSubscription subscription = new ChangeSubscription(changeFeed, subscriber, executor, capacity,
+                    maxBatchSize, overflow, changeFeed.getSequence());
+            changeFeed.subscribe(subscription);
+            return subscription;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Retrieve the sequence number of the last change made to the inventory.
+     *
+     * @return sequence number, 0 if no changes have been made
+     */
+    public static long getChangeSequence() {
+        return changeFeed.getSequence();
     }
 }
@@ -0,0 +1,152 @@
+package partsapp.inventory;
+
+import partsapp.part.Part;
+import partsapp.product.Product;
+
+import java.util.List;
+
+/**
+ * Listener notified of every change made to the inventory.
+ *
+ * <p>
+ * Notifications are delivered synchronously on the thread making the change, while the inventory is locked, so
+ * listeners see changes in the order they were made and must return quickly.  The lock is not reentrant, so
+ * listeners must not call back into the inventory.  IDs are generated without locking, so partIdGenerated and
+ * productIdGenerated may be called from several threads at once.  All methods default to doing nothing so that
+ * listeners only implement the changes they care about.
+ * </p>
+ */
+public interface InventoryListener {
+    /**
+     * Called after a part is added to the inventory.
+     *
+     * @param part that was added
+     */
+    default void partAdded(Part part) {
+    }
+
+    /**
+     * Called after a batch of parts is added to the inventory in a single change.
+     * <p>
+     * Defaults to calling partAdded for each part in turn.
+     * </p>
+     *
+     * @param parts that were added, in order
+     */
+    default void partsAdded(List<Part> parts) {
+        for (Part part : parts) {
+            partAdded(part);
+        }
+    }
+
+    /**
+     * Called after a part in the inventory is replaced with a new version.
+     *
+     * @param oldPart that was replaced
+     * @param newPart replacing it
+     */
+    default void partUpdated(Part oldPart, Part newPart) {
+    }
+
+    /**
+     * Called after a part is removed from the inventory.
+     *
+     * @param part that was removed
+     */
+    default void partRemoved(Part part) {
+    }
+
+    /**
+     * Called after a product is added to the inventory.
+     *
+     * @param product that was added
+     */
+    default void productAdded(Product product) {
+    }
+
+    /**
+     * Called after a batch of products is added to the inventory in a single change.
+     * <p>
+     * Defaults to calling productAdded for each product in turn.
+     * </p>
+     *
+     * @param products that were added, in order
+     */
+    default void productsAdded(List<Product> products) {
+        for (Product product : products) {
+            productAdded(product);
+        }
+    }
+
+    /**
+     * Called after a product in the inventory is replaced with a new version.
+     *
+     * @param oldProduct that was replaced
+     * @param newProduct replacing it
+     */
+    default void productUpdated(Product oldProduct, Product newProduct) {
+    }
+
+    /**
+     * Called after a product is removed from the inventory.
+     *
+     * @param product that was removed
+     */
+    default void productRemoved(Product product) {
+    }
+
+    /**
+     * Called after the quantity of a part associated with a product in the inventory changes.
+     *
+     * @param product whose parts changed
+     * @param partId of the part whose quantity changed
+     * @param oldQuantity of the part before the change, 0 if it was not associated
+     * @param newQuantity of the part after the change, 0 if it is no longer associated
+     */
+    default void associatedPartQuantityChanged(Product product, int partId, int oldQuantity, int newQuantity) {
+    }
+
+    /**
+     * Called after a part is added or updated with a stock level which has crossed its minimum, either falling to or
+     * below it or rising back above it.
+     * <p>
+     * Follows the partAdded, partsAdded or partUpdated call for the change.  Parts added with stock above their
+     * minimum, and parts removed, are not reported.
+     * </p>
+     *
+     * @param part whose stock level crossed its minimum
+     * @param lowStock true if the stock fell to or below the minimum, false if it rose back above it
+     */
+    default void partStockLevelCrossed(Part part, boolean lowStock) {
+    }
+
+    /**
+     * Called after a product is added or updated with a stock level which has crossed its minimum, either falling to
+     * or below it or rising back above it.
+     * <p>
+     * Follows the productAdded, productsAdded or productUpdated call for the change.  Products added with stock above
+     * their minimum, and products removed, are not reported.
+     * </p>
+     *
+     * @param product whose stock level crossed its minimum
+     * @param lowStock true if the stock fell to or below the minimum, false if it rose back above it
+     */
+    default void productStockLevelCrossed(Product product, boolean lowStock) {
+    }
+
+    /**
+     * Called after a new part ID is generated.
+     *
+     * @param id that was generated
+     */
+    default void partIdGenerated(int id) {
+    }
+
+    /**
+     * Called after a new product ID is generated.
+     *
+     * @param id that was generated
+     */
+    default void productIdGenerated(int id) {
+    }
+}
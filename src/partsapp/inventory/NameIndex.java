@@ -0,0 +1,167 @@
+package partsapp.inventory;
+
+import partsapp.collections.IntArrayList;
+import partsapp.collections.IntObjectHashMap;
+
+/**
+ * Trigram index over names, used to answer case-insensitive "contains" searches without scanning every name.
+ *
+ * <p>
+ * Each name is lower-cased once when it is indexed, and every three character sequence within it is recorded
+ * against the owner's ID.  A search only checks the IDs listed under the rarest trigram of the query.  Queries
+ * shorter than three characters cannot be narrowed down this way and scan every indexed name instead, which
+ * still avoids lower-casing the names again.
+ * </p>
+ */
+class NameIndex {
+    /**
+     * Length of the character sequences recorded in the index.
+     */
+    private static final int GRAM_LENGTH = 3;
+
+    /**
+     * Lower-cased name for every indexed ID.
+     */
+    private final IntObjectHashMap<String> lowerNames = new IntObjectHashMap<>();
+
+    /**
+     * Sorted list of IDs containing each trigram, keyed by the packed trigram.
+     */
+    private final IntObjectHashMap<IntArrayList> postings = new IntObjectHashMap<>();
+
+    /**
+     * Add a name to the index, replacing any name already indexed for the ID.
+     *
+     * @param id owning the name
+     * @param name to index
+     */
+    void add(int id, String name) {
+        remove(id);
+
+        String lowerName = name.toLowerCase();
+        lowerNames.put(id, lowerName);
+
+        for (int i = 0; i + GRAM_LENGTH <= lowerName.length(); i++) {
+            int gram = packGram(lowerName, i);
+            IntArrayList ids = postings.get(gram);
+            if (ids == null) {
+                ids = new IntArrayList();
+                postings.put(gram, ids);
+            }
+            ids.addSorted(id);
+        }
+    }
+
+    /**
+     * Remove the name indexed for an ID.
+     *
+     * @param id to remove
+     */
+    void remove(int id) {
+        String lowerName = lowerNames.remove(id);
+        if (lowerName == null) {
+            return;
+        }
+
+        for (int i = 0; i + GRAM_LENGTH <= lowerName.length(); i++) {
+            int gram = packGram(lowerName, i);
+            IntArrayList ids = postings.get(gram);
+            if (ids != null) {
+                ids.removeSorted(id);
+                if (ids.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+        }
+    }
+
+    /**
+     * Find the IDs whose names contain the query, ignoring case.
+     *
+     * @param query to search
+     * @return sorted list of matching IDs
+     */
+    IntArrayList search(String query) {
+        String lowerQuery = query.toLowerCase();
+        if (lowerQuery.length() < GRAM_LENGTH) {
+            return scanNames(lowerQuery);
+        }
+        IntArrayList candidates = findCandidates(lowerQuery);
+
+        // Confirm each candidate, as sharing trigrams does not guarantee they appear together in order.
+        IntArrayList matches = new IntArrayList(candidates.size());
+        for (int i = 0; i < candidates.size(); i++) {
+            int id = candidates.get(i);
+            if (lowerNames.get(id).contains(lowerQuery)) {
+                matches.add(id);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Estimate the cost of a search, as the number of names it would have to check.
+     *
+     * @param query to search
+     * @return number of candidate IDs, at least the number of matches
+     */
+    int estimate(String query) {
+        String lowerQuery = query.toLowerCase();
+        if (lowerQuery.length() < GRAM_LENGTH) {
+            return lowerNames.size();
+        }
+        return findCandidates(lowerQuery).size();
+    }
+
+    /**
+     * Find the IDs whose names contain a query too short to use the trigrams, by checking every name.
+     *
+     * @param lowerQuery lower-cased query
+     * @return sorted list of matching IDs
+     */
+    private IntArrayList scanNames(String lowerQuery) {
+        IntArrayList matches = new IntArrayList();
+        lowerNames.forEach((id, lowerName) -> {
+            if (lowerName.contains(lowerQuery)) {
+                matches.add(id);
+            }
+        });
+        matches.sort();
+        return matches;
+    }
+
+    /**
+     * Narrow the candidates for a search down to the IDs containing the least common trigram of the query.
+     *
+     * @param lowerQuery lower-cased query, at least three characters long
+     * @return sorted list of candidate IDs, which must not be changed
+     */
+    private IntArrayList findCandidates(String lowerQuery) {
+        IntArrayList candidates = null;
+        for (int i = 0; i + GRAM_LENGTH <= lowerQuery.length(); i++) {
+            IntArrayList ids = postings.get(packGram(lowerQuery, i));
+            if (ids == null) {
+                return new IntArrayList();
+            }
+            if (candidates == null || ids.size() < candidates.size()) {
+                candidates = ids;
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Pack the trigram starting at a position into a single int key.
+     * <p>
+     * Characters beyond the first 1024 code units overlap in the packed key, which only adds candidates that the
+     * final contains check then rejects.
+     * </p>
+     *
+     * @param text to read from
+     * @param start position of the first character
+     * @return packed trigram key
+     */
+    private static int packGram(String text, int start) {
+        return (text.charAt(start) << 20) ^ (text.charAt(start + 1) << 10) ^ text.charAt(start + 2);
+    }
+}
@@ -0,0 +1,169 @@
+package partsapp.inventory;
+
+import partsapp.collections.IntIntHashMap;
+import partsapp.formatters.CurrencyFormat;
+import partsapp.part.Part;
+
+import java.util.Arrays;
+
+/**
+ * Column-oriented copy of the numeric fields of every part, for whole-inventory calculations.
+ *
+ * <p>
+ * Each field is kept in its own array, with one row per part, so that totals and counts over the inventory are
+ * sequential scans of a few primitive arrays instead of visits to every Part object.  Prices are stored as whole
+ * cents to keep sums exact.  Rows are not kept in inventory order; a removed row is filled by moving the last row
+ * into its place.
+ * </p>
+ */
+class PartStore {
+    /**
+     * Default number of rows allocated for a new store.
+     */
+    private static final int DEFAULT_CAPACITY = 64;
+
+    /**
+     * Row holding each part, by part ID.
+     */
+    private final IntIntHashMap rowsById = new IntIntHashMap();
+
+    /**
+     * Part ID of each row.
+     */
+    private int[] ids = new int[DEFAULT_CAPACITY];
+
+    /**
+     * Stock level of each row.
+     */
+    private int[] stock = new int[DEFAULT_CAPACITY];
+
+    /**
+     * Minimum stock level of each row.
+     */
+    private int[] min = new int[DEFAULT_CAPACITY];
+
+    /**
+     * Maximum stock level of each row.
+     */
+    private int[] max = new int[DEFAULT_CAPACITY];
+
+    /**
+     * Unit price of each row, in cents.
+     */
+    private long[] priceCents = new long[DEFAULT_CAPACITY];
+
+    /**
+     * Number of rows in use.
+     */
+    private int size;
+
+    /**
+     * Store the fields of a part, replacing the row of any part with the same ID.
+     *
+     * @param part to store
+     */
+    void put(Part part) {
+        int row = rowsById.get(part.getId(), -1);
+        if (row < 0) {
+            ensureCapacity(size + 1);
+            row = size++;
+            rowsById.put(part.getId(), row);
+        }
+
+        ids[row] = part.getId();
+        stock[row] = part.getStock();
+        min[row] = part.getMin();
+        max[row] = part.getMax();
+        priceCents[row] = CurrencyFormat.toCents(part.getPrice());
+    }
+
+    /**
+     * Remove the row of a part.
+     *
+     * @param id of the part to remove
+     */
+    void remove(int id) {
+        int row = rowsById.get(id, -1);
+        if (row < 0) {
+            return;
+        }
+        rowsById.remove(id);
+
+        // Move the last row into the gap so rows stay contiguous.
+        int last = --size;
+        if (row != last) {
+            ids[row] = ids[last];
+            stock[row] = stock[last];
+            min[row] = min[last];
+            max[row] = max[last];
+            priceCents[row] = priceCents[last];
+            rowsById.put(ids[row], row);
+        }
+    }
+
+    /**
+     * Retrieve the number of parts stored.
+     *
+     * @return part count
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Sum the stock level of every part.
+     *
+     * @return total units in stock
+     */
+    long getTotalStock() {
+        long total = 0;
+        for (int row = 0; row < size; row++) {
+            total += stock[row];
+        }
+        return total;
+    }
+
+    /**
+     * Sum the value of the stock held for every part.
+     *
+     * @return total stock value, in cents
+     */
+    long getTotalValueCents() {
+        long total = 0;
+        for (int row = 0; row < size; row++) {
+            total += stock[row] * priceCents[row];
+        }
+        return total;
+    }
+
+    /**
+     * Count the parts whose stock level lies outside their minimum and maximum.
+     *
+     * @return number of parts violating their stock limits
+     */
+    int countStockLimitViolations() {
+        int count = 0;
+        for (int row = 0; row < size; row++) {
+            if (stock[row] < min[row] || stock[row] > max[row]) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Grow the columns if they cannot hold the requested number of rows.
+     *
+     * @param capacity number of rows required
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity > ids.length) {
+            int grown = Math.max(capacity, ids.length + (ids.length >> 1));
+            ids = Arrays.copyOf(ids, grown);
+            stock = Arrays.copyOf(stock, grown);
+            min = Arrays.copyOf(min, grown);
+            max = Arrays.copyOf(max, grown);
+            priceCents = Arrays.copyOf(priceCents, grown);
+        }
+    }
+}
@@ -0,0 +1,483 @@
+package partsapp.inventory;
+
+import partsapp.formatters.CurrencyFormat;
+import partsapp.part.InHouse;
+import partsapp.part.Outsourced;
+import partsapp.part.Part;
+import partsapp.product.Product;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * Compiled search of parts or products over several fields, such as
+ * {@code name~"bolt" AND price<5 AND type=Outsourced AND company="Acme"}.
+ *
+ * <p>
+ * Query text is a list of clauses joined by AND.  The fields are id, name, price (in dollars), stock, min and max,
+ * plus type (InHouse or Outsourced), machine and company for parts.  Numbers are compared with =, !=, &lt;, &lt;=,
+ * &gt; and &gt;=, and text with =, != and ~ (contains), ignoring case.  A part lacking a field, such as the company
+ * of an in-house part, matches no clause on it.
+ * </p>
+ *
+ * <p>
+ * Text is compiled once into a single predicate, with the clauses on each numeric field merged into one range.
+ * Compiled queries are immutable and cached by their text, so running the same search again skips compiling it.
+ * When the inventory runs a query, it first picks whichever of the ID, name and range indexes narrows it down to the
+ * fewest candidates, and only tests those against the predicate.
+ * </p>
+ *
+ * @param <T> type of item searched
+ */
+public final class Query<T> {
+    /**
+     * Number of compiled queries of each type kept in the cache.
+     */
+    private static final int PLAN_CACHE_SIZE = 256;
+
+    /**
+     * Value read from a numeric field the item does not have.
+     */
+    private static final long MISSING = Long.MIN_VALUE;
+
+    /**
+     * Lowest value of a numeric field a query can ask for.
+     */
+    private static final long LOWEST = Long.MIN_VALUE + 1;
+
+    /**
+     * Highest value of a numeric field a query can ask for.
+     */
+    private static final long HIGHEST = Long.MAX_VALUE;
+
+    /**
+     * Fields of parts, and the compiled part queries.
+     */
+    private static final Schema<Part> partSchema = createPartSchema();
+
+    /**
+     * Fields of products, and the compiled product queries.
+     */
+    private static final Schema<Product> productSchema = createProductSchema();
+
+    /**
+     * Text the query was compiled from.
+     */
+    private final String text;
+
+    /**
+     * Whether the clauses contradict each other, so that nothing can match.
+     */
+    private final boolean matchesNothing;
+
+    /**
+     * Longest text the name must contain or equal, for the name index, or null if the name is not searched.
+     */
+    private final String nameSearch;
+
+    /**
+     * Lowest value allowed for each numeric field, by QueryField ordinal.
+     */
+    private final long[] lows = new long[QueryField.values().length];
+
+    /**
+     * Highest value allowed for each numeric field, by QueryField ordinal.
+     */
+    private final long[] highs = new long[QueryField.values().length];
+
+    /**
+     * Test of every clause of the query.
+     */
+    private final Predicate<T> filter;
+
+    /**
+     * Constructor compiling query text.
+     *
+     * @param text of the query
+     * @param schema of the type of item searched
+     * @throws ParseException if the text is not a valid query for the type of item
+     */
+    private Query(String text, Schema<T> schema) throws ParseException {
+        this.text = text;
+        Arrays.fill(lows, LOWEST);
+        Arrays.fill(highs, HIGHEST);
+
+        boolean contradictory = false;
+        String longestName = null;
+        List<Predicate<T>> tests = new ArrayList<>();
+        for (QueryParser.Clause clause : QueryParser.parse(text)) {
+            if (clause.field.isNumeric()) {
+                contradictory |= !addNumericClause(clause, schema, tests);
+            } else {
+                tests.add(compileTextClause(clause, schema));
+                if (clause.field == QueryField.NAME && clause.comparison != QueryParser.Comparison.NOT_EQUAL
+                        && (longestName == null || clause.text.length() > longestName.length())) {
+                    longestName = clause.text;
+                }
+            }
+        }
+
+        // Test each numeric field against its merged range.
+        for (QueryField field : QueryField.values()) {
+            int index = field.ordinal();
+            if (lows[index] > highs[index]) {
+                contradictory = true;
+            } else if (isBounded(field)) {
+                ToLongFunction<T> getter = schema.numbers.get(field);
+                long low = lows[index];
+                long high = highs[index];
+                tests.add(item -> {
+                    long value = getter.applyAsLong(item);
+                    return value != MISSING && value >= low && value <= high;
+                });
+            }
+        }
+
+        matchesNothing = contradictory;
+        nameSearch = longestName;
+        filter = tests.stream().reduce(Predicate::and).orElse(item -> true);
+    }
+
+    /**
+     * Compile a query over parts, or retrieve it from the cache.
+     *
+     * @param text of the query
+     * @return compiled query
+     * @throws ParseException if the text is not a valid part query
+     */
+    public static Query<Part> forParts(String text) throws ParseException {
+        return partSchema.compile(text);
+    }
+
+    /**
+     * Compile a query over products, or retrieve it from the cache.
+     *
+     * @param text of the query
+     * @return compiled query
+     * @throws ParseException if the text is not a valid product query
+     */
+    public static Query<Product> forProducts(String text) throws ParseException {
+        return productSchema.compile(text);
+    }
+
+    /**
+     * Determine whether search text is meant as a query rather than a plain name search.
+     *
+     * @param text to check
+     * @return true if the text contains a comparison, false otherwise
+     */
+    public static boolean looksLikeQuery(String text) {
+        return QueryParser.looksLikeQuery(text);
+    }
+
+    /**
+     * Test whether an item matches every clause of the query.
+     *
+     * @param item to test
+     * @return true if the item matches, false otherwise
+     */
+    public boolean test(T item) {
+        return !matchesNothing && filter.test(item);
+    }
+
+    /**
+     * Retrieve the text the query was compiled from.
+     *
+     * @return query text
+     */
+    @Override
+    public String toString() {
+        return text;
+    }
+
+    /**
+     * Determine whether the clauses contradict each other, so that nothing can match.
+     *
+     * @return true if no item can match, false otherwise
+     */
+    boolean matchesNothing() {
+        return matchesNothing;
+    }
+
+    /**
+     * Retrieve the text the name must contain, for narrowing the search through the name index.
+     *
+     * @return name text, or null if the name is not searched
+     */
+    String getNameSearch() {
+        return nameSearch;
+    }
+
+    /**
+     * Determine whether the query limits the range of a numeric field.
+     *
+     * @param field to check
+     * @return true if the field has a lowest or highest value, false otherwise
+     */
+    boolean isBounded(QueryField field) {
+        return lows[field.ordinal()] != LOWEST || highs[field.ordinal()] != HIGHEST;
+    }
+
+    /**
+     * Retrieve the lowest value the query allows for a numeric field.
+     *
+     * @param field to check
+     * @return lowest value, inclusive
+     */
+    long getLow(QueryField field) {
+        return lows[field.ordinal()];
+    }
+
+    /**
+     * Retrieve the highest value the query allows for a numeric field.
+     *
+     * @param field to check
+     * @return highest value, inclusive
+     */
+    long getHigh(QueryField field) {
+        return highs[field.ordinal()];
+    }
+
+    /**
+     * Merge a clause on a numeric field into the field's range, or add a test for a != clause.
+     *
+     * @param clause to add
+     * @param schema of the type of item searched
+     * @param tests to add any test to
+     * @return false if the clause can match nothing, true otherwise
+     * @throws ParseException if the type of item lacks the field
+     */
+    private boolean addNumericClause(QueryParser.Clause clause, Schema<T> schema, List<Predicate<T>> tests)
+            throws ParseException {
+        ToLongFunction<T> getter = schema.numbers.get(clause.field);
+        if (getter == null) {
+            throw new ParseException(schema.describeMissing(clause.field), clause.position);
+        }
+
+        // Compare in the field's smallest unit, such as cents, rounding bounds inwards.
+        BigDecimal value = clause.number.movePointRight(clause.field.getDecimalPlaces());
+        BigDecimal floor = value.setScale(0, RoundingMode.FLOOR);
+        BigDecimal ceiling = value.setScale(0, RoundingMode.CEILING);
+        boolean whole = floor.compareTo(value) == 0;
+        switch (clause.comparison) {
+            case EQUAL:
+                if (!whole) {
+                    return false;
+                }
+                narrow(clause.field, clamp(value), clamp(value));
+                break;
+            case NOT_EQUAL:
+                long excluded = clamp(value);
+                tests.add(item -> {
+                    long itemValue = getter.applyAsLong(item);
+                    return itemValue != MISSING && (!whole || itemValue != excluded);
+                });
+                break;
+            case LESS:
+                narrow(clause.field, LOWEST, clamp(ceiling.subtract(BigDecimal.ONE)));
+                break;
+            case LESS_OR_EQUAL:
+                narrow(clause.field, LOWEST, clamp(floor));
+                break;
+            case GREATER:
+                narrow(clause.field, clamp(floor.add(BigDecimal.ONE)), HIGHEST);
+                break;
+            case GREATER_OR_EQUAL:
+                narrow(clause.field, clamp(ceiling), HIGHEST);
+                break;
+            default:
+                throw new ParseException("The " + clause.field.getKeyword() + " field cannot be searched with "
+                        + clause.comparison.getSymbol() + ".", clause.position);
+        }
+        return true;
+    }
+
+    /**
+     * Compile a clause on a text field into a test, ignoring case.
+     *
+     * @param clause to compile
+     * @param schema of the type of item searched
+     * @return test of the clause
+     * @throws ParseException if the type of item lacks the field
+     */
+    private static <T> Predicate<T> compileTextClause(QueryParser.Clause clause, Schema<T> schema)
+            throws ParseException {
+        Function<T, String> getter = schema.texts.get(clause.field);
+        if (getter == null) {
+            throw new ParseException(schema.describeMissing(clause.field), clause.position);
+        }
+
+        String lowerValue = clause.text.toLowerCase();
+        switch (clause.comparison) {
+            case EQUAL:
+                return item -> {
+                    String itemText = getter.apply(item);
+                    return itemText != null && itemText.toLowerCase().equals(lowerValue);
+                };
+            case NOT_EQUAL:
+                return item -> {
+                    String itemText = getter.apply(item);
+                    return itemText != null && !itemText.toLowerCase().equals(lowerValue);
+                };
+            case CONTAINS:
+                return item -> {
+                    String itemText = getter.apply(item);
+                    return itemText != null && itemText.toLowerCase().contains(lowerValue);
+                };
+            default:
+                throw new ParseException("The " + clause.field.getKeyword() + " field cannot be compared with "
+                        + clause.comparison.getSymbol() + ".", clause.position);
+        }
+    }
+
+    /**
+     * Narrow the range allowed for a numeric field.
+     *
+     * @param field to narrow
+     * @param low lowest value allowed, inclusive
+     * @param high highest value allowed, inclusive
+     */
+    private void narrow(QueryField field, long low, long high) {
+        int index = field.ordinal();
+        lows[index] = Math.max(lows[index], low);
+        highs[index] = Math.min(highs[index], high);
+    }
+
+    /**
+     * Convert a whole number to a long, limiting it to the values a query can ask for.
+     *
+     * @param value whole number to convert
+     * @return value, or the nearest value a query can ask for
+     */
+    private static long clamp(BigDecimal value) {
+        if (value.compareTo(BigDecimal.valueOf(HIGHEST)) >= 0) {
+            return HIGHEST;
+        }
+        if (value.compareTo(BigDecimal.valueOf(LOWEST)) <= 0) {
+            return LOWEST;
+        }
+        return value.longValue();
+    }
+
+    /**
+     * Create the schema of parts.
+     *
+     * @return part schema
+     */
+    private static Schema<Part> createPartSchema() {
+        Schema<Part> schema = new Schema<>("Parts");
+        schema.numbers.put(QueryField.ID, Part::getId);
+        schema.numbers.put(QueryField.PRICE, part -> CurrencyFormat.toCents(part.getPrice()));
+        schema.numbers.put(QueryField.STOCK, Part::getStock);
+        schema.numbers.put(QueryField.MIN, Part::getMin);
+        schema.numbers.put(QueryField.MAX, Part::getMax);
+        schema.numbers.put(QueryField.MACHINE,
+                part -> part instanceof InHouse ? ((InHouse) part).getMachineId() : MISSING);
+        schema.texts.put(QueryField.NAME, Part::getName);
+        schema.texts.put(QueryField.TYPE,
+                part -> part instanceof InHouse ? "InHouse" : part instanceof Outsourced ? "Outsourced" : null);
+        schema.texts.put(QueryField.COMPANY,
+                part -> part instanceof Outsourced ? ((Outsourced) part).getCompanyName() : null);
+        return schema;
+    }
+
+    /**
+     * Create the schema of products.
+     *
+     * @return product schema
+     */
+    private static Schema<Product> createProductSchema() {
+        Schema<Product> schema = new Schema<>("Products");
+        schema.numbers.put(QueryField.ID, Product::getId);
+        schema.numbers.put(QueryField.PRICE, product -> CurrencyFormat.toCents(product.getPrice()));
+        schema.numbers.put(QueryField.STOCK, Product::getStock);
+        schema.numbers.put(QueryField.MIN, Product::getMin);
+        schema.numbers.put(QueryField.MAX, Product::getMax);
+        schema.texts.put(QueryField.NAME, Product::getName);
+        return schema;
+    }
+
+    /**
+     * Fields of one type of item, and the queries over it compiled so far.
+     *
+     * @param <T> type of item
+     */
+    private static final class Schema<T> {
+        /**
+         * Plural name of the type of item, for error messages.
+         */
+        private final String itemsName;
+
+        /**
+         * Reader of each numeric field the type has.
+         */
+        private final Map<QueryField, ToLongFunction<T>> numbers = new EnumMap<>(QueryField.class);
+
+        /**
+         * Reader of each text field the type has.
+         */
+        private final Map<QueryField, Function<T, String>> texts = new EnumMap<>(QueryField.class);
+
+        /**
+         * Most recently used compiled queries, by text, least recently used first.
+         */
+        private final Map<String, Query<T>> plans = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Query<T>> eldest) {
+                return size() > PLAN_CACHE_SIZE;
+            }
+        };
+
+        /**
+         * Constructor for a schema with no fields.
+         *
+         * @param itemsName plural name of the type of item
+         */
+        private Schema(String itemsName) {
+            this.itemsName = itemsName;
+        }
+
+        /**
+         * Compile a query, or retrieve it from the cache.
+         *
+         * @param text of the query
+         * @return compiled query
+         * @throws ParseException if the text is not a valid query for the type of item
+         */
+        Query<T> compile(String text) throws ParseException {
+            synchronized (plans) {
+                Query<T> query = plans.get(text);
+                if (query != null) {
+                    return query;
+                }
+            }
+
+            // Compile outside the lock; two threads compiling the same text at once just cache equal queries.
+            Query<T> query = new Query<>(text, this);
+            synchronized (plans) {
+                plans.put(text, query);
+            }
+            return query;
+        }
+
+        /**
+         * Describe a field the type of item does not have.
+         *
+         * @param field missing
+         * @return error message
+         */
+        String describeMissing(QueryField field) {
+            return itemsName + " have no " + field.getKeyword() + " field.";
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package partsapp.inventory;
+
+/**
+ * Fields of parts and products which a query can test, as named in the query text.
+ */
+enum QueryField {
+    /**
+     * Part or product ID.
+     */
+    ID("id", true, 0, null),
+
+    /**
+     * Name, compared ignoring case.
+     */
+    NAME("name", false, 0, null),
+
+    /**
+     * Unit price, written in dollars and compared in cents.
+     */
+    PRICE("price", true, 2, RangeField.PRICE),
+
+    /**
+     * Stock level.
+     */
+    STOCK("stock", true, 0, RangeField.STOCK),
+
+    /**
+     * Minimum stock level.
+     */
+    MIN("min", true, 0, RangeField.MIN),
+
+    /**
+     * Maximum stock level.
+     */
+    MAX("max", true, 0, RangeField.MAX),
+
+    /**
+     * Kind of part, InHouse or Outsourced, compared ignoring case.
+     */
+    TYPE("type", false, 0, null),
+
+    /**
+     * Machine ID of an in-house part.
+     */
+    MACHINE("machine", true, 0, null),
+
+    /**
+     * Company name of an outsourced part, compared ignoring case.
+     */
+    COMPANY("company", false, 0, null);
+
+    /**
+     * Name of the field in query text.
+     */
+    private final String keyword;
+
+    /**
+     * Whether the field holds a number, rather than text.
+     */
+    private final boolean numeric;
+
+    /**
+     * Number of decimal places the field is compared to, as whole numbers of its smallest unit.
+     */
+    private final int decimalPlaces;
+
+    /**
+     * Range index of the field, or null if it has none.
+     */
+    private final RangeField rangeField;
+
+    /**
+     * Constructor for a field.
+     *
+     * @param keyword naming the field in query text
+     * @param numeric true if the field holds a number, false if it holds text
+     * @param decimalPlaces written values are shifted by to compare as whole numbers
+     * @param rangeField range index of the field, or null if it has none
+     */
+    QueryField(String keyword, boolean numeric, int decimalPlaces, RangeField rangeField) {
+        this.keyword = keyword;
+        this.numeric = numeric;
+        this.decimalPlaces = decimalPlaces;
+        this.rangeField = rangeField;
+    }
+
+    /**
+     * Find the field named in query text, ignoring case.
+     *
+     * @param keyword to search
+     * @return field with the name, or null if there is none
+     */
+    static QueryField forKeyword(String keyword) {
+        for (QueryField field : values()) {
+            if (field.keyword.equalsIgnoreCase(keyword)) {
+                return field;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Retrieve the name of the field in query text.
+     *
+     * @return keyword
+     */
+    String getKeyword() {
+        return keyword;
+    }
+
+    /**
+     * Determine whether the field holds a number.
+     *
+     * @return true if numeric, false if text
+     */
+    boolean isNumeric() {
+        return numeric;
+    }
+
+    /**
+     * Retrieve the number of decimal places the field is compared to.
+     *
+     * @return decimal places
+     */
+    int getDecimalPlaces() {
+        return decimalPlaces;
+    }
+
+    /**
+     * Retrieve the range index of the field.
+     *
+     * @return range field, or null if the field has no range index
+     */
+    RangeField getRangeField() {
+        return rangeField;
+    }
+}
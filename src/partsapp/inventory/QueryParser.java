@@ -0,0 +1,330 @@
+package partsapp.inventory;
+
+import java.math.BigDecimal;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parser of query text into its clauses.
+ *
+ * <p>
+ * A query is one or more clauses joined by AND, each a field, a comparison and a value, such as
+ * {@code name~"bolt" AND price<5 AND type=Outsourced}.  Numeric fields take numbers and every comparison but ~.
+ * Text fields take a quoted string, with \" and \\ escapes, or a single bare word, and only =, != and ~ (contains).
+ * Field names and AND are not case-sensitive.
+ * </p>
+ */
+final class QueryParser {
+    /**
+     * Comparisons a clause can make.
+     */
+    enum Comparison {
+        /**
+         * Field equals the value.
+         */
+        EQUAL("="),
+
+        /**
+         * Field differs from the value.
+         */
+        NOT_EQUAL("!="),
+
+        /**
+         * Field is less than the value.
+         */
+        LESS("<"),
+
+        /**
+         * Field is less than or equal to the value.
+         */
+        LESS_OR_EQUAL("<="),
+
+        /**
+         * Field is greater than the value.
+         */
+        GREATER(">"),
+
+        /**
+         * Field is greater than or equal to the value.
+         */
+        GREATER_OR_EQUAL(">="),
+
+        /**
+         * Text field contains the value.
+         */
+        CONTAINS("~");
+
+        /**
+         * Symbol of the comparison in query text.
+         */
+        private final String symbol;
+
+        /**
+         * Constructor for a comparison.
+         *
+         * @param symbol of the comparison in query text
+         */
+        Comparison(String symbol) {
+            this.symbol = symbol;
+        }
+
+        /**
+         * Retrieve the symbol of the comparison in query text.
+         *
+         * @return symbol
+         */
+        String getSymbol() {
+            return symbol;
+        }
+    }
+
+    /**
+     * One comparison of a field with a value.
+     */
+    static final class Clause {
+        /**
+         * Field compared.
+         */
+        final QueryField field;
+
+        /**
+         * Comparison made.
+         */
+        final Comparison comparison;
+
+        /**
+         * Value of a text field, or null for a numeric field.
+         */
+        final String text;
+
+        /**
+         * Value of a numeric field, or null for a text field.
+         */
+        final BigDecimal number;
+
+        /**
+         * Position of the clause in the query text.
+         */
+        final int position;
+
+        /**
+         * Constructor for a clause.
+         *
+         * @param field compared
+         * @param comparison made
+         * @param text value of a text field, or null
+         * @param number value of a numeric field, or null
+         * @param position of the clause in the query text
+         */
+        Clause(QueryField field, Comparison comparison, String text, BigDecimal number, int position) {
+            this.field = field;
+            this.comparison = comparison;
+            this.text = text;
+            this.number = number;
+            this.position = position;
+        }
+    }
+
+    /**
+     * Comparisons in the order their symbols are tried, the two character symbols before their one character
+     * prefixes.
+     */
+    private static final Comparison[] SYMBOL_ORDER = {Comparison.NOT_EQUAL, Comparison.LESS_OR_EQUAL,
+            Comparison.GREATER_OR_EQUAL, Comparison.EQUAL, Comparison.LESS, Comparison.GREATER, Comparison.CONTAINS};
+
+    /**
+     * Query text being parsed.
+     */
+    private final String text;
+
+    /**
+     * Position of the next character to read.
+     */
+    private int position;
+
+    /**
+     * Constructor for a parser of one query.
+     *
+     * @param text of the query
+     */
+    private QueryParser(String text) {
+        this.text = text;
+    }
+
+    /**
+     * Parse query text into its clauses.
+     *
+     * @param text of the query
+     * @return clauses, in the order written
+     * @throws ParseException if the text is not a valid query
+     */
+    static List<Clause> parse(String text) throws ParseException {
+        return new QueryParser(text).parseClauses();
+    }
+
+    /**
+     * Determine whether text contains a comparison, and so is meant as a query rather than a plain name search.
+     *
+     * @param text to check
+     * @return true if the text contains a comparison symbol, false otherwise
+     */
+    static boolean looksLikeQuery(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '=' || c == '<' || c == '>' || c == '~') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parse the clauses joined by AND.
+     *
+     * @return clauses, in the order written
+     * @throws ParseException if the text is not a valid query
+     */
+    private List<Clause> parseClauses() throws ParseException {
+        List<Clause> clauses = new ArrayList<>();
+        clauses.add(parseClause());
+        skipWhitespace();
+        while (position < text.length()) {
+            int wordStart = position;
+            if (!"AND".equalsIgnoreCase(readWord())) {
+                throw new ParseException("Expected AND between clauses.", wordStart);
+            }
+            clauses.add(parseClause());
+            skipWhitespace();
+        }
+        return clauses;
+    }
+
+    /**
+     * Parse a single clause.
+     *
+     * @return clause read
+     * @throws ParseException if the clause is not valid
+     */
+    private Clause parseClause() throws ParseException {
+        skipWhitespace();
+        int clauseStart = position;
+        String keyword = readWord();
+        QueryField field = QueryField.forKeyword(keyword);
+        if (field == null) {
+            throw new ParseException(keyword.isEmpty() ? "Expected a field name." : "Unknown field " + keyword + ".",
+                    clauseStart);
+        }
+
+        skipWhitespace();
+        int comparisonStart = position;
+        Comparison comparison = readComparison();
+        if (field.isNumeric() && comparison == Comparison.CONTAINS) {
+            throw new ParseException("The " + field.getKeyword() + " field cannot be searched with ~.",
+                    comparisonStart);
+        }
+        if (!field.isNumeric() && comparison != Comparison.EQUAL && comparison != Comparison.NOT_EQUAL
+                && comparison != Comparison.CONTAINS) {
+            throw new ParseException("The " + field.getKeyword() + " field can only be compared with =, != or ~.",
+                    comparisonStart);
+        }
+
+        skipWhitespace();
+        if (field.isNumeric()) {
+            return new Clause(field, comparison, null, readNumber(), clauseStart);
+        }
+        return new Clause(field, comparison, readText(), null, clauseStart);
+    }
+
+    /**
+     * Read a comparison symbol.
+     *
+     * @return comparison read
+     * @throws ParseException if there is no comparison at the position
+     */
+    private Comparison readComparison() throws ParseException {
+        for (Comparison comparison : SYMBOL_ORDER) {
+            if (text.startsWith(comparison.getSymbol(), position)) {
+                position += comparison.getSymbol().length();
+                return comparison;
+            }
+        }
+        throw new ParseException("Expected a comparison: =, !=, <, <=, >, >= or ~.", position);
+    }
+
+    /**
+     * Read a number, optionally signed and with decimal places.
+     *
+     * @return number read
+     * @throws ParseException if there is no number at the position
+     */
+    private BigDecimal readNumber() throws ParseException {
+        int start = position;
+        if (position < text.length() && (text.charAt(position) == '-' || text.charAt(position) == '+')) {
+            position++;
+        }
+        while (position < text.length()
+                && (Character.isDigit(text.charAt(position)) || text.charAt(position) == '.')) {
+            position++;
+        }
+        try {
+            return new BigDecimal(text.substring(start, position));
+        } catch (NumberFormatException e) {
+            throw new ParseException("Expected a number.", start);
+        }
+    }
+
+    /**
+     * Read a quoted string or a bare word.
+     *
+     * @return text read, without quotes or escapes
+     * @throws ParseException if there is no text at the position, or a string is not closed
+     */
+    private String readText() throws ParseException {
+        int start = position;
+        if (position >= text.length() || text.charAt(position) != '"') {
+            String word = readWord();
+            if (word.isEmpty()) {
+                throw new ParseException("Expected a quoted string or a word.", start);
+            }
+            return word;
+        }
+
+        StringBuilder value = new StringBuilder();
+        position++;
+        while (position < text.length()) {
+            char c = text.charAt(position++);
+            if (c == '"') {
+                return value.toString();
+            }
+            if (c == '\\' && position < text.length()) {
+                c = text.charAt(position++);
+            }
+            value.append(c);
+        }
+        throw new ParseException("Unclosed quoted string.", start);
+    }
+
+    /**
+     * Read a word of letters, digits and underscores.
+     *
+     * @return word read, empty if there is none at the position
+     */
+    private String readWord() {
+        int start = position;
+        while (position < text.length()
+                && (Character.isLetterOrDigit(text.charAt(position)) || text.charAt(position) == '_')) {
+            position++;
+        }
+        return text.substring(start, position);
+    }
+
+    /**
+     * Skip past any whitespace.
+     */
+    private void skipWhitespace() {
+        while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package partsapp.inventory;
+
+/**
+ * Numeric fields of parts and products which the inventory can search by range.
+ */
+public enum RangeField {
+    /**
+     * Unit price, in cents.
+     */
+    PRICE,
+
+    /**
+     * Stock level.
+     */
+    STOCK,
+
+    /**
+     * Minimum stock level.
+     */
+    MIN,
+
+    /**
+     * Maximum stock level.
+     */
+    MAX
+}
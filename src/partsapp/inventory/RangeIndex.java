@@ -0,0 +1,404 @@
+package partsapp.inventory;
+
+import partsapp.collections.IntArrayList;
+
+import java.util.Arrays;
+
+/**
+ * Sorted index of items by one numeric field, for range queries.
+ *
+ * <p>
+ * Entries are (key, ID) pairs kept in ascending order of key and then ID, so that equal keys still have a fixed
+ * order for paging.  They are held in primitive arrays split into blocks of at most BLOCK_CAPACITY entries, like the
+ * leaves of a B+tree: a change shifts entries within one block only, and a full block is split in two.  A Fenwick
+ * tree over the block sizes gives the number of entries before any block, so both the position of a key and the
+ * entry at any position are found in logarithmic time.  A range query therefore costs a logarithmic search plus the
+ * entries returned, however many entries are skipped by paging.
+ * </p>
+ */
+class RangeIndex {
+    /**
+     * Maximum number of entries in a block.
+     */
+    private static final int BLOCK_CAPACITY = 512;
+
+    /**
+     * Size at or below which neighbouring blocks are merged after a removal.
+     */
+    private static final int MERGE_THRESHOLD = BLOCK_CAPACITY / 2;
+
+    /**
+     * Default number of blocks allocated for a new index.
+     */
+    private static final int DEFAULT_BLOCK_SLOTS = 4;
+
+    /**
+     * Keys of the entries of each block, in order.
+     */
+    private long[][] blockKeys = new long[DEFAULT_BLOCK_SLOTS][];
+
+    /**
+     * IDs of the entries of each block, in order.
+     */
+    private int[][] blockIds = new int[DEFAULT_BLOCK_SLOTS][];
+
+    /**
+     * Number of entries in each block.
+     */
+    private int[] blockSizes = new int[DEFAULT_BLOCK_SLOTS];
+
+    /**
+     * Fenwick tree of the block sizes, for the number of entries before each block.
+     */
+    private int[] blockCounts = new int[DEFAULT_BLOCK_SLOTS + 1];
+
+    /**
+     * Number of blocks in use, none of which is empty.
+     */
+    private int blockCount;
+
+    /**
+     * Number of entries in the index.
+     */
+    private int size;
+
+    /**
+     * Add an entry for an item.
+     *
+     * @param id of item
+     * @param key of item
+     */
+    void add(int id, long key) {
+        if (blockCount == 0) {
+            insertBlock(0, new long[BLOCK_CAPACITY], new int[BLOCK_CAPACITY], 0);
+        }
+
+        int block = findBlock(key, id);
+        if (blockSizes[block] == BLOCK_CAPACITY) {
+            splitBlock(block);
+            if (compare(key, id, blockKeys[block + 1][0], blockIds[block + 1][0]) >= 0) {
+                block++;
+            }
+        }
+
+        int position = lowerBound(block, key, id);
+        int moved = blockSizes[block] - position;
+        System.arraycopy(blockKeys[block], position, blockKeys[block], position + 1, moved);
+        System.arraycopy(blockIds[block], position, blockIds[block], position + 1, moved);
+        blockKeys[block][position] = key;
+        blockIds[block][position] = id;
+        blockSizes[block]++;
+        size++;
+        addToCount(block, 1);
+    }
+
+    /**
+     * Remove the entry for an item.
+     *
+     * @param id of item
+     * @param key the item was added with
+     * @return true if the entry was removed, false if it was not in the index
+     */
+    boolean remove(int id, long key) {
+        if (size == 0) {
+            return false;
+        }
+        int block = findBlock(key, id);
+        int position = lowerBound(block, key, id);
+        if (position == blockSizes[block] || blockKeys[block][position] != key || blockIds[block][position] != id) {
+            return false;
+        }
+
+        int moved = blockSizes[block] - position - 1;
+        System.arraycopy(blockKeys[block], position + 1, blockKeys[block], position, moved);
+        System.arraycopy(blockIds[block], position + 1, blockIds[block], position, moved);
+        blockSizes[block]--;
+        size--;
+
+        // Drop an emptied block, or merge a small one into a neighbour, so blocks stay reasonably full.
+        if (blockSizes[block] == 0) {
+            removeBlock(block);
+        } else if (block > 0 && blockSizes[block - 1] + blockSizes[block] <= MERGE_THRESHOLD) {
+            mergeBlocks(block - 1);
+        } else if (block + 1 < blockCount && blockSizes[block] + blockSizes[block + 1] <= MERGE_THRESHOLD) {
+            mergeBlocks(block);
+        } else {
+            addToCount(block, -1);
+        }
+        return true;
+    }
+
+    /**
+     * Retrieve the number of entries in the index.
+     *
+     * @return entry count
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Count the entries with keys in a range.
+     *
+     * @param low lowest key to count, inclusive
+     * @param high highest key to count, inclusive
+     * @return number of entries in the range
+     */
+    int count(long low, long high) {
+        if (low > high) {
+            return 0;
+        }
+        return countAtMost(high) - countBelow(low);
+    }
+
+    /**
+     * Find a page of the entries with keys in a range.
+     *
+     * @param low lowest key to find, inclusive
+     * @param high highest key to find, inclusive
+     * @param offset number of entries in the range to skip
+     * @param limit maximum number of entries to find
+     * @return IDs of the entries found, in order of key and then ID
+     */
+    IntArrayList find(long low, long high, int offset, int limit) {
+        if (low > high || limit <= 0) {
+            return new IntArrayList();
+        }
+        long start = (long) countBelow(low) + Math.max(offset, 0);
+        long end = Math.min(countAtMost(high), start + limit);
+        IntArrayList ids = new IntArrayList((int) Math.max(end - start, 0));
+        if (start >= end) {
+            return ids;
+        }
+
+        // Find the block holding the first entry, then read on through the following blocks.
+        int block = findBlockAt((int) start);
+        int position = (int) start - countBefore(block);
+        for (long remaining = end - start; remaining > 0; remaining--) {
+            if (position == blockSizes[block]) {
+                block++;
+                position = 0;
+            }
+            ids.add(blockIds[block][position++]);
+        }
+        return ids;
+    }
+
+    /**
+     * Count the entries with keys below a value.
+     *
+     * @param key to count below
+     * @return number of entries with lower keys
+     */
+    private int countBelow(long key) {
+        if (size == 0) {
+            return 0;
+        }
+        int block = findBlock(key, Integer.MIN_VALUE);
+        return countBefore(block) + lowerBound(block, key, Integer.MIN_VALUE);
+    }
+
+    /**
+     * Count the entries with keys at or below a value.
+     *
+     * @param key to count up to
+     * @return number of entries with keys no higher
+     */
+    private int countAtMost(long key) {
+        return key == Long.MAX_VALUE ? size : countBelow(key + 1);
+    }
+
+    /**
+     * Compare two entries.
+     *
+     * @param key of first entry
+     * @param id of first entry
+     * @param otherKey of second entry
+     * @param otherId of second entry
+     * @return negative if the first entry comes first, positive if the second does, or 0 if they are equal
+     */
+    private static int compare(long key, int id, long otherKey, int otherId) {
+        int result = Long.compare(key, otherKey);
+        return result != 0 ? result : Integer.compare(id, otherId);
+    }
+
+    /**
+     * Find the block an entry belongs in, the last whose first entry is not after it.
+     *
+     * @param key of entry
+     * @param id of entry
+     * @return index of block, 0 if the entry comes before every block
+     */
+    private int findBlock(long key, int id) {
+        int low = 1;
+        int high = blockCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (compare(blockKeys[middle][0], blockIds[middle][0], key, id) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low - 1;
+    }
+
+    /**
+     * Find the position of the first entry in a block which is not before an entry.
+     *
+     * @param block to search
+     * @param key of entry
+     * @param id of entry
+     * @return position within the block, its size if every entry comes before
+     */
+    private int lowerBound(int block, long key, int id) {
+        long[] keys = blockKeys[block];
+        int[] ids = blockIds[block];
+        int low = 0;
+        int high = blockSizes[block] - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (compare(keys[middle], ids[middle], key, id) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Count the entries in the blocks before a block.
+     *
+     * @param block to count up to
+     * @return number of entries before the block
+     */
+    private int countBefore(int block) {
+        int count = 0;
+        for (int node = block; node > 0; node -= node & -node) {
+            count += blockCounts[node];
+        }
+        return count;
+    }
+
+    /**
+     * Find the block holding the entry at a position in the whole index.
+     *
+     * @param position of entry, less than the size
+     * @return index of block
+     */
+    private int findBlockAt(int position) {
+        int block = 0;
+        int remaining = position;
+        for (int step = Integer.highestOneBit(blockCounts.length - 1); step > 0; step >>= 1) {
+            int node = block + step;
+            if (node < blockCounts.length && blockCounts[node] <= remaining) {
+                block = node;
+                remaining -= blockCounts[node];
+            }
+        }
+        return block;
+    }
+
+    /**
+     * Change the recorded size of a block in the Fenwick tree.
+     *
+     * @param block whose size changed
+     * @param change in size
+     */
+    private void addToCount(int block, int change) {
+        for (int node = block + 1; node < blockCounts.length; node += node & -node) {
+            blockCounts[node] += change;
+        }
+    }
+
+    /**
+     * Rebuild the Fenwick tree after blocks are added, removed or merged.
+     */
+    private void rebuildCounts() {
+        if (blockCounts.length != blockSizes.length + 1) {
+            blockCounts = new int[blockSizes.length + 1];
+        } else {
+            Arrays.fill(blockCounts, 0);
+        }
+        for (int node = 1; node < blockCounts.length; node++) {
+            blockCounts[node] += blockSizes[node - 1];
+            int parent = node + (node & -node);
+            if (parent < blockCounts.length) {
+                blockCounts[parent] += blockCounts[node];
+            }
+        }
+    }
+
+    /**
+     * Split a full block in two, moving the upper half of its entries into a new block after it.
+     *
+     * @param block to split
+     */
+    private void splitBlock(int block) {
+        int kept = BLOCK_CAPACITY / 2;
+        int moved = blockSizes[block] - kept;
+        long[] keys = new long[BLOCK_CAPACITY];
+        int[] ids = new int[BLOCK_CAPACITY];
+        System.arraycopy(blockKeys[block], kept, keys, 0, moved);
+        System.arraycopy(blockIds[block], kept, ids, 0, moved);
+        blockSizes[block] = kept;
+        insertBlock(block + 1, keys, ids, moved);
+    }
+
+    /**
+     * Merge a block with the one after it.
+     *
+     * @param block to merge the next block into
+     */
+    private void mergeBlocks(int block) {
+        int next = block + 1;
+        System.arraycopy(blockKeys[next], 0, blockKeys[block], blockSizes[block], blockSizes[next]);
+        System.arraycopy(blockIds[next], 0, blockIds[block], blockSizes[block], blockSizes[next]);
+        blockSizes[block] += blockSizes[next];
+        removeBlock(next);
+    }
+
+    /**
+     * Insert a block at a position in the list of blocks.
+     *
+     * @param block position to insert at
+     * @param keys of the block's entries
+     * @param ids of the block's entries
+     * @param entryCount number of entries in the block
+     */
+    private void insertBlock(int block, long[] keys, int[] ids, int entryCount) {
+        if (blockCount == blockKeys.length) {
+            int grown = blockKeys.length * 2;
+            blockKeys = Arrays.copyOf(blockKeys, grown);
+            blockIds = Arrays.copyOf(blockIds, grown);
+            blockSizes = Arrays.copyOf(blockSizes, grown);
+        }
+        int moved = blockCount - block;
+        System.arraycopy(blockKeys, block, blockKeys, block + 1, moved);
+        System.arraycopy(blockIds, block, blockIds, block + 1, moved);
+        System.arraycopy(blockSizes, block, blockSizes, block + 1, moved);
+        blockKeys[block] = keys;
+        blockIds[block] = ids;
+        blockSizes[block] = entryCount;
+        blockCount++;
+        rebuildCounts();
+    }
+
+    /**
+     * Remove a block from the list of blocks.
+     *
+     * @param block position to remove
+     */
+    private void removeBlock(int block) {
+        int moved = blockCount - block - 1;
+        System.arraycopy(blockKeys, block + 1, blockKeys, block, moved);
+        System.arraycopy(blockIds, block + 1, blockIds, block, moved);
+        System.arraycopy(blockSizes, block + 1, blockSizes, block, moved);
+        blockCount--;
+        blockKeys[blockCount] = null;
+        blockIds[blockCount] = null;
+        blockSizes[blockCount] = 0;
+        rebuildCounts();
+    }
+}
@@ -0,0 +1,347 @@
+package partsapp.inventory;
+
+import partsapp.collections.IntArrayList;
+import partsapp.collections.IntIntHashMap;
+
+import java.util.Arrays;
+
+/**
+ * Queue of items in reorder order, most urgent first, kept up to date as stock levels change.
+ *
+ * <p>
+ * Items are ordered by their headroom, the stock level less the minimum, with ties broken by the lower ID.  An item
+ * is low on stock once its headroom falls to zero or below.  The queue is an indexed binary min-heap: the heap
+ * position of each ID is tracked, so an item's headroom can be changed or the item removed in logarithmic time
+ * without searching for it.  The most urgent items and the low stock items are found by walking down from the top
+ * of the heap, so time is proportional to the items returned rather than to the number of items in inventory.
+ * </p>
+ */
+class ReorderQueue {
+    /**
+     * Default number of items allocated for a new queue.
+     */
+    private static final int DEFAULT_CAPACITY = 64;
+
+    /**
+     * Heap position of each item, by ID.
+     */
+    private final IntIntHashMap positionsById = new IntIntHashMap();
+
+    /**
+     * ID of the item at each heap position.
+     */
+    private int[] ids = new int[DEFAULT_CAPACITY];
+
+    /**
+     * Headroom of the item at each heap position.
+     */
+    private long[] headrooms = new long[DEFAULT_CAPACITY];
+
+    /**
+     * Number of items in the heap.
+     */
+    private int size;
+
+    /**
+     * Number of items low on stock.
+     */
+    private int lowCount;
+
+    /**
+     * Determine whether a stock level is low enough to reorder.
+     *
+     * @param stock level
+     * @param min stock level
+     * @return true if the stock has fallen to or below the minimum, false otherwise
+     */
+    static boolean isLow(int stock, int min) {
+        return headroom(stock, min) <= 0;
+    }
+
+    /**
+     * Add an item to the queue, or move it to its new place if its stock levels changed.
+     *
+     * @param id of item
+     * @param stock level of item
+     * @param min stock level of item
+     */
+    void put(int id, int stock, int min) {
+        long headroom = headroom(stock, min);
+        int position = positionsById.get(id, -1);
+        if (position < 0) {
+            ensureCapacity(size + 1);
+            position = size++;
+        } else if (headrooms[position] <= 0) {
+            lowCount--;
+        }
+        if (headroom <= 0) {
+            lowCount++;
+        }
+
+        place(position, id, headroom);
+        if (!siftUp(position)) {
+            siftDown(position);
+        }
+    }
+
+    /**
+     * Remove an item from the queue.
+     *
+     * @param id of item to remove
+     */
+    void remove(int id) {
+        int position = positionsById.get(id, -1);
+        if (position < 0) {
+            return;
+        }
+        positionsById.remove(id);
+        if (headrooms[position] <= 0) {
+            lowCount--;
+        }
+
+        // Move the last item into the gap and restore the heap order around it.
+        int last = --size;
+        if (position != last) {
+            place(position, ids[last], headrooms[last]);
+            if (!siftUp(position)) {
+                siftDown(position);
+            }
+        }
+    }
+
+    /**
+     * Retrieve the number of items in the queue.
+     *
+     * @return item count
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Count the items low on stock.
+     *
+     * @return number of low stock items
+     */
+    int countLow() {
+        return lowCount;
+    }
+
+    /**
+     * Find the most urgent items to reorder.
+     * <p>
+     * The heap is walked best first, keeping a second, small heap of the positions whose parents have been taken, so
+     * only about twice as many items as requested are visited.
+     * </p>
+     *
+     * @param count maximum number of items to find
+     * @return IDs of the most urgent items, most urgent first
+     */
+    IntArrayList findMostUrgent(int count) {
+        int limit = Math.min(Math.max(count, 0), size);
+        IntArrayList urgentIds = new IntArrayList(limit);
+        if (limit == 0) {
+            return urgentIds;
+        }
+
+        // Each position taken adds at most its two children, so the frontier holds at most one more than is taken.
+        int[] frontier = new int[limit + 1];
+        int frontierSize = 1;
+        frontier[0] = 0;
+        while (urgentIds.size() < limit) {
+            int position = frontier[0];
+            urgentIds.add(ids[position]);
+
+            // Replace the taken position with its first child, or the last of the frontier, then add the second.
+            int child = 2 * position + 1;
+            frontier[0] = child < size ? child : frontier[--frontierSize];
+            siftFrontierDown(frontier, frontierSize);
+            if (child + 1 < size) {
+                frontier[frontierSize] = child + 1;
+                siftFrontierUp(frontier, frontierSize++);
+            }
+        }
+        return urgentIds;
+    }
+
+    /**
+     * Find every item low on stock.
+     *
+     * @return IDs of the low stock items, in ascending order
+     */
+    int[] findLow() {
+        int[] lowIds = new int[lowCount];
+        int found = 0;
+
+        // Low items form a subtree at the top of the heap, so only they and their direct children are visited.
+        IntArrayList pending = new IntArrayList();
+        if (size > 0) {
+            pending.add(0);
+        }
+        while (!pending.isEmpty()) {
+            int position = pending.removeAt(pending.size() - 1);
+            if (headrooms[position] <= 0) {
+                lowIds[found++] = ids[position];
+                int child = 2 * position + 1;
+                if (child < size) {
+                    pending.add(child);
+                }
+                if (child + 1 < size) {
+                    pending.add(child + 1);
+                }
+            }
+        }
+        Arrays.sort(lowIds);
+        return lowIds;
+    }
+
+    /**
+     * Calculate the headroom of an item above its minimum stock level.
+     *
+     * @param stock level
+     * @param min stock level
+     * @return stock level less the minimum
+     */
+    private static long headroom(int stock, int min) {
+        return (long) stock - min;
+    }
+
+    /**
+     * Determine whether the item at one heap position is more urgent than the item at another.
+     *
+     * @param position of first item
+     * @param other position of second item
+     * @return true if the first item comes before the second, false otherwise
+     */
+    private boolean isBefore(int position, int other) {
+        return headrooms[position] < headrooms[other]
+                || headrooms[position] == headrooms[other] && ids[position] < ids[other];
+    }
+
+    /**
+     * Store an item at a heap position.
+     *
+     * @param position to store at
+     * @param id of item
+     * @param headroom of item
+     */
+    private void place(int position, int id, long headroom) {
+        ids[position] = id;
+        headrooms[position] = headroom;
+        positionsById.put(id, position);
+    }
+
+    /**
+     * Swap the items at two heap positions.
+     *
+     * @param position of first item
+     * @param other position of second item
+     */
+    private void swap(int position, int other) {
+        int id = ids[position];
+        long headroom = headrooms[position];
+        place(position, ids[other], headrooms[other]);
+        place(other, id, headroom);
+    }
+
+    /**
+     * Move an item up the heap until its parent comes before it.
+     *
+     * @param position of item to move
+     * @return true if the item moved, false otherwise
+     */
+    private boolean siftUp(int position) {
+        int start = position;
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (!isBefore(position, parent)) {
+                break;
+            }
+            swap(position, parent);
+            position = parent;
+        }
+        return position != start;
+    }
+
+    /**
+     * Move an item down the heap until it comes before both its children.
+     *
+     * @param position of item to move
+     */
+    private void siftDown(int position) {
+        while (true) {
+            int first = position;
+            int child = 2 * position + 1;
+            if (child < size && isBefore(child, first)) {
+                first = child;
+            }
+            if (child + 1 < size && isBefore(child + 1, first)) {
+                first = child + 1;
+            }
+            if (first == position) {
+                return;
+            }
+            swap(position, first);
+            position = first;
+        }
+    }
+
+    /**
+     * Move the first entry of a heap of positions down until it comes before both its children.
+     *
+     * @param frontier heap of heap positions
+     * @param frontierSize number of entries in the frontier
+     */
+    private void siftFrontierDown(int[] frontier, int frontierSize) {
+        int index = 0;
+        while (true) {
+            int first = index;
+            int child = 2 * index + 1;
+            if (child < frontierSize && isBefore(frontier[child], frontier[first])) {
+                first = child;
+            }
+            if (child + 1 < frontierSize && isBefore(frontier[child + 1], frontier[first])) {
+                first = child + 1;
+            }
+            if (first == index) {
+                return;
+            }
+            int swapped = frontier[index];
+            frontier[index] = frontier[first];
+            frontier[first] = swapped;
+            index = first;
+        }
+    }
+
+    /**
+     * Move an entry of a heap of positions up until its parent comes before it.
+     *
+     * @param frontier heap of heap positions
+     * @param index of entry to move
+     */
+    private void siftFrontierUp(int[] frontier, int index) {
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (!isBefore(frontier[index], frontier[parent])) {
+                return;
+            }
+            int swapped = frontier[index];
+            frontier[index] = frontier[parent];
+            frontier[parent] = swapped;
+            index = parent;
+        }
+    }
+
+    /**
+     * Grow the heap if it cannot hold the requested number of items.
+     *
+     * @param capacity number of items required
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity > ids.length) {
+            int grown = Math.max(capacity, ids.length + (ids.length >> 1));
+            ids = Arrays.copyOf(ids, grown);
+            headrooms = Arrays.copyOf(headrooms, grown);
+        }
+    }
+}
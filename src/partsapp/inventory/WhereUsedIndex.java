@@ -0,0 +1,156 @@
+package partsapp.inventory;
+
+import partsapp.collections.IntArrayList;
+import partsapp.collections.IntIntHashMap;
+import partsapp.collections.IntObjectHashMap;
+import partsapp.product.Product;
+
+import java.util.Arrays;
+
+/**
+ * Index of which products use each part, and how many times.
+ *
+ * <p>
+ * Uses are indexed in both directions, by part ID and by product ID, so finding the products using a part and
+ * dropping every use by a product both take time proportional to the uses involved rather than to the number of
+ * products in inventory.  Only products held in inventory are indexed.
+ * </p>
+ */
+class WhereUsedIndex {
+    /**
+     * Number of times each part is used by each product, by part ID and then product ID.
+     */
+    private final IntObjectHashMap<IntIntHashMap> productsByPart = new IntObjectHashMap<>();
+
+    /**
+     * Number of times each product uses each part, by product ID and then part ID.
+     */
+    private final IntObjectHashMap<IntIntHashMap> partsByProduct = new IntObjectHashMap<>();
+
+    /**
+     * Index every use of a part by a product.
+     *
+     * @param product to index
+     */
+    void addProduct(Product product) {
+        product.forEachAssociatedPart((partId, quantity) -> change(product.getId(), partId, quantity));
+    }
+
+    /**
+     * Remove every use of a part by a product.
+     *
+     * @param productId of product to remove
+     * @return IDs of the parts the product used, in no particular order
+     */
+    IntArrayList removeProduct(int productId) {
+        IntArrayList partIds = new IntArrayList();
+        IntIntHashMap parts = partsByProduct.get(productId);
+        if (parts != null) {
+            partsByProduct.remove(productId);
+            parts.forEach((partId, quantity) -> {
+                removeCount(productsByPart, partId, productId, quantity);
+                partIds.add(partId);
+            });
+        }
+        return partIds;
+    }
+
+    /**
+     * Change the number of uses of a part by a product.
+     *
+     * @param productId of product using the part
+     * @param partId of part used
+     * @param change in the number of uses, negative to remove uses
+     */
+    void change(int productId, int partId, int change) {
+        if (change > 0) {
+            addCount(partsByProduct, productId, partId, change);
+            addCount(productsByPart, partId, productId, change);
+        } else if (change < 0 && removeCount(partsByProduct, productId, partId, -change)) {
+            removeCount(productsByPart, partId, productId, -change);
+        }
+    }
+
+    /**
+     * Determine whether any product uses a part.
+     *
+     * @param partId to search
+     * @return true if the part is used, false otherwise
+     */
+    boolean isUsed(int partId) {
+        return productsByPart.containsKey(partId);
+    }
+
+    /**
+     * Find the products using a part.
+     *
+     * @param partId to search
+     * @return IDs of the products using the part, in ascending order
+     */
+    int[] findProductsUsing(int partId) {
+        IntIntHashMap products = productsByPart.get(partId);
+        if (products == null) {
+            return new int[0];
+        }
+
+        IntArrayList productIds = new IntArrayList(products.size());
+        products.forEach((productId, quantity) -> productIds.add(productId));
+        int[] sortedIds = productIds.toArray();
+        Arrays.sort(sortedIds);
+        return sortedIds;
+    }
+
+    /**
+     * Visit the products using a part, with the number of times each uses it.
+     *
+     * @param partId to search
+     * @param consumer to call with each product ID and quantity
+     */
+    void forEachProductUsing(int partId, IntIntHashMap.EntryConsumer consumer) {
+        IntIntHashMap products = productsByPart.get(partId);
+        if (products != null) {
+            products.forEach(consumer);
+        }
+    }
+
+    /**
+     * Count more uses in one direction of the index.
+     *
+     * @param uses direction of the index to change
+     * @param outerId key of the outer map
+     * @param innerId key of the inner map
+     * @param quantity of uses to add
+     */
+    private static void addCount(IntObjectHashMap<IntIntHashMap> uses, int outerId, int innerId, int quantity) {
+        IntIntHashMap counts = uses.get(outerId);
+        if (counts == null) {
+            counts = new IntIntHashMap();
+            uses.put(outerId, counts);
+        }
+        counts.addTo(innerId, quantity);
+    }
+
+    /**
+     * Count fewer uses in one direction of the index, dropping entries which reach zero.
+     *
+     * @param uses direction of the index to change
+     * @param outerId key of the outer map
+     * @param innerId key of the inner map
+     * @param quantity of uses to remove
+     * @return true if the uses were indexed, false otherwise
+     */
+    private static boolean removeCount(IntObjectHashMap<IntIntHashMap> uses, int outerId, int innerId, int quantity) {
+        IntIntHashMap counts = uses.get(outerId);
+        if (counts == null || counts.get(innerId, 0) < quantity) {
+            return false;
+        }
+
+        if (counts.addTo(innerId, -quantity) == 0) {
+            counts.remove(innerId);
+            if (counts.isEmpty()) {
+                uses.remove(outerId);
+            }
+        }
+        return true;
+    }
+}
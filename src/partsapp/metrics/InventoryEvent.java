@@ -0,0 +1,83 @@
+package partsapp.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight recorder event for a change to or lookup in the inventory.
+ *
+ * <p>
+ * Only calls taking longer than the threshold are recorded by default, so the event can stay on in continuous
+ * recordings.  Setting partsapp.InventoryOperation#threshold to 0 ms in a recording's settings records every call.
+ * While no recording is running, starting and finishing an event costs nothing and allocates nothing.
+ * </p>
+ */
+@Name("partsapp.InventoryOperation")
+@Label("Inventory Operation")
+@Category({"Parts App", "Inventory"})
+@Description("Change to or lookup in the inventory, including any wait for the inventory lock")
+@StackTrace(false)
+@Threshold("100 us")
+public class InventoryEvent extends Event {
+    /**
+     * Name of the operation.
+     */
+    @Label("Operation")
+    String operation;
+
+    /**
+     * ID of the part or product changed or looked up.
+     */
+    @Label("ID")
+    @Description("ID of the part or product changed or looked up, or 0 for batches and name searches")
+    int id;
+
+    /**
+     * Length of the name searched for.
+     */
+    @Label("Query Length")
+    @Description("Length of the name searched for, or 0 for operations other than name searches")
+    int queryLength;
+
+    /**
+     * Number of items found, added, updated or removed.
+     */
+    @Label("Result Count")
+    @Description("Number of items found, added, updated or removed")
+    int resultCount;
+
+    /**
+     * Start timing an operation.
+     *
+     * @return event, to finish once the operation is done
+     */
+    public static InventoryEvent start() {
+        InventoryEvent event = new InventoryEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Stop timing the operation, recording it if it took longer than the threshold.
+     *
+     * @param operation done
+     * @param id of the part or product, or 0 if none
+     * @param queryLength of the name searched for, or 0 if none
+     * @param resultCount number of items found, added, updated or removed
+     */
+    public void finish(Operation operation, int id, int queryLength, int resultCount) {
+        end();
+        if (shouldCommit()) {
+            this.operation = operation.getMetricName();
+            this.id = id;
+            this.queryLength = queryLength;
+            this.resultCount = resultCount;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package partsapp.metrics;
+
+import partsapp.inventory.Inventory;
+
+/**
+ * Gauges of the current size of the inventory, read from it whenever asked.
+ */
+class InventoryGauges implements InventoryGaugesMXBean {
+    @Override
+    public int getPartCount() {
+        return Inventory.getPartCount();
+    }
+
+    @Override
+    public int getProductCount() {
+        return Inventory.getProductCount();
+    }
+
+    @Override
+    public int getLowStockPartCount() {
+        return Inventory.countLowStockParts();
+    }
+
+    @Override
+    public int getLowStockProductCount() {
+        return Inventory.countLowStockProducts();
+    }
+}
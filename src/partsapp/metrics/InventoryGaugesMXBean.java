@@ -0,0 +1,34 @@
+package partsapp.metrics;
+
+/**
+ * JMX view of the current size of the inventory.
+ */
+public interface InventoryGaugesMXBean {
+    /**
+     * Count the parts in inventory.
+     *
+     * @return number of parts
+     */
+    int getPartCount();
+
+    /**
+     * Count the products in inventory.
+     *
+     * @return number of products
+     */
+    int getProductCount();
+
+    /**
+     * Count the parts whose stock level has fallen to or below their minimum.
+     *
+     * @return number of low stock parts
+     */
+    int getLowStockPartCount();
+
+    /**
+     * Count the products whose stock level has fallen to or below their minimum.
+     *
+     * @return number of low stock products
+     */
+    int getLowStockProductCount();
+}
@@ -0,0 +1,221 @@
+package partsapp.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of latencies in nanoseconds, recorded from any thread without allocating or locking.
+ *
+ * <p>
+ * Buckets follow the layout of an HDR histogram: every power of two range of values is split into 32 equal
+ * sub-buckets, and values below 64 get a bucket each, so a recorded value is known to within about 3% at any
+ * magnitude.  Every positive long fits, in under 2,000 buckets.  Recording is a few shifts and one atomic increment.
+ * </p>
+ *
+ * <p>
+ * Percentiles are read from snapshots, which are copies of the counts taken without stopping recording.  Subtracting
+ * an earlier snapshot from a later one gives the histogram of the values recorded in between.
+ * </p>
+ */
+public final class LatencyHistogram {
+    /**
+     * Number of bits of each value kept below its highest bit, giving 32 sub-buckets per power of two.
+     */
+    private static final int SUB_BUCKET_BITS = 5;
+
+    /**
+     * Number of sub-buckets each power of two is split into.
+     */
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Number of buckets needed to hold every positive long.
+     */
+    static final int BUCKET_COUNT = bucketIndex(Long.MAX_VALUE) + 1;
+
+    /**
+     * Number of values recorded in each bucket.
+     */
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+    /**
+     * Sum of every value recorded, for exact means.
+     */
+    private final LongAdder totalNanos = new LongAdder();
+
+    /**
+     * Record a latency.
+     *
+     * @param nanos to record, with negative values recorded as 0
+     */
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        counts.incrementAndGet(bucketIndex(value));
+        totalNanos.add(value);
+    }
+
+    /**
+     * Forget every latency recorded so far.
+     * <p>
+     * Values recorded while resetting may be partly kept.
+     * </p>
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        totalNanos.reset();
+    }
+
+    /**
+     * Copy the latencies recorded so far.
+     *
+     * @return snapshot of the histogram
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            copy[i] = counts.get(i);
+        }
+        return new Snapshot(copy, totalNanos.sum());
+    }
+
+    /**
+     * Find the bucket holding a value.
+     *
+     * @param value to find, not negative
+     * @return index of the bucket
+     */
+    static int bucketIndex(long value) {
+        // Values below 64 have a shift of 0 and land in buckets 0 to 63 directly.
+        int shift = Math.max(63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS, 0);
+        return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+    }
+
+    /**
+     * Find the lowest value held by a bucket.
+     *
+     * @param index of the bucket
+     * @return lowest value in the bucket
+     */
+    static long lowestValue(int index) {
+        int shift = Math.max((index - SUB_BUCKET_COUNT) >> SUB_BUCKET_BITS, 0);
+        return (long) (index - (shift << SUB_BUCKET_BITS)) << shift;
+    }
+
+    /**
+     * Find the highest value held by a bucket.
+     *
+     * @param index of the bucket
+     * @return highest value in the bucket
+     */
+    static long highestValue(int index) {
+        return index + 1 < BUCKET_COUNT ? lowestValue(index + 1) - 1 : Long.MAX_VALUE;
+    }
+
+    /**
+     * Copy of the counts of a histogram at one point in time.
+     */
+    public static final class Snapshot {
+        /**
+         * Number of values in each bucket.
+         */
+        private final long[] counts;
+
+        /**
+         * Sum of every value.
+         */
+        private final long totalNanos;
+
+        /**
+         * Number of values.
+         */
+        private final long count;
+
+        /**
+         * Constructor for a snapshot.
+         *
+         * @param counts number of values in each bucket, kept by the snapshot
+         * @param totalNanos sum of every value
+         */
+        private Snapshot(long[] counts, long totalNanos) {
+            this.counts = counts;
+            this.totalNanos = totalNanos;
+
+            long total = 0;
+            for (long bucketCount : counts) {
+                total += bucketCount;
+            }
+            this.count = total;
+        }
+
+        /**
+         * Retrieve the number of values recorded.
+         *
+         * @return count of values
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Calculate the mean of the values recorded.
+         *
+         * @return mean in nanoseconds, or 0 if there are none
+         */
+        public double getMeanNanos() {
+            return count == 0 ? 0 : (double) totalNanos / count;
+        }
+
+        /**
+         * Find the value a percentage of the values recorded are at or below.
+         *
+         * @param percentile from 0 to 100
+         * @return highest value in the bucket holding the percentile, in nanoseconds, or 0 if there are none
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+
+            // Walk the buckets until enough values are covered, rounding the number needed up.
+            long wanted = Math.max((long) Math.ceil(count * Math.min(percentile, 100) / 100), 1);
+            long covered = 0;
+            for (int i = 0; i < counts.length; i++) {
+                covered += counts[i];
+                if (covered >= wanted) {
+                    return highestValue(i);
+                }
+            }
+            return getMaxNanos();
+        }
+
+        /**
+         * Find the largest value recorded.
+         *
+         * @return highest value in the highest bucket in use, in nanoseconds, or 0 if there are none
+         */
+        public long getMaxNanos() {
+            for (int i = counts.length - 1; i >= 0; i--) {
+                if (counts[i] != 0) {
+                    return highestValue(i);
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * Subtract an earlier snapshot of the same histogram, for the values recorded since it was taken.
+         *
+         * @param earlier snapshot to subtract
+         * @return snapshot of the values recorded in between
+         */
+        public Snapshot minus(Snapshot earlier) {
+            long[] difference = new long[counts.length];
+            for (int i = 0; i < counts.length; i++) {
+                difference[i] = Math.max(counts[i] - earlier.counts[i], 0);
+            }
+            return new Snapshot(difference, Math.max(totalNanos - earlier.totalNanos, 0));
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package partsapp.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.function.Supplier;
+
+/**
+ * Shared latency histograms and call counters of the inventory and window operations.
+ *
+ * <p>
+ * Callers time an operation by taking the time from startTimer before it and passing it to record after it.
+ * Recording allocates nothing and takes no locks, so it is safe on the hottest paths.  Setting the system property
+ * partsapp.metricsEnabled to false makes both calls do nothing.
+ * </p>
+ *
+ * <p>
+ * The metrics are read through JMX, under the partsapp domain, and by a MetricsReporter logging them periodically.
+ * </p>
+ */
+public final class Metrics {
+    /**
+     * Whether operations are measured, fixed at startup so that disabled timing costs nothing.
+     */
+    private static final boolean ENABLED =
+            Boolean.parseBoolean(System.getProperty("partsapp.metricsEnabled", "true"));
+
+    /**
+     * Metrics of each operation, indexed by ordinal.
+     */
+    private static final OperationMetrics[] operations = new OperationMetrics[Operation.values().length];
+
+    static {
+        for (Operation operation : Operation.values()) {
+            operations[operation.ordinal()] = new OperationMetrics(operation);
+        }
+    }
+
+    /**
+     * Static class, not to be instantiated.
+     */
+    private Metrics() {
+    }
+
+    /**
+     * Take the time an operation starts.
+     *
+     * @return start time in nanoseconds, to pass to record
+     */
+    public static long startTimer() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Record a successful call to an operation.
+     *
+     * @param operation called
+     * @param startNanos returned by startTimer when the call started
+     */
+    public static void record(Operation operation, long startNanos) {
+        record(operation, startNanos, true);
+    }
+
+    /**
+     * Record a call to an operation.
+     *
+     * @param operation called
+     * @param startNanos returned by startTimer when the call started
+     * @param succeeded false if the call failed
+     */
+    public static void record(Operation operation, long startNanos, boolean succeeded) {
+        if (ENABLED) {
+            operations[operation.ordinal()].record(System.nanoTime() - startNanos, succeeded);
+        }
+    }
+
+    /**
+     * Time a call to an operation which returns a result.
+     * <p>
+     * Convenient away from the hottest paths, such as in window handlers, where allocating the callback is harmless.
+     * </p>
+     *
+     * @param operation called
+     * @param call to make
+     * @param <T> type of result
+     * @return result of the call
+     */
+    public static <T> T time(Operation operation, Supplier<T> call) {
+        long start = startTimer();
+        T result = call.get();
+        record(operation, start);
+        return result;
+    }
+
+    /**
+     * Retrieve the metrics of an operation.
+     *
+     * @param operation to retrieve
+     * @return metrics of the operation
+     */
+    static OperationMetrics get(Operation operation) {
+        return operations[operation.ordinal()];
+    }
+
+    /**
+     * Register the metrics with the platform MBean server, one MXBean per operation plus one of inventory gauges.
+     *
+     * @throws JMException if the MXBeans cannot be registered, such as when already registered
+     */
+    public static void registerMBeans() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        server.registerMBean(new InventoryGauges(), new ObjectName("partsapp:type=Inventory"));
+        for (OperationMetrics metrics : operations) {
+            server.registerMBean(metrics, new ObjectName(
+                    "partsapp:type=Operation,name=" + metrics.getOperation().getMetricName()));
+        }
+    }
+}
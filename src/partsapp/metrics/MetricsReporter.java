@@ -0,0 +1,79 @@
+package partsapp.metrics;
+
+import partsapp.inventory.Inventory;
+
+import java.util.logging.Logger;
+
+/**
+ * Logs a summary of the operations called since the previous summary, for running periodically.
+ *
+ * <p>
+ * Each summary gives the size of the inventory and, for every operation called in the interval, the number of calls
+ * and their latency percentiles.  Nothing is logged for an interval in which no operation was called.
+ * </p>
+ */
+public class MetricsReporter implements Runnable {
+    /**
+     * Number of nanoseconds in a microsecond, for reporting.
+     */
+    private static final double NANOS_PER_MICRO = 1000.0;
+
+    /**
+     * Logger the summaries are written to.
+     */
+    private static final Logger logger = Logger.getLogger(MetricsReporter.class.getName());
+
+    /**
+     * Latencies of each operation at the previous summary, indexed by ordinal.
+     */
+    private final LatencyHistogram.Snapshot[] previous = new LatencyHistogram.Snapshot[Operation.values().length];
+
+    /**
+     * Failed calls of each operation at the previous summary, indexed by ordinal.
+     */
+    private final long[] previousFailures = new long[Operation.values().length];
+
+    /**
+     * Constructor for a reporter, whose first summary covers the calls made from now on.
+     */
+    public MetricsReporter() {
+        for (Operation operation : Operation.values()) {
+            previous[operation.ordinal()] = Metrics.get(operation).snapshot();
+            previousFailures[operation.ordinal()] = Metrics.get(operation).getFailures();
+        }
+    }
+
+    /**
+     * Log the summary of the operations called since the previous summary.
+     */
+    @Override
+    public void run() {
+        StringBuilder summary = new StringBuilder();
+        for (Operation operation : Operation.values()) {
+            OperationMetrics metrics = Metrics.get(operation);
+            LatencyHistogram.Snapshot current = metrics.snapshot();
+            long failures = metrics.getFailures();
+            LatencyHistogram.Snapshot interval = current.minus(previous[operation.ordinal()]);
+            long intervalFailures = Math.max(failures - previousFailures[operation.ordinal()], 0);
+            previous[operation.ordinal()] = current;
+            previousFailures[operation.ordinal()] = failures;
+
+            if (interval.getCount() > 0) {
+                summary.append(String.format(
+                        "%n  %s: %d calls, %d failed, mean %.1f us, p50 %.1f us, p99 %.1f us, max %.1f us",
+                        operation.getMetricName(),
+                        interval.getCount(),
+                        intervalFailures,
+                        interval.getMeanNanos() / NANOS_PER_MICRO,
+                        interval.getValueAtPercentile(50) / NANOS_PER_MICRO,
+                        interval.getValueAtPercentile(99) / NANOS_PER_MICRO,
+                        interval.getMaxNanos() / NANOS_PER_MICRO));
+            }
+        }
+
+        if (summary.length() > 0) {
+            logger.info(String.format("Inventory of %d parts and %d products, operations since last summary:%s",
+                    Inventory.getPartCount(), Inventory.getProductCount(), summary));
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package partsapp.metrics;
+
+/**
+ * Operations whose latency is measured, on the inventory and in the windows.
+ */
+public enum Operation {
+    /**
+     * Inventory.addPart.
+     */
+    ADD_PART("addPart"),
+
+    /**
+     * Inventory.addParts.
+     */
+    ADD_PARTS("addParts"),
+
+    /**
+     * Inventory.addProduct.
+     */
+    ADD_PRODUCT("addProduct"),
+
+    /**
+     * Inventory.addProducts.
+     */
+    ADD_PRODUCTS("addProducts"),
+
+    /**
+     * Inventory.lookupPart by ID.
+     */
+    LOOKUP_PART_BY_ID("lookupPartById"),
+
+    /**
+     * Inventory.lookupProduct by ID.
+     */
+    LOOKUP_PRODUCT_BY_ID("lookupProductById"),
+
+    /**
+     * Inventory.lookupPart by name.
+     */
+    LOOKUP_PART_BY_NAME("lookupPartByName"),
+
+    /**
+     * Inventory.lookupProduct by name.
+     */
+    LOOKUP_PRODUCT_BY_NAME("lookupProductByName"),
+
+    /**
+     * Inventory.lookupProductsUsingPart.
+     */
+    LOOKUP_PRODUCTS_USING_PART("lookupProductsUsingPart"),
+
+    /**
+     * Inventory.lookupProductsPricedBelowCost.
+     */
+    LOOKUP_PRODUCTS_PRICED_BELOW_COST("lookupProductsPricedBelowCost"),
+
+    /**
+     * Inventory.lookupPartsInRange.
+     */
+    LOOKUP_PARTS_IN_RANGE("lookupPartsInRange"),
+
+    /**
+     * Inventory.lookupProductsInRange.
+     */
+    LOOKUP_PRODUCTS_IN_RANGE("lookupProductsInRange"),
+
+    /**
+     * Inventory.countPartsInRange.
+     */
+    COUNT_PARTS_IN_RANGE("countPartsInRange"),
+
+    /**
+     * Inventory.countProductsInRange.
+     */
+    COUNT_PRODUCTS_IN_RANGE("countProductsInRange"),
+
+    /**
+     * Inventory.lookupMostUrgentParts.
+     */
+    LOOKUP_MOST_URGENT_PARTS("lookupMostUrgentParts"),
+
+    /**
+     * Inventory.lookupMostUrgentProducts.
+     */
+    LOOKUP_MOST_URGENT_PRODUCTS("lookupMostUrgentProducts"),
+
+    /**
+     * Inventory.lookupLowStockParts.
+     */
+    LOOKUP_LOW_STOCK_PARTS("lookupLowStockParts"),
+
+    /**
+     * Inventory.lookupLowStockProducts.
+     */
+    LOOKUP_LOW_STOCK_PRODUCTS("lookupLowStockProducts"),
+
+    /**
+     * Inventory.lookupParts by query.
+     */
+    LOOKUP_PARTS_BY_QUERY("lookupPartsByQuery"),
+
+    /**
+     * Inventory.lookupProducts by query.
+     */
+    LOOKUP_PRODUCTS_BY_QUERY("lookupProductsByQuery"),
+
+    /**
+     * Inventory.updatePart.
+     */
+    UPDATE_PART("updatePart"),
+
+    /**
+     * Inventory.updateProduct.
+     */
+    UPDATE_PRODUCT("updateProduct"),
+
+    /**
+     * Inventory.deletePart, failing if the part is not in inventory or is still used by products.
+     */
+    DELETE_PART("deletePart"),
+
+    /**
+     * Inventory.deleteProduct, failing if the product is not in inventory or still has parts.
+     */
+    DELETE_PRODUCT("deleteProduct"),
+
+    /**
+     * Change in the quantity of a part associated with a product in inventory.
+     */
+    CHANGE_ASSOCIATED_PART_QUANTITY("changeAssociatedPartQuantity"),
+
+    /**
+     * Search run for a parts search field, by ID or by name.
+     */
+    WINDOW_SEARCH_PARTS("window.searchParts"),
+
+    /**
+     * Search run for the products search field, by ID or by name.
+     */
+    WINDOW_SEARCH_PRODUCTS("window.searchProducts"),
+
+    /**
+     * Showing search results in the main window's parts table.
+     */
+    WINDOW_SHOW_PARTS("window.showParts"),
+
+    /**
+     * Showing search results in the main window's products table.
+     */
+    WINDOW_SHOW_PRODUCTS("window.showProducts"),
+
+    /**
+     * Saving the part window's form, failing if the form is invalid.
+     */
+    WINDOW_SAVE_PART("window.savePart"),
+
+    /**
+     * Saving the product window's form, failing if the form is invalid.
+     */
+    WINDOW_SAVE_PRODUCT("window.saveProduct"),
+
+    /**
+     * Deleting the part selected in the main window, once confirmed.
+     */
+    WINDOW_DELETE_PART("window.deletePart"),
+
+    /**
+     * Deleting the product selected in the main window, once confirmed, failing if it still has parts.
+     */
+    WINDOW_DELETE_PRODUCT("window.deleteProduct");
+
+    /**
+     * Name the operation is reported under.
+     */
+    private final String metricName;
+
+    /**
+     * Constructor for an operation.
+     *
+     * @param metricName to report the operation under
+     */
+    Operation(String metricName) {
+        this.metricName = metricName;
+    }
+
+    /**
+     * Retrieve the name the operation is reported under, in JMX and in the log.
+     *
+     * @return metric name
+     */
+    public String getMetricName() {
+        return metricName;
+    }
+}
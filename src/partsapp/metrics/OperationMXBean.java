@@ -0,0 +1,67 @@
+package partsapp.metrics;
+
+/**
+ * JMX view of the calls made to one operation since the application started or was last reset.
+ */
+public interface OperationMXBean {
+    /**
+     * Retrieve the number of calls made.
+     *
+     * @return calls made, including those which failed
+     */
+    long getCalls();
+
+    /**
+     * Retrieve the number of calls which failed, such as deletes of items not in inventory.
+     *
+     * @return failed calls
+     */
+    long getFailures();
+
+    /**
+     * Calculate the mean latency of the calls.
+     *
+     * @return mean latency in microseconds
+     */
+    double getMeanMicros();
+
+    /**
+     * Find the median latency of the calls.
+     *
+     * @return 50th percentile latency in microseconds
+     */
+    double getP50Micros();
+
+    /**
+     * Find the latency nine in ten calls were faster than.
+     *
+     * @return 90th percentile latency in microseconds
+     */
+    double getP90Micros();
+
+    /**
+     * Find the latency 99 in 100 calls were faster than.
+     *
+     * @return 99th percentile latency in microseconds
+     */
+    double getP99Micros();
+
+    /**
+     * Find the latency 999 in 1000 calls were faster than.
+     *
+     * @return 99.9th percentile latency in microseconds
+     */
+    double getP999Micros();
+
+    /**
+     * Find the latency of the slowest call.
+     *
+     * @return maximum latency in microseconds
+     */
+    double getMaxMicros();
+
+    /**
+     * Forget every call made so far.
+     */
+    void reset();
+}
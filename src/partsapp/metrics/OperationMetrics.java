@@ -0,0 +1,121 @@
+package partsapp.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Call counters and latency histogram of one operation.
+ */
+class OperationMetrics implements OperationMXBean {
+    /**
+     * Number of nanoseconds in a microsecond, for reporting.
+     */
+    private static final double NANOS_PER_MICRO = 1000.0;
+
+    /**
+     * Operation measured.
+     */
+    private final Operation operation;
+
+    /**
+     * Latency of every call.
+     */
+    private final LatencyHistogram latencies = new LatencyHistogram();
+
+    /**
+     * Number of calls made.
+     */
+    private final LongAdder calls = new LongAdder();
+
+    /**
+     * Number of calls which failed.
+     */
+    private final LongAdder failures = new LongAdder();
+
+    /**
+     * Constructor for the metrics of an operation.
+     *
+     * @param operation to measure
+     */
+    OperationMetrics(Operation operation) {
+        this.operation = operation;
+    }
+
+    /**
+     * Record a call.
+     *
+     * @param nanos the call took
+     * @param succeeded false if the call failed
+     */
+    void record(long nanos, boolean succeeded) {
+        latencies.record(nanos);
+        calls.increment();
+        if (!succeeded) {
+            failures.increment();
+        }
+    }
+
+    /**
+     * Retrieve the operation measured.
+     *
+     * @return operation
+     */
+    Operation getOperation() {
+        return operation;
+    }
+
+    /**
+     * Copy the latencies of the calls made so far.
+     *
+     * @return snapshot of the latency histogram
+     */
+    LatencyHistogram.Snapshot snapshot() {
+        return latencies.snapshot();
+    }
+
+    @Override
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    @Override
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    @Override
+    public double getMeanMicros() {
+        return latencies.snapshot().getMeanNanos() / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getP50Micros() {
+        return latencies.snapshot().getValueAtPercentile(50) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getP90Micros() {
+        return latencies.snapshot().getValueAtPercentile(90) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getP99Micros() {
+        return latencies.snapshot().getValueAtPercentile(99) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getP999Micros() {
+        return latencies.snapshot().getValueAtPercentile(99.9) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return latencies.snapshot().getMaxNanos() / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public void reset() {
+        latencies.reset();
+        calls.reset();
+        failures.reset();
+    }
+}
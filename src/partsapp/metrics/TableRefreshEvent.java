@@ -0,0 +1,85 @@
+package partsapp.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for a refresh of the rows of a table in a window, made on the JavaFX thread.
+ *
+ * <p>
+ * Every refresh is recorded, since each one holds up the JavaFX thread for its duration.
+ * </p>
+ */
+@Name("partsapp.TableRefresh")
+@Label("Table Refresh")
+@Category({"Parts App", "Windows"})
+@Description("Refresh of the rows of a table, on the JavaFX thread")
+@StackTrace(false)
+public class TableRefreshEvent extends Event {
+    /**
+     * Name of the table refreshed.
+     */
+    @Label("Table")
+    String table;
+
+    /**
+     * What caused the refresh.
+     */
+    @Label("Trigger")
+    @Description("New search results, or a change to the inventory")
+    String trigger;
+
+    /**
+     * Number of rows shown once refreshed.
+     */
+    @Label("Row Count")
+    int rowCount;
+
+    /**
+     * Number of rows added, replaced or removed.
+     */
+    @Label("Rows Changed")
+    int rowsChanged;
+
+    /**
+     * Number of formatters created to wrap items for display.
+     */
+    @Label("Formatters Created")
+    int formattersCreated;
+
+    /**
+     * Start timing a refresh.
+     *
+     * @return event, to finish once the refresh is done
+     */
+    public static TableRefreshEvent start() {
+        TableRefreshEvent event = new TableRefreshEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Stop timing the refresh and record it.
+     *
+     * @param table refreshed
+     * @param trigger of the refresh
+     * @param rowCount number of rows shown once refreshed
+     * @param rowsChanged number of rows added, replaced or removed
+     * @param formattersCreated number of formatters created
+     */
+    public void finish(String table, String trigger, int rowCount, int rowsChanged, int formattersCreated) {
+        end();
+        if (shouldCommit()) {
+            this.table = table;
+            this.trigger = trigger;
+            this.rowCount = rowCount;
+            this.rowsChanged = rowsChanged;
+            this.formattersCreated = formattersCreated;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package partsapp.persistence;
+
+import partsapp.inventory.IdAllocator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * High-water mark of leased IDs kept on disk, so that IDs are never reused across restarts or between processes
+ * sharing the data directory.
+ *
+ * <p>
+ * The file holds a magic number followed by the last ID leased.  Each lease locks the file, so that other processes
+ * wait for it, then raises the mark and syncs it to disk before any ID in the block is handed out.  Blocks left
+ * unused when a process exits are skipped, never reused.  File locks are held on behalf of the whole process, so
+ * a file must only be opened once per process, with the opened lease file shared between its allocators.
+ * </p>
+ */
+public class IdLeaseFile implements IdAllocator.BlockSource, Closeable {
+    /**
+     * Marker at the start of every lease file.
+     */
+    private static final int MAGIC = 0x50494453;
+
+    /**
+     * Size of the file contents, in bytes.
+     */
+    private static final int FILE_BYTES = 8;
+
+    /**
+     * Offset of the high-water mark within the file.
+     */
+    private static final int HIGH_WATER_MARK_OFFSET = 4;
+
+    /**
+     * Path of the file, for error messages.
+     */
+    private final Path path;
+
+    /**
+     * Channel the file is read and written through.
+     */
+    private final FileChannel channel;
+
+    /**
+     * Reusable buffer for reading and writing the file contents.
+     */
+    private final ByteBuffer buffer = ByteBuffer.allocate(FILE_BYTES);
+
+    /**
+     * Constructor for a lease file around an opened channel.
+     *
+     * @param path of the file
+     * @param channel opened for reading and writing
+     */
+    private IdLeaseFile(Path path, FileChannel channel) {
+        this.path = path;
+        this.channel = channel;
+    }
+
+    /**
+     * Open a lease file, creating it with nothing leased if it does not exist.
+     *
+     * @param path of the file
+     * @return opened lease file
+     * @throws IOException if the file cannot be opened or is damaged
+     */
+    public static IdLeaseFile open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(
+                path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        IdLeaseFile leaseFile = new IdLeaseFile(path, channel);
+        try {
+            FileLock lock = channel.lock();
+            try {
+                // Check the file, or initialise it if this is the first process to use it.
+                leaseFile.readHighWaterMark();
+            } finally {
+                lock.release();
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return leaseFile;
+    }
+
+    @Override
+    public synchronized int leaseBlock(int floor, int size) throws IOException {
+        FileLock lock = channel.lock();
+        try {
+            int first = Math.max(readHighWaterMark(), floor) + 1;
+            buffer.clear();
+            buffer.putInt(first + size - 1).flip();
+            channel.write(buffer, HIGH_WATER_MARK_OFFSET);
+            channel.force(false);
+            return first;
+        } finally {
+            lock.release();
+        }
+    }
+
+    /**
+     * Close the file.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Read the last ID leased, writing an empty file header first if the file is new.
+     * <p>
+     * The file must be locked by the caller.
+     * </p>
+     *
+     * @return high-water mark
+     * @throws IOException if the file cannot be read or is damaged
+     */
+    private synchronized int readHighWaterMark() throws IOException {
+        if (channel.size() == 0) {
+            buffer.clear();
+            buffer.putInt(MAGIC).putInt(0).flip();
+            channel.write(buffer, 0);
+            channel.force(false);
+        }
+
+        buffer.clear();
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, buffer.position()) < 0) {
+                throw new IOException("Truncated ID lease file " + path + ".");
+            }
+        }
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not an ID lease file: " + path + ".");
+        }
+        return buffer.getInt(HIGH_WATER_MARK_OFFSET);
+    }
+}
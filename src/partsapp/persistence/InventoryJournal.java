@@ -0,0 +1,626 @@
+package partsapp.persistence;
+
+import partsapp.collections.IntArrayList;
+import partsapp.collections.IntObjectHashMap;
+import partsapp.inventory.Inventory;
+import partsapp.inventory.InventoryListener;
+import partsapp.part.InHouse;
+import partsapp.part.Outsourced;
+import partsapp.part.Part;
+import partsapp.product.Product;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the inventory on disk by journaling every change to a write-ahead log.
+ *
+ * <p>
+ * On opening, the inventory is restored from the latest checkpoint and the log records written after it.  From
+ * then on the journal listens to the inventory and appends one record per change.  A background task writes a
+ * new checkpoint of the whole inventory once the log grows large, after which the log segments it covers are
+ * deleted, keeping both startup time and disk use bounded.
+ * </p>
+ */
+public class InventoryJournal implements InventoryListener, Closeable {
+    /**
+     * Default longest time a change waits before being synced to disk, in milliseconds.
+     */
+    public static final long DEFAULT_SYNC_INTERVAL_MILLIS = 20;
+
+    /**
+     * Default number of changes which triggers a sync without waiting for the interval.
+     */
+    public static final int DEFAULT_SYNC_BATCH_SIZE = 512;
+
+    /**
+     * Size the current log segment may reach before a checkpoint is written, in bytes.
+     */
+    private static final long COMPACTION_THRESHOLD_BYTES = 8L * 1024 * 1024;
+
+    /**
+     * Time between checks of the log size, in seconds.
+     */
+    private static final long COMPACTION_CHECK_SECONDS = 30;
+
+    /**
+     * File name of the checkpoint snapshot within the data directory.
+     */
+    private static final String CHECKPOINT_FILE = "inventory.snapshot";
+
+    /**
+     * File names of the part and product ID high-water marks within the data directory.
+     */
+    private static final String PART_ID_LEASE_FILE = "part-ids.lease";
+    private static final String PRODUCT_ID_LEASE_FILE = "product-ids.lease";
+
+    /**
+     * Number of IDs leased from the lease files at a time.
+     */
+    private static final int ID_BLOCK_SIZE = 64;
+
+    /**
+     * Most records restored from a checkpoint in a single change to the inventory.
+     */
+    private static final int RESTORE_BATCH_SIZE = 4096;
+
+    /**
+     * Record types, stored as the first byte of each log record.
+     */
+    private static final byte PART_ADDED = 1;
+    private static final byte PART_UPDATED = 2;
+    private static final byte PART_REMOVED = 3;
+    private static final byte PRODUCT_REMOVED = 6;
+    private static final byte PRODUCT_ADDED = 11;
+    private static final byte PRODUCT_UPDATED = 12;
+    private static final byte ASSOCIATED_PART_QUANTITY_SET = 13;
+
+    /**
+     * Part kinds, stored in front of each encoded part.
+     */
+    private static final byte IN_HOUSE = 1;
+    private static final byte OUTSOURCED = 2;
+
+    /**
+     * Logger for restore warnings and compaction failures.
+     */
+    private static final Logger logger = Logger.getLogger(InventoryJournal.class.getName());
+
+    /**
+     * Directory holding the checkpoint and log segments.
+     */
+    private final Path directory;
+
+    /**
+     * Log receiving one record per change.
+     */
+    private final WriteAheadLog log;
+
+    /**
+     * High-water marks of the part and product IDs leased.
+     */
+    private final IdLeaseFile partIdLeases;
+    private final IdLeaseFile productIdLeases;
+
+    /**
+     * Background thread running compaction.
+     */
+    private final ScheduledExecutorService compactor;
+
+    /**
+     * Whether nothing was restored when the journal was opened.
+     */
+    private final boolean empty;
+
+    /**
+     * Reusable buffer for encoding records.
+     */
+    private final RecordBuffer recordBytes = new RecordBuffer();
+
+    /**
+     * Encoder writing into the reusable record buffer.
+     */
+    private final DataOutputStream recordOutput = new DataOutputStream(recordBytes);
+
+    /**
+     * Constructor for a journal around an opened log.
+     *
+     * @param directory holding the checkpoint and log segments
+     * @param log opened for appending
+     * @param partIdLeases high-water mark of the part IDs leased
+     * @param productIdLeases high-water mark of the product IDs leased
+     * @param empty whether nothing was restored
+     */
+    private InventoryJournal(Path directory, WriteAheadLog log, IdLeaseFile partIdLeases,
+                             IdLeaseFile productIdLeases, boolean empty) {
+        this.directory = directory;
+        this.log = log;
+        this.partIdLeases = partIdLeases;
+        this.productIdLeases = productIdLeases;
+        this.empty = empty;
+
+        compactor = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "journal-compaction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        compactor.scheduleWithFixedDelay(
+                this::compactIfNeeded, COMPACTION_CHECK_SECONDS, COMPACTION_CHECK_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Restore the inventory from a data directory and journal all later changes to it, using the default sync
+     * settings.
+     *
+     * @param directory holding the checkpoint and log segments, created if missing
+     * @return opened journal
+     * @throws IOException if the data cannot be read or the log cannot be opened
+     */
+    public static InventoryJournal open(Path directory) throws IOException {
+        return open(directory, DEFAULT_SYNC_INTERVAL_MILLIS, DEFAULT_SYNC_BATCH_SIZE);
+    }
+
+    /**
+     * Restore the inventory from a data directory and journal all later changes to it.
+     * <p>
+     * Must be called before anything else changes the inventory.
+     * </p>
+     *
+     * @param directory holding the checkpoint and log segments, created if missing
+     * @param syncIntervalMillis longest time a change waits before being synced to disk, in milliseconds
+     * @param syncBatchSize number of changes which triggers a sync without waiting for the interval
+     * @return opened journal
+     * @throws IOException if the data cannot be read or the log cannot be opened
+     */
+    public static InventoryJournal open(Path directory, long syncIntervalMillis, int syncBatchSize)
+            throws IOException {
+        Files.createDirectories(directory);
+
+        long checkpointLsn = restoreCheckpoint(directory.resolve(CHECKPOINT_FILE));
+        long[] replayedRecords = new long[1];
+        long lastLsn = WriteAheadLog.replay(directory, Math.max(checkpointLsn, 0), (lsn, payload) -> {
+            applyRecord(payload);
+            replayedRecords[0]++;
+        });
+
+        boolean empty = checkpointLsn < 0 && replayedRecords[0] == 0;
+
+        // Lease IDs above every ID restored, so they are never reused even if generated IDs go unsaved.
+        IdLeaseFile partIdLeases = IdLeaseFile.open(directory.resolve(PART_ID_LEASE_FILE));
+        IdLeaseFile productIdLeases = IdLeaseFile.open(directory.resolve(PRODUCT_ID_LEASE_FILE));
+        Inventory.usePartIdSource(partIdLeases, ID_BLOCK_SIZE);
+        Inventory.useProductIdSource(productIdLeases, ID_BLOCK_SIZE);
+
+        WriteAheadLog log = new WriteAheadLog(directory, lastLsn, syncIntervalMillis, syncBatchSize);
+        InventoryJournal journal = new InventoryJournal(directory, log, partIdLeases, productIdLeases, empty);
+        Inventory.addListener(journal);
+        return journal;
+    }
+
+    /**
+     * Determine whether nothing was restored when the journal was opened, such as on the first run.
+     *
+     * @return true if the inventory started out empty, false otherwise
+     */
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    /**
+     * Write a checkpoint of the whole inventory and delete the log segments it covers.
+     *
+     * @throws IOException if the checkpoint cannot be written
+     */
+    public void checkpoint() throws IOException {
+        List<Part> parts = new ArrayList<>();
+        List<Product> products = new ArrayList<>();
+        List<int[]> associations = new ArrayList<>();
+        int[] ids = new int[2];
+
+        // Copy the state and start a new log segment together, so the checkpoint lines up with the log exactly.
+        long checkpointLsn = Inventory.readConsistently((allParts, allProducts) -> {
+            parts.addAll(allParts);
+            products.addAll(allProducts);
+            for (Product product : products) {
+                associations.add(associationsOf(product));
+            }
+            long lsn = log.roll();
+
+            // Read the IDs after the roll, so they cover every ID handed out before it.
+            ids[0] = Inventory.getCurrentPartId();
+            ids[1] = Inventory.getCurrentProductId();
+            return lsn;
+        });
+
+        // The snapshot replaces the previous one in a single step, so a crash leaves either the old or the new one.
+        InventorySnapshot.write(directory.resolve(CHECKPOINT_FILE), checkpointLsn, ids[0], ids[1],
+                parts, products, associations);
+        log.deleteSegmentsCoveredBy(checkpointLsn);
+    }
+
+    /**
+     * Stop journaling, syncing every change recorded so far.
+     *
+     * @throws IOException if the remaining changes cannot be synced
+     */
+    @Override
+    public void close() throws IOException {
+        Inventory.removeListener(this);
+        compactor.shutdownNow();
+        log.close();
+        partIdLeases.close();
+        productIdLeases.close();
+    }
+
+    @Override
+    public void partAdded(Part part) {
+        beginRecord(PART_ADDED);
+        writeRecordPart(part);
+        appendRecord();
+    }
+
+    @Override
+    public void partUpdated(Part oldPart, Part newPart) {
+        beginRecord(PART_UPDATED);
+        writeRecordInt(oldPart.getId());
+        writeRecordPart(newPart);
+        appendRecord();
+    }
+
+    @Override
+    public void partRemoved(Part part) {
+        beginRecord(PART_REMOVED);
+        writeRecordInt(part.getId());
+        appendRecord();
+    }
+
+    @Override
+    public void productAdded(Product product) {
+        beginRecord(PRODUCT_ADDED);
+        writeRecordProduct(product);
+        appendRecord();
+    }
+
+    @Override
+    public void productUpdated(Product oldProduct, Product newProduct) {
+        beginRecord(PRODUCT_UPDATED);
+        writeRecordInt(oldProduct.getId());
+        writeRecordProduct(newProduct);
+        appendRecord();
+    }
+
+    @Override
+    public void productRemoved(Product product) {
+        beginRecord(PRODUCT_REMOVED);
+        writeRecordInt(product.getId());
+        appendRecord();
+    }
+
+    @Override
+    public void associatedPartQuantityChanged(Product product, int partId, int oldQuantity, int newQuantity) {
+        beginRecord(ASSOCIATED_PART_QUANTITY_SET);
+        writeRecordInt(product.getId());
+        writeRecordInt(partId);
+        writeRecordInt(newQuantity);
+        appendRecord();
+    }
+
+    /**
+     * Write a checkpoint if the log has grown past the compaction threshold.
+     */
+    private void compactIfNeeded() {
+        if (log.getSegmentBytes() < COMPACTION_THRESHOLD_BYTES) {
+            return;
+        }
+        try {
+            checkpoint();
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.WARNING, "Unable to compact the inventory journal.", e);
+        }
+    }
+
+    /**
+     * Start encoding a record of the given type.
+     * <p>
+     * Changes are reported while the inventory is locked, so only one record is ever encoded at a time.
+     * </p>
+     *
+     * @param type of record
+     */
+    private void beginRecord(byte type) {
+        recordBytes.reset();
+        recordBytes.write(type);
+    }
+
+    /**
+     * Append an int field to the record being encoded.
+     *
+     * @param value to append
+     */
+    private void writeRecordInt(int value) {
+        try {
+            recordOutput.writeInt(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Append a part to the record being encoded.
+     *
+     * @param part to append
+     */
+    private void writeRecordPart(Part part) {
+        try {
+            writePart(recordOutput, part);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Append a product to the record being encoded.
+     *
+     * @param product to append
+     */
+    private void writeRecordProduct(Product product) {
+        try {
+            writeProduct(recordOutput, product);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Append the encoded record to the log.
+     */
+    private void appendRecord() {
+        log.append(recordBytes.buffer(), 0, recordBytes.size());
+    }
+
+    /**
+     * Restore the inventory from a checkpoint file, if there is one.
+     *
+     * @param checkpointPath of the checkpoint file
+     * @return LSN covered by the checkpoint, or -1 if there was no checkpoint
+     * @throws IOException if the checkpoint is damaged or cannot be read
+     */
+    private static long restoreCheckpoint(Path checkpointPath) throws IOException {
+        if (!Files.exists(checkpointPath)) {
+            return -1;
+        }
+
+        try (InventorySnapshot snapshot = InventorySnapshot.open(checkpointPath)) {
+            Inventory.reservePartId(snapshot.getCurrentPartId());
+            Inventory.reserveProductId(snapshot.getCurrentProductId());
+
+            // Decode each batch of parts before adding it, keeping them by ID to resolve the products' parts.
+            List<Part> parts = snapshot.getParts();
+            IntObjectHashMap<Part> partsById = new IntObjectHashMap<>(parts.size());
+            for (int from = 0; from < parts.size(); from += RESTORE_BATCH_SIZE) {
+                List<Part> batch = parts.subList(from, Math.min(from + RESTORE_BATCH_SIZE, parts.size()));
+                for (Part part : batch) {
+                    partsById.put(part.getId(), part);
+                }
+                Inventory.addParts(batch);
+            }
+
+            // Products resolve their parts from the snapshot, as the inventory is locked while they are decoded.
+            List<Product> products = snapshot.getProducts(partsById::get);
+            for (int from = 0; from < products.size(); from += RESTORE_BATCH_SIZE) {
+                Inventory.addProducts(products.subList(from, Math.min(from + RESTORE_BATCH_SIZE, products.size())));
+            }
+            return snapshot.getLsn();
+        }
+    }
+
+    /**
+     * Apply a single log record to the inventory.
+     *
+     * @param payload of the record
+     * @throws IOException if the record cannot be decoded
+     */
+    private static void applyRecord(ByteBuffer payload) throws IOException {
+        byte[] bytes = new byte[payload.remaining()];
+        payload.get(bytes);
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes));
+
+        byte type = input.readByte();
+        switch (type) {
+            case PART_ADDED:
+                Inventory.addPart(readPart(input));
+                break;
+            case PART_UPDATED: {
+                int id = input.readInt();
+                Part newPart = readPart(input);
+                if (!Inventory.updatePart(id, newPart)) {
+                    Inventory.addPart(newPart);
+                }
+                break;
+            }
+            case PART_REMOVED:
+                Inventory.deletePart(input.readInt());
+                break;
+            case PRODUCT_ADDED:
+                Inventory.addProduct(readProduct(input));
+                break;
+            case PRODUCT_UPDATED: {
+                int id = input.readInt();
+                Product newProduct = readProduct(input);
+                if (!Inventory.updateProduct(id, newProduct)) {
+                    Inventory.addProduct(newProduct);
+                }
+                break;
+            }
+            case PRODUCT_REMOVED:
+                Inventory.deleteProduct(input.readInt());
+                break;
+            case ASSOCIATED_PART_QUANTITY_SET: {
+                Product product = Inventory.lookupProduct(input.readInt());
+                Part part = Inventory.lookupPart(input.readInt());
+                int quantity = input.readInt();
+                if (product != null && part != null) {
+                    product.setAssociatedPartQuantity(part.getId(), quantity);
+                }
+                break;
+            }
+            default:
+                throw new IOException("Unrecognized journal record type " + type);
+        }
+    }
+
+    /**
+     * Encode a part, including the fields of its subclass.
+     *
+     * @param output to write to
+     * @param part to encode
+     * @throws IOException if the output cannot be written
+     */
+    private static void writePart(DataOutput output, Part part) throws IOException {
+        output.writeByte(part instanceof Outsourced ? OUTSOURCED : IN_HOUSE);
+        output.writeInt(part.getId());
+        output.writeUTF(part.getName());
+        output.writeDouble(part.getPrice());
+        output.writeInt(part.getStock());
+        output.writeInt(part.getMin());
+        output.writeInt(part.getMax());
+
+        if (part instanceof Outsourced) {
+            output.writeUTF(((Outsourced) part).getCompanyName());
+        } else {
+            output.writeInt(((InHouse) part).getMachineId());
+        }
+    }
+
+    /**
+     * Decode a part written by writePart.
+     *
+     * @param input to read from
+     * @return decoded part
+     * @throws IOException if the input cannot be read
+     */
+    private static Part readPart(DataInput input) throws IOException {
+        byte kind = input.readByte();
+        int id = input.readInt();
+        String name = input.readUTF();
+        double price = input.readDouble();
+        int stock = input.readInt();
+        int min = input.readInt();
+        int max = input.readInt();
+
+        if (kind == OUTSOURCED) {
+            Outsourced outsourced = new Outsourced(id, name, price, stock, min, max);
+            outsourced.setCompanyName(input.readUTF());
+            return outsourced;
+        }
+        InHouse inHouse = new InHouse(id, name, price, stock, min, max);
+        inHouse.setMachineId(input.readInt());
+        return inHouse;
+    }
+
+    /**
+     * Encode a product, with its associated parts stored as part ID and quantity pairs.
+     *
+     * @param output to write to
+     * @param product to encode
+     * @throws IOException if the output cannot be written
+     */
+    private static void writeProduct(DataOutput output, Product product) throws IOException {
+        output.writeInt(product.getId());
+        output.writeUTF(product.getName());
+        output.writeDouble(product.getPrice());
+        output.writeInt(product.getStock());
+        output.writeInt(product.getMin());
+        output.writeInt(product.getMax());
+
+        int[] associations = associationsOf(product);
+        output.writeInt(associations.length / 2);
+        for (int association : associations) {
+            output.writeInt(association);
+        }
+    }
+
+    /**
+     * Decode a product written by writeProduct, resolving its associated parts from the inventory.
+     *
+     * @param input to read from
+     * @return decoded product
+     * @throws IOException if the input cannot be read
+     */
+    private static Product readProduct(DataInput input) throws IOException {
+        int id = input.readInt();
+        String name = input.readUTF();
+        double price = input.readDouble();
+        int stock = input.readInt();
+        int min = input.readInt();
+        int max = input.readInt();
+        Product product = new Product(id, name, price, stock, min, max);
+
+        int associatedPartCount = input.readInt();
+        for (int i = 0; i < associatedPartCount; i++) {
+            int partId = input.readInt();
+            int quantity = input.readInt();
+            Part part = Inventory.lookupPart(partId);
+            if (part != null) {
+                product.setAssociatedPartQuantity(partId, quantity);
+            } else {
+                logger.warning(String.format(
+                        "Dropping association of product %d with missing part %d.", product.getId(), partId));
+            }
+        }
+        return product;
+    }
+
+    /**
+     * Collect the parts associated with a product.
+     *
+     * @param product to read
+     * @return part ID and quantity of each associated part, one after the other
+     */
+    private static int[] associationsOf(Product product) {
+        IntArrayList associations = new IntArrayList();
+        product.forEachAssociatedPart((partId, quantity) -> {
+            associations.add(partId);
+            associations.add(quantity);
+        });
+        return associations.toArray();
+    }
+
+    /**
+     * Byte buffer for encoding records, exposing its contents so records can be appended without copying.
+     */
+    private static class RecordBuffer extends ByteArrayOutputStream {
+        /**
+         * Constructor sized for typical records.
+         */
+        RecordBuffer() {
+            super(256);
+        }
+
+        /**
+         * Retrieve the internal buffer, of which the first size bytes are in use.
+         *
+         * @return internal buffer
+         */
+        byte[] buffer() {
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,596 @@
+package partsapp.persistence;
+
+import partsapp.part.InHouse;
+import partsapp.part.Outsourced;
+import partsapp.part.Part;
+import partsapp.product.Product;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.function.IntFunction;
+import java.util.zip.CRC32;
+
+/**
+ * Compact binary snapshot of the whole inventory, read through a memory-mapped file.
+ *
+ * <p>
+ * The file holds a header, fixed-width records for parts and products, the associated parts of every product,
+ * a table of the distinct strings used by the records and a CRC32 checksum of everything before it.  Opening a
+ * snapshot only maps and verifies the file; each part or product is decoded from its record the first time it is
+ * asked for.  Snapshots are written to a temporary file which then replaces the previous snapshot in one step.
+ * </p>
+ *
+ * <pre>
+ * header:      magic, version, lsn, part ID, product ID, part count, product count, association count
+ * part:        id, kind, price, stock, min, max, name, machine ID or company name
+ * product:     id, association count, price, stock, min, max, name, first association
+ * association: part ID, quantity
+ * string:      UTF-8 byte length, UTF-8 bytes
+ * </pre>
+ */
+public class InventorySnapshot implements Closeable {
+    /**
+     * Marker at the start of a snapshot file.
+     */
+    private static final int MAGIC = 0x50534E50;
+
+    /**
+     * Version of the snapshot file layout.
+     */
+    private static final int VERSION = 2;
+
+    /**
+     * Bytes taken by the header.
+     */
+    private static final int HEADER_BYTES = 40;
+
+    /**
+     * Bytes taken by each part record.
+     */
+    private static final int PART_BYTES = 40;
+
+    /**
+     * Bytes taken by each product record.
+     */
+    private static final int PRODUCT_BYTES = 40;
+
+    /**
+     * Bytes taken by each association.
+     */
+    private static final int ASSOCIATION_BYTES = 2 * Integer.BYTES;
+
+    /**
+     * Part kinds, stored in each part record.
+     */
+    private static final int IN_HOUSE = 1;
+    private static final int OUTSOURCED = 2;
+
+    /**
+     * Channel of the open snapshot file.
+     */
+    private final FileChannel channel;
+
+    /**
+     * Mapped contents of the snapshot file.
+     */
+    private final MappedByteBuffer data;
+
+    /**
+     * Number of part records.
+     */
+    private final int partCount;
+
+    /**
+     * Number of product records.
+     */
+    private final int productCount;
+
+    /**
+     * Position of the first product record.
+     */
+    private final int productsStart;
+
+    /**
+     * Position of the first association.
+     */
+    private final int associationsStart;
+
+    /**
+     * Position of the string table.
+     */
+    private final int stringsStart;
+
+    /**
+     * Parts decoded so far, by record index.
+     */
+    private final Part[] parts;
+
+    /**
+     * Products decoded so far, by record index.
+     */
+    private final Product[] products;
+
+    /**
+     * Constructor for an opened and verified snapshot.
+     *
+     * @param channel of the snapshot file
+     * @param data mapped contents of the file
+     */
+    private InventorySnapshot(FileChannel channel, MappedByteBuffer data) {
+        this.channel = channel;
+        this.data = data;
+
+        partCount = data.getInt(24);
+        productCount = data.getInt(28);
+        int associationCount = data.getInt(32);
+
+        productsStart = HEADER_BYTES + partCount * PART_BYTES;
+        associationsStart = productsStart + productCount * PRODUCT_BYTES;
+        stringsStart = associationsStart + associationCount * ASSOCIATION_BYTES;
+
+        parts = new Part[partCount];
+        products = new Product[productCount];
+    }
+
+    /**
+     * Open a snapshot file, verifying its checksum without decoding any records.
+     *
+     * @param path of the snapshot file
+     * @return opened snapshot
+     * @throws IOException if the file is damaged or cannot be read
+     */
+    public static InventorySnapshot open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < HEADER_BYTES + Integer.BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Inventory snapshot has an invalid size: " + path);
+            }
+
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            data.order(ByteOrder.BIG_ENDIAN);
+            if (data.getInt(0) != MAGIC || data.getInt(4) != VERSION) {
+                throw new IOException("Unrecognized inventory snapshot: " + path);
+            }
+
+            int checksumAt = (int) size - Integer.BYTES;
+            CRC32 checksum = new CRC32();
+            checksum.update(data.duplicate().limit(checksumAt));
+            if ((int) checksum.getValue() != data.getInt(checksumAt)) {
+                throw new IOException("Inventory snapshot is damaged: " + path);
+            }
+
+            return new InventorySnapshot(channel, data);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Write a snapshot, replacing any existing snapshot at the path in a single step.
+     *
+     * @param path of the snapshot file
+     * @param lsn of the last journal record covered by the snapshot
+     * @param currentPartId last part ID generated
+     * @param currentProductId last product ID generated
+     * @param parts to store
+     * @param products to store
+     * @param associations part ID and quantity of each part associated with each product, one after the other, in
+     *                     the same order as products
+     * @throws IOException if the snapshot cannot be written
+     */
+    public static void write(Path path, long lsn, int currentPartId, int currentProductId,
+                             List<Part> parts, List<Product> products, List<int[]> associations)
+            throws IOException {
+        StringTable strings = new StringTable();
+        int associationCount = 0;
+        for (int[] productAssociations : associations) {
+            associationCount += productAssociations.length / 2;
+        }
+
+        Path temporaryPath = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel output = FileChannel.open(temporaryPath,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024).order(ByteOrder.BIG_ENDIAN);
+            CRC32 checksum = new CRC32();
+
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putLong(lsn);
+            buffer.putInt(currentPartId);
+            buffer.putInt(currentProductId);
+            buffer.putInt(parts.size());
+            buffer.putInt(products.size());
+            buffer.putInt(associationCount);
+            buffer.putInt(0);
+
+            for (Part part : parts) {
+                flushIfFull(output, buffer, checksum, PART_BYTES);
+                boolean outsourced = part instanceof Outsourced;
+                buffer.putInt(part.getId());
+                buffer.putInt(outsourced ? OUTSOURCED : IN_HOUSE);
+                buffer.putDouble(part.getPrice());
+                buffer.putInt(part.getStock());
+                buffer.putInt(part.getMin());
+                buffer.putInt(part.getMax());
+                buffer.putInt(strings.refOf(part.getName()));
+                if (outsourced) {
+                    buffer.putInt(strings.refOf(((Outsourced) part).getCompanyName()));
+                } else {
+                    buffer.putInt(((InHouse) part).getMachineId());
+                }
+                buffer.putInt(0);
+            }
+
+            int firstAssociation = 0;
+            for (int i = 0; i < products.size(); i++) {
+                flushIfFull(output, buffer, checksum, PRODUCT_BYTES);
+                Product product = products.get(i);
+                int productAssociationCount = associations.get(i).length / 2;
+                buffer.putInt(product.getId());
+                buffer.putInt(productAssociationCount);
+                buffer.putDouble(product.getPrice());
+                buffer.putInt(product.getStock());
+                buffer.putInt(product.getMin());
+                buffer.putInt(product.getMax());
+                buffer.putInt(strings.refOf(product.getName()));
+                buffer.putInt(firstAssociation);
+                buffer.putInt(0);
+                firstAssociation += productAssociationCount;
+            }
+
+            for (int[] productAssociations : associations) {
+                for (int value : productAssociations) {
+                    flushIfFull(output, buffer, checksum, Integer.BYTES);
+                    buffer.putInt(value);
+                }
+            }
+
+            byte[] stringBytes = strings.toByteArray();
+            for (int offset = 0; offset < stringBytes.length; ) {
+                flushIfFull(output, buffer, checksum, 1);
+                int length = Math.min(buffer.remaining(), stringBytes.length - offset);
+                buffer.put(stringBytes, offset, length);
+                offset += length;
+            }
+
+            flushIfFull(output, buffer, checksum, buffer.capacity());
+            buffer.putInt((int) checksum.getValue());
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                output.write(buffer);
+            }
+            output.force(true);
+        }
+
+        Files.move(temporaryPath, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        syncDirectory(path.toAbsolutePath().getParent());
+    }
+
+    /**
+     * Force a rename within a directory to disk, so that the new snapshot is found after a crash even once the
+     * journal segments it covers are deleted.
+     * <p>
+     * Windows cannot open a directory as a channel, but commits a rename to its file system journal itself.
+     * </p>
+     *
+     * @param directory holding the renamed file
+     * @throws IOException if the directory cannot be synced
+     */
+    private static void syncDirectory(Path directory) throws IOException {
+        if (System.getProperty("os.name").startsWith("Windows")) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Retrieve the LSN of the last journal record covered by the snapshot.
+     *
+     * @return covered LSN
+     */
+    public long getLsn() {
+        return data.getLong(8);
+    }
+
+    /**
+     * Retrieve the last part ID generated when the snapshot was written.
+     *
+     * @return part ID
+     */
+    public int getCurrentPartId() {
+        return data.getInt(16);
+    }
+
+    /**
+     * Retrieve the last product ID generated when the snapshot was written.
+     *
+     * @return product ID
+     */
+    public int getCurrentProductId() {
+        return data.getInt(20);
+    }
+
+    /**
+     * Retrieve the number of parts in the snapshot.
+     *
+     * @return part count
+     */
+    public int getPartCount() {
+        return partCount;
+    }
+
+    /**
+     * Retrieve the number of products in the snapshot.
+     *
+     * @return product count
+     */
+    public int getProductCount() {
+        return productCount;
+    }
+
+    /**
+     * Retrieve a part, decoding it from its record on first access.
+     *
+     * @param index of the part record
+     * @return part stored in the record
+     */
+    public Part getPart(int index) {
+        Part part = parts[index];
+        if (part == null) {
+            part = decodePart(HEADER_BYTES + index * PART_BYTES);
+            parts[index] = part;
+        }
+        return part;
+    }
+
+    /**
+     * Retrieve a product, decoding it from its record on first access.
+     *
+     * @param index of the product record
+     * @param partResolver to find each associated part by ID, returning null if it no longer exists
+     * @return product stored in the record
+     */
+    public Product getProduct(int index, IntFunction<Part> partResolver) {
+        Product product = products[index];
+        if (product == null) {
+            product = decodeProduct(productsStart + index * PRODUCT_BYTES, partResolver);
+            products[index] = product;
+        }
+        return product;
+    }
+
+    /**
+     * Retrieve a view of the parts, each decoded from its record the first time it is read.
+     *
+     * @return parts in record order
+     */
+    public List<Part> getParts() {
+        return new RecordList<>(partCount, this::getPart);
+    }
+
+    /**
+     * Retrieve a view of the products, each decoded from its record the first time it is read.
+     *
+     * @param partResolver to find each associated part by ID, returning null if it no longer exists
+     * @return products in record order
+     */
+    public List<Product> getProducts(IntFunction<Part> partResolver) {
+        return new RecordList<>(productCount, index -> getProduct(index, partResolver));
+    }
+
+    /**
+     * Release the mapped file.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Decode a part record.
+     *
+     * @param position of the record
+     * @return decoded part
+     */
+    private Part decodePart(int position) {
+        int id = data.getInt(position);
+        int kind = data.getInt(position + 4);
+        double price = data.getDouble(position + 8);
+        int stock = data.getInt(position + 16);
+        int min = data.getInt(position + 20);
+        int max = data.getInt(position + 24);
+        String name = readString(data.getInt(position + 28));
+
+        if (kind == OUTSOURCED) {
+            Outsourced outsourced = new Outsourced(id, name, price, stock, min, max);
+            outsourced.setCompanyName(readString(data.getInt(position + 32)));
+            return outsourced;
+        }
+        InHouse inHouse = new InHouse(id, name, price, stock, min, max);
+        inHouse.setMachineId(data.getInt(position + 32));
+        return inHouse;
+    }
+
+    /**
+     * Decode a product record.
+     *
+     * @param position of the record
+     * @param partResolver to find each associated part by ID
+     * @return decoded product
+     */
+    private Product decodeProduct(int position, IntFunction<Part> partResolver) {
+        int id = data.getInt(position);
+        int associationCount = data.getInt(position + 4);
+        double price = data.getDouble(position + 8);
+        int stock = data.getInt(position + 16);
+        int min = data.getInt(position + 20);
+        int max = data.getInt(position + 24);
+        String name = readString(data.getInt(position + 28));
+        int firstAssociation = data.getInt(position + 32);
+
+        Product product = new Product(id, name, price, stock, min, max);
+        for (int i = 0; i < associationCount; i++) {
+            int associationAt = associationsStart + (firstAssociation + i) * ASSOCIATION_BYTES;
+            int partId = data.getInt(associationAt);
+            int quantity = data.getInt(associationAt + Integer.BYTES);
+            if (partResolver.apply(partId) != null) {
+                product.setAssociatedPartQuantity(partId, quantity);
+            }
+        }
+        return product;
+    }
+
+    /**
+     * Read a string from the string table.
+     *
+     * @param ref offset of the string within the table
+     * @return decoded string
+     */
+    private String readString(int ref) {
+        int position = stringsStart + ref;
+        byte[] bytes = new byte[data.getInt(position)];
+        data.get(position + Integer.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Write out the buffer if it cannot hold the requested number of extra bytes.
+     *
+     * @param output to write to
+     * @param buffer of pending bytes
+     * @param checksum to update with the written bytes
+     * @param neededBytes to be added to the buffer
+     * @throws IOException if the write fails
+     */
+    private static void flushIfFull(FileChannel output, ByteBuffer buffer, CRC32 checksum, int neededBytes)
+            throws IOException {
+        if (buffer.remaining() >= neededBytes) {
+            return;
+        }
+        buffer.flip();
+        checksum.update(buffer.duplicate());
+        while (buffer.hasRemaining()) {
+            output.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Table of distinct strings, each stored once and referred to by its offset.
+     */
+    private static class StringTable {
+        /**
+         * Offset of each string already stored.
+         */
+        private final Map<String, Integer> refs = new HashMap<>();
+
+        /**
+         * Encoded strings.
+         */
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        /**
+         * Retrieve the offset of a string, storing it if it has not been seen before.
+         *
+         * @param value to store
+         * @return offset of the string within the table
+         */
+        int refOf(String value) {
+            Integer ref = refs.get(value);
+            if (ref == null) {
+                ref = bytes.size();
+                refs.put(value, ref);
+
+                byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+                bytes.write(encoded.length >>> 24);
+                bytes.write(encoded.length >>> 16);
+                bytes.write(encoded.length >>> 8);
+                bytes.write(encoded.length);
+                bytes.writeBytes(encoded);
+            }
+            return ref;
+        }
+
+        /**
+         * Retrieve the encoded table.
+         *
+         * @return table bytes
+         */
+        byte[] toByteArray() {
+            return bytes.toByteArray();
+        }
+    }
+
+    /**
+     * Read-only list of records, decoding each on access.
+     *
+     * @param <T> type of record
+     */
+    private static class RecordList<T> extends AbstractList<T> implements RandomAccess {
+        /**
+         * Number of records.
+         */
+        private final int size;
+
+        /**
+         * Decoder of the record at an index.
+         */
+        private final IntFunction<T> decoder;
+
+        /**
+         * Constructor for a list of records.
+         *
+         * @param size number of records
+         * @param decoder of the record at an index
+         */
+        RecordList(int size, IntFunction<T> decoder) {
+            this.size = size;
+            this.decoder = decoder;
+        }
+
+        /**
+         * Retrieve the record at an index.
+         *
+         * @param index of the record
+         * @return decoded record
+         */
+        @Override
+        public T get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return decoder.apply(index);
+        }
+
+        /**
+         * Retrieve the number of records.
+         *
+         * @return record count
+         */
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
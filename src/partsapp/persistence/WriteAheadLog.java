@@ -0,0 +1,602 @@
+package partsapp.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Durable, append-only log of records, split across segment files within a directory.
+ *
+ * <p>
+ * Every record is given a log sequence number (LSN) and stored as its payload length, LSN, payload and a CRC32
+ * checksum, so that a record torn by a crash is detected and dropped on replay.  Appending only copies the record
+ * into memory; a background thread writes and syncs everything appended since its last pass in one go, either
+ * after the sync interval passes or once the sync batch size is reached.  This group commit keeps appends fast
+ * while bounding how much can be lost in a crash to a single sync interval.
+ * </p>
+ *
+ * <p>
+ * Segment files are named after the first LSN they may contain.  Rolling to a new segment lets the segments
+ * covered by a checkpoint be deleted without copying the records which follow it.
+ * </p>
+ */
+public class WriteAheadLog implements Closeable {
+    /**
+     * Callback for records read during replay.
+     */
+    public interface RecordHandler {
+        /**
+         * Handle a single record.
+         *
+         * @param lsn log sequence number of the record
+         * @param payload of the record, positioned at its first byte
+         * @throws IOException if the record cannot be applied
+         */
+        void handle(long lsn, ByteBuffer payload) throws IOException;
+    }
+
+    /**
+     * Bytes in front of each payload, holding its length and LSN.
+     */
+    private static final int HEADER_BYTES = Integer.BYTES + Long.BYTES;
+
+    /**
+     * Bytes after each payload, holding its checksum.
+     */
+    private static final int TRAILER_BYTES = Integer.BYTES;
+
+    /**
+     * Prefix of segment file names.
+     */
+    private static final String SEGMENT_PREFIX = "journal-";
+
+    /**
+     * Suffix of segment file names.
+     */
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    /**
+     * Logger for replay warnings.
+     */
+    private static final Logger logger = Logger.getLogger(WriteAheadLog.class.getName());
+
+    /**
+     * Directory holding the segment files.
+     */
+    private final Path directory;
+
+    /**
+     * Longest time an appended record waits before being synced, in milliseconds.
+     */
+    private final long syncIntervalMillis;
+
+    /**
+     * Number of appended records which triggers a sync without waiting for the interval.
+     */
+    private final int syncBatchSize;
+
+    /**
+     * Lock guarding the in-memory state, held only briefly by appenders.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Lock held while writing to a segment file, so a segment is not rolled part way through a write.
+     */
+    private final ReentrantLock ioLock = new ReentrantLock();
+
+    /**
+     * Signalled when the background thread should sync without waiting for the interval.
+     */
+    private final Condition syncRequested = lock.newCondition();
+
+    /**
+     * Signalled whenever more records become durable.
+     */
+    private final Condition synced = lock.newCondition();
+
+    /**
+     * Checksum calculator, only used while holding the lock.
+     */
+    private final CRC32 checksum = new CRC32();
+
+    /**
+     * Background thread writing and syncing appended records.
+     */
+    private final Thread syncThread;
+
+    /**
+     * Records appended but not yet handed to the background thread.
+     */
+    private ByteBuffer pending = newBuffer(64 * 1024);
+
+    /**
+     * Buffer handed to the background thread, swapped with the pending buffer on each pass.
+     */
+    private ByteBuffer writing = newBuffer(64 * 1024);
+
+    /**
+     * Number of records in the pending buffer.
+     */
+    private int pendingRecords;
+
+    /**
+     * Whether a caller is waiting on a sync.
+     */
+    private boolean syncWanted;
+
+    /**
+     * LSN to give the next appended record.
+     */
+    private long nextLsn;
+
+    /**
+     * LSN of the latest record known to be synced to disk.
+     */
+    private long durableLsn;
+
+    /**
+     * Segment file currently being appended to.
+     */
+    private FileChannel segment;
+
+    /**
+     * Bytes written to the current segment, only changed while holding the IO lock.
+     */
+    private volatile long segmentBytes;
+
+    /**
+     * Whether the log has been closed.
+     */
+    private boolean closed;
+
+    /**
+     * Failure hit by the background thread, reported to later appenders.
+     */
+    private IOException failure;
+
+    /**
+     * Open the log for appending, starting a new segment after the last replayed record.
+     *
+     * @param directory holding the segment files
+     * @param lastLsn LSN of the last record already in the log, as returned by replay
+     * @param syncIntervalMillis longest time an appended record waits before being synced, in milliseconds
+     * @param syncBatchSize number of appended records which triggers a sync without waiting for the interval
+     * @throws IOException if the new segment cannot be created
+     */
+    public WriteAheadLog(Path directory, long lastLsn, long syncIntervalMillis, int syncBatchSize) throws IOException {
+        this.directory = directory;
+        this.syncIntervalMillis = Math.max(1, syncIntervalMillis);
+        this.syncBatchSize = Math.max(1, syncBatchSize);
+
+        Files.createDirectories(directory);
+        nextLsn = lastLsn + 1;
+        durableLsn = lastLsn;
+        openSegment(nextLsn);
+
+        syncThread = new Thread(this::runSyncLoop, "journal-sync");
+        syncThread.setDaemon(true);
+        syncThread.start();
+    }
+
+    /**
+     * Read every intact record with an LSN after the given one, in order.
+     * <p>
+     * Reading stops at the first record which is torn or fails its checksum.  That segment is truncated to its
+     * last intact record and any later segments are deleted, as records following a damaged one cannot be applied
+     * safely.
+     * </p>
+     *
+     * @param directory holding the segment files
+     * @param afterLsn LSN already covered by a checkpoint, whose records are skipped
+     * @param handler to call for each record
+     * @return LSN of the last intact record, or afterLsn if there were none
+     * @throws IOException if the segments cannot be read
+     */
+    public static long replay(Path directory, long afterLsn, RecordHandler handler) throws IOException {
+        long lastLsn = afterLsn;
+        List<Path> segments = listSegments(directory);
+
+        for (int i = 0; i < segments.size(); i++) {
+            Path segmentPath = segments.get(i);
+            long validBytes;
+
+            try (FileChannel channel = FileChannel.open(segmentPath, StandardOpenOption.READ)) {
+                // Segments are kept small by compaction, so each is read into memory whole.
+                ByteBuffer data = newBuffer((int) channel.size());
+                while (data.hasRemaining() && channel.read(data) >= 0) {
+                    // Keep reading until the buffer is full.
+                }
+                data.flip();
+                CRC32 recordChecksum = new CRC32();
+
+                while (true) {
+                    int start = data.position();
+                    if (data.remaining() < HEADER_BYTES + TRAILER_BYTES) {
+                        break;
+                    }
+                    int length = data.getInt(start);
+                    if (length < 0 || length > data.remaining() - HEADER_BYTES - TRAILER_BYTES) {
+                        break;
+                    }
+
+                    // Verify the checksum over the LSN and payload.
+                    ByteBuffer covered = data.duplicate();
+                    covered.position(start + Integer.BYTES).limit(start + HEADER_BYTES + length);
+                    recordChecksum.reset();
+                    recordChecksum.update(covered);
+                    if ((int) recordChecksum.getValue() != data.getInt(start + HEADER_BYTES + length)) {
+                        break;
+                    }
+
+                    long lsn = data.getLong(start + Integer.BYTES);
+                    if (lsn > lastLsn) {
+                        ByteBuffer payload = data.duplicate();
+                        payload.position(start + HEADER_BYTES).limit(start + HEADER_BYTES + length);
+                        handler.handle(lsn, payload.slice());
+                        lastLsn = lsn;
+                    }
+                    data.position(start + HEADER_BYTES + length + TRAILER_BYTES);
+                }
+                validBytes = data.position();
+            }
+
+            if (validBytes < Files.size(segmentPath)) {
+                logger.warning("Dropping damaged records at the end of " + segmentPath);
+                try (FileChannel channel = FileChannel.open(segmentPath, StandardOpenOption.WRITE)) {
+                    channel.truncate(validBytes);
+                    channel.force(true);
+                }
+                for (Path laterSegment : segments.subList(i + 1, segments.size())) {
+                    logger.warning("Discarding segment following damaged records: " + laterSegment);
+                    Files.delete(laterSegment);
+                }
+                break;
+            }
+        }
+
+        return lastLsn;
+    }
+
+    /**
+     * Append a record to the log.
+     * <p>
+     * The record is durable once the background thread next syncs, which can be waited on with awaitDurable.
+     * </p>
+     *
+     * @param payload bytes of the record
+     * @param offset of the first payload byte
+     * @param length of the payload
+     * @return LSN given to the record
+     */
+    public long append(byte[] payload, int offset, int length) {
+        lock.lock();
+        try {
+            if (failure != null) {
+                throw new UncheckedIOException("Journal is unable to write to disk.", failure);
+            }
+            if (closed) {
+                throw new IllegalStateException("Journal has been closed.");
+            }
+
+            long lsn = nextLsn++;
+            ensurePendingCapacity(HEADER_BYTES + length + TRAILER_BYTES);
+
+            pending.putInt(length);
+            int checksumStart = pending.position();
+            pending.putLong(lsn);
+            pending.put(payload, offset, length);
+
+            ByteBuffer covered = pending.duplicate();
+            covered.position(checksumStart).limit(pending.position());
+            checksum.reset();
+            checksum.update(covered);
+            pending.putInt((int) checksum.getValue());
+
+            pendingRecords++;
+            if (pendingRecords >= syncBatchSize) {
+                syncRequested.signal();
+            }
+            return lsn;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wait until a record, and every record before it, has been synced to disk.
+     *
+     * @param lsn of the record to wait for
+     * @throws IOException if the background thread failed to write the record
+     */
+    public void awaitDurable(long lsn) throws IOException {
+        lock.lock();
+        try {
+            while (durableLsn < lsn && failure == null) {
+                syncWanted = true;
+                syncRequested.signal();
+                synced.awaitUninterruptibly();
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Sync every record appended so far and start a new segment for later records.
+     *
+     * @return LSN of the last record before the new segment
+     * @throws IOException if the records cannot be synced or the segment cannot be created
+     */
+    public long roll() throws IOException {
+        ioLock.lock();
+        try {
+            lock.lock();
+            try {
+                writeAndSync(pending, segment);
+                pendingRecords = 0;
+                durableLsn = nextLsn - 1;
+                synced.signalAll();
+
+                segment.close();
+                openSegment(nextLsn);
+                return nextLsn - 1;
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    /**
+     * Delete the segments holding only records before the current segment.
+     * <p>
+     * Only call once those records are covered by a durable checkpoint.
+     * </p>
+     *
+     * @param upToLsn LSN covered by the checkpoint
+     * @throws IOException if a segment cannot be deleted
+     */
+    public void deleteSegmentsCoveredBy(long upToLsn) throws IOException {
+        List<Path> segments = listSegments(directory);
+        for (int i = 0; i < segments.size(); i++) {
+            // A segment is covered when the next segment starts at or before the first uncovered LSN.
+            long nextFirstLsn = i + 1 < segments.size() ? firstLsnOf(segments.get(i + 1)) : Long.MAX_VALUE;
+            if (nextFirstLsn <= upToLsn + 1) {
+                Files.delete(segments.get(i));
+            }
+        }
+    }
+
+    /**
+     * Retrieve the number of bytes written to the current segment.
+     *
+     * @return segment size in bytes
+     */
+    public long getSegmentBytes() {
+        lock.lock();
+        try {
+            return segmentBytes + pending.position();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Sync every appended record and stop the background thread.
+     *
+     * @throws IOException if the remaining records cannot be synced
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            syncRequested.signal();
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            syncThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        ioLock.lock();
+        try {
+            writeAndSync(pending, segment);
+            segment.close();
+        } finally {
+            ioLock.unlock();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Background loop which repeatedly waits for records and writes them out in a single sync.
+     */
+    private void runSyncLoop() {
+        while (true) {
+            // Wait for the interval to pass, the batch to fill up or a caller to ask for a sync.
+            lock.lock();
+            try {
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(syncIntervalMillis);
+                while (!closed && !syncWanted && pendingRecords < syncBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    syncRequested.awaitNanos(remaining);
+                }
+                if (closed) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            ioLock.lock();
+            try {
+                ByteBuffer batch;
+                FileChannel target;
+                long batchLastLsn;
+
+                // Swap buffers so appenders can carry on while this batch is written.
+                lock.lock();
+                try {
+                    batch = pending;
+                    pending = writing;
+                    writing = batch;
+                    pendingRecords = 0;
+                    syncWanted = false;
+                    target = segment;
+                    batchLastLsn = nextLsn - 1;
+                } finally {
+                    lock.unlock();
+                }
+
+                IOException writeFailure = null;
+                try {
+                    writeAndSync(batch, target);
+                } catch (IOException e) {
+                    writeFailure = e;
+                }
+
+                lock.lock();
+                try {
+                    if (writeFailure != null) {
+                        failure = writeFailure;
+                    } else {
+                        durableLsn = Math.max(durableLsn, batchLastLsn);
+                    }
+                    synced.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                if (writeFailure != null) {
+                    return;
+                }
+            } finally {
+                ioLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Write the contents of a buffer to a segment and sync it, leaving the buffer empty.
+     *
+     * @param buffer of encoded records
+     * @param target segment to write to
+     * @throws IOException if the write or sync fails
+     */
+    private void writeAndSync(ByteBuffer buffer, FileChannel target) throws IOException {
+        buffer.flip();
+        int written = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            target.write(buffer);
+        }
+        buffer.clear();
+
+        if (written > 0) {
+            target.force(false);
+            segmentBytes += written;
+        }
+    }
+
+    /**
+     * Create a new segment file and make it the one appended to.
+     *
+     * @param firstLsn first LSN which may appear in the segment
+     * @throws IOException if the segment cannot be created
+     */
+    private void openSegment(long firstLsn) throws IOException {
+        Path segmentPath = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstLsn, SEGMENT_SUFFIX));
+        segment = FileChannel.open(segmentPath,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        segmentBytes = 0;
+    }
+
+    /**
+     * Grow the pending buffer if it cannot hold the requested number of extra bytes.
+     *
+     * @param extraBytes to be appended
+     */
+    private void ensurePendingCapacity(int extraBytes) {
+        if (pending.remaining() < extraBytes) {
+            ByteBuffer grown = newBuffer(Math.max(pending.capacity() * 2, pending.position() + extraBytes));
+            pending.flip();
+            grown.put(pending);
+            pending = grown;
+        }
+    }
+
+    /**
+     * Allocate a buffer for encoded records.
+     *
+     * @param capacity in bytes
+     * @return empty buffer
+     */
+    private static ByteBuffer newBuffer(int capacity) {
+        return ByteBuffer.allocate(capacity).order(ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * List the segment files in a directory, in LSN order.
+     *
+     * @param directory holding the segment files
+     * @return sorted list of segment paths
+     * @throws IOException if the directory cannot be listed
+     */
+    private static List<Path> listSegments(Path directory) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return segments;
+        }
+        String pattern = SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, pattern)) {
+            for (Path segmentPath : stream) {
+                segments.add(segmentPath);
+            }
+        }
+        // Names are zero padded, so name order is LSN order.
+        segments.sort(null);
+        return segments;
+    }
+
+    /**
+     * Read the first LSN of a segment from its file name.
+     *
+     * @param segmentPath to read
+     * @return first LSN which may appear in the segment
+     */
+    private static long firstLsnOf(Path segmentPath) {
+        String name = segmentPath.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
@@ -2,13 +2,73 @@ package partsapp.product;
 
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import partsapp.collections.IntIntHashMap;
+import partsapp.inventory.Inventory;
 import partsapp.part.Part;
 
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
 public class Product {
     /**
-     * List of parts which the product is made of.
+     * Listener through which changes to the associated parts of a product are made.
+     */
+    public interface AssociationListener {
+        /**
+         * Called to change the quantity of a part associated with the product.
+         * <p>
+         * The listener applies the change with applyAssociatedPartChange while holding whatever lock orders it with
+         * its own records, so that reading the quantity, changing it and recording the change happen as one step.
+         * </p>
+         *
+         * @param product whose parts to change
+         * @param partId of the part whose quantity to change
+         * @param change from the old quantity, 0 if not associated, to the new quantity, 0 to remove the association
+         * @return quantity of the part before the change
+         */
+        int changeAssociatedPartQuantity(Product product, int partId, IntUnaryOperator change);
+    }
+
+    /**
+     * Quantity of each part which the product is made of, by part ID.
+     * <p>
+     * Parts are stored by ID only and looked up in the inventory when needed, so a product always sees the latest
+     * version of each part.  Also the lock guarding the associated parts, which may be read by background threads
+     * such as the journal.
+     * </p>
+     */
+    private final IntIntHashMap associatedPartQuantities = new IntIntHashMap();
+
+    /**
+     * Total quantity of all parts which the product is made of.
+     */
+    private int associatedPartUnits;
+
+    /**
+     * Number of changes made to the associated parts, for detecting when the looked up parts are stale.
+     */
+    private int associationChanges;
+
+    /**
+     * Associated parts as last looked up in the inventory, or null if never looked up.
+     */
+    private ObservableList<Part> resolvedParts;
+
+    /**
+     * Number of changes made to the associated parts when they were last looked up.
+     */
+    private int resolvedAssociationChanges;
+
+    /**
+     * Inventory parts version when the associated parts were last looked up.
      */
-    private final ObservableList<Part> associatedParts;
+    private long resolvedPartsVersion;
+
+    /**
+     * Optional listener for changes to the associated parts, set while the product is held in inventory.  Only set
+     * while holding the lock guarding the associated parts.
+     */
+    private volatile AssociationListener associationListener;
 
     /**
      * Primary identifier for the product.
@@ -57,8 +117,6 @@ public class Product {
         this.stock = stock;
         this.min = min;
         this.max = max;
-
-        associatedParts = FXCollections.observableArrayList();
     }
 
     /**
@@ -170,36 +228,193 @@ public class Product {
     }
 
     /**
-     * Add a part to be associated with the product.
+     * Add one more of a part to be associated with the product.
      *
      * @param part to associate
      */
     public void addAssociatedPart(Part part) {
-        associatedParts.add(part);
+        changeAssociatedPartQuantity(part.getId(), quantity -> quantity + 1);
+    }
+
+    /**
+     * Set the quantity of a part used by the product, replacing any quantity already set.
+     *
+     * @param partId of part to associate
+     * @param quantity of the part used, or 0 to remove the association
+     */
+    public void setAssociatedPartQuantity(int partId, int quantity) {
+        if (quantity < 0) {
+            throw new IllegalArgumentException("Associated part quantity must not be negative.");
+        }
+        changeAssociatedPartQuantity(partId, oldQuantity -> quantity);
+    }
+
+    /**
+     * Change the quantity of a part used by the product, through the listener if there is one.
+     *
+     * @param partId of part to change
+     * @param change from the old quantity to the new quantity
+     * @return quantity of the part before the change
+     */
+    private int changeAssociatedPartQuantity(int partId, IntUnaryOperator change) {
+        AssociationListener listener = associationListener;
+        if (listener == null) {
+            // Check again under the lock, so that a listener set meanwhile sees this change or makes it.
+            synchronized (associatedPartQuantities) {
+                listener = associationListener;
+                if (listener == null) {
+                    return applyAssociatedPartChange(partId, change);
+                }
+            }
+        }
+        return listener.changeAssociatedPartQuantity(this, partId, change);
+    }
+
+    /**
+     * Apply a change to the quantity of a part used by the product, without going through the listener.
+     * <p>
+     * Only for the listener to call from changeAssociatedPartQuantity, and for changes made without a listener.
+     * </p>
+     *
+     * @param partId of part to change
+     * @param change from the old quantity, 0 if not associated, to the new quantity, 0 to remove the association
+     * @return quantity of the part before the change
+     */
+    public int applyAssociatedPartChange(int partId, IntUnaryOperator change) {
+        synchronized (associatedPartQuantities) {
+            int oldQuantity = associatedPartQuantities.get(partId, 0);
+            int quantity = change.applyAsInt(oldQuantity);
+            if (quantity == oldQuantity) {
+                return oldQuantity;
+            }
+            if (quantity == 0) {
+                associatedPartQuantities.remove(partId);
+            } else {
+                associatedPartQuantities.put(partId, quantity);
+            }
+            associatedPartUnits += quantity - oldQuantity;
+            associationChanges++;
+            return oldQuantity;
+        }
+    }
+
+    /**
+     * Retrieve the quantity of a part used by the product.
+     *
+     * @param partId to search
+     * @return quantity of the part, or 0 if not associated
+     */
+    public int getAssociatedPartQuantity(int partId) {
+        synchronized (associatedPartQuantities) {
+            return associatedPartQuantities.get(partId, 0);
+        }
+    }
+
+    /**
+     * Determine whether the product has any parts associated.
+     *
+     * @return true if at least one part is associated, false otherwise
+     */
+    public boolean hasAssociatedParts() {
+        synchronized (associatedPartQuantities) {
+            return associatedPartUnits > 0;
+        }
+    }
+
+    /**
+     * Retrieve the IDs of the parts associated with the product.
+     *
+     * @return part IDs, once each regardless of quantity, in ascending order
+     */
+    public int[] getAssociatedPartIds() {
+        synchronized (associatedPartQuantities) {
+            int[] partIds = new int[associatedPartQuantities.size()];
+            int[] count = new int[1];
+            associatedPartQuantities.forEach((partId, quantity) -> partIds[count[0]++] = partId);
+            Arrays.sort(partIds);
+            return partIds;
+        }
+    }
+
+    /**
+     * Visit the ID and quantity of every part associated with the product, in no particular order.
+     *
+     * @param consumer to call for each associated part
+     */
+    public void forEachAssociatedPart(IntIntHashMap.EntryConsumer consumer) {
+        synchronized (associatedPartQuantities) {
+            associatedPartQuantities.forEach(consumer);
+        }
     }
 
     /**
      * Retrieve all the parts associated with the product.
+     * <p>
+     * The list is a read-only view with one entry for each unit of each part, ordered by part ID.  Parts are looked
+     * up in the inventory, skipping any no longer held there, and the result is kept until the product's parts or
+     * the parts in inventory next change.
+     * </p>
      *
      * @return list of associated parts
      */
     public ObservableList<Part> getAllAssociatedParts() {
-        return associatedParts;
+        long partsVersion = Inventory.getPartsVersion();
+        int[] partIds;
+        int[] quantities;
+        int changes;
+        synchronized (associatedPartQuantities) {
+            if (resolvedParts != null && resolvedAssociationChanges == associationChanges
+                    && resolvedPartsVersion == partsVersion) {
+                return resolvedParts;
+            }
+            partIds = getAssociatedPartIds();
+            quantities = new int[partIds.length];
+            for (int i = 0; i < partIds.length; i++) {
+                quantities[i] = associatedPartQuantities.get(partIds[i], 0);
+            }
+            changes = associationChanges;
+        }
+
+        // Look the parts up without holding the lock, which would otherwise be held while waiting on the inventory.
+        ObservableList<Part> associatedParts = FXCollections.observableArrayList();
+        for (int i = 0; i < partIds.length; i++) {
+            Part part = Inventory.lookupPart(partIds[i]);
+            for (int unit = 0; part != null && unit < quantities[i]; unit++) {
+                associatedParts.add(part);
+            }
+        }
+        ObservableList<Part> view = FXCollections.unmodifiableObservableList(associatedParts);
+
+        synchronized (associatedPartQuantities) {
+            if (changes == associationChanges) {
+                resolvedParts = view;
+                resolvedAssociationChanges = changes;
+                resolvedPartsVersion = partsVersion;
+            }
+        }
+        return view;
     }
 
     /**
-     * Remove an associated part from the product.
+     * Remove one of an associated part from the product.
      *
      * @param selectedAssociatedPart part to be removed
      * @return true if successfully deleted, false otherwise
      */
     public boolean deleteAssociatedPart(Part selectedAssociatedPart) {
-        boolean selectedPartInList = associatedParts.contains(selectedAssociatedPart);
+        int oldQuantity = changeAssociatedPartQuantity(selectedAssociatedPart.getId(),
+                quantity -> Math.max(quantity - 1, 0));
+        return oldQuantity > 0;
+    }
 
-        if (selectedPartInList) {
-            associatedParts.remove(selectedAssociatedPart);
+    /**
+     * Set the listener notified of changes to the associated parts.
+     *
+     * @param associationListener to notify, or null to stop notifying
+     */
+    public void setAssociationListener(AssociationListener associationListener) {
+        synchronized (associatedPartQuantities) {
+            this.associationListener = associationListener;
         }
-
-        return selectedPartInList;
     }
 }
@@ -0,0 +1,163 @@
+package partsapp.validation;
+
+import partsapp.formatters.CurrencyFormat;
+
+import java.util.List;
+
+/**
+ * Validation rules shared by every way parts and products enter the inventory.
+ *
+ * <p>
+ * The part and product forms and the bulk importer each parse their own input, then apply these checks to the
+ * values, so the same data is accepted or rejected with the same messages however it arrives.  Each check adds its
+ * messages to a list of errors rather than stopping at the first.
+ * </p>
+ */
+public final class ItemRules {
+    /**
+     * Error for a part without a name.
+     */
+    public static final String PART_NAME_REQUIRED = "Part name is required.";
+
+    /**
+     * Error for a product without a name.
+     */
+    public static final String PRODUCT_NAME_REQUIRED = "Product name is required.";
+
+    /**
+     * Error for a minimum stock value which is not a positive whole number.
+     */
+    public static final String MIN_INVALID = "Minimum stock value must be a positive whole number.";
+
+    /**
+     * Error for a maximum stock value which is not a positive whole number.
+     */
+    public static final String MAX_INVALID = "Maximum stock value must be a positive whole number.";
+
+    /**
+     * Error for a maximum stock value below the minimum.
+     */
+    public static final String MAX_BELOW_MIN =
+            "Maximum stock value must be equal to or larger than minimum stock value.";
+
+    /**
+     * Error for a stock level which is not a whole number.
+     */
+    public static final String STOCK_INVALID = "Stock level must be a valid positive whole number.";
+
+    /**
+     * Error for a stock level outside the minimum and maximum.
+     */
+    public static final String STOCK_OUT_OF_RANGE = "Stock level must be within the minimum and maximum stock values.";
+
+    /**
+     * Error for a price which is not a number.
+     */
+    public static final String PRICE_INVALID = "Price must be a valid dollar amount.";
+
+    /**
+     * Error for a negative price.
+     */
+    public static final String PRICE_NEGATIVE = "Price must be a positive dollar amount.";
+
+    /**
+     * Error for a machine ID which is not a whole number.
+     */
+    public static final String MACHINE_ID_INVALID = "Machine ID must be a valid whole number.";
+
+    /**
+     * Error for a negative machine ID.
+     */
+    public static final String MACHINE_ID_NEGATIVE = "Machine ID must be a positive whole number.";
+
+    /**
+     * Error for an outsourced part without a company name.
+     */
+    public static final String COMPANY_NAME_REQUIRED = "Company name is required for outsourced parts.";
+
+    /**
+     * Prevent instantiation of the static rules.
+     */
+    private ItemRules() {
+    }
+
+    /**
+     * Check a minimum stock value.
+     *
+     * @param min stock value
+     * @param errors to add any error messages to
+     */
+    public static void checkMin(int min, List<String> errors) {
+        if (min < 0) {
+            errors.add(MIN_INVALID);
+        }
+    }
+
+    /**
+     * Check a maximum stock value against the minimum.
+     *
+     * @param min stock value, or 0 if it could not be read
+     * @param max stock value
+     * @param errors to add any error messages to
+     */
+    public static void checkMax(int min, int max, List<String> errors) {
+        if (max < 0) {
+            errors.add(MAX_INVALID);
+        }
+        if (max < min) {
+            errors.add(MAX_BELOW_MIN);
+        }
+    }
+
+    /**
+     * Check a stock level lies within the minimum and maximum.
+     *
+     * @param stock level, or 0 if it could not be read
+     * @param min stock value, or 0 if it could not be read
+     * @param max stock value, or 0 if it could not be read
+     * @param errors to add any error messages to
+     */
+    public static void checkStock(int stock, int min, int max, List<String> errors) {
+        if (stock < min || stock > max) {
+            errors.add(STOCK_OUT_OF_RANGE);
+        }
+    }
+
+    /**
+     * Check a price.
+     *
+     * @param price in dollars
+     * @param errors to add any error messages to
+     */
+    public static void checkPrice(double price, List<String> errors) {
+        if (price < 0) {
+            errors.add(PRICE_NEGATIVE);
+        }
+    }
+
+    /**
+     * Check the price of a product covers the total price of its parts.
+     *
+     * @param price of the product, in dollars
+     * @param partsCostCents total price of the parts used, in cents
+     * @param errors to add any error messages to
+     */
+    public static void checkPriceCoversParts(double price, long partsCostCents, List<String> errors) {
+        if (CurrencyFormat.toCents(price) < partsCostCents) {
+            errors.add("Price must be equal to or greater than the total price of the parts used, "
+                    + CurrencyFormat.getInstance().format(partsCostCents) + ".");
+        }
+    }
+
+    /**
+     * Check the machine ID of an in-house part.
+     *
+     * @param machineId to check
+     * @param errors to add any error messages to
+     */
+    public static void checkMachineId(int machineId, List<String> errors) {
+        if (machineId < 0) {
+            errors.add(MACHINE_ID_NEGATIVE);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package partsapp.windows;
+
+import javafx.application.Platform;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Runs searches for a search field away from the JavaFX thread, once the user pauses typing.
+ *
+ * <p>
+ * Each submitted search replaces the one before it.  A search which has not started yet is cancelled, and the
+ * result of a search which was overtaken while running is thrown away, so only the result of the latest search
+ * is handed back to the JavaFX thread.
+ * </p>
+ *
+ * @param <R> type of search result
+ */
+public class SearchExecutor<R> {
+    /**
+     * Default pause in typing to wait for before searching, in milliseconds.
+     */
+    public static final long DEFAULT_DEBOUNCE_MILLIS = 150;
+
+    /**
+     * Background thread shared by all search fields to run their searches.
+     */
+    private static final ScheduledExecutorService searchThread = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "inventory-search");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Pause in typing to wait for before searching, in milliseconds.
+     */
+    private final long debounceMillis;
+
+    /**
+     * Sequence number of the latest submitted search, used to recognize outdated searches.
+     */
+    private final AtomicLong latestSearch = new AtomicLong();
+
+    /**
+     * Scheduled search which may not have started yet.
+     */
+    private ScheduledFuture<?> pendingSearch;
+
+    /**
+     * Constructor using the default typing pause.
+     */
+    public SearchExecutor() {
+        this(DEFAULT_DEBOUNCE_MILLIS);
+    }
+
+    /**
+     * Constructor using a specific typing pause.
+     *
+     * @param debounceMillis pause in typing to wait for before searching, in milliseconds
+     */
+    public SearchExecutor(long debounceMillis) {
+        this.debounceMillis = debounceMillis;
+    }
+
+    /**
+     * Schedule a search on the background thread, replacing any search already submitted.
+     * <p>
+     * Must be called from the JavaFX thread.  The search itself must not touch any JavaFX controls.
+     * </p>
+     *
+     * @param search to run in the background
+     * @param onResult callback run on the JavaFX thread with the result, if no newer search was submitted
+     */
+    public void submit(Supplier<R> search, Consumer<R> onResult) {
+        long searchNumber = cancelPendingSearch();
+
+        pendingSearch = searchThread.schedule(() -> {
+            if (searchNumber != latestSearch.get()) {
+                return;
+            }
+
+            R result = search.get();
+
+            Platform.runLater(() -> {
+                if (searchNumber == latestSearch.get()) {
+                    onResult.accept(result);
+                }
+            });
+        }, debounceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Run a search immediately on the calling thread, replacing any search already submitted.
+     * <p>
+     * Used when the results are needed right away, such as when a window first opens.
+     * </p>
+     *
+     * @param search to run
+     * @param onResult callback run with the result
+     */
+    public void searchNow(Supplier<R> search, Consumer<R> onResult) {
+        cancelPendingSearch();
+        onResult.accept(search.get());
+    }
+
+    /**
+     * Cancel the pending search, if it has not started, and mark any running search as outdated.
+     *
+     * @return sequence number for the next search
+     */
+    private long cancelPendingSearch() {
+        if (pendingSearch != null) {
+            pendingSearch.cancel(false);
+            pendingSearch = null;
+        }
+        return latestSearch.incrementAndGet();
+    }
+}
@@ -0,0 +1,64 @@
+package partsapp.windows;
+
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Sorts a table by typed keys of its rows, in place of the comparisons of cell values JavaFX makes by default.
+ *
+ * <p>
+ * By default a table sorts by fetching and comparing the values shown in each cell, so a price column formatted as
+ * currency is sorted as text, and every comparison looks the cell value up again.  A table set up here instead
+ * sorts with a comparator of the rows for each column, such as one comparing prices as numbers.
+ * </p>
+ */
+public final class TableSorting {
+    /**
+     * Static class, not to be instantiated.
+     */
+    private TableSorting() {
+    }
+
+    /**
+     * Replace the sort policy of a table, so that sorting hands a comparator of its rows to a sorter.
+     * <p>
+     * Whenever the sort order changes, the comparator for the sorted columns is built from the keys and passed to the
+     * sorter, which must put the table's rows in that order.  A null comparator means the table is no longer sorted.
+     * </p>
+     *
+     * @param table to sort
+     * @param columnKeys sort order of each column of the table, in the order the columns were declared
+     * @param sorter to put the rows in order
+     * @param <S> type of row
+     */
+    public static <S> void install(TableView<S> table, List<Comparator<S>> columnKeys, Consumer<Comparator<S>> sorter) {
+        table.setSortPolicy(view -> {
+            sorter.accept(buildComparator(view, columnKeys));
+            return true;
+        });
+    }
+
+    /**
+     * Build the comparator for the columns a table is sorted by, the first column sorted deciding first.
+     *
+     * @param table being sorted
+     * @param columnKeys sort order of each column of the table, in the order the columns were declared
+     * @param <S> type of row
+     * @return comparator of the rows, or null if the table is not sorted
+     */
+    private static <S> Comparator<S> buildComparator(TableView<S> table, List<Comparator<S>> columnKeys) {
+        Comparator<S> comparator = null;
+        for (TableColumn<S, ?> column : table.getSortOrder()) {
+            Comparator<S> key = columnKeys.get(table.getColumns().indexOf(column));
+            if (column.getSortType() == TableColumn.SortType.DESCENDING) {
+                key = key.reversed();
+            }
+            comparator = comparator == null ? key : comparator.thenComparing(key);
+        }
+        return comparator;
+    }
+}
@@ -1,5 +1,6 @@
 package partsapp.windows.main;
 
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
@@ -14,23 +15,52 @@ import javafx.scene.control.TextField;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
 import javafx.stage.StageStyle;
+import partsapp.formatters.FormattedRows;
 import partsapp.formatters.PartFormatter;
 import partsapp.formatters.ProductFormatter;
 import partsapp.inventory.Inventory;
+import partsapp.inventory.Query;
+import partsapp.metrics.Metrics;
+import partsapp.metrics.Operation;
 import partsapp.part.Part;
 import partsapp.product.Product;
+import partsapp.windows.SearchExecutor;
+import partsapp.windows.TableSorting;
 import partsapp.windows.parts.PartWindow;
 import partsapp.windows.products.ProductWindow;
 
 import java.io.IOException;
 import java.net.URL;
+import java.text.ParseException;
+import java.util.List;
 import java.util.Optional;
 import java.util.ResourceBundle;
+import java.util.function.Predicate;
 
 /**
  * Window controller class for the starting window of the application.
  */
 public class MainWindow implements Initializable {
+    /**
+     * Formatted rows for the parts table, kept in sync with the inventory.
+     */
+    private final FormattedRows<Part, PartFormatter> partRows;
+
+    /**
+     * Formatted rows for the products table, kept in sync with the inventory.
+     */
+    private final FormattedRows<Product, ProductFormatter> productRows;
+
+    /**
+     * Background search runner for the parts search field.
+     */
+    private final SearchExecutor<ObservableList<Part>> partsSearch = new SearchExecutor<>();
+
+    /**
+     * Background search runner for the products search field.
+     */
+    private final SearchExecutor<ObservableList<Product>> productsSearch = new SearchExecutor<>();
+
     /**
      * List of search results for parts to populate parts table.
      */
@@ -83,10 +113,18 @@ public class MainWindow implements Initializable {
 
     /**
      * Default constructor, sets up containers for parts and products.
+     * <p>
+     * The containers follow changes to the inventory, so additions, edits and removals appear in the tables
+     * without the tables being rebuilt.
+     * </p>
      */
     public MainWindow() {
-        filteredParts = FXCollections.observableArrayList();
-        filteredProducts = FXCollections.observableArrayList();
+        partRows = new FormattedRows<>("parts", Inventory.getAllParts(), PartFormatter::new, PartFormatter::setPart);
+        productRows = new FormattedRows<>(
+                "products", Inventory.getAllProducts(), ProductFormatter::new, ProductFormatter::setProduct);
+
+        filteredParts = partRows.getRows();
+        filteredProducts = productRows.getRows();
     }
 
     /**
@@ -97,108 +135,258 @@ public class MainWindow implements Initializable {
      */
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
-        refreshAllData();
+        partsTable.setItems(filteredParts);
+        productsTable.setItems(filteredProducts);
+
+        // Sort by the typed fields of the rows, with the rows kept in order as the inventory changes.
+        TableSorting.install(partsTable,
+                List.of(PartFormatter.BY_ID, PartFormatter.BY_NAME, PartFormatter.BY_STOCK, PartFormatter.BY_PRICE),
+                comparator -> {
+                    // Go back to the order of the search results once the table is no longer sorted.
+                    boolean unsorted = comparator == null && partRows.isSorted();
+                    partRows.setComparator(comparator);
+                    if (unsorted) {
+                        refreshInventoryParts();
+                    }
+                });
+        TableSorting.install(productsTable,
+                List.of(ProductFormatter.BY_ID, ProductFormatter.BY_NAME, ProductFormatter.BY_STOCK,
+                        ProductFormatter.BY_PRICE),
+                comparator -> {
+                    boolean unsorted = comparator == null && productRows.isSorted();
+                    productRows.setComparator(comparator);
+                    if (unsorted) {
+                        refreshInventoryProducts();
+                    }
+                });
+
+        // Fill the tables straight away rather than waiting on a background search.
+        partsSearch.searchNow(() -> searchParts(""), sourceParts -> showParts(sourceParts, ""));
+        productsSearch.searchNow(() -> searchProducts(""), sourceProducts -> showProducts(sourceProducts, ""));
     }
 
     /**
      * Retrieve the list of parts from the inventory and populate local list.
      * Filtering is performed if there is a search parameter filled.
+     * <p>
+     * The search runs in the background once typing pauses, and only the latest search updates the table.
+     * </p>
      */
     private void refreshInventoryParts() {
-        filteredParts.clear();
+        String partsSearchString = partsSearchField.getText();
+        partsSearch.submit(
+                () -> Metrics.time(Operation.WINDOW_SEARCH_PARTS, () -> searchParts(partsSearchString)),
+                sourceParts -> showParts(sourceParts, partsSearchString));
+    }
 
+    /**
+     * Retrieve the list of products from the inventory and populate local list.
+     * Filtering is performed if there is a search parameter filled.
+     * <p>
+     * The search runs in the background once typing pauses, and only the latest search updates the table.
+     * </p>
+     */
+    private void refreshInventoryProducts() {
+        String productsSearchString = productsSearchField.getText();
+        productsSearch.submit(
+                () -> Metrics.time(Operation.WINDOW_SEARCH_PRODUCTS, () -> searchProducts(productsSearchString)),
+                sourceProducts -> showProducts(sourceProducts, productsSearchString));
+    }
+
+    /**
+     * Find the parts matching a search string, by query, by ID or by name.
+     *
+     * @param partsSearchString to search
+     * @return list of matching parts
+     */
+    private static ObservableList<Part> searchParts(String partsSearchString) {
         // Use the searched list or full list of parts.
-        ObservableList<Part> sourceParts;
-        String partsSearchString = partsSearchField.getText();
         if (partsSearchString.isEmpty()) {
-            sourceParts = Inventory.getAllParts();
-        } else {
-            // Attempt to convert to an integer, for an ID search.
-            try {
-                int partId = Integer.parseInt(partsSearchString.trim());
-                sourceParts = FXCollections.observableArrayList();
-
-                Part foundPart = Inventory.lookupPart(partId);
-                if (foundPart != null) {
-                    sourceParts.add(foundPart);
-                }
+            return Inventory.getAllParts();
+        }
 
-                // Fall back to a string search.
-            } catch (Exception e) {
-                sourceParts = Inventory.lookupPart(partsSearchString);
+        // Run a query over several fields, such as price<5 AND type=Outsourced.
+        Query<Part> query = compilePartQuery(partsSearchString);
+        if (query != null) {
+            return Inventory.lookupParts(query);
+        }
+
+        // Attempt to convert to an integer, for an ID search.
+        try {
+            int partId = Integer.parseInt(partsSearchString.trim());
+            ObservableList<Part> sourceParts = FXCollections.observableArrayList();
+
+            Part foundPart = Inventory.lookupPart(partId);
+            if (foundPart != null) {
+                sourceParts.add(foundPart);
             }
+            return sourceParts;
+
+            // Fall back to a string search.
+        } catch (Exception e) {
+            return Inventory.lookupPart(partsSearchString);
+        }
+    }
+
+    /**
+     * Find the products matching a search string, by query, by ID or by name.
+     *
+     * @param productsSearchString to search
+     * @return list of matching products
+     */
+    private static ObservableList<Product> searchProducts(String productsSearchString) {
+        // Use the searched list or full list of products.
+        if (productsSearchString.isEmpty()) {
+            return Inventory.getAllProducts();
         }
 
-        // Wrap parts in a formatter class for TableView display.
-        for (Part part: sourceParts) {
-            filteredParts.add(new PartFormatter(part));
+        // Run a query over several fields, such as price<5 AND stock>10.
+        Query<Product> query = compileProductQuery(productsSearchString);
+        if (query != null) {
+            return Inventory.lookupProducts(query);
         }
 
-        partsTable.setItems(filteredParts);
-        partsTable.refresh();
+        // Attempt to convert to an integer, for an ID search.
+        try {
+            int productId = Integer.parseInt(productsSearchString.trim());
+            ObservableList<Product> sourceProducts = FXCollections.observableArrayList();
+
+            Product foundProduct = Inventory.lookupProduct(productId);
+            if (foundProduct != null) {
+                sourceProducts.add(foundProduct);
+            }
+            return sourceProducts;
+
+        // Fall back to a string search.
+        } catch (Exception e) {
+            return Inventory.lookupProduct(productsSearchString);
+        }
+    }
+
+    /**
+     * Compile a parts search string as a query, if it is meant as one.
+     *
+     * @param partsSearchString to compile
+     * @return compiled query, or null if the string is a plain ID or name search or not a valid query
+     */
+    private static Query<Part> compilePartQuery(String partsSearchString) {
+        if (!Query.looksLikeQuery(partsSearchString)) {
+            return null;
+        }
+        try {
+            return Query.forParts(partsSearchString);
+        } catch (ParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Compile a products search string as a query, if it is meant as one.
+     *
+     * @param productsSearchString to compile
+     * @return compiled query, or null if the string is a plain ID or name search or not a valid query
+     */
+    private static Query<Product> compileProductQuery(String productsSearchString) {
+        if (!Query.looksLikeQuery(productsSearchString)) {
+            return null;
+        }
+        try {
+            return Query.forProducts(productsSearchString);
+        } catch (ParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Show the results of a parts search in the parts table.
+     *
+     * @param sourceParts found by the search
+     * @param partsSearchString that was searched
+     */
+    private void showParts(ObservableList<Part> sourceParts, String partsSearchString) {
+        long start = Metrics.startTimer();
+
+        // Decide which parts added to the inventory later on also belong in the results.
+        Predicate<Part> partFilter;
+        if (partsSearchString.isEmpty()) {
+            partFilter = part -> true;
+        } else {
+            Query<Part> query = compilePartQuery(partsSearchString);
+            if (query != null) {
+                partFilter = query::test;
+            } else {
+                try {
+                    int partId = Integer.parseInt(partsSearchString.trim());
+                    partFilter = part -> part.getId() == partId;
+                } catch (Exception e) {
+                    String lowerSearchString = partsSearchString.toLowerCase();
+                    partFilter = part -> part.getName().toLowerCase().contains(lowerSearchString);
+                }
+            }
+
+            // Drop any parts deleted or replaced while the search was running.
+            sourceParts.removeIf(part -> Inventory.lookupPart(part.getId()) != part);
+        }
+
+        // Only the rows which differ from the current results are changed.
+        partRows.showResults(sourceParts, partFilter);
 
         // Highlight the first item if there is only one, as per rubric requirements.
         if (partsTable.getItems().size() == 1) {
             partsTable.getSelectionModel().selectFirst();
         }
+
+        Metrics.record(Operation.WINDOW_SHOW_PARTS, start);
     }
 
     /**
-     * Retrieve the list of products from the inventory and populate local list.
-     * Filtering is performed if there is a search parameter filled.
+     * Show the results of a products search in the products table.
+     *
+     * @param sourceProducts found by the search
+     * @param productsSearchString that was searched
      */
-    private void refreshInventoryProducts() {
-        filteredProducts.clear();
+    private void showProducts(ObservableList<Product> sourceProducts, String productsSearchString) {
+        long start = Metrics.startTimer();
 
-        // Use the searched list or full list of products.
-        ObservableList<Product> sourceProducts;
-        String productsSearchString = productsSearchField.getText();
+        // Decide which products added to the inventory later on also belong in the results.
+        Predicate<Product> productFilter;
         if (productsSearchString.isEmpty()) {
-            sourceProducts = Inventory.getAllProducts();
+            productFilter = product -> true;
         } else {
-            // Attempt to convert to an integer, for an ID search.
-            try {
-                int productId = Integer.parseInt(productsSearchString.trim());
-                sourceProducts = FXCollections.observableArrayList();
-
-                Product foundProduct = Inventory.lookupProduct(productId);
-                if (foundProduct != null) {
-                    sourceProducts.add(foundProduct);
+            Query<Product> query = compileProductQuery(productsSearchString);
+            if (query != null) {
+                productFilter = query::test;
+            } else {
+                try {
+                    int productId = Integer.parseInt(productsSearchString.trim());
+                    productFilter = product -> product.getId() == productId;
+                } catch (Exception e) {
+                    String lowerSearchString = productsSearchString.toLowerCase();
+                    productFilter = product -> product.getName().toLowerCase().contains(lowerSearchString);
                 }
-
-            // Fall back to a string search.
-            } catch (Exception e) {
-                sourceProducts = Inventory.lookupProduct(productsSearchString);
             }
-        }
 
-        // Wrap products in a formatter class for TableView display.
-        for (Product product: sourceProducts) {
-            filteredProducts.add(new ProductFormatter(product));
+            // Drop any products deleted or replaced while the search was running.
+            sourceProducts.removeIf(product -> Inventory.lookupProduct(product.getId()) != product);
         }
 
-        productsTable.setItems(filteredProducts);
-        productsTable.refresh();
+        // Only the rows which differ from the current results are changed.
+        productRows.showResults(sourceProducts, productFilter);
 
         // Highlight the first item if there is only one, as per rubric requirements.
         if (productsTable.getItems().size() == 1) {
             productsTable.getSelectionModel().selectFirst();
         }
-    }
 
-    /**
-     * Refresh all of the data available for parts and products.
-     */
-    private void refreshAllData() {
-        refreshInventoryParts();
-        refreshInventoryProducts();
+        Metrics.record(Operation.WINDOW_SHOW_PRODUCTS, start);
     }
 
     /**
      * Handle the exit button click and terminates the program.
      */
     public void handleExitButtonClick() {
-        System.exit(0);
+        // Exit through the JavaFX platform so the application can save its data first.
+        Platform.exit();
     }
 
     /**
@@ -218,7 +406,6 @@ public class MainWindow implements Initializable {
      */
     public void handleProductAdded(Product product) {
         closeProductWindow();
-        refreshAllData();
     }
 
     /**
@@ -228,7 +415,6 @@ public class MainWindow implements Initializable {
      */
     public void handleProductModified(Product product) {
         closeProductWindow();
-        refreshAllData();
     }
 
     /**
@@ -238,7 +424,6 @@ public class MainWindow implements Initializable {
      */
     public void handlePartAdded(Part part) {
         closePartWindow();
-        refreshAllData();
     }
 
     /**
@@ -248,7 +433,6 @@ public class MainWindow implements Initializable {
      */
     public void handlePartModified(Part part) {
         closePartWindow();
-        refreshAllData();
     }
 
     /**
@@ -391,20 +575,47 @@ public class MainWindow implements Initializable {
         // Note: Runtime exception relating to filtering and removal was encountered here.
         Part selectedPart = filteredParts.get(selectedPartIndex).getPart();
 
-        // Confirm the customer wants to delete the parts.
+        // Refuse to delete a part still used by products, listing them.
+        ObservableList<Product> usingProducts = Inventory.lookupProductsUsingPart(selectedPart.getId());
+        if (!usingProducts.isEmpty()) {
+            showPartInUse(usingProducts);
+            return;
+        }
+
+        // Confirm the customer wants to delete the part.
         Alert deleteConfirm = new Alert(Alert.AlertType.CONFIRMATION);
         deleteConfirm.setContentText(String.format(
                 "Are you sure you want to delete the part?\n\n%d - %s", selectedPart.getId(), selectedPart.getName()));
         Optional<ButtonType> result = deleteConfirm.showAndWait();
         if (result.isPresent() && result.get() == ButtonType.OK) {
-            // Delete the selected part and refresh list.
-            boolean deleteResult = Inventory.deletePart(selectedPart);
-            if (deleteResult) {
-                refreshAllData();
+            // Delete the selected part, the table follows the inventory change.
+            long start = Metrics.startTimer();
+            boolean deleted = Inventory.deletePart(selectedPart);
+            Metrics.record(Operation.WINDOW_DELETE_PART, start, deleted);
+
+            // A product may have started using the part while the customer was confirming.
+            if (!deleted) {
+                showPartInUse(Inventory.lookupProductsUsingPart(selectedPart.getId()));
             }
         }
     }
 
+    /**
+     * Display an error that a part can't be deleted while products use it.
+     *
+     * @param usingProducts products using the part
+     */
+    private static void showPartInUse(ObservableList<Product> usingProducts) {
+        StringBuilder message = new StringBuilder("Unable to delete the part from inventory.\n\n"
+                + "The part is still used by these products, please remove it from them before trying again:\n");
+        for (Product product : usingProducts) {
+            message.append(String.format("\n%d - %s", product.getId(), product.getName()));
+        }
+        Alert alert = new Alert(Alert.AlertType.ERROR);
+        alert.setContentText(message.toString());
+        alert.show();
+    }
+
     /**
      * Event handler to open the window for adding a product.
      *
@@ -469,11 +680,10 @@ public class MainWindow implements Initializable {
         Optional<ButtonType> result = deleteConfirm.showAndWait();
         boolean deleteResult = false;
         if (result.isPresent() && result.get() == ButtonType.OK) {
-            // Delete the selected product and refresh list.
+            // Delete the selected product, the table follows the inventory change.
+            long start = Metrics.startTimer();
             deleteResult = Inventory.deleteProduct(selectedProduct);
-            if (deleteResult) {
-                refreshAllData();
-            }
+            Metrics.record(Operation.WINDOW_DELETE_PRODUCT, start, deleteResult);
         } else {
             return;
         }
@@ -488,23 +698,20 @@ public class MainWindow implements Initializable {
                 "Please delete all associated parts before trying again."
             );
             alert.show();
-            return;
         }
-
-        refreshAllData();
     }
 
     /**
      * Handle a change in the parts search field to refresh the filtered table.
      */
     public void handlePartsSearchFieldChanged() {
-        refreshAllData();
+        refreshInventoryParts();
     }
 
     /**
      * Handle a change in the products search field to refresh the filtered table.
      */
     public void handleProductsSearchFieldChanged() {
-        refreshAllData();
+        refreshInventoryProducts();
     }
 }
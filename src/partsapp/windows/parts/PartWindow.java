@@ -4,10 +4,15 @@ import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.control.*;
 import javafx.scene.layout.HBox;
+import partsapp.formatters.CurrencyFormat;
 import partsapp.inventory.Inventory;
+import partsapp.metrics.Metrics;
+import partsapp.metrics.Operation;
 import partsapp.part.InHouse;
 import partsapp.part.Outsourced;
 import partsapp.part.Part;
+import partsapp.product.Product;
+import partsapp.validation.ItemRules;
 import partsapp.windows.main.MainWindow;
 
 import java.net.URL;
@@ -85,6 +90,7 @@ public class PartWindow implements Initializable {
      * Process the form based on the user clicking save.
      */
     public void handleSaveButtonClick() {
+        long start = Metrics.startTimer();
         Part newPart;
         try {
             newPart = getPartFromFormInputs();
@@ -92,6 +98,7 @@ public class PartWindow implements Initializable {
             Alert alert = new Alert(Alert.AlertType.WARNING);
             alert.setContentText(error.getMessage());
             alert.show();
+            Metrics.record(Operation.WINDOW_SAVE_PART, start, false);
             return;
         }
 
@@ -103,13 +110,48 @@ public class PartWindow implements Initializable {
 
         // Update the inventory.
         } else {
-            // Find existing part which matches and replace.
+            // Replace the existing part with the same ID.
             Part existingPart = Inventory.lookupPart(newPart.getId());
-            int partIndex = Inventory.getAllParts().indexOf(existingPart);
-            Inventory.updatePart(partIndex, newPart);
+            if (existingPart == null || !Inventory.updatePart(newPart.getId(), newPart)) {
+                // The part was removed from inventory while the form was open.
+                Alert alert = new Alert(Alert.AlertType.ERROR);
+                alert.setContentText("Unable to update the part, it is no longer in inventory.");
+                alert.show();
+                Metrics.record(Operation.WINDOW_SAVE_PART, start, false);
+                return;
+            }
+
+            // Warn if the new price leaves products using the part selling at a loss.
+            if (newPart.getPrice() != existingPart.getPrice()) {
+                warnOfProductsPricedBelowCost(newPart);
+            }
 
             mainWindow.handlePartModified(newPart);
         }
+
+        Metrics.record(Operation.WINDOW_SAVE_PART, start);
+    }
+
+    /**
+     * Show a warning listing the products using a part which are now priced below the total price of their parts.
+     *
+     * @param part whose price changed
+     */
+    private void warnOfProductsPricedBelowCost(Part part) {
+        StringBuilder message = new StringBuilder();
+        for (Product product : Inventory.lookupProductsUsingPart(part.getId())) {
+            long partsCostCents = Inventory.getProductPartsCostCents(product.getId());
+            if (CurrencyFormat.toCents(product.getPrice()) < partsCostCents) {
+                message.append(String.format("\n%d - %s, parts total ", product.getId(), product.getName()));
+                CurrencyFormat.getInstance().formatTo(partsCostCents, message);
+            }
+        }
+
+        if (message.length() > 0) {
+            Alert alert = new Alert(Alert.AlertType.WARNING);
+            alert.setContentText("These products are now priced below the total price of their parts:\n" + message);
+            alert.show();
+        }
     }
 
     /**
@@ -207,32 +249,25 @@ public class PartWindow implements Initializable {
         ArrayList<String> errors = new ArrayList<>();
 
         if (partNameField.getText().isEmpty()) {
-            errors.add("Part name is required.");
+            errors.add(ItemRules.PART_NAME_REQUIRED);
         }
 
         // Validate min.
         int min = 0;
         try {
             min = Integer.parseInt(partMinField.getText());
-            if (min < 0) {
-                errors.add("Minimum stock value must be a positive whole number.");
-            }
+            ItemRules.checkMin(min, errors);
         } catch (Exception e) {
-            errors.add("Minimum stock value must be a positive whole number.");
+            errors.add(ItemRules.MIN_INVALID);
         }
 
         // Validate max.
         int max = 0;
         try {
             max = Integer.parseInt(partMaxField.getText());
-            if (max < 0) {
-                errors.add("Maximum stock value must be a positive whole number.");
-            }
-            if (max < min) {
-                errors.add("Maximum stock value must be equal to or larger than minimum stock value.");
-            }
+            ItemRules.checkMax(min, max, errors);
         } catch (Exception e) {
-            errors.add("Maximum stock value must be a positive whole number.");
+            errors.add(ItemRules.MAX_INVALID);
         }
 
         // Validate stock value.
@@ -240,20 +275,16 @@ public class PartWindow implements Initializable {
         try {
             stock = Integer.parseInt(partStockField.getText());
         } catch (Exception e) {
-            errors.add("Stock level must be a valid positive whole number.");
-        }
-        if (stock < min || stock > max) {
-            errors.add("Stock level must be within the minimum and maximum stock values.");
+            errors.add(ItemRules.STOCK_INVALID);
         }
+        ItemRules.checkStock(stock, min, max, errors);
 
         // Validate price.
         try {
             double price = Double.parseDouble(partPriceField.getText());
-            if (price < 0) {
-                errors.add("Price must be a positive dollar amount.");
-            }
+            ItemRules.checkPrice(price, errors);
         } catch (Exception e) {
-            errors.add("Price must be a valid dollar amount.");
+            errors.add(ItemRules.PRICE_INVALID);
         }
 
         // Perform validation based on part type.
@@ -261,16 +292,14 @@ public class PartWindow implements Initializable {
             // Validate Machine ID.
             try {
                 int machineId = Integer.parseInt(partMachineIdField.getText());
-                if (machineId < 0) {
-                    errors.add("Machine ID must be a positive whole number.");
-                }
+                ItemRules.checkMachineId(machineId, errors);
             } catch (Exception e) {
-                errors.add("Machine ID must be a valid whole number.");
+                errors.add(ItemRules.MACHINE_ID_INVALID);
             }
         } else {
             // Validate company name.
             if (partCompanyNameField.getText().isEmpty()) {
-                errors.add("Company name is required for outsourced parts.");
+                errors.add(ItemRules.COMPANY_NAME_REQUIRED);
             }
         }
 
@@ -7,12 +7,21 @@ import javafx.fxml.Initializable;
 import javafx.scene.control.*;
 import partsapp.formatters.PartFormatter;
 import partsapp.inventory.Inventory;
+import partsapp.inventory.Query;
+import partsapp.metrics.Metrics;
+import partsapp.metrics.Operation;
+import partsapp.metrics.TableRefreshEvent;
 import partsapp.part.Part;
 import partsapp.product.Product;
+import partsapp.validation.ItemRules;
+import partsapp.windows.SearchExecutor;
+import partsapp.windows.TableSorting;
 import partsapp.windows.main.MainWindow;
 
 import java.net.URL;
+import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 import java.util.ResourceBundle;
@@ -89,6 +98,11 @@ public class ProductWindow implements Initializable {
      */
     private final ObservableList<PartFormatter> filteredAvailableParts = FXCollections.observableArrayList();
 
+    /**
+     * Background search runner for the available parts search field.
+     */
+    private final SearchExecutor<ObservableList<Part>> partsSearch = new SearchExecutor<>();
+
     /**
      * Reference to the calling window that created this window.
      */
@@ -147,6 +161,7 @@ public class ProductWindow implements Initializable {
      * Process the form based on the user clicking save.
      */
     public void handleSaveButtonClick() {
+        long start = Metrics.startTimer();
         Product newProduct;
         try {
             newProduct = getProductFromFormInputs();
@@ -154,6 +169,7 @@ public class ProductWindow implements Initializable {
             Alert alert = new Alert(Alert.AlertType.WARNING);
             alert.setContentText(error.getMessage());
             alert.show();
+            Metrics.record(Operation.WINDOW_SAVE_PRODUCT, start, false);
             return;
         }
 
@@ -165,13 +181,13 @@ public class ProductWindow implements Initializable {
 
             // Update the inventory.
         } else {
-            // Find existing product which matches and replace.
-            Product existingProduct = Inventory.lookupProduct(newProduct.getId());
-            int productIndex = Inventory.getAllProducts().indexOf(existingProduct);
-            Inventory.updateProduct(productIndex, newProduct);
+            // Replace the existing product with the same ID.
+            Inventory.updateProduct(newProduct.getId(), newProduct);
 
             mainWindow.handleProductModified(newProduct);
         }
+
+        Metrics.record(Operation.WINDOW_SAVE_PRODUCT, start);
     }
 
     /**
@@ -189,9 +205,28 @@ public class ProductWindow implements Initializable {
      */
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
+        // Sort both tables by the typed fields of the parts, sorting the rows in place.
+        List<Comparator<PartFormatter>> columnKeys = List.of(
+                PartFormatter.BY_ID, PartFormatter.BY_NAME, PartFormatter.BY_STOCK, PartFormatter.BY_PRICE);
+        TableSorting.install(
+                availablePartsTable, columnKeys, comparator -> sortRows(filteredAvailableParts, comparator));
+        TableSorting.install(usedPartsTable, columnKeys, comparator -> sortRows(usedParts, comparator));
+
         refreshForm();
     }
 
+    /**
+     * Sort the rows of a table in place, leaving them as they are if the table is no longer sorted.
+     *
+     * @param rows to sort
+     * @param comparator deciding the order of the rows, or null
+     */
+    private static void sortRows(ObservableList<PartFormatter> rows, Comparator<PartFormatter> comparator) {
+        if (comparator != null) {
+            FXCollections.sort(rows, comparator);
+        }
+    }
+
     /**
      * Update the form visuals based on the values in the class.
      */
@@ -204,29 +239,59 @@ public class ProductWindow implements Initializable {
      * Filtering is performed if there is a search parameter filled.
      */
     private void refreshAvailableParts() {
-        filteredAvailableParts.clear();
+        String partSearchString = partSearchField.getText();
+        partsSearch.searchNow(
+                () -> Metrics.time(Operation.WINDOW_SEARCH_PARTS, () -> searchParts(partSearchString)),
+                this::showAvailableParts);
+    }
 
+    /**
+     * Find the parts matching a search string, by query, by ID or by name.
+     *
+     * @param partSearchString to search
+     * @return list of matching parts
+     */
+    private static ObservableList<Part> searchParts(String partSearchString) {
         // Use the searched list or full list of parts.
-        ObservableList<Part> sourceParts;
-        String partSearchString = partSearchField.getText();
         if (partSearchString.isEmpty()) {
-            sourceParts = Inventory.getAllParts();
-        } else {
-            // Attempt to convert to an integer, for an ID search.
+            return Inventory.getAllParts();
+        }
+
+        // Run a query over several fields, such as price<5 AND type=Outsourced.
+        if (Query.looksLikeQuery(partSearchString)) {
             try {
-                int partId = Integer.parseInt(partSearchString.trim());
-                sourceParts = FXCollections.observableArrayList();
+                return Inventory.lookupParts(Query.forParts(partSearchString));
+            } catch (ParseException e) {
+                // Not a valid query, so search the name for the text as written.
+            }
+        }
 
-                Part foundPart = Inventory.lookupPart(partId);
-                if (foundPart != null) {
-                    sourceParts.add(foundPart);
-                }
+        // Attempt to convert to an integer, for an ID search.
+        try {
+            int partId = Integer.parseInt(partSearchString.trim());
+            ObservableList<Part> sourceParts = FXCollections.observableArrayList();
 
-                // Fall back to a string search.
-            } catch (Exception e) {
-                sourceParts = Inventory.lookupPart(partSearchString);
+            Part foundPart = Inventory.lookupPart(partId);
+            if (foundPart != null) {
+                sourceParts.add(foundPart);
             }
+            return sourceParts;
+
+            // Fall back to a string search.
+        } catch (Exception e) {
+            return Inventory.lookupPart(partSearchString);
         }
+    }
+
+    /**
+     * Show the results of a parts search in the available parts table.
+     *
+     * @param sourceParts found by the search
+     */
+    private void showAvailableParts(ObservableList<Part> sourceParts) {
+        TableRefreshEvent event = TableRefreshEvent.start();
+        int previousRowCount = filteredAvailableParts.size();
+        filteredAvailableParts.clear();
 
         // Wrap parts in a formatter class for TableView display.
         for (Part part : sourceParts) {
@@ -234,14 +299,18 @@ public class ProductWindow implements Initializable {
         }
 
         availablePartsTable.setItems(filteredAvailableParts);
+        availablePartsTable.sort();
         availablePartsTable.refresh();
 
         // If only one available part is returned, select it as per rubric requirements
         if (availablePartsTable.getItems().size() == 1) {
             availablePartsTable.getSelectionModel().selectFirst();
         }
-    }
 
+        // Every row is replaced with a newly created formatter.
+        event.finish("availableParts", "search results", filteredAvailableParts.size(),
+                previousRowCount + filteredAvailableParts.size(), filteredAvailableParts.size());
+    }
 
     /**
      * Convert form inputs into product creation.
@@ -283,9 +352,8 @@ public class ProductWindow implements Initializable {
     /**
      * Validate that the data making up the product is valid.
      * <p>
-     * TODO: In a future version, add functionality to sum up the parts that make up the product and ensure that
-     * the product pricing is greater than or equal to the parts.  This will be an added protection to ensure the
-     * sale price does not cause the store a loss based on manually input data.
+     * The product price must be greater than or equal to the total price of the parts used, as an added protection
+     * to ensure the sale price does not cause the store a loss based on manually input data.
      * </p>
      *
      * @return list of error message strings
@@ -294,32 +362,25 @@ public class ProductWindow implements Initializable {
         ArrayList<String> errors = new ArrayList<>();
 
         if (productNameField.getText().isEmpty()) {
-            errors.add("Product name is required.");
+            errors.add(ItemRules.PRODUCT_NAME_REQUIRED);
         }
 
         // Validate min.
         int min = 0;
         try {
             min = Integer.parseInt(productMinField.getText());
-            if (min < 0) {
-                errors.add("Minimum stock value must be a positive whole number.");
-            }
+            ItemRules.checkMin(min, errors);
         } catch (Exception e) {
-            errors.add("Minimum stock value must be a positive whole number.");
+            errors.add(ItemRules.MIN_INVALID);
         }
 
         // Validate max.
         int max = 0;
         try {
             max = Integer.parseInt(productMaxField.getText());
-            if (max < 0) {
-                errors.add("Maximum stock value must be a positive whole number.");
-            }
-            if (max < min) {
-                errors.add("Maximum stock value must be equal to or larger than minimum stock value.");
-            }
+            ItemRules.checkMax(min, max, errors);
         } catch (Exception e) {
-            errors.add("Maximum stock value must be a positive whole number.");
+            errors.add(ItemRules.MAX_INVALID);
         }
 
         // Validate stock value.
@@ -327,21 +388,27 @@ public class ProductWindow implements Initializable {
         try {
             stock = Integer.parseInt(productStockField.getText());
         } catch (Exception e) {
-            errors.add("Stock level must be a valid positive whole number.");
-        }
-        if (stock < min || stock > max) {
-            errors.add("Stock level must be within the minimum and maximum stock values.");
+            errors.add(ItemRules.STOCK_INVALID);
         }
+        ItemRules.checkStock(stock, min, max, errors);
 
         // Validate price.
+        double price;
         try {
-            double price = Double.parseDouble(productPriceField.getText());
-            if (price < 0) {
-                errors.add("Price must be a positive dollar amount.");
-            }
+            price = Double.parseDouble(productPriceField.getText());
         } catch (Exception e) {
-            errors.add("Price must be a valid dollar amount.");
+            errors.add(ItemRules.PRICE_INVALID);
+            return errors;
         }
+        ItemRules.checkPrice(price, errors);
+
+        // Validate the price covers the parts used.
+        List<Part> parts = new ArrayList<>();
+        for (PartFormatter usedPart : usedParts) {
+            parts.add(usedPart.getPart());
+        }
+        long partsCostCents = Inventory.getPartsCostCents(parts);
+        ItemRules.checkPriceCoversParts(price, partsCostCents, errors);
 
         return errors;
     }
@@ -364,6 +431,7 @@ public class ProductWindow implements Initializable {
             usedParts.add(new PartFormatter(usedPart));
         }
         usedPartsTable.setItems(usedParts);
+        usedPartsTable.sort();
         usedPartsTable.refresh();
     }
 
@@ -385,6 +453,7 @@ public class ProductWindow implements Initializable {
         // Copy the part over.
         usedParts.add(filteredAvailableParts.get(partIndex));
         usedPartsTable.setItems(usedParts);
+        usedPartsTable.sort();
         usedPartsTable.refresh();
     }
 
@@ -423,9 +492,15 @@ public class ProductWindow implements Initializable {
 
     /**
      * Handle a change in the parts search field to refresh the filtered table.
+     * <p>
+     * The search runs in the background once typing pauses, and only the latest search updates the table.
+     * </p>
      */
     public void handlePartsSearchFieldChanged() {
-        refreshForm();
+        String partSearchString = partSearchField.getText();
+        partsSearch.submit(
+                () -> Metrics.time(Operation.WINDOW_SEARCH_PARTS, () -> searchParts(partSearchString)),
+                this::showAvailableParts);
     }
 }
 
@@ -0,0 +1,118 @@
+package partsapp.bulk;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import partsapp.inventory.Inventory;
+import partsapp.part.InHouse;
+import partsapp.part.Outsourced;
+import partsapp.part.Part;
+import partsapp.product.Product;
+import partsapp.validation.ItemRules;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of CsvImporter, reading small blocks so that files span several of them.
+ */
+class CsvImporterTest {
+    /**
+     * Directory holding the CSV files.
+     */
+    @TempDir
+    Path directory;
+
+    /**
+     * Importer reading 64 bytes at a time with two workers.
+     */
+    private final CsvImporter importer = new CsvImporter(2, 64);
+
+    /**
+     * Valid rows are added in file order with new IDs, and invalid rows are reported by line.
+     */
+    @Test
+    void importsValidPartsAndReportsInvalidRows() throws IOException {
+        Path path = write("parts.csv",
+                "Type,Name,Price,Stock,Min,Max,MachineId,CompanyName",
+                "InHouse,Importer Sprocket,1.50,5,1,10,7,",
+                "Outsourced,\"Importer Gear, large\",2.25,3,1,5,,Acme",
+                "InHouse,,1.00,5,1,10,7,",
+                "InHouse,Importer Washer,1.00,50,1,10,7,",
+                "Kit,Importer Kit,1.00,5,1,10,7,",
+                "outsourced,Importer Cog,0.10,1,1,1,,\"Cogs \"\"R\"\" Us\"");
+        int firstId = Inventory.getCurrentPartId() + 1;
+
+        CsvImporter.Result result = importer.importParts(path);
+
+        assertEquals(3, result.getImportedCount());
+        assertEquals(3, result.getRejectedCount());
+        assertEquals(List.of("Line 4: " + ItemRules.PART_NAME_REQUIRED, "Line 5: " + ItemRules.STOCK_OUT_OF_RANGE,
+                "Line 6: Part type must be InHouse or Outsourced."), result.getErrors());
+
+        InHouse sprocket = assertInstanceOf(InHouse.class, Inventory.lookupPart(firstId));
+        assertEquals("Importer Sprocket", sprocket.getName());
+        assertEquals(7, sprocket.getMachineId());
+        Outsourced gear = assertInstanceOf(Outsourced.class, Inventory.lookupPart(firstId + 1));
+        assertEquals("Importer Gear, large", gear.getName());
+        assertEquals("Acme", gear.getCompanyName());
+        Outsourced cog = assertInstanceOf(Outsourced.class, Inventory.lookupPart(firstId + 2));
+        assertEquals("Cogs \"R\" Us", cog.getCompanyName());
+    }
+
+    /**
+     * Products take their parts as ID and quantity pairs, which must refer to parts in the inventory.
+     */
+    @Test
+    void importsProductsWithTheirParts() throws IOException {
+        Part part = new InHouse(Inventory.getNextPartId(), "Importer Axle", 2.00, 5, 1, 10);
+        Inventory.addPart(part);
+        Path path = write("products.csv",
+                "name,price,stock,min,max,parts",
+                "Importer Cart,20.00,2,1,4," + part.getId() + ":3",
+                "Importer Trolley,1.00,2,1,4," + part.getId() + ":3",
+                "Importer Sled,5.00,2,1,4,-5:1",
+                "Importer Box,5.00,2,1,4,");
+        int firstId = Inventory.getCurrentProductId() + 1;
+
+        CsvImporter.Result result = importer.importProducts(path);
+
+        assertEquals(2, result.getImportedCount());
+        assertEquals(2, result.getRejectedCount());
+        assertTrue(result.getErrors().get(1).startsWith("Line 4: Part -5"), result.getErrors().get(1));
+        Product cart = Inventory.lookupProduct(firstId);
+        assertEquals("Importer Cart", cart.getName());
+        assertEquals(3, cart.getAssociatedPartQuantity(part.getId()));
+        assertEquals(600, Inventory.getProductPartsCostCents(cart.getId()));
+        assertEquals("Importer Box", Inventory.lookupProduct(firstId + 1).getName());
+    }
+
+    /**
+     * A file without a required column is refused before anything is imported.
+     */
+    @Test
+    void refusesFileMissingColumn() throws IOException {
+        Path path = write("parts.csv", "Type,Name,Price,Stock,Min", "InHouse,Importer Pin,1,1,1");
+        int partCount = Inventory.getPartCount();
+
+        assertThrows(IOException.class, () -> importer.importParts(path));
+        assertEquals(partCount, Inventory.getPartCount());
+    }
+
+    /**
+     * Write a CSV file.
+     *
+     * @param name of the file
+     * @param lines of the file
+     * @return path of the file
+     */
+    private Path write(String name, String... lines) throws IOException {
+        return Files.write(directory.resolve(name), List.of(lines));
+    }
+}
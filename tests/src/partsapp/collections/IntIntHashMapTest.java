@@ -0,0 +1,86 @@
+package partsapp.collections;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of IntIntHashMap against java.util.HashMap.
+ */
+class IntIntHashMapTest {
+    /**
+     * Keys which an open addressing map could mistake for an empty bucket.
+     */
+    @Test
+    void storesEveryIntAsKey() {
+        IntIntHashMap map = new IntIntHashMap();
+        int[] keys = {0, -1, 1, Integer.MIN_VALUE, Integer.MAX_VALUE};
+        for (int key : keys) {
+            map.put(key, key ^ 7);
+        }
+
+        assertEquals(keys.length, map.size());
+        for (int key : keys) {
+            assertTrue(map.containsKey(key));
+            assertEquals(key ^ 7, map.get(key, 42));
+        }
+        assertTrue(map.remove(0));
+        assertFalse(map.containsKey(0));
+        assertEquals(42, map.get(0, 42));
+    }
+
+    /**
+     * Adding to a missing key treats it as zero.
+     */
+    @Test
+    void addToStartsFromZero() {
+        IntIntHashMap map = new IntIntHashMap();
+        assertEquals(3, map.addTo(5, 3));
+        assertEquals(1, map.addTo(5, -2));
+        assertEquals(1, map.get(5, 0));
+    }
+
+    /**
+     * Random puts, additions and removals over a small key range, so buckets collide, grow and shift back often.
+     */
+    @Test
+    void matchesHashMapUnderRandomChanges() {
+        Random random = new Random(11);
+        IntIntHashMap map = new IntIntHashMap(2);
+        Map<Integer, Integer> model = new HashMap<>();
+
+        for (int i = 0; i < 200_000; i++) {
+            int key = random.nextInt(2_000) - 1_000;
+            switch (random.nextInt(4)) {
+                case 0:
+                    map.put(key, i);
+                    model.put(key, i);
+                    break;
+                case 1:
+                    assertEquals(model.merge(key, 3, Integer::sum), map.addTo(key, 3));
+                    break;
+                case 2:
+                    assertEquals(model.remove(key) != null, map.remove(key));
+                    break;
+                default:
+                    assertEquals(model.getOrDefault(key, -1), map.get(key, -1));
+                    assertEquals(model.containsKey(key), map.containsKey(key));
+            }
+            assertEquals(model.size(), map.size());
+        }
+
+        Map<Integer, Integer> visited = new HashMap<>();
+        map.forEach((key, value) -> assertEquals(null, visited.put(key, value)));
+        assertEquals(model, visited);
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertEquals(-1, map.get(model.keySet().iterator().next(), -1));
+    }
+}
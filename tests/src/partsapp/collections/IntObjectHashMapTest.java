@@ -0,0 +1,64 @@
+package partsapp.collections;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of IntObjectHashMap against java.util.HashMap.
+ */
+class IntObjectHashMapTest {
+    /**
+     * Null marks an empty bucket, so it cannot be stored.
+     */
+    @Test
+    void rejectsNullValues() {
+        IntObjectHashMap<String> map = new IntObjectHashMap<>();
+        assertThrows(IllegalArgumentException.class, () -> map.put(1, null));
+        assertTrue(map.isEmpty());
+    }
+
+    /**
+     * Random puts and removals over a small key range, so buckets collide, grow and shift back often.
+     */
+    @Test
+    void matchesHashMapUnderRandomChanges() {
+        Random random = new Random(12);
+        IntObjectHashMap<String> map = new IntObjectHashMap<>(2);
+        Map<Integer, String> model = new HashMap<>();
+
+        for (int i = 0; i < 200_000; i++) {
+            int key = random.nextInt(2_000) - 1_000;
+            switch (random.nextInt(3)) {
+                case 0:
+                    String value = "v" + i;
+                    assertEquals(model.put(key, value), map.put(key, value));
+                    break;
+                case 1:
+                    assertEquals(model.remove(key), map.remove(key));
+                    break;
+                default:
+                    assertEquals(model.get(key), map.get(key));
+                    assertEquals(model.containsKey(key), map.containsKey(key));
+            }
+            assertEquals(model.size(), map.size());
+        }
+
+        for (Map.Entry<Integer, String> entry : model.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+        Map<Integer, String> visited = new HashMap<>();
+        map.forEach((key, value) -> assertNull(visited.put(key, value)));
+        assertEquals(model, visited);
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(model.keySet().iterator().next()));
+    }
+}
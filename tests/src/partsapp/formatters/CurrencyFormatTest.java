@@ -0,0 +1,43 @@
+package partsapp.formatters;
+
+import org.junit.jupiter.api.Test;
+
+import java.text.NumberFormat;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests of CurrencyFormat against NumberFormat.
+ */
+class CurrencyFormatTest {
+    /**
+     * Amounts on or near half a cent round half-even on their exact binary value.
+     */
+    @Test
+    void roundsHalfEvenOnExactValue() {
+        assertEquals(12, CurrencyFormat.toCents(0.125));
+        assertEquals(267, CurrencyFormat.toCents(2.675));
+        assertEquals(1, CurrencyFormat.toCents(0.015));
+        assertEquals(100, CurrencyFormat.toCents(1.005));
+        assertEquals(-12, CurrencyFormat.toCents(-0.125));
+        assertEquals(1999, CurrencyFormat.toCents(19.99));
+    }
+
+    /**
+     * Formatting a price through toCents gives the same text as NumberFormat.
+     */
+    @Test
+    void matchesNumberFormat() {
+        NumberFormat expected = NumberFormat.getCurrencyInstance(Locale.US);
+        CurrencyFormat format = new CurrencyFormat(Locale.US);
+        Random random = new Random(19);
+        for (int i = 0; i < 100_000; i++) {
+            // Mostly whole cents and amounts a little either side of half a cent.
+            long cents = random.nextInt(10_000_000) - 1_000;
+            double amount = i % 3 == 0 ? cents / 100.0 : (cents * 10 + 5 + random.nextInt(3) - 1) / 1000.0;
+            assertEquals(expected.format(amount), format.format(CurrencyFormat.toCents(amount)), "amount " + amount);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package partsapp.formatters;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of FormattedRows following changes to its source list.
+ */
+class FormattedRowsTest {
+    /**
+     * Item of the source list.
+     */
+    private static final class Item {
+        /**
+         * Value the rows are sorted and filtered by.
+         */
+        final int value;
+
+        /**
+         * Constructor for an item.
+         *
+         * @param value of the item
+         */
+        Item(int value) {
+            this.value = value;
+        }
+    }
+
+    /**
+     * Formatter wrapping an item.
+     */
+    private static final class Row {
+        /**
+         * Item shown in the row.
+         */
+        Item item;
+
+        /**
+         * Constructor for a row.
+         *
+         * @param item to show
+         */
+        Row(Item item) {
+            this.item = item;
+        }
+    }
+
+    /**
+     * Unordered rows keep showing exactly the items which pass the filter, as the source changes.
+     */
+    @Test
+    void followsSourceUnordered() {
+        checkAgainstSource(null);
+    }
+
+    /**
+     * Ordered rows keep showing the items which pass the filter in order, including items which sort equally.
+     */
+    @Test
+    void followsSourceOrdered() {
+        checkAgainstSource(Comparator.comparingInt(row -> row.item.value));
+    }
+
+    /**
+     * Change the source at random, checking the rows after every change.
+     *
+     * @param comparator to keep the rows in, or null for unordered rows
+     */
+    private static void checkAgainstSource(Comparator<Row> comparator) {
+        ObservableList<Item> source = FXCollections.observableArrayList();
+        FormattedRows<Item, Row> rows = new FormattedRows<>("test", source, Row::new, (row, item) -> row.item = item);
+        Predicate<Item> filter = item -> item.value % 3 != 0;
+        rows.setComparator(comparator);
+        Random random = new Random(3);
+
+        for (int i = 0; i < 20; i++) {
+            source.add(new Item(random.nextInt(20)));
+        }
+        rows.showResults(source.filtered(filter), filter);
+        for (int step = 0; step < 5_000; step++) {
+            int operation = random.nextInt(4);
+            if (operation == 0 || source.isEmpty()) {
+                source.add(new Item(random.nextInt(20)));
+            } else if (operation == 1) {
+                // Remove as the inventory does, moving the last item into the gap.
+                int index = random.nextInt(source.size());
+                Item last = source.remove(source.size() - 1);
+                if (index < source.size()) {
+                    source.set(index, last);
+                }
+            } else {
+                source.set(random.nextInt(source.size()), new Item(random.nextInt(20)));
+            }
+            assertRowsMatch(source, filter, comparator, rows.getRows());
+        }
+    }
+
+    /**
+     * Check that the rows show the items of the source which pass the filter, in order if there is one.
+     *
+     * @param source list of items
+     * @param filter of items shown
+     * @param comparator of the rows, or null if unordered
+     * @param rows shown
+     */
+    private static void assertRowsMatch(List<Item> source, Predicate<Item> filter, Comparator<Row> comparator,
+                                        List<Row> rows) {
+        List<Integer> expected = new ArrayList<>();
+        for (Item item : source) {
+            if (filter.test(item)) {
+                expected.add(System.identityHashCode(item));
+            }
+        }
+        List<Integer> actual = new ArrayList<>();
+        for (Row row : rows) {
+            actual.add(System.identityHashCode(row.item));
+        }
+        expected.sort(null);
+        actual.sort(null);
+        assertEquals(expected, actual);
+
+        if (comparator != null) {
+            for (int i = 1; i < rows.size(); i++) {
+                assertTrue(comparator.compare(rows.get(i - 1), rows.get(i)) <= 0, "rows out of order");
+            }
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package partsapp.inventory;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import partsapp.part.InHouse;
+import partsapp.part.Part;
+import partsapp.product.Product;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of change subscriptions to the inventory.
+ */
+class ChangeSubscriptionTest {
+    /**
+     * Longest time to wait for deliveries, in seconds.
+     */
+    private static final long TIMEOUT_SECONDS = 10;
+
+    /**
+     * Executor delivering the batches.
+     */
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    /**
+     * Subscriptions to close after each test.
+     */
+    private final List<ChangeSubscription> subscriptions = new ArrayList<>();
+
+    /**
+     * Listener recording the longest queue of a subscription, or null if none.
+     */
+    private InventoryListener pendingTracker;
+
+    /**
+     * Close the subscriptions and stop the executor.
+     */
+    @AfterEach
+    void tearDown() {
+        if (pendingTracker != null) {
+            Inventory.removeListener(pendingTracker);
+        }
+        subscriptions.forEach(ChangeSubscription::close);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Changes arrive in order, numbered one after another from the start sequence, batched while delivery is held
+     * up.
+     */
+    @Test
+    void deliversTypedChangesInOrderInBatches() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        List<ChangeEvent> received = Collections.synchronizedList(new ArrayList<>());
+        List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        ChangeSubscription subscription = subscribe(changes -> {
+            awaitQuietly(release);
+            batchSizes.add(changes.size());
+            received.addAll(changes);
+        }, 1_000, 50, ChangeSubscription.Overflow.BLOCK);
+
+        Part part = newPart("Feed Bolt");
+        Inventory.addPart(part);
+        Part updatedPart = new InHouse(part.getId(), "Feed Nut", 2, 5, 1, 10);
+        Inventory.updatePart(part.getId(), updatedPart);
+        Product product = new Product(Inventory.getNextProductId(), "Feed Product", 10, 5, 1, 10);
+        Inventory.addProduct(product);
+        product.setAssociatedPartQuantity(part.getId(), 3);
+        product.setAssociatedPartQuantity(part.getId(), 0);
+        Inventory.deleteProduct(product.getId());
+        Inventory.deletePart(part.getId());
+        release.countDown();
+
+        awaitCount(received, 7);
+        assertEquals(List.of(ChangeEvent.Type.PART_ADDED, ChangeEvent.Type.PART_UPDATED,
+                ChangeEvent.Type.PRODUCT_ADDED, ChangeEvent.Type.ASSOCIATION_CHANGED,
+                ChangeEvent.Type.ASSOCIATION_CHANGED, ChangeEvent.Type.PRODUCT_REMOVED,
+                ChangeEvent.Type.PART_REMOVED), types(received));
+        for (int i = 0; i < received.size(); i++) {
+            assertEquals(subscription.getStartSequence() + 1 + i, received.get(i).getSequence());
+        }
+        assertSame(part, received.get(1).getOldPart());
+        assertSame(updatedPart, received.get(1).getNewPart());
+        assertEquals(0, received.get(3).getOldQuantity());
+        assertEquals(3, received.get(3).getNewQuantity());
+        assertEquals(part.getId(), received.get(3).getAssociatedPartId());
+        assertTrue(batchSizes.size() < received.size(), "changes held up should arrive together");
+    }
+
+    /**
+     * A RESYNC subscription which falls behind gets one RESYNC event in place of the changes it missed.
+     */
+    @Test
+    void replacesOverflowWithResync() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        List<ChangeEvent> received = Collections.synchronizedList(new ArrayList<>());
+        subscribe(changes -> {
+            awaitQuietly(release);
+            received.addAll(changes);
+        }, 5, 100, ChangeSubscription.Overflow.RESYNC);
+
+        for (int i = 0; i < 50; i++) {
+            Inventory.addPart(newPart("Resync Part"));
+        }
+        long lastSequence = Inventory.getChangeSequence();
+        release.countDown();
+
+        awaitLastSequence(received, lastSequence);
+        assertTrue(types(received).contains(ChangeEvent.Type.RESYNC));
+        assertTrue(received.size() <= 2 * 5, "at most the batch held up and a full queue");
+        for (int i = 1; i < received.size(); i++) {
+            assertTrue(received.get(i).getSequence() > received.get(i - 1).getSequence());
+        }
+    }
+
+    /**
+     * A BLOCK subscription holds up changes rather than losing them, letting its queue grow past its capacity by at
+     * most one change for each other writer.
+     */
+    @Test
+    void blocksChangesUntilSubscriberCatchesUp() throws InterruptedException {
+        int capacity = 8;
+        int writerCount = 4;
+        List<ChangeEvent> received = Collections.synchronizedList(new ArrayList<>());
+        ChangeSubscription subscription = subscribe(changes -> {
+            received.addAll(changes);
+            sleepQuietly();
+        }, capacity, 4, ChangeSubscription.Overflow.BLOCK);
+        AtomicInteger mostPending = trackMostPending(subscription);
+
+        ExecutorService writers = Executors.newFixedThreadPool(writerCount);
+        for (int writer = 0; writer < writerCount; writer++) {
+            writers.execute(() -> {
+                for (int i = 0; i < 50; i++) {
+                    Inventory.addPart(newPart("Blocked Part"));
+                }
+            });
+        }
+        writers.shutdown();
+        assertTrue(writers.awaitTermination(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        awaitCount(received, 50 * writerCount);
+        assertTrue(mostPending.get() <= capacity + writerCount - 1, "queue grew to " + mostPending.get());
+        for (int i = 1; i < received.size(); i++) {
+            assertTrue(received.get(i).getSequence() > received.get(i - 1).getSequence());
+        }
+    }
+
+    /**
+     * A batch of changes waits for room for all its events, and a batch larger than the capacity waits for the queue
+     * to empty.
+     */
+    @Test
+    void blocksBatchesUntilTheyFit() throws InterruptedException {
+        int capacity = 8;
+        List<ChangeEvent> received = Collections.synchronizedList(new ArrayList<>());
+        ChangeSubscription subscription = subscribe(changes -> {
+            received.addAll(changes);
+            sleepQuietly();
+        }, capacity, 2, ChangeSubscription.Overflow.BLOCK);
+        AtomicInteger mostPending = trackMostPending(subscription);
+
+        List<Part> large = new ArrayList<>();
+        for (int i = 0; i < 3 * capacity; i++) {
+            large.add(newPart("Batched Part"));
+        }
+        for (int i = 0; i < 20; i++) {
+            Inventory.addParts(List.of(newPart("Batched Part"), newPart("Batched Part"), newPart("Batched Part")));
+        }
+        assertTrue(mostPending.get() <= capacity, "queue grew to " + mostPending.get());
+
+        Inventory.addParts(large);
+        awaitCount(received, 60 + large.size());
+        assertEquals(large.size(), mostPending.get());
+    }
+
+    /**
+     * Record the longest the queue of a subscription gets, checked under the inventory lock after each change is
+     * queued.
+     *
+     * @param subscription to watch
+     * @return most changes queued at once
+     */
+    private AtomicInteger trackMostPending(ChangeSubscription subscription) {
+        AtomicInteger mostPending = new AtomicInteger();
+        pendingTracker = new InventoryListener() {
+            @Override
+            public void partAdded(Part part) {
+                mostPending.accumulateAndGet(subscription.getPendingCount(), Math::max);
+            }
+
+            @Override
+            public void partsAdded(List<Part> parts) {
+                mostPending.accumulateAndGet(subscription.getPendingCount(), Math::max);
+            }
+        };
+        Inventory.addListener(pendingTracker);
+        return mostPending;
+    }
+
+    /**
+     * Subscribe to the inventory, closing the subscription after the test.
+     *
+     * @param subscriber to hand the changes to
+     * @param capacity of the queue
+     * @param maxBatchSize most changes in a batch
+     * @param overflow policy
+     * @return subscription
+     */
+    private ChangeSubscription subscribe(ChangeSubscriber subscriber, int capacity, int maxBatchSize,
+                                         ChangeSubscription.Overflow overflow) {
+        ChangeSubscription subscription = Inventory.subscribe(subscriber, executor, capacity, maxBatchSize, overflow);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    /**
+     * Create a part with a new ID.
+     *
+     * @param name of the part
+     * @return part
+     */
+    private static Part newPart(String name) {
+        return new InHouse(Inventory.getNextPartId(), name, 1, 5, 1, 10);
+    }
+
+    /**
+     * List the types of some changes.
+     *
+     * @param changes to read
+     * @return type of each change, in order
+     */
+    private static List<ChangeEvent.Type> types(List<ChangeEvent> changes) {
+        List<ChangeEvent.Type> types = new ArrayList<>();
+        synchronized (changes) {
+            for (ChangeEvent change : changes) {
+                types.add(change.getType());
+            }
+        }
+        return types;
+    }
+
+    /**
+     * Wait until a number of changes have been received.
+     *
+     * @param received changes
+     * @param count to wait for
+     */
+    private static void awaitCount(List<ChangeEvent> received, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (received.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        Thread.sleep(20);
+        assertEquals(count, received.size());
+    }
+
+    /**
+     * Wait until the change with a sequence number has been received.
+     *
+     * @param received changes
+     * @param sequence to wait for
+     */
+    private static void awaitLastSequence(List<ChangeEvent> received, long sequence) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while ((received.isEmpty() || received.get(received.size() - 1).getSequence() < sequence)
+                && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(sequence, received.get(received.size() - 1).getSequence());
+    }
+
+    /**
+     * Wait for a latch, giving up if interrupted.
+     *
+     * @param latch to wait for
+     */
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Pause briefly, to make the subscriber slower than the writers.
+     */
+    private static void sleepQuietly() {
+        try {
+            Thread.sleep(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
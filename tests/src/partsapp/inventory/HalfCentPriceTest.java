@@ -0,0 +1,64 @@
+package partsapp.inventory;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import partsapp.bulk.InventoryExporter;
+import partsapp.formatters.PartFormatter;
+import partsapp.part.InHouse;
+import partsapp.part.Part;
+import partsapp.product.Product;
+import partsapp.validation.ItemRules;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that a price between two cents is rounded the same way wherever it is turned into cents.
+ */
+class HalfCentPriceTest {
+    /**
+     * Directory holding the export.
+     */
+    @TempDir
+    Path directory;
+
+    /**
+     * A price of 2.675, held as slightly less than that, is 267 cents in the table, queries, the parts cost of a
+     * product and the price rules, and is exported exactly.
+     */
+    @Test
+    void roundsHalfCentPriceConsistently() throws IOException, ParseException {
+        Part part = new InHouse(Inventory.getNextPartId(), "Half Cent Shim", 2.675, 5, 1, 10);
+        Inventory.addPart(part);
+        Product product = new Product(Inventory.getNextProductId(), "Half Cent Kit", 2.67, 2, 1, 4);
+        Inventory.addProduct(product);
+        product.addAssociatedPart(part);
+
+        assertEquals("$2.67", new PartFormatter(part).getPrice());
+        String shim = " AND name~\"half cent shim\"";
+        assertEquals(List.of(part), Inventory.lookupParts(Query.forParts("price=2.67" + shim)));
+        assertTrue(Inventory.lookupParts(Query.forParts("price=2.68" + shim)).isEmpty());
+        assertEquals(List.of(part), Inventory.lookupParts(Query.forParts("price>=2.60 AND price<=2.67" + shim)));
+        long partsCostCents = Inventory.getProductPartsCostCents(product.getId());
+        assertEquals(267, partsCostCents);
+
+        List<String> errors = new ArrayList<>();
+        ItemRules.checkPriceCoversParts(product.getPrice(), partsCostCents, errors);
+        assertEquals(List.of(), errors);
+
+        Path path = directory.resolve("parts.csv");
+        new InventoryExporter().exportPartsCsv(path);
+        String line = Files.readAllLines(path).stream()
+                .filter(row -> row.startsWith("InHouse," + part.getId() + ","))
+                .findFirst()
+                .orElseThrow();
+        assertTrue(line.contains(",2.675,"), line);
+    }
+}
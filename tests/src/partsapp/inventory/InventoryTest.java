@@ -0,0 +1,95 @@
+package partsapp.inventory;
+
+import org.junit.jupiter.api.Test;
+import partsapp.part.InHouse;
+import partsapp.part.Part;
+import partsapp.product.Product;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of removing parts and products from the inventory.
+ */
+class InventoryTest {
+    /**
+     * A part still used by a product stays in the inventory, and the product keeps it and its cost.
+     */
+    @Test
+    void refusesToDeleteUsedPart() {
+        Part part = new InHouse(Inventory.getNextPartId(), "Used Bracket", 2.50, 5, 1, 10);
+        Inventory.addPart(part);
+        Product product = new Product(Inventory.getNextProductId(), "Used Shelf", 20, 2, 1, 4);
+        Inventory.addProduct(product);
+        product.setAssociatedPartQuantity(part.getId(), 2);
+
+        assertFalse(Inventory.deletePart(part));
+        assertFalse(Inventory.deletePart(part.getId()));
+        assertSame(part, Inventory.lookupPart(part.getId()));
+        assertTrue(Inventory.isPartUsed(part.getId()));
+        assertEquals(2, product.getAllAssociatedParts().size());
+        assertEquals(500, Inventory.getProductPartsCostCents(product.getId()));
+        assertFalse(Inventory.deleteProduct(product));
+
+        // Once the product no longer uses the part, both can go.
+        product.deleteAssociatedPart(part);
+        product.deleteAssociatedPart(part);
+        assertArrayEquals(new int[0], product.getAssociatedPartIds());
+        assertTrue(Inventory.deletePart(part));
+        assertNull(Inventory.lookupPart(part.getId()));
+        assertTrue(Inventory.deleteProduct(product));
+    }
+
+    /**
+     * Parts added to a product from several threads at once are all counted, by the product and by the indexes.
+     */
+    @Test
+    void countsConcurrentlyAddedParts() throws InterruptedException {
+        Part part = new InHouse(Inventory.getNextPartId(), "Shared Rivet", 0.10, 5, 1, 10);
+        Inventory.addPart(part);
+        Product product = new Product(Inventory.getNextProductId(), "Riveted Frame", 1000, 2, 1, 4);
+        Inventory.addProduct(product);
+        List<int[]> changes = new ArrayList<>();
+        InventoryListener recorder = new InventoryListener() {
+            @Override
+            public void associatedPartQuantityChanged(Product changed, int partId, int oldQuantity, int newQuantity) {
+                if (changed == product) {
+                    changes.add(new int[] {oldQuantity, newQuantity});
+                }
+            }
+        };
+        Inventory.addListener(recorder);
+
+        try {
+            ExecutorService threads = Executors.newFixedThreadPool(4);
+            for (int thread = 0; thread < 4; thread++) {
+                threads.execute(() -> {
+                    for (int i = 0; i < 250; i++) {
+                        product.addAssociatedPart(part);
+                    }
+                });
+            }
+            threads.shutdown();
+            assertTrue(threads.awaitTermination(10, TimeUnit.SECONDS));
+        } finally {
+            Inventory.removeListener(recorder);
+        }
+
+        assertEquals(1000, product.getAssociatedPartQuantity(part.getId()));
+        assertEquals(10_000, Inventory.getProductPartsCostCents(product.getId()));
+        assertEquals(1000, changes.size());
+        for (int i = 0; i < changes.size(); i++) {
+            assertArrayEquals(new int[] {i, i + 1}, changes.get(i));
+        }
+    }
+}
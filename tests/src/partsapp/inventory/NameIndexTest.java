@@ -0,0 +1,102 @@
+package partsapp.inventory;
+
+import org.junit.jupiter.api.Test;
+import partsapp.collections.IntArrayList;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of NameIndex against a scan of every name.
+ */
+class NameIndexTest {
+    /**
+     * Syllables the random names are made of, so that names share trigrams.
+     */
+    private static final String[] SYLLABLES = {"Bo", "lt", "Nut", "wa", "sh", "Er", "gear", "SPR", "ing", "x"};
+
+    /**
+     * Searches ignore case, and renaming an ID replaces its old name.
+     */
+    @Test
+    void searchesIgnoringCaseAndFollowsRenames() {
+        NameIndex index = new NameIndex();
+        index.add(2, "Hex Bolt");
+        index.add(1, "bolt cutter");
+        index.add(3, "Washer");
+
+        assertArrayEquals(new int[] {1, 2}, index.search("BOLT").toArray());
+        assertArrayEquals(new int[] {1, 2, 3}, index.search("").toArray());
+        assertArrayEquals(new int[] {3}, index.search("wa").toArray());
+
+        index.add(2, "Hex Nut");
+        assertArrayEquals(new int[] {1}, index.search("bolt").toArray());
+        index.remove(1);
+        assertEquals(0, index.search("bolt").size());
+        assertEquals(0, index.search("missing").size());
+    }
+
+    /**
+     * Random adds, renames and removals, checking searches of every length against a scan.
+     */
+    @Test
+    void matchesScanUnderRandomChanges() {
+        Random random = new Random(41);
+        NameIndex index = new NameIndex();
+        Map<Integer, String> names = new TreeMap<>();
+
+        for (int i = 0; i < 20_000; i++) {
+            int id = random.nextInt(2_000);
+            if (random.nextInt(4) == 0) {
+                index.remove(id);
+                names.remove(id);
+            } else {
+                String name = randomText(random, 1 + random.nextInt(4));
+                index.add(id, name);
+                names.put(id, name);
+            }
+
+            if (i % 500 == 0) {
+                String query = randomText(random, 1).substring(0, 1 + random.nextInt(2));
+                checkSearch(index, names, query);
+                checkSearch(index, names, randomText(random, 2));
+            }
+        }
+    }
+
+    /**
+     * Compare a search with a scan of every name.
+     *
+     * @param index to search
+     * @param names every indexed name, by ID in ascending order
+     * @param query to search
+     */
+    private static void checkSearch(NameIndex index, Map<Integer, String> names, String query) {
+        int[] expected = names.entrySet().stream()
+                .filter(entry -> entry.getValue().toLowerCase().contains(query.toLowerCase()))
+                .mapToInt(Map.Entry::getKey).toArray();
+        IntArrayList found = index.search(query);
+        assertArrayEquals(expected, found.toArray(), "search for " + query);
+        assertTrue(index.estimate(query) >= expected.length);
+    }
+
+    /**
+     * Make random text out of syllables.
+     *
+     * @param random source of randomness
+     * @param syllables number of syllables
+     * @return text
+     */
+    private static String randomText(Random random, int syllables) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < syllables; i++) {
+            text.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+        return text.toString();
+    }
+}
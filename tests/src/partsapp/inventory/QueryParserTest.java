@@ -0,0 +1,92 @@
+package partsapp.inventory;
+
+import org.junit.jupiter.api.Test;
+import partsapp.part.InHouse;
+import partsapp.part.Outsourced;
+import partsapp.part.Part;
+
+import java.math.BigDecimal;
+import java.text.ParseException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of QueryParser and of the queries compiled from its clauses.
+ */
+class QueryParserTest {
+    /**
+     * Clauses are read in order, with quoted strings unescaped and numbers kept exact.
+     */
+    @Test
+    void parsesClausesJoinedByAnd() throws ParseException {
+        List<QueryParser.Clause> clauses =
+                QueryParser.parse("name~\"hex \\\"bolt\\\"\" and PRICE<=2.50 AND type = Outsourced");
+
+        assertEquals(3, clauses.size());
+        assertEquals(QueryField.NAME, clauses.get(0).field);
+        assertEquals(QueryParser.Comparison.CONTAINS, clauses.get(0).comparison);
+        assertEquals("hex \"bolt\"", clauses.get(0).text);
+        assertEquals(QueryField.PRICE, clauses.get(1).field);
+        assertEquals(QueryParser.Comparison.LESS_OR_EQUAL, clauses.get(1).comparison);
+        assertEquals(new BigDecimal("2.50"), clauses.get(1).number);
+        assertNull(clauses.get(1).text);
+        assertEquals(QueryParser.Comparison.EQUAL, clauses.get(2).comparison);
+        assertEquals("Outsourced", clauses.get(2).text);
+    }
+
+    /**
+     * Errors point at the position of the problem.
+     */
+    @Test
+    void reportsErrorPositions() {
+        assertErrorAt("colour=red", 0);
+        assertErrorAt("stock=5 OR stock=6", 8);
+        assertErrorAt("stock~5", 5);
+        assertErrorAt("name<bolt", 4);
+        assertErrorAt("stock>=many", 7);
+        assertErrorAt("name=\"bolt", 5);
+        assertErrorAt("stock", 5);
+    }
+
+    /**
+     * Only text containing a comparison is taken for a query.
+     */
+    @Test
+    void recognisesQueries() {
+        assertTrue(Query.looksLikeQuery("stock<5"));
+        assertFalse(Query.looksLikeQuery("hex bolt"));
+    }
+
+    /**
+     * A compiled query tests every clause, including fields only some parts have.
+     */
+    @Test
+    void compiledQueryTestsEveryClause() throws ParseException {
+        Outsourced acme = new Outsourced(1, "Hex Bolt", 1.99, 5, 1, 10);
+        acme.setCompanyName("Acme");
+        Part inHouse = new InHouse(2, "Hex Bolt", 1.99, 5, 1, 10);
+
+        Query<Part> query = Query.forParts("name~bolt AND price<2 AND company=ACME");
+        assertTrue(query.test(acme));
+        assertFalse(query.test(inHouse));
+        assertFalse(Query.forParts("price<1.99").test(acme));
+        assertTrue(Query.forParts("price<=1.99 AND stock>=5 AND stock<=5").test(acme));
+        assertTrue(Query.forParts("stock>5 AND stock<5").matchesNothing());
+    }
+
+    /**
+     * Check that parsing text fails at a position.
+     *
+     * @param text to parse
+     * @param position of the error
+     */
+    private static void assertErrorAt(String text, int position) {
+        ParseException error = assertThrows(ParseException.class, () -> QueryParser.parse(text));
+        assertEquals(position, error.getErrorOffset(), error.getMessage());
+    }
+}
@@ -0,0 +1,109 @@
+package partsapp.inventory;
+
+import org.junit.jupiter.api.Test;
+import partsapp.collections.IntArrayList;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of RangeIndex against a sorted list of entries.
+ */
+class RangeIndexTest {
+    /**
+     * Order of the entries in the index, by key and then ID.
+     */
+    private static final Comparator<long[]> ENTRY_ORDER =
+            Comparator.<long[]>comparingLong(entry -> entry[0]).thenComparingLong(entry -> entry[1]);
+
+    /**
+     * Equal keys are returned in ID order, and pages follow on from each other.
+     */
+    @Test
+    void pagesThroughEqualKeysInIdOrder() {
+        RangeIndex index = new RangeIndex();
+        for (int id = 10; id > 0; id--) {
+            index.add(id, 5);
+        }
+
+        assertArrayEquals(new int[] {1, 2, 3, 4}, index.find(5, 5, 0, 4).toArray());
+        assertArrayEquals(new int[] {5, 6, 7, 8}, index.find(5, 5, 4, 4).toArray());
+        assertArrayEquals(new int[] {9, 10}, index.find(5, 5, 8, 4).toArray());
+        assertEquals(0, index.find(5, 5, 10, 4).size());
+        assertEquals(0, index.find(6, 4, 0, 4).size());
+        assertEquals(0, index.count(6, 4));
+    }
+
+    /**
+     * Removing needs the key an entry was added with.
+     */
+    @Test
+    void removesOnlyMatchingEntries() {
+        RangeIndex index = new RangeIndex();
+        index.add(1, 100);
+
+        assertFalse(index.remove(1, 99));
+        assertFalse(index.remove(2, 100));
+        assertTrue(index.remove(1, 100));
+        assertEquals(0, index.size());
+    }
+
+    /**
+     * Random additions and removals across many blocks, checking counts and pages against the model.
+     */
+    @Test
+    void matchesSortedListUnderRandomChanges() {
+        Random random = new Random(23);
+        RangeIndex index = new RangeIndex();
+        List<long[]> model = new ArrayList<>();
+        int nextId = 1;
+
+        for (int round = 0; round < 40; round++) {
+            // Grow the index past several block splits, then shrink it so blocks merge again.
+            int changes = 1_000 + random.nextInt(2_000);
+            boolean growing = round % 4 != 3;
+            for (int i = 0; i < changes; i++) {
+                if (growing || model.isEmpty() || random.nextInt(3) == 0) {
+                    long key = random.nextInt(500) - 250;
+                    index.add(nextId, key);
+                    model.add(new long[] {key, nextId++});
+                } else {
+                    long[] entry = model.remove(random.nextInt(model.size()));
+                    assertTrue(index.remove((int) entry[1], entry[0]));
+                }
+            }
+            model.sort(ENTRY_ORDER);
+            assertEquals(model.size(), index.size());
+
+            for (int query = 0; query < 50; query++) {
+                long low = random.nextInt(600) - 300;
+                long high = low + random.nextInt(200);
+                int offset = random.nextInt(100);
+                int limit = random.nextInt(300);
+
+                List<Integer> expected = new ArrayList<>();
+                for (long[] entry : model) {
+                    if (entry[0] >= low && entry[0] <= high) {
+                        expected.add((int) entry[1]);
+                    }
+                }
+                assertEquals(expected.size(), index.count(low, high));
+
+                IntArrayList page = index.find(low, high, offset, limit);
+                List<Integer> expectedPage =
+                        expected.subList(Math.min(offset, expected.size()), Math.min(offset + limit, expected.size()));
+                assertEquals(expectedPage.size(), page.size());
+                for (int i = 0; i < page.size(); i++) {
+                    assertEquals(expectedPage.get(i), page.get(i));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package partsapp.inventory;
+
+import org.junit.jupiter.api.Test;
+import partsapp.collections.IntArrayList;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of ReorderQueue against a map of headrooms by ID.
+ */
+class ReorderQueueTest {
+    /**
+     * Stock at the minimum is low, and the headroom does not overflow at the extremes.
+     */
+    @Test
+    void isLowAtOrBelowMinimum() {
+        assertTrue(ReorderQueue.isLow(5, 5));
+        assertTrue(ReorderQueue.isLow(4, 5));
+        assertFalse(ReorderQueue.isLow(6, 5));
+        assertFalse(ReorderQueue.isLow(Integer.MAX_VALUE, Integer.MIN_VALUE));
+        assertTrue(ReorderQueue.isLow(Integer.MIN_VALUE, Integer.MAX_VALUE));
+    }
+
+    /**
+     * Items with the same headroom come out in ID order.
+     */
+    @Test
+    void breaksTiesByLowerId() {
+        ReorderQueue queue = new ReorderQueue();
+        queue.put(3, 10, 5);
+        queue.put(1, 10, 5);
+        queue.put(2, 0, 5);
+
+        assertArrayEquals(new int[] {2, 1, 3}, queue.findMostUrgent(10).toArray());
+        assertArrayEquals(new int[] {2}, queue.findLow());
+    }
+
+    /**
+     * Random puts, moves and removals, checking the most urgent items and the low items against the model.
+     */
+    @Test
+    void matchesModelUnderRandomChanges() {
+        Random random = new Random(31);
+        ReorderQueue queue = new ReorderQueue();
+        Map<Integer, Long> headrooms = new HashMap<>();
+
+        for (int i = 0; i < 50_000; i++) {
+            int id = random.nextInt(3_000);
+            if (random.nextInt(4) == 0) {
+                queue.remove(id);
+                headrooms.remove(id);
+            } else {
+                int stock = random.nextInt(100);
+                int min = random.nextInt(40);
+                queue.put(id, stock, min);
+                headrooms.put(id, (long) stock - min);
+            }
+
+            if (i % 1_000 == 0) {
+                checkAgainstModel(queue, headrooms, random.nextInt(200));
+            }
+        }
+        checkAgainstModel(queue, headrooms, headrooms.size());
+    }
+
+    /**
+     * Compare the queue with the model.
+     *
+     * @param queue to check
+     * @param headrooms expected headroom of each item, by ID
+     * @param count number of most urgent items to compare
+     */
+    private static void checkAgainstModel(ReorderQueue queue, Map<Integer, Long> headrooms, int count) {
+        List<Integer> urgent = new ArrayList<>(headrooms.keySet());
+        urgent.sort((a, b) -> headrooms.get(a).equals(headrooms.get(b))
+                ? Integer.compare(a, b) : Long.compare(headrooms.get(a), headrooms.get(b)));
+
+        assertEquals(headrooms.size(), queue.size());
+        IntArrayList found = queue.findMostUrgent(count);
+        assertEquals(Math.min(count, urgent.size()), found.size());
+        for (int i = 0; i < found.size(); i++) {
+            assertEquals(urgent.get(i), found.get(i));
+        }
+
+        int[] expectedLow = headrooms.entrySet().stream()
+                .filter(entry -> entry.getValue() <= 0).mapToInt(Map.Entry::getKey).sorted().toArray();
+        assertEquals(expectedLow.length, queue.countLow());
+        assertArrayEquals(expectedLow, queue.findLow());
+    }
+}
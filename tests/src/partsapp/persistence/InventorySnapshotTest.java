@@ -0,0 +1,124 @@
+package partsapp.persistence;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import partsapp.part.InHouse;
+import partsapp.part.Outsourced;
+import partsapp.part.Part;
+import partsapp.product.Product;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests of writing and reading InventorySnapshot files.
+ */
+class InventorySnapshotTest {
+    /**
+     * Directory holding the snapshot.
+     */
+    @TempDir
+    Path directory;
+
+    /**
+     * Every field of parts and products, and the quantities of associated parts, survive a round trip.
+     */
+    @Test
+    void roundTripsPartsAndProducts() throws IOException {
+        InHouse inHouse = new InHouse(1, "Hex Bolt", 0.25, 100, 10, 500);
+        inHouse.setMachineId(42);
+        Outsourced outsourced = new Outsourced(2, "Rotor \u00e9", 12.5, 3, 1, 5);
+        outsourced.setCompanyName("Acme");
+        Product product = new Product(1000, "Fan", 99.99, 4, 1, 8);
+        Product empty = new Product(1001, "Hex Bolt", 1, 1, 0, 2);
+
+        Path path = directory.resolve("checkpoint.bin");
+        InventorySnapshot.write(path, 77, 2, 1001, List.of(inHouse, outsourced), List.of(product, empty),
+                List.of(new int[] {1, 4, 2, 1}, new int[0]));
+
+        Map<Integer, Part> parts = new HashMap<>();
+        try (InventorySnapshot snapshot = InventorySnapshot.open(path)) {
+            assertEquals(77, snapshot.getLsn());
+            assertEquals(2, snapshot.getCurrentPartId());
+            assertEquals(1001, snapshot.getCurrentProductId());
+            assertEquals(2, snapshot.getPartCount());
+            assertEquals(2, snapshot.getProductCount());
+
+            for (int i = 0; i < snapshot.getPartCount(); i++) {
+                Part part = snapshot.getPart(i);
+                parts.put(part.getId(), part);
+            }
+            InHouse readInHouse = assertInstanceOf(InHouse.class, parts.get(1));
+            assertEquals("Hex Bolt", readInHouse.getName());
+            assertEquals(0.25, readInHouse.getPrice());
+            assertEquals(100, readInHouse.getStock());
+            assertEquals(10, readInHouse.getMin());
+            assertEquals(500, readInHouse.getMax());
+            assertEquals(42, readInHouse.getMachineId());
+            Outsourced readOutsourced = assertInstanceOf(Outsourced.class, parts.get(2));
+            assertEquals("Rotor \u00e9", readOutsourced.getName());
+            assertEquals("Acme", readOutsourced.getCompanyName());
+
+            Product readProduct = snapshot.getProduct(0, parts::get);
+            assertEquals(1000, readProduct.getId());
+            assertEquals("Fan", readProduct.getName());
+            assertEquals(99.99, readProduct.getPrice());
+            assertEquals(4, readProduct.getStock());
+            assertArrayEquals(new int[] {1, 2}, readProduct.getAssociatedPartIds());
+            assertEquals(4, readProduct.getAssociatedPartQuantity(1));
+            assertEquals(1, readProduct.getAssociatedPartQuantity(2));
+            assertEquals(0, snapshot.getProduct(1, parts::get).getAssociatedPartIds().length);
+        }
+    }
+
+    /**
+     * The record lists decode each record once, resolving the parts of products as they are read.
+     */
+    @Test
+    void listsRecordsInOrder() throws IOException {
+        Part bolt = new InHouse(1, "Bolt", 1, 1, 0, 2);
+        Part nut = new InHouse(2, "Nut", 1, 1, 0, 2);
+        Path path = directory.resolve("checkpoint.bin");
+        InventorySnapshot.write(path, 1, 2, 1000, List.of(bolt, nut), List.of(new Product(1000, "Kit", 5, 1, 0, 2)),
+                List.of(new int[] {2, 3}));
+
+        try (InventorySnapshot snapshot = InventorySnapshot.open(path)) {
+            List<Part> parts = snapshot.getParts();
+            assertEquals(2, parts.size());
+            assertEquals("Nut", parts.get(1).getName());
+            assertSame(parts.get(1), snapshot.getPart(1));
+            assertSame(parts.get(0), parts.subList(0, 1).get(0));
+            assertThrows(IndexOutOfBoundsException.class, () -> parts.get(2));
+
+            List<Product> products = snapshot.getProducts(id -> id == 2 ? parts.get(1) : null);
+            assertEquals(1, products.size());
+            assertEquals(3, products.get(0).getAssociatedPartQuantity(2));
+        }
+    }
+
+    /**
+     * A snapshot damaged after writing is refused rather than read.
+     */
+    @Test
+    void refusesDamagedSnapshot() throws IOException {
+        Path path = directory.resolve("checkpoint.bin");
+        InventorySnapshot.write(path, 1, 1, 1, List.of(new InHouse(1, "Bolt", 1, 1, 0, 2)), List.of(), List.of());
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {'X'}), 50);
+        }
+        assertThrows(IOException.class, () -> InventorySnapshot.open(path).close());
+    }
+}
@@ -0,0 +1,150 @@
+package partsapp.persistence;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests of WriteAheadLog replay after clean shutdowns and crashes.
+ */
+class WriteAheadLogTest {
+    /**
+     * Directory holding the log segments.
+     */
+    @TempDir
+    Path directory;
+
+    /**
+     * Records written and closed cleanly come back in order, across segments, skipping those already covered.
+     */
+    @Test
+    void replaysRecordsAcrossSegments() throws IOException {
+        try (WriteAheadLog log = new WriteAheadLog(directory, 0, 1, 1)) {
+            append(log, "one");
+            append(log, "two");
+            log.roll();
+            append(log, "three");
+        }
+
+        assertEquals(List.of("one", "two", "three"), replay(0));
+        assertEquals(List.of("three"), replay(2));
+        assertEquals(3, WriteAheadLog.replay(directory, 0, (lsn, payload) -> { }));
+    }
+
+    /**
+     * A record torn by a crash is dropped along with everything after it, and the log carries on from the last
+     * intact record.
+     */
+    @Test
+    void truncatesTornRecordAndCarriesOn() throws IOException {
+        // Write without closing, as if the process died once the records were synced.
+        WriteAheadLog crashed = new WriteAheadLog(directory, 0, 1, 1);
+        append(crashed, "kept");
+        crashed.awaitDurable(append(crashed, "torn"));
+        Path segment = onlySegment();
+        long fullSize = Files.size(segment);
+
+        // Tear the last record, as a crash part way through writing it would.
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(fullSize - 3);
+        }
+        long lastLsn = WriteAheadLog.replay(directory, 0, (lsn, payload) -> { });
+        assertEquals(1, lastLsn);
+        assertEquals(List.of("kept"), replay(0));
+        assertEquals(fullSize - recordBytes("torn"), Files.size(segment));
+
+        // A new log continues the LSNs after the last intact record.
+        try (WriteAheadLog reopened = new WriteAheadLog(directory, lastLsn, 1, 1)) {
+            assertEquals(2, append(reopened, "after"));
+        }
+        assertEquals(List.of("kept", "after"), replay(0));
+    }
+
+    /**
+     * A corrupted record stops replay, and the segments after it are discarded.
+     */
+    @Test
+    void discardsSegmentsAfterCorruptRecord() throws IOException {
+        try (WriteAheadLog log = new WriteAheadLog(directory, 0, 1, 1)) {
+            append(log, "good");
+            append(log, "flipped");
+            log.roll();
+            append(log, "lost");
+        }
+        Path first;
+        try (Stream<Path> segments = Files.list(directory)) {
+            first = segments.sorted().findFirst().orElseThrow();
+        }
+
+        // Flip a payload byte of the second record, which its checksum catches.
+        try (FileChannel channel = FileChannel.open(first, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long position = recordBytes("good") + Integer.BYTES + Long.BYTES;
+            channel.write(ByteBuffer.wrap(new byte[] {'F'}), position);
+        }
+
+        assertEquals(List.of("good"), replay(0));
+        try (Stream<Path> segments = Files.list(directory)) {
+            assertEquals(1, segments.count());
+        }
+    }
+
+    /**
+     * Append a text record.
+     *
+     * @param log to append to
+     * @param text of the record
+     * @return LSN of the record
+     */
+    private static long append(WriteAheadLog log, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        return log.append(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Replay the log as text records.
+     *
+     * @param afterLsn LSN of records to skip
+     * @return text of each record replayed, in order
+     */
+    private List<String> replay(long afterLsn) throws IOException {
+        List<String> records = new ArrayList<>();
+        WriteAheadLog.replay(directory, afterLsn,
+                (lsn, payload) -> records.add(StandardCharsets.UTF_8.decode(payload).toString()));
+        return records;
+    }
+
+    /**
+     * Find the single segment file in the log directory.
+     *
+     * @return path of the segment
+     */
+    private Path onlySegment() throws IOException {
+        try (Stream<Path> segments = Files.list(directory)) {
+            List<Path> paths = segments.toList();
+            assertEquals(1, paths.size());
+            return paths.get(0);
+        }
+    }
+
+    /**
+     * Size of a text record in a segment, with its length, LSN and checksum.
+     *
+     * @param text of the record
+     * @return bytes taken by the record
+     */
+    private static long recordBytes(String text) {
+        return Integer.BYTES + Long.BYTES + text.getBytes(StandardCharsets.UTF_8).length + Integer.BYTES;
+    }
+}